@@ -0,0 +1,60 @@
+package com.gestaodeterritorio;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede {@link CadastroLoader#carregar(String)} sobre um CSV sintético, com os dois parsers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CadastroLoaderBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int tamanho;
+
+    @Param({"8", "64"})
+    public int vertices;
+
+    @Param({"OPENCSV", "NATIVO"})
+    public CadastroLoader.Parser parser;
+
+    private Path ficheiro;
+    private CadastroLoader loader;
+
+    @Setup
+    public void preparar() throws Exception {
+        ficheiro = Files.createTempFile("cadastro-benchmark", ".csv");
+        DadosBenchmark.escreverCsv(DadosBenchmark.grelha(tamanho, vertices), ficheiro);
+        loader = new CadastroLoader(parser);
+    }
+
+    @TearDown
+    public void limpar() throws Exception {
+        Files.deleteIfExists(ficheiro);
+    }
+
+    @Benchmark
+    public List<PropriedadeRustica> carregar() throws Exception {
+        return loader.carregar(ficheiro.toString());
+    }
+}
@@ -0,0 +1,82 @@
+package com.gestaodeterritorio;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dados sintéticos partilhados pelos benchmarks: uma grelha de propriedades quadradas, com o número de
+ * vértices pedido, em que propriedades vizinhas partilham exatamente os mesmos vértices de fronteira.
+ */
+final class DadosBenchmark {
+
+    private DadosBenchmark() {
+    }
+
+    /**
+     * Gera o WKT de um quadrado unitário com canto inferior esquerdo em (x, y).
+     *
+     * Cada lado é dividido no mesmo número de segmentos, pelo que o polígono tem pelo menos 4 vértices
+     * distintos e, no máximo, mais 3 do que os pedidos.
+     *
+     * @param x a coluna da propriedade na grelha
+     * @param y a linha da propriedade na grelha
+     * @param vertices o número aproximado de vértices do polígono
+     * @return o polígono em WKT
+     */
+    static String poligono(int x, int y, int vertices) {
+        int porLado = Math.max(1, (vertices + 3) / 4);
+        StringBuilder wkt = new StringBuilder("POLYGON ((");
+        double[][] cantos = {{x, y}, {x + 1, y}, {x + 1, y + 1}, {x, y + 1}};
+        for (int lado = 0; lado < 4; lado++) {
+            double[] a = cantos[lado];
+            double[] b = cantos[(lado + 1) % 4];
+            for (int k = 0; k < porLado; k++) {
+                double t = (double) k / porLado;
+                wkt.append(a[0] + (b[0] - a[0]) * t).append(' ').append(a[1] + (b[1] - a[1]) * t).append(", ");
+            }
+        }
+        return wkt.append(x).append(' ').append(y).append("))").toString();
+    }
+
+    /**
+     * Gera uma grelha quadrada de propriedades com geometria.
+     *
+     * @param tamanho o número de propriedades
+     * @param vertices o número aproximado de vértices de cada polígono
+     * @return a lista de propriedades, com cada proprietário dono de 7 propriedades consecutivas
+     */
+    static List<PropriedadeRustica> grelha(int tamanho, int vertices) {
+        int lado = (int) Math.ceil(Math.sqrt(tamanho));
+        List<PropriedadeRustica> propriedades = new ArrayList<>(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            int x = i / lado;
+            int y = i % lado;
+            propriedades.add(new PropriedadeRustica(Integer.toString(i), "p" + i, "n" + i, "4", "1",
+                    poligono(x, y, vertices), "dono" + (i / 7), "Sé", "Funchal", "Madeira"));
+        }
+        return propriedades;
+    }
+
+    /**
+     * Escreve as propriedades num CSV com o formato do cadastro.
+     *
+     * @param propriedades as propriedades a escrever
+     * @param ficheiro o ficheiro de destino
+     * @throws IOException se ocorrer um erro de escrita
+     */
+    static void escreverCsv(List<PropriedadeRustica> propriedades, Path ficheiro) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(ficheiro, StandardCharsets.UTF_8)) {
+            writer.write("OBJECTID;PAR_ID;PAR_NUM;Shape_Length;Shape_Area;geometry;OWNER;Freguesia;Municipio;Ilha\n");
+            for (PropriedadeRustica p : propriedades) {
+                writer.write(String.join(";", p.getObjectId(), p.getParId(), p.getParNum(), p.getShapeLength(),
+                        p.getShapeArea(), p.getGeometry(), p.getOwner(), p.getFreguesia(), p.getMunicipio(), p.getIlha()));
+                writer.write('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.gestaodeterritorio;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede a procura de adjacências feita em {@link Neo4jConnector#criarRelacoesAdjacenciaGrafo}, sem a
+ * escrita no Neo4j: a construção do índice espacial e os testes de interseção entre candidatos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DetetorAdjacenciasBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int tamanho;
+
+    @Param({"8", "64"})
+    public int vertices;
+
+    private List<PropriedadeRustica> propriedades;
+    private GeometriaStore geometrias;
+    private DetetorAdjacencias detetor;
+
+    @Setup
+    public void preparar() {
+        propriedades = DadosBenchmark.grelha(tamanho, vertices);
+        geometrias = GeometriaStore.carregar(propriedades);
+        detetor = new DetetorAdjacencias();
+    }
+
+    @Benchmark
+    public List<String[]> calcular() {
+        return detetor.calcular(propriedades, geometrias);
+    }
+}
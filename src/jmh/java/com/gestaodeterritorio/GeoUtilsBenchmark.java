@@ -0,0 +1,59 @@
+package com.gestaodeterritorio;
+
+import org.locationtech.jts.geom.Geometry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede a conversão de WKT e o teste de adjacência entre dois polígonos, em função do número de vértices.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class GeoUtilsBenchmark {
+
+    @Param({"8", "64", "512"})
+    public int vertices;
+
+    private String wkt;
+    private Geometry base;
+    private Geometry vizinha;
+    private Geometry afastada;
+
+    @Setup
+    public void preparar() {
+        wkt = DadosBenchmark.poligono(0, 0, vertices);
+        base = GeoUtils.parseGeometry(wkt);
+        vizinha = GeoUtils.parseGeometry(DadosBenchmark.poligono(1, 0, vertices));
+        afastada = GeoUtils.parseGeometry(DadosBenchmark.poligono(2, 0, vertices));
+    }
+
+    @Benchmark
+    public Geometry parseGeometry() {
+        return GeoUtils.parseGeometry(wkt);
+    }
+
+    @Benchmark
+    public boolean saoAdjacentesVizinhas() {
+        return GeoUtils.saoAdjacentes(base, vizinha);
+    }
+
+    @Benchmark
+    public boolean saoAdjacentesAfastadas() {
+        return GeoUtils.saoAdjacentes(base, afastada);
+    }
+}
@@ -0,0 +1,78 @@
+package com.gestaodeterritorio;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede o débito de {@link LocalizadorPropriedades}, em pontos por segundo, com pontos aleatórios sobre a
+ * grelha: um ponto de cada vez e em lotes de {@link #LOTE} pontos divididos por várias threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LocalizadorPropriedadesBenchmark {
+
+    private static final int LOTE = 100000;
+
+    @Param({"10000", "100000"})
+    public int tamanho;
+
+    @Param({"8", "64"})
+    public int vertices;
+
+    @Param({"64", "4096"})
+    public int capacidadeCache;
+
+    private LocalizadorPropriedades localizador;
+    private double[] xs;
+    private double[] ys;
+    private int proximo;
+
+    @Setup
+    public void preparar() {
+        List<PropriedadeRustica> propriedades = DadosBenchmark.grelha(tamanho, vertices);
+        GeometriaStore geometrias = GeometriaStore.carregar(propriedades);
+        localizador = new LocalizadorPropriedades(propriedades, geometrias,
+                IndiceHilbert.construir(propriedades, geometrias), capacidadeCache,
+                Runtime.getRuntime().availableProcessors());
+
+        int lado = (int) Math.ceil(Math.sqrt(tamanho));
+        Random random = new Random(42);
+        xs = new double[LOTE];
+        ys = new double[LOTE];
+        for (int i = 0; i < LOTE; i++) {
+            xs[i] = random.nextDouble() * lado;
+            ys[i] = random.nextDouble() * lado;
+        }
+    }
+
+    @Benchmark
+    public PropriedadeRustica localizar() {
+        int i = proximo;
+        proximo = i + 1 == LOTE ? 0 : i + 1;
+        return localizador.localizar(xs[i], ys[i]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOTE)
+    public PropriedadeRustica[] localizarLote() {
+        return localizador.localizar(xs, ys);
+    }
+}
@@ -0,0 +1,343 @@
+package com.gestaodeterritorio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * Estatísticas de área das propriedades por freguesia, município e ilha.
+ *
+ * Os campos {@code Shape_Area} e {@code Shape_Length} são convertidos uma única vez para arrays de
+ * {@code double} e as três divisões administrativas são codificadas em inteiros. A agregação é feita
+ * numa só passagem paralela sobre as propriedades: cada thread acumula contagem, soma, mínimo e máximo
+ * para os três níveis ao mesmo tempo e os acumuladores são juntos no fim.
+ *
+ * As propriedades com área inválida ou vazia não entram nas estatísticas, e as que não têm valor numa
+ * divisão não entram nas estatísticas desse nível.
+ *
+ * Como há freguesias e municípios com o mesmo nome em ilhas ou municípios diferentes, cada região é
+ * identificada pelo caminho completo das divisões que a contêm, construído por {@link #chave(String...)}:
+ * uma freguesia por ilha, município e freguesia, um município por ilha e município, e uma ilha só pelo nome.
+ */
+public class AgregadorAreas {
+
+    /**
+     * Separador das divisões administrativas na chave de uma região.
+     */
+    public static final String SEPARADOR = " / ";
+
+    /**
+     * Nível administrativo de agregação.
+     */
+    public enum Nivel {
+        FREGUESIA, MUNICIPIO, ILHA
+    }
+
+    /**
+     * Estatísticas de área de uma região.
+     */
+    public static class Estatisticas {
+        private final String regiao;
+        private final long numeroPropriedades;
+        private final double areaTotal;
+        private final double areaMinima;
+        private final double areaMaxima;
+        private final double perimetroTotal;
+        private final long numeroPerimetros;
+
+        private Estatisticas(String regiao, long numeroPropriedades, double areaTotal, double areaMinima,
+                             double areaMaxima, double perimetroTotal, long numeroPerimetros) {
+            this.regiao = regiao;
+            this.numeroPropriedades = numeroPropriedades;
+            this.areaTotal = areaTotal;
+            this.areaMinima = areaMinima;
+            this.areaMaxima = areaMaxima;
+            this.perimetroTotal = perimetroTotal;
+            this.numeroPerimetros = numeroPerimetros;
+        }
+
+        /**
+         * @return a chave da região, com as divisões que a contêm
+         */
+        public String getRegiao() {
+            return regiao;
+        }
+
+        /**
+         * @return o número de propriedades com área válida na região
+         */
+        public long getNumeroPropriedades() {
+            return numeroPropriedades;
+        }
+
+        /**
+         * @return a soma das áreas das propriedades
+         */
+        public double getAreaTotal() {
+            return areaTotal;
+        }
+
+        /**
+         * @return a área média das propriedades
+         */
+        public double getAreaMedia() {
+            return areaTotal / numeroPropriedades;
+        }
+
+        /**
+         * @return a menor área de uma propriedade
+         */
+        public double getAreaMinima() {
+            return areaMinima;
+        }
+
+        /**
+         * @return a maior área de uma propriedade
+         */
+        public double getAreaMaxima() {
+            return areaMaxima;
+        }
+
+        /**
+         * @return o perímetro médio das propriedades, ignorando perímetros inválidos, ou {@code NaN} se
+         *         nenhuma propriedade tiver perímetro
+         */
+        public double getPerimetroMedio() {
+            return perimetroTotal / numeroPerimetros;
+        }
+    }
+
+    private final Map<Nivel, Map<String, Estatisticas>> resultados;
+
+    private AgregadorAreas(Map<Nivel, Map<String, Estatisticas>> resultados) {
+        this.resultados = resultados;
+    }
+
+    /**
+     * Calcula as estatísticas dos três níveis numa só passagem paralela.
+     *
+     * @param propriedades as propriedades a agregar
+     * @return o agregador com as estatísticas calculadas
+     */
+    public static AgregadorAreas calcular(List<PropriedadeRustica> propriedades) {
+        int n = propriedades.size();
+
+        // conversão única das colunas para primitivos
+        double[] areas = new double[n];
+        double[] perimetros = new double[n];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            PropriedadeRustica p = propriedades.get(i);
+            areas[i] = converter(p.getShapeArea());
+            perimetros[i] = converter(p.getShapeLength());
+        });
+        return agregar(propriedades, areas, perimetros);
+    }
+
+    /**
+     * Calcula as estatísticas dos três níveis a partir de uma tabela por colunas, cujas áreas e
+     * perímetros já estão convertidos.
+     *
+     * @param tabela o cadastro a agregar
+     * @return o agregador com as estatísticas calculadas
+     */
+    public static AgregadorAreas calcular(TabelaCadastro tabela) {
+        return agregar(tabela.linhas(), tabela.areas(), tabela.comprimentos());
+    }
+
+    /**
+     * Agrega áreas e perímetros já convertidos, usando as regiões das propriedades correspondentes.
+     *
+     * @param regioes propriedades de onde são lidas a freguesia, o município e a ilha de cada posição
+     * @param areas a área de cada posição, ou {@code NaN} para a ignorar
+     * @param perimetros o perímetro de cada posição, ou {@code NaN} se for desconhecido
+     * @return o agregador com as estatísticas calculadas
+     */
+    static AgregadorAreas agregar(List<PropriedadeRustica> regioes, double[] areas, double[] perimetros) {
+        int n = regioes.size();
+        Nivel[] niveis = Nivel.values();
+
+        int[][] codigos = new int[niveis.length][n];
+        List<List<String>> nomes = new ArrayList<>();
+        for (Nivel nivel : niveis) {
+            Map<String, Integer> dicionario = new HashMap<>();
+            List<String> nomesNivel = new ArrayList<>();
+            int[] codigosNivel = codigos[nivel.ordinal()];
+            for (int i = 0; i < n; i++) {
+                String regiao = regiao(regioes.get(i), nivel);
+                if (regiao == null) {
+                    codigosNivel[i] = -1;
+                    continue;
+                }
+                Integer codigo = dicionario.get(regiao);
+                if (codigo == null) {
+                    codigo = nomesNivel.size();
+                    dicionario.put(regiao, codigo);
+                    nomesNivel.add(regiao);
+                }
+                codigosNivel[i] = codigo;
+            }
+            nomes.add(nomesNivel);
+        }
+
+        int[] tamanhos = new int[niveis.length];
+        for (Nivel nivel : niveis) {
+            tamanhos[nivel.ordinal()] = nomes.get(nivel.ordinal()).size();
+        }
+        Acumulador total = IntStream.range(0, n).parallel().collect(
+                () -> new Acumulador(tamanhos),
+                (acumulador, i) -> acumulador.adicionar(codigos, areas[i], perimetros[i], i),
+                Acumulador::juntar);
+
+        Map<Nivel, Map<String, Estatisticas>> resultados = new LinkedHashMap<>();
+        for (Nivel nivel : niveis) {
+            int k = nivel.ordinal();
+            resultados.put(nivel, Collections.unmodifiableMap(total.estatisticas(k, nomes.get(k))));
+        }
+        return new AgregadorAreas(resultados);
+    }
+
+    /**
+     * @param nivel o nível administrativo
+     * @return as estatísticas de todas as regiões do nível, ordenadas pela chave da região
+     */
+    public Map<String, Estatisticas> obter(Nivel nivel) {
+        return resultados.get(nivel);
+    }
+
+    /**
+     * @param nivel o nível administrativo
+     * @param regiao a chave da região, construída por {@link #chave(String...)}
+     * @return as estatísticas da região, ou {@code null} se não existir nenhuma propriedade com área válida
+     */
+    public Estatisticas obter(Nivel nivel, String regiao) {
+        return resultados.get(nivel).get(regiao);
+    }
+
+    /**
+     * Constrói a chave de uma região a partir das divisões que a contêm, da maior para a menor, por
+     * exemplo {@code chave("Madeira", "Funchal", "Sé")} para uma freguesia.
+     *
+     * @param divisoes os nomes da ilha, do município e da freguesia, até ao nível da região
+     * @return a chave da região
+     */
+    public static String chave(String... divisoes) {
+        StringBuilder chave = new StringBuilder();
+        for (int i = 0; i < divisoes.length; i++) {
+            if (i > 0) chave.append(SEPARADOR);
+            if (divisoes[i] != null) chave.append(divisoes[i].trim());
+        }
+        return chave.toString();
+    }
+
+    /**
+     * @return a chave da região da propriedade no nível indicado, ou {@code null} se a propriedade não
+     *         tiver valor na divisão desse nível
+     */
+    private static String regiao(PropriedadeRustica p, Nivel nivel) {
+        switch (nivel) {
+            case FREGUESIA:
+                return vazio(p.getFreguesia()) ? null : chave(p.getIlha(), p.getMunicipio(), p.getFreguesia());
+            case MUNICIPIO:
+                return vazio(p.getMunicipio()) ? null : chave(p.getIlha(), p.getMunicipio());
+            default:
+                return vazio(p.getIlha()) ? null : chave(p.getIlha());
+        }
+    }
+
+    private static boolean vazio(String valor) {
+        return valor == null || valor.trim().isEmpty();
+    }
+
+    /**
+     * Converte um valor numérico do CSV, aceitando vírgula como separador decimal.
+     *
+     * @return o valor, ou {@code NaN} se estiver vazio ou for inválido
+     */
+    static double converter(String valor) {
+        if (valor == null) return Double.NaN;
+        String texto = valor.trim();
+        if (texto.isEmpty()) return Double.NaN;
+        try {
+            return Double.parseDouble(texto.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Acumulador de uma thread, com contagem, somas, mínimo e máximo por região dos três níveis.
+     */
+    private static class Acumulador {
+        private final long[][] contagens;
+        private final double[][] somas;
+        private final double[][] minimos;
+        private final double[][] maximos;
+        private final double[][] perimetros;
+        private final long[][] contagensPerimetro;
+
+        Acumulador(int[] tamanhos) {
+            int niveis = tamanhos.length;
+            contagens = new long[niveis][];
+            somas = new double[niveis][];
+            minimos = new double[niveis][];
+            maximos = new double[niveis][];
+            perimetros = new double[niveis][];
+            contagensPerimetro = new long[niveis][];
+            for (int k = 0; k < niveis; k++) {
+                contagens[k] = new long[tamanhos[k]];
+                somas[k] = new double[tamanhos[k]];
+                minimos[k] = new double[tamanhos[k]];
+                maximos[k] = new double[tamanhos[k]];
+                perimetros[k] = new double[tamanhos[k]];
+                contagensPerimetro[k] = new long[tamanhos[k]];
+                Arrays.fill(minimos[k], Double.POSITIVE_INFINITY);
+                Arrays.fill(maximos[k], Double.NEGATIVE_INFINITY);
+            }
+        }
+
+        void adicionar(int[][] codigos, double area, double perimetro, int i) {
+            if (Double.isNaN(area)) return;
+            for (int k = 0; k < codigos.length; k++) {
+                int c = codigos[k][i];
+                if (c < 0) continue;
+                contagens[k][c]++;
+                somas[k][c] += area;
+                if (area < minimos[k][c]) minimos[k][c] = area;
+                if (area > maximos[k][c]) maximos[k][c] = area;
+                if (!Double.isNaN(perimetro)) {
+                    perimetros[k][c] += perimetro;
+                    contagensPerimetro[k][c]++;
+                }
+            }
+        }
+
+        void juntar(Acumulador outro) {
+            for (int k = 0; k < contagens.length; k++) {
+                for (int c = 0; c < contagens[k].length; c++) {
+                    contagens[k][c] += outro.contagens[k][c];
+                    somas[k][c] += outro.somas[k][c];
+                    minimos[k][c] = Math.min(minimos[k][c], outro.minimos[k][c]);
+                    maximos[k][c] = Math.max(maximos[k][c], outro.maximos[k][c]);
+                    perimetros[k][c] += outro.perimetros[k][c];
+                    contagensPerimetro[k][c] += outro.contagensPerimetro[k][c];
+                }
+            }
+        }
+
+        Map<String, Estatisticas> estatisticas(int k, List<String> nomes) {
+            Map<String, Estatisticas> resultado = new TreeMap<>();
+            for (int c = 0; c < nomes.size(); c++) {
+                if (contagens[k][c] == 0) continue;
+                resultado.put(nomes.get(c), new Estatisticas(nomes.get(c), contagens[k][c], somas[k][c],
+                        minimos[k][c], maximos[k][c], perimetros[k][c], contagensPerimetro[k][c]));
+            }
+            return resultado;
+        }
+    }
+}
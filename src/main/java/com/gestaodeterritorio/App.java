@@ -1,5 +1,8 @@
 package com.gestaodeterritorio;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -13,27 +16,75 @@ import java.util.List;
  * - Criar conexão com a base de dados Neo4j
  * - Carregar dados de um ficheiro CSV
  * - Criar os nós e relações no grafo
+ * - Escrever o relatório da execução, com as métricas de cada etapa
  */
 public class App {
 
+    /** Ficheiro da cache de geometrias em WKB, criado na diretoria de trabalho. */
+    static final String FICHEIRO_CACHE = "Madeira-Moodle.geometrias";
+
+    /** Ficheiro do índice espacial, criado na diretoria de trabalho. */
+    static final String FICHEIRO_INDICE = "Madeira-Moodle.indice";
+
+    /** Relatório JSON de cada execução, criado na diretoria de trabalho. */
+    static final String FICHEIRO_RELATORIO = "relatorio-execucao.json";
+
+    /** Lado das quadrículas usadas com {@code --quadriculas}, em metros. */
+    static final double LADO_QUADRICULA = 2000.0;
+
     /**
      * Método principal que inicia a execução da aplicação.
      *
-     * @param args argumentos da linha de comandos (não utilizados)
+     * Por omissão, a leitura do CSV, a escrita dos nós e o cálculo das adjacências decorrem em pipeline.
+     * Com o argumento {@code --incremental}, apenas as propriedades novas ou com geometria alterada
+     * têm as suas adjacências recalculadas, as geometrias que não mudaram desde a execução anterior são
+     * lidas da cache em WKB e o índice espacial é lido do disco se nenhuma geometria tiver mudado. Com o
+     * argumento {@code --quadriculas}, o cadastro não é mantido em memória e as adjacências são calculadas
+     * por quadrículas guardadas em disco, para ficheiros maiores do que a memória disponível.
+     *
+     * No fim, mesmo em caso de erro, é escrito o relatório {@link #FICHEIRO_RELATORIO} com o tempo, as
+     * linhas processadas, o GC e a memória alocada de cada etapa, e as latências das transações.
+     *
+     * @param args argumentos da linha de comandos
      */
     public static void main(String[] args) {
+        RelatorioExecucao relatorio = new RelatorioExecucao();
         try {
             Neo4jConnector connector = new Neo4jConnector();
+            connector.setRelatorio(relatorio);
+            connector.criarEsquema();
 
             CadastroLoader loader = new CadastroLoader();
-            List<PropriedadeRustica> propriedades = loader.carregar("Madeira-Moodle.csv");
 
-            connector.criarPropriedadesGrafo(propriedades);
-            connector.criarRelacoesAdjacenciaGrafo(propriedades);
+            if (Arrays.asList(args).contains("--incremental")) {
+                RelatorioExecucao.Etapa csv = relatorio.etapa("csv");
+                List<PropriedadeRustica> propriedades = csv.medir(() -> loader.carregar("Madeira-Moodle.csv"));
+                csv.somarLinhas(propriedades.size());
+
+                RelatorioExecucao.Etapa cache = relatorio.etapa("cache e índice");
+                GeometriaStore geometrias = cache.medir(
+                        () -> CacheGeometrias.carregar(propriedades, Paths.get(FICHEIRO_CACHE)));
+                IndiceHilbert indice = cache.medir(
+                        () -> IndiceHilbert.carregar(Paths.get(FICHEIRO_INDICE), propriedades, geometrias));
+                cache.somarLinhas(propriedades.size());
+                connector.atualizarGrafoIncremental(propriedades, geometrias, indice);
+            } else if (Arrays.asList(args).contains("--quadriculas")) {
+                connector.criarGrafoPorQuadriculas(loader, "Madeira-Moodle.csv", LADO_QUADRICULA);
+            } else {
+                connector.criarGrafoEmPipeline(loader, "Madeira-Moodle.csv");
+            }
 
             connector.close();
         } catch (Exception e) {
+            relatorio.registarErro(e);
             System.err.println("Erro ao carregar o CSV: " + e.getMessage());
+        } finally {
+            try {
+                relatorio.escrever(Paths.get(FICHEIRO_RELATORIO));
+                System.out.println("Relatório da execução escrito em " + FICHEIRO_RELATORIO);
+            } catch (IOException e) {
+                System.err.println("Erro ao escrever o relatório: " + e.getMessage());
+            }
         }
     }
 }
@@ -0,0 +1,353 @@
+package com.gestaodeterritorio;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKBWriter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache em disco das geometrias do cadastro, em formato WKB, para evitar voltar a interpretar o WKT
+ * das propriedades cuja geometria não mudou.
+ *
+ * O ficheiro de cache tem um cabeçalho, as geometrias WKB escritas umas a seguir às outras e, no fim,
+ * um índice com o {@code objectId}, o hash da geometria (ver {@link PropriedadeRustica#getHashGeometria()}),
+ * a posição e o comprimento de cada geometria. Ao abrir, só o índice é lido; a zona das geometrias é
+ * mapeada em memória e cada geometria é convertida apenas quando é pedida, diretamente a partir do
+ * ficheiro mapeado.
+ *
+ * Cada entrada é validada por si: só é usada se o hash guardado for igual ao da geometria atual da
+ * propriedade, pelo que uma alteração a algumas linhas do CSV só obriga a converter essas linhas. As
+ * propriedades com WKT inválido também ficam registadas, para que um arranque com a cache válida não
+ * volte a tentar convertê-las.
+ *
+ * Só são guardadas as coordenadas X e Y.
+ */
+public class CacheGeometrias implements Closeable {
+
+    private static final int MAGICO = 0x47454F43; // "GEOC"
+    private static final int VERSAO = 2;
+    /** Magico, versão e posição do índice. */
+    private static final int TAMANHO_CABECALHO = 4 + 4 + 8;
+    /** Tamanho máximo de cada região mapeada; um {@link MappedByteBuffer} não passa de 2 GiB. */
+    static final int TAMANHO_SEGMENTO = 1 << 30;
+
+    private final RandomAccessFile ficheiro;
+    private final int tamanhoSegmento;
+    private final Map<String, Integer> indices;
+    private final long[] hashes;
+    private final long[] posicoes;
+    private final int[] comprimentos;
+    private final long tamanhoDados;
+    private MappedByteBuffer[] segmentos;
+
+    private CacheGeometrias(RandomAccessFile ficheiro, int tamanhoSegmento, Map<String, Integer> indices,
+                            long[] hashes, long[] posicoes, int[] comprimentos, long tamanhoDados) {
+        this.ficheiro = ficheiro;
+        this.tamanhoSegmento = tamanhoSegmento;
+        this.indices = indices;
+        this.hashes = hashes;
+        this.posicoes = posicoes;
+        this.comprimentos = comprimentos;
+        this.tamanhoDados = tamanhoDados;
+    }
+
+    /**
+     * Carrega as geometrias das propriedades, lendo da cache as que não mudaram e convertendo o WKT das
+     * restantes. Se alguma geometria tiver mudado, tiver sido acrescentada ou removida, a cache é
+     * reescrita no fim.
+     *
+     * Se a cache servir para todas as propriedades, a zona das geometrias é mapeada e o armazém devolvido
+     * converte cada geometria a partir do ficheiro mapeado apenas quando é pedida. Quando a cache vai ser
+     * reescrita, as geometrias reutilizadas são lidas sem mapear o ficheiro, para que a substituição não
+     * encontre o ficheiro ainda mapeado.
+     *
+     * @param propriedades as propriedades lidas do ficheiro CSV
+     * @param ficheiroCache o caminho do ficheiro de cache
+     * @return o armazém com as geometrias de todas as propriedades
+     * @throws IOException se ocorrer um erro ao ler ou ao escrever a cache
+     */
+    public static GeometriaStore carregar(List<PropriedadeRustica> propriedades, Path ficheiroCache) throws IOException {
+        GeometriaStore geometrias;
+        int reutilizadas = 0;
+        try (CacheGeometrias cache = abrir(ficheiroCache, TAMANHO_SEGMENTO, false)) {
+            if (cache == null) {
+                geometrias = GeometriaStore.carregar(propriedades);
+            } else {
+                for (PropriedadeRustica p : propriedades) {
+                    if (cache.contem(p)) reutilizadas++;
+                }
+                if (reutilizadas == propriedades.size() && cache.tamanho() == propriedades.size()) {
+                    cache.mapear();
+                    System.out.println("Geometrias lidas da cache " + ficheiroCache);
+                    return GeometriaStore.mapeada(cache);
+                }
+                geometrias = GeometriaStore.carregar(propriedades, cache);
+            }
+        }
+
+        escrever(ficheiroCache, propriedades, geometrias);
+        System.out.println("Cache de geometrias escrita em " + ficheiroCache + " (" + reutilizadas + " de "
+                + propriedades.size() + " geometrias reutilizadas)");
+        return geometrias;
+    }
+
+    /**
+     * Escreve a cache das geometrias das propriedades. O ficheiro é escrito ao lado do destino e só
+     * depois movido, pelo que uma escrita interrompida nunca deixa uma cache incompleta.
+     *
+     * @param ficheiroCache o caminho do ficheiro de cache
+     * @param propriedades as propriedades a guardar
+     * @param geometrias as geometrias já convertidas das propriedades
+     * @throws IOException se ocorrer um erro de escrita
+     */
+    public static void escrever(Path ficheiroCache, List<PropriedadeRustica> propriedades,
+                                GeometriaStore geometrias) throws IOException {
+        Path temporario = ficheiroCache.resolveSibling(ficheiroCache.getFileName() + ".tmp");
+        WKBWriter writer = new WKBWriter();
+        String[] ids = new String[propriedades.size()];
+        long[] hashes = new long[ids.length];
+        long[] posicoes = new long[ids.length];
+        int[] comprimentos = new int[ids.length];
+
+        long posicaoIndice;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporario), 1 << 16))) {
+            out.writeInt(MAGICO);
+            out.writeInt(VERSAO);
+            out.writeLong(0); // posição do índice, preenchida no fim
+
+            long posicao = 0;
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = propriedades.get(i).getObjectId();
+                hashes[i] = propriedades.get(i).getHashGeometria();
+                Geometry g = geometrias.obter(ids[i]);
+                posicoes[i] = posicao;
+                if (g == null) {
+                    comprimentos[i] = -1;
+                    continue;
+                }
+                byte[] wkb = writer.write(g);
+                out.write(wkb);
+                comprimentos[i] = wkb.length;
+                posicao += wkb.length;
+            }
+
+            posicaoIndice = TAMANHO_CABECALHO + posicao;
+            out.writeInt(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                out.writeUTF(ids[i]);
+                out.writeLong(hashes[i]);
+                out.writeLong(posicoes[i]);
+                out.writeInt(comprimentos[i]);
+            }
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(temporario.toFile(), "rw")) {
+            raf.seek(TAMANHO_CABECALHO - 8);
+            raf.writeLong(posicaoIndice);
+        }
+        Files.move(temporario, ficheiroCache, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Abre a cache, se existir, e mapeia a zona das geometrias.
+     *
+     * @param ficheiroCache o caminho do ficheiro de cache
+     * @return a cache aberta, ou {@code null} se não existir, for de outra versão ou estiver corrompida
+     * @throws IOException se ocorrer um erro ao ler um ficheiro de cache válido
+     */
+    public static CacheGeometrias abrir(Path ficheiroCache) throws IOException {
+        return abrir(ficheiroCache, TAMANHO_SEGMENTO, true);
+    }
+
+    static CacheGeometrias abrir(Path ficheiroCache, int tamanhoSegmento) throws IOException {
+        return abrir(ficheiroCache, tamanhoSegmento, true);
+    }
+
+    /**
+     * @param mapear se a zona das geometrias deve ser mapeada; caso contrário, cada geometria é lida
+     *               do ficheiro quando é pedida
+     */
+    private static CacheGeometrias abrir(Path ficheiroCache, int tamanhoSegmento, boolean mapear) throws IOException {
+        if (!Files.isRegularFile(ficheiroCache)) return null;
+
+        RandomAccessFile ficheiro = new RandomAccessFile(ficheiroCache.toFile(), "r");
+        try {
+            long tamanhoFicheiro = ficheiro.length();
+            if (tamanhoFicheiro < TAMANHO_CABECALHO
+                    || ficheiro.readInt() != MAGICO
+                    || ficheiro.readInt() != VERSAO) {
+                ficheiro.close();
+                return null;
+            }
+            long posicaoIndice = ficheiro.readLong();
+            if (posicaoIndice < TAMANHO_CABECALHO || posicaoIndice > tamanhoFicheiro) {
+                ficheiro.close();
+                return null;
+            }
+
+            // índice
+            FileChannel canal = ficheiro.getChannel();
+            canal.position(posicaoIndice);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(canal), 1 << 16));
+            int n = in.readInt();
+            if (n < 0) {
+                ficheiro.close();
+                return null;
+            }
+            Map<String, Integer> indices = new HashMap<>(n * 2);
+            long[] hashes = new long[n];
+            long[] posicoes = new long[n];
+            int[] comprimentos = new int[n];
+            for (int i = 0; i < n; i++) {
+                indices.put(in.readUTF(), i);
+                hashes[i] = in.readLong();
+                posicoes[i] = in.readLong();
+                comprimentos[i] = in.readInt();
+            }
+
+            CacheGeometrias cache = new CacheGeometrias(ficheiro, tamanhoSegmento, indices, hashes, posicoes,
+                    comprimentos, posicaoIndice - TAMANHO_CABECALHO);
+            if (mapear) cache.mapear();
+            return cache;
+        } catch (EOFException e) {
+            ficheiro.close();
+            return null;
+        } catch (IOException | RuntimeException e) {
+            ficheiro.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Mapeia a zona das geometrias em segmentos.
+     */
+    private void mapear() throws IOException {
+        FileChannel canal = ficheiro.getChannel();
+        int numeroSegmentos = (int) ((tamanhoDados + tamanhoSegmento - 1) / tamanhoSegmento);
+        MappedByteBuffer[] mapeados = new MappedByteBuffer[numeroSegmentos];
+        for (int s = 0; s < numeroSegmentos; s++) {
+            long inicio = (long) s * tamanhoSegmento;
+            long tamanho = Math.min(tamanhoSegmento, tamanhoDados - inicio);
+            mapeados[s] = canal.map(FileChannel.MapMode.READ_ONLY, TAMANHO_CABECALHO + inicio, tamanho);
+        }
+        segmentos = mapeados;
+    }
+
+    /**
+     * @param objectId o identificador da propriedade
+     * @return {@code true} se a propriedade estiver na cache, mesmo que com geometria inválida
+     */
+    public boolean contem(String objectId) {
+        return indices.containsKey(objectId);
+    }
+
+    /**
+     * @param propriedade a propriedade
+     * @return {@code true} se a propriedade estiver na cache com a mesma geometria que tem agora, mesmo
+     *         que inválida
+     */
+    public boolean contem(PropriedadeRustica propriedade) {
+        Integer i = indices.get(propriedade.getObjectId());
+        return i != null && hashes[i] == propriedade.getHashGeometria();
+    }
+
+    /**
+     * @return o número de propriedades na cache
+     */
+    public int tamanho() {
+        return posicoes.length;
+    }
+
+    /**
+     * Converte a geometria de uma propriedade a partir do WKB mapeado, com uma fábrica por omissão. A
+     * entrada não é validada; ver {@link #contem(PropriedadeRustica)}.
+     *
+     * @param objectId o identificador da propriedade
+     * @return a geometria, ou {@code null} se não estiver na cache ou tiver WKT inválido na origem
+     */
+    public Geometry obter(String objectId) {
+        return obter(objectId, new GeometryFactory());
+    }
+
+    /**
+     * Converte a geometria de uma propriedade a partir do WKB mapeado. Pode ser chamado por várias
+     * threads em simultâneo.
+     *
+     * @param objectId o identificador da propriedade
+     * @param factory a fábrica usada para construir a geometria
+     * @return a geometria, ou {@code null} se não estiver na cache ou tiver WKT inválido na origem
+     */
+    public Geometry obter(String objectId, GeometryFactory factory) {
+        Integer i = indices.get(objectId);
+        if (i == null || comprimentos[i] < 0) return null;
+        try {
+            return new WKBReader(factory).read(ler(posicoes[i], comprimentos[i]));
+        } catch (ParseException e) {
+            System.err.println("Erro ao converter WKB da cache: " + e.getMessage());
+            return null;
+        } catch (IOException e) {
+            System.err.println("Erro ao ler a cache de geometrias: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Copia bytes da zona mapeada, atravessando a fronteira entre segmentos se for preciso, ou lê-os do
+     * ficheiro se a zona não estiver mapeada.
+     */
+    private byte[] ler(long posicao, int comprimento) throws IOException {
+        byte[] bytes = new byte[comprimento];
+        if (segmentos == null) {
+            ByteBuffer destino = ByteBuffer.wrap(bytes);
+            FileChannel canal = ficheiro.getChannel();
+            while (destino.hasRemaining()) {
+                if (canal.read(destino, TAMANHO_CABECALHO + posicao + destino.position()) < 0) {
+                    throw new EOFException("Cache de geometrias truncada");
+                }
+            }
+            return bytes;
+        }
+        int copiados = 0;
+        while (copiados < comprimento) {
+            long atual = posicao + copiados;
+            ByteBuffer segmento = segmentos[(int) (atual / tamanhoSegmento)].duplicate();
+            segmento.position((int) (atual % tamanhoSegmento));
+            int quantidade = Math.min(comprimento - copiados, segmento.remaining());
+            segmento.get(bytes, copiados, quantidade);
+            copiados += quantidade;
+        }
+        return bytes;
+    }
+
+    /**
+     * Fecha o ficheiro da cache. As geometrias já convertidas continuam válidas e, se a zona das
+     * geometrias estiver mapeada, as restantes continuam a poder ser convertidas, porque o mapeamento
+     * não depende do ficheiro aberto.
+     *
+     * @throws IOException se ocorrer um erro ao fechar o ficheiro
+     */
+    @Override
+    public void close() throws IOException {
+        ficheiro.close();
+    }
+}
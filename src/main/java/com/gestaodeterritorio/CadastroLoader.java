@@ -8,36 +8,196 @@ import java.util.Objects;
 import java.io.FileReader;
 import java.io.Reader;
 import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Classe responsável por carregar dados de propriedades rústicas a partir de um ficheiro CSV.
  *
  * Utiliza a biblioteca OpenCSV para mapear as linhas do CSV para objetos do tipo {@code PropriedadeRustica}.
+ *
+ * Além do carregamento completo para memória, disponibiliza um modo em streaming, em que as linhas são
+ * convertidas à medida que são lidas e entregues em lotes, mantendo a memória usada limitada.
+ *
+ * O parser pode ser escolhido no construtor: o OpenCSV, com mapeamento por anotações, ou um leitor
+ * nativo que constrói as propriedades diretamente, sem reflexão.
  */
 public class CadastroLoader {
 
+    /**
+     * Implementações disponíveis para converter as linhas do CSV.
+     */
+    public enum Parser {
+        /** Mapeamento por reflexão com {@code CsvToBean} do OpenCSV. */
+        OPENCSV,
+        /** Leitor {@link LeitorCsvCadastro} escrito à medida, sem reflexão. */
+        NATIVO
+    }
+
+    private final Parser parser;
+
+    /**
+     * Cria um carregador que usa o OpenCSV.
+     */
+    public CadastroLoader() {
+        this(Parser.OPENCSV);
+    }
+
+    /**
+     * Cria um carregador que usa o parser indicado.
+     *
+     * @param parser a implementação a usar na conversão das linhas
+     */
+    public CadastroLoader(Parser parser) {
+        this.parser = Objects.requireNonNull(parser);
+    }
+
     /**
      * Carrega os dados do ficheiro CSV fornecido e transforma-os numa lista de objetos {@code PropriedadeRustica}.
      *
-     * @param nomeFicheiro o nome do ficheiro CSV localizado em {@code src/main/resources}
+     * @param nomeFicheiro o nome do ficheiro CSV localizado em {@code src/main/resources}, ou o seu caminho
+     *                     no sistema de ficheiros
      * @return uma lista de objetos {@code PropriedadeRustica} com base nos dados do ficheiro
      * @throws Exception se o ficheiro não for encontrado ou se ocorrer algum erro durante a leitura
      */
     public List<PropriedadeRustica> carregar(String nomeFicheiro) throws Exception {
+        try (Reader reader = abrir(nomeFicheiro)) {
+            if (parser == Parser.OPENCSV) {
+                return construirParser(reader).parse();
+            }
+            List<PropriedadeRustica> propriedades = new ArrayList<>();
+            new LeitorCsvCadastro(reader).forEachRemaining(propriedades::add);
+            return propriedades;
+        }
+    }
+
+    /**
+     * Carrega o ficheiro CSV para uma tabela por colunas, em streaming, sem manter a lista de
+     * propriedades em memória.
+     *
+     * @param nomeFicheiro o nome do recurso no classpath ou o caminho do ficheiro no sistema de ficheiros
+     * @param comGeometrias {@code true} para guardar também as geometrias WKT
+     * @return a tabela com todas as propriedades do ficheiro
+     * @throws IOException se ocorrer um erro ao abrir o ficheiro
+     */
+    public TabelaCadastro carregarTabela(String nomeFicheiro, boolean comGeometrias) throws IOException {
+        TabelaCadastro.Construtor construtor = new TabelaCadastro.Construtor(comGeometrias);
+        try (Stream<PropriedadeRustica> propriedades = stream(nomeFicheiro)) {
+            propriedades.forEach(construtor::adicionar);
+        }
+        return construtor.construir();
+    }
+
+    /**
+     * Abre o ficheiro CSV indicado como um stream de propriedades, convertidas à medida que são lidas.
+     *
+     * O ficheiro é procurado primeiro no classpath e depois no sistema de ficheiros. O stream deve ser
+     * fechado no fim, de preferência com try-with-resources, para libertar o ficheiro.
+     *
+     * @param nomeFicheiro o nome do recurso no classpath ou o caminho do ficheiro no sistema de ficheiros
+     * @return um stream sequencial de objetos {@code PropriedadeRustica}
+     * @throws IOException se ocorrer um erro ao abrir o ficheiro
+     */
+    public Stream<PropriedadeRustica> stream(String nomeFicheiro) throws IOException {
+        Reader reader = abrir(nomeFicheiro);
+        Iterator<PropriedadeRustica> iterador;
+        try {
+            iterador = parser == Parser.OPENCSV ? construirParser(reader).iterator() : new LeitorCsvCadastro(reader);
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+        Spliterator<PropriedadeRustica> spliterator = Spliterators.spliteratorUnknownSize(iterador,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Lê o ficheiro CSV em streaming e entrega as propriedades ao consumidor em lotes.
+     *
+     * Apenas um lote está em memória de cada vez, pelo que etapas seguintes (por exemplo, a inserção
+     * de nós no Neo4j) podem processar os dados enquanto a leitura continua.
+     *
+     * @param nomeFicheiro o nome do recurso no classpath ou o caminho do ficheiro no sistema de ficheiros
+     * @param tamanhoLote número máximo de propriedades por lote
+     * @param consumidor função chamada com cada lote de propriedades
+     * @return o número total de propriedades lidas
+     * @throws IOException se ocorrer um erro ao abrir o ficheiro
+     * @throws IllegalArgumentException se o tamanho do lote for inferior a 1
+     */
+    public long carregarEmLotes(String nomeFicheiro, int tamanhoLote,
+                                Consumer<List<PropriedadeRustica>> consumidor) throws IOException {
+        if (tamanhoLote < 1) {
+            throw new IllegalArgumentException("Tamanho de lote inválido: " + tamanhoLote);
+        }
+
+        long total = 0;
+        List<PropriedadeRustica> lote = new ArrayList<>(tamanhoLote);
+        try (Stream<PropriedadeRustica> propriedades = stream(nomeFicheiro)) {
+            Iterator<PropriedadeRustica> iterador = propriedades.iterator();
+            while (iterador.hasNext()) {
+                lote.add(iterador.next());
+                total++;
+                if (lote.size() == tamanhoLote) {
+                    consumidor.accept(lote);
+                    lote = new ArrayList<>(tamanhoLote);
+                }
+            }
+        }
+        if (!lote.isEmpty()) {
+            consumidor.accept(lote);
+        }
+        return total;
+    }
+
+    /**
+     * Abre um leitor para o ficheiro, procurando-o primeiro no classpath e depois no sistema de ficheiros.
+     *
+     * @param nomeFicheiro o nome do recurso ou o caminho do ficheiro
+     * @return o leitor aberto
+     * @throws IOException se ocorrer um erro ao abrir o ficheiro
+     */
+    private Reader abrir(String nomeFicheiro) throws IOException {
         InputStream input = getClass().getClassLoader().getResourceAsStream(nomeFicheiro);
+        if (input != null) {
+            return new InputStreamReader(input);
+        }
 
-        if (input == null) {
+        Path caminho = Paths.get(nomeFicheiro);
+        if (!Files.isRegularFile(caminho)) {
             throw new IllegalArgumentException("Ficheiro não encontrado: " + nomeFicheiro);
         }
+        return new InputStreamReader(Files.newInputStream(caminho));
+    }
 
-        InputStreamReader reader = new InputStreamReader(input);
-
+    /**
+     * Configura o mapeamento OpenCSV das linhas para objetos {@code PropriedadeRustica}.
+     *
+     * @param reader o leitor do ficheiro CSV
+     * @return o parser configurado
+     */
+    private CsvToBean<PropriedadeRustica> construirParser(Reader reader) {
         return new CsvToBeanBuilder<PropriedadeRustica>(reader)
                 .withType(PropriedadeRustica.class)
                 .withSeparator(';') // usa ponto e vírgula como delimitador
                 .withIgnoreLeadingWhiteSpace(true)
                 .withIgnoreEmptyLine(true)
-                .build()
-                .parse();
+                .build();
     }
 }
@@ -0,0 +1,226 @@
+package com.gestaodeterritorio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Conjunto compacto de arestas entre propriedades, guardadas como valores {@code long}.
+ *
+ * Cada {@code objectId} é convertido num código de 32 bits sem sinal e cada aresta é o par de códigos
+ * empacotado num único {@code long}, guardado numa tabela de endereçamento aberto. Os identificadores
+ * numéricos canónicos (inteiros não negativos abaixo de 2^31, sem zeros à esquerda) são usados
+ * diretamente como código; os restantes são mapeados por um dicionário para códigos a partir de 2^31,
+ * pelo que os dois modos coexistem sem colisões.
+ *
+ * Com 10 milhões de arestas numéricas a tabela ocupa 128 MiB (2^24 posições de 8 bytes), contra cerca de
+ * 900 MiB num {@code HashSet<String>} de chaves {@code "id1-id2"} (nó da tabela, objeto {@code String} e
+ * array de bytes por aresta).
+ *
+ * As arestas são orientadas: {@code (a, b)} e {@code (b, a)} são arestas diferentes. Não é thread-safe.
+ */
+public class ConjuntoArestas {
+
+    private static final long VAZIO = -1L;
+    private static final long PRIMEIRO_CODIGO_DICIONARIO = 1L << 31;
+    private static final long LIMITE_CODIGOS = 1L << 32;
+    private static final int CAPACIDADE_MINIMA = 16;
+
+    private long[] tabela;
+    private int tamanho;
+    private int limiteRedimensionar;
+
+    private final Map<String, Integer> dicionario = new HashMap<>();
+    private final List<String> idsDicionario = new ArrayList<>();
+
+    /**
+     * Cria um conjunto vazio.
+     */
+    public ConjuntoArestas() {
+        this(CAPACIDADE_MINIMA);
+    }
+
+    /**
+     * Cria um conjunto vazio dimensionado para o número de arestas esperado.
+     *
+     * @param capacidadeEsperada número de arestas esperado
+     */
+    public ConjuntoArestas(int capacidadeEsperada) {
+        int capacidade = CAPACIDADE_MINIMA;
+        while (capacidade * 0.6 < capacidadeEsperada) {
+            capacidade <<= 1;
+        }
+        alocar(capacidade);
+    }
+
+    /**
+     * Adiciona a aresta {@code (a, b)}.
+     *
+     * @param a o objectId de origem
+     * @param b o objectId de destino
+     * @return {@code true} se a aresta ainda não existia
+     */
+    public boolean adicionar(String a, String b) {
+        return adicionar(empacotar(codificar(a), codificar(b)));
+    }
+
+    /**
+     * Verifica se a aresta {@code (a, b)} existe.
+     *
+     * @param a o objectId de origem
+     * @param b o objectId de destino
+     * @return {@code true} se a aresta existir
+     */
+    public boolean contem(String a, String b) {
+        long ca = procurarCodigo(a);
+        long cb = procurarCodigo(b);
+        if (ca < 0 || cb < 0) return false;
+        return tabela[posicao(empacotar(ca, cb))] != VAZIO;
+    }
+
+    /**
+     * @return o número de arestas no conjunto
+     */
+    public int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * @return {@code true} se o conjunto não tiver arestas
+     */
+    public boolean isEmpty() {
+        return tamanho == 0;
+    }
+
+    /**
+     * @return o número de identificadores não numéricos guardados no dicionário
+     */
+    public int tamanhoDicionario() {
+        return idsDicionario.size();
+    }
+
+    /**
+     * @return o número de bytes ocupados pela tabela de arestas, sem contar o dicionário
+     */
+    public long bytesTabela() {
+        return (long) tabela.length * Long.BYTES;
+    }
+
+    /**
+     * Percorre todas as arestas do conjunto, por ordem arbitrária.
+     *
+     * @param consumidor função chamada com a origem e o destino de cada aresta
+     */
+    public void paraCada(BiConsumer<String, String> consumidor) {
+        for (long aresta : tabela) {
+            if (aresta != VAZIO) {
+                consumidor.accept(descodificar(aresta >>> 32), descodificar(aresta & 0xFFFFFFFFL));
+            }
+        }
+    }
+
+    /**
+     * @return uma lista com todas as arestas como pares [origem, destino], por ordem arbitrária
+     */
+    public List<String[]> paraLista() {
+        List<String[]> arestas = new ArrayList<>(tamanho);
+        paraCada((a, b) -> arestas.add(new String[]{a, b}));
+        return arestas;
+    }
+
+    private boolean adicionar(long aresta) {
+        int p = posicao(aresta);
+        if (tabela[p] != VAZIO) return false;
+        tabela[p] = aresta;
+        if (++tamanho > limiteRedimensionar) {
+            redimensionar();
+        }
+        return true;
+    }
+
+    /**
+     * Devolve a posição da aresta na tabela, ou a posição livre onde deveria ficar.
+     */
+    private int posicao(long aresta) {
+        int mascara = tabela.length - 1;
+        int p = misturar(aresta) & mascara;
+        while (tabela[p] != VAZIO && tabela[p] != aresta) {
+            p = (p + 1) & mascara;
+        }
+        return p;
+    }
+
+    private void redimensionar() {
+        long[] antiga = tabela;
+        alocar(antiga.length << 1);
+        for (long aresta : antiga) {
+            if (aresta != VAZIO) {
+                tabela[posicao(aresta)] = aresta;
+            }
+        }
+    }
+
+    private void alocar(int capacidade) {
+        tabela = new long[capacidade];
+        Arrays.fill(tabela, VAZIO);
+        limiteRedimensionar = (int) (capacidade * 0.6);
+    }
+
+    private static int misturar(long valor) {
+        long h = valor * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static long empacotar(long a, long b) {
+        return (a << 32) | b;
+    }
+
+    private long codificar(String id) {
+        long numerico = codigoNumerico(id);
+        if (numerico >= 0) return numerico;
+
+        Integer codigo = dicionario.get(id);
+        if (codigo == null) {
+            // o último código fica reservado, porque a aresta entre dois códigos máximos coincide com VAZIO
+            if (PRIMEIRO_CODIGO_DICIONARIO + idsDicionario.size() >= LIMITE_CODIGOS - 1) {
+                throw new IllegalStateException("Dicionário de identificadores cheio");
+            }
+            codigo = idsDicionario.size();
+            dicionario.put(id, codigo);
+            idsDicionario.add(id);
+        }
+        return PRIMEIRO_CODIGO_DICIONARIO + codigo;
+    }
+
+    private long procurarCodigo(String id) {
+        long numerico = codigoNumerico(id);
+        if (numerico >= 0) return numerico;
+        Integer codigo = dicionario.get(id);
+        return codigo == null ? -1 : PRIMEIRO_CODIGO_DICIONARIO + codigo;
+    }
+
+    private String descodificar(long codigo) {
+        if (codigo < PRIMEIRO_CODIGO_DICIONARIO) return Long.toString(codigo);
+        return idsDicionario.get((int) (codigo - PRIMEIRO_CODIGO_DICIONARIO));
+    }
+
+    /**
+     * Converte um identificador numérico canónico no seu valor.
+     *
+     * @return o valor, ou {@code -1} se o identificador não for um inteiro canónico abaixo de 2^31
+     */
+    private static long codigoNumerico(String id) {
+        int n = id.length();
+        if (n == 0 || n > 10 || (n > 1 && id.charAt(0) == '0')) return -1;
+        long valor = 0;
+        for (int i = 0; i < n; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            valor = valor * 10 + (c - '0');
+        }
+        return valor < PRIMEIRO_CODIGO_DICIONARIO ? valor : -1;
+    }
+}
@@ -0,0 +1,315 @@
+package com.gestaodeterritorio;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Motor de deteção de adjacências entre propriedades rústicas.
+ *
+ * A lista de propriedades é dividida em tarefas fork-join que consultam em simultâneo o mesmo índice
+ * espacial ({@link STRtree} ou {@link IndiceHilbert}, já construído e, a partir daí, só de leitura) e
+ * testam os respetivos candidatos.
+ * Cada propriedade de origem é preparada uma única vez e reutilizada contra todos os seus candidatos.
+ * Cada tarefa acumula as arestas num buffer próprio; os buffers são juntos pela ordem das tarefas,
+ * sem qualquer lock global, pelo que o resultado é exatamente o mesmo do caminho sequencial.
+ */
+public class DetetorAdjacencias {
+
+    /** Número de propriedades abaixo do qual uma tarefa deixa de ser dividida. */
+    static final int LIMIAR_SEQUENCIAL = 256;
+
+    private final int numeroThreads;
+    private final LongAdder paresTestados = new LongAdder();
+
+    /**
+     * Cria um detetor que usa todos os processadores disponíveis.
+     */
+    public DetetorAdjacencias() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Cria um detetor com um número fixo de threads.
+     *
+     * @param numeroThreads número de threads a usar; {@code 1} corresponde ao caminho sequencial
+     * @throws IllegalArgumentException se o número de threads for inferior a 1
+     */
+    public DetetorAdjacencias(int numeroThreads) {
+        if (numeroThreads < 1) {
+            throw new IllegalArgumentException("Número de threads inválido: " + numeroThreads);
+        }
+        this.numeroThreads = numeroThreads;
+    }
+
+    /**
+     * @return o número de threads usado pelo detetor
+     */
+    public int getNumeroThreads() {
+        return numeroThreads;
+    }
+
+    /**
+     * @return o número de pares de candidatos testados com um predicado geométrico desde a criação do detetor
+     */
+    public long getParesTestados() {
+        return paresTestados.sum();
+    }
+
+    /**
+     * Executa um cálculo de adjacências, registando na etapa {@code adjacencias} do relatório o tempo,
+     * o número de origens, os pares de candidatos testados e as arestas encontradas.
+     *
+     * @param relatorio o relatório da execução
+     * @param origens o número de propriedades de origem
+     * @param calculo o cálculo a executar com este detetor
+     * @return as arestas devolvidas pelo cálculo
+     */
+    List<String[]> medir(RelatorioExecucao relatorio, int origens, Supplier<List<String[]>> calculo) {
+        RelatorioExecucao.Etapa etapa = relatorio.etapa("adjacencias");
+        long testadosAntes = paresTestados.sum();
+        List<String[]> arestas = etapa.medir(calculo::get);
+        etapa.somarLinhas(origens);
+        etapa.somar("paresTestados", paresTestados.sum() - testadosAntes);
+        etapa.somar("arestas", arestas.size());
+        return arestas;
+    }
+
+    /**
+     * Constrói o índice espacial com os envelopes das geometrias válidas.
+     *
+     * O índice é construído de imediato, ficando pronto para ser consultado por várias threads.
+     *
+     * @param propriedades lista de propriedades a indexar
+     * @param geometrias armazém com as geometrias convertidas
+     * @return o índice espacial construído
+     */
+    public static STRtree construirIndice(List<PropriedadeRustica> propriedades, GeometriaStore geometrias) {
+        STRtree index = new STRtree();
+        for (PropriedadeRustica p : propriedades) {
+            Geometry g = geometrias.obter(p);
+            if (g != null) {
+                index.insert(g.getEnvelopeInternal(), p);
+            }
+        }
+        index.build();
+        return index;
+    }
+
+    /**
+     * Calcula todas as adjacências entre as propriedades fornecidas.
+     *
+     * @param propriedades lista de propriedades com geometria
+     * @param geometrias armazém com as geometrias convertidas
+     * @return lista de pares [objectId1, objectId2], com {@code objectId1 < objectId2}
+     */
+    public List<String[]> calcular(List<PropriedadeRustica> propriedades, GeometriaStore geometrias) {
+        return calcular(propriedades, construirIndice(propriedades, geometrias), geometrias);
+    }
+
+    /**
+     * Calcula as adjacências das propriedades de origem com as propriedades presentes no índice.
+     *
+     * @param origens propriedades cujas adjacências devem ser procuradas
+     * @param index índice espacial já construído
+     * @param geometrias armazém com as geometrias convertidas
+     * @return lista de pares [objectId1, objectId2], com {@code objectId1 < objectId2}
+     */
+    public List<String[]> calcular(List<PropriedadeRustica> origens, STRtree index, GeometriaStore geometrias) {
+        index.build();
+        return executar(origens, index::query, geometrias, null);
+    }
+
+    /**
+     * Calcula todas as adjacências entre as propriedades, consultando um {@link IndiceHilbert} já
+     * construído ou lido de um ficheiro.
+     *
+     * @param propriedades lista de propriedades com geometria, a mesma a partir da qual o índice foi construído
+     * @param indice índice espacial das propriedades
+     * @param geometrias armazém com as geometrias convertidas
+     * @return lista de pares [objectId1, objectId2], com {@code objectId1 < objectId2}
+     * @throws IllegalArgumentException se o índice não tiver sido construído para uma lista do mesmo tamanho
+     */
+    public List<String[]> calcular(List<PropriedadeRustica> propriedades, IndiceHilbert indice, GeometriaStore geometrias) {
+        return executar(propriedades, consulta(propriedades, indice), geometrias, null);
+    }
+
+    /**
+     * Calcula todas as adjacências que envolvem pelo menos uma das propriedades de origem.
+     *
+     * Ao contrário de {@link #calcular(List, STRtree, GeometriaStore)}, são também devolvidas as arestas
+     * para vizinhos com {@code objectId} menor do que o da origem, desde que esse vizinho não seja ele
+     * próprio uma origem. Cada aresta aparece uma única vez. É usado para recalcular apenas a vizinhança
+     * das propriedades novas ou alteradas.
+     *
+     * @param origens propriedades cujas adjacências devem ser procuradas
+     * @param index índice espacial já construído com todas as propriedades
+     * @param geometrias armazém com as geometrias convertidas
+     * @return lista de pares [objectId1, objectId2], com {@code objectId1 < objectId2}
+     */
+    public List<String[]> calcularVizinhanca(List<PropriedadeRustica> origens, STRtree index, GeometriaStore geometrias) {
+        Set<String> idsOrigens = new HashSet<>();
+        for (PropriedadeRustica p : origens) {
+            idsOrigens.add(p.getObjectId());
+        }
+        index.build();
+        return executar(origens, index::query, geometrias, idsOrigens);
+    }
+
+    /**
+     * Calcula todas as adjacências que envolvem pelo menos uma das propriedades de origem, consultando
+     * um {@link IndiceHilbert}. Ver {@link #calcularVizinhanca(List, STRtree, GeometriaStore)}.
+     *
+     * @param origens propriedades cujas adjacências devem ser procuradas
+     * @param propriedades lista completa de propriedades, a mesma a partir da qual o índice foi construído
+     * @param indice índice espacial de todas as propriedades
+     * @param geometrias armazém com as geometrias convertidas
+     * @return lista de pares [objectId1, objectId2], com {@code objectId1 < objectId2}
+     * @throws IllegalArgumentException se o índice não tiver sido construído para uma lista do mesmo tamanho
+     */
+    public List<String[]> calcularVizinhanca(List<PropriedadeRustica> origens, List<PropriedadeRustica> propriedades,
+                                             IndiceHilbert indice, GeometriaStore geometrias) {
+        Set<String> idsOrigens = new HashSet<>();
+        for (PropriedadeRustica p : origens) {
+            idsOrigens.add(p.getObjectId());
+        }
+        return executar(origens, consulta(propriedades, indice), geometrias, idsOrigens);
+    }
+
+    /**
+     * Consulta de candidatos a um índice espacial, devolvendo as propriedades cujo envelope interseta
+     * o envelope dado.
+     */
+    private interface Consulta {
+        List<?> candidatos(Envelope envelope);
+    }
+
+    private static Consulta consulta(List<PropriedadeRustica> propriedades, IndiceHilbert indice) {
+        if (indice.tamanhoLista() != propriedades.size()) {
+            throw new IllegalArgumentException("Índice construído para " + indice.tamanhoLista()
+                    + " propriedades, mas foram indicadas " + propriedades.size());
+        }
+        return envelope -> {
+            int[] itens = indice.consultar(envelope);
+            List<PropriedadeRustica> candidatos = new ArrayList<>(itens.length);
+            for (int item : itens) {
+                candidatos.add(propriedades.get(item));
+            }
+            return candidatos;
+        };
+    }
+
+    private List<String[]> executar(List<PropriedadeRustica> origens, Consulta index, GeometriaStore geometrias,
+                                    Set<String> idsOrigens) {
+        if (numeroThreads == 1 || origens.size() <= LIMIAR_SEQUENCIAL) {
+            return procurar(origens, 0, origens.size(), index, geometrias, idsOrigens, paresTestados);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(numeroThreads);
+        try {
+            return pool.invoke(new TarefaAdjacencia(origens, 0, origens.size(), index, geometrias, idsOrigens, paresTestados));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Procura as adjacências de um intervalo de propriedades de origem.
+     *
+     * Sem conjunto de origens, cada par só é testado a partir da propriedade com o menor {@code objectId}.
+     * Com conjunto de origens, são também testados os vizinhos menores que não sejam origens.
+     *
+     * O número de pares testados é somado a {@code testados} uma única vez por intervalo.
+     *
+     * @return lista de pares [objectId1, objectId2] encontrados no intervalo, pela ordem das origens
+     */
+    private static List<String[]> procurar(List<PropriedadeRustica> origens, int inicio, int fim,
+                                           Consulta index, GeometriaStore geometrias, Set<String> idsOrigens,
+                                           LongAdder testados) {
+        List<String[]> arestas = new ArrayList<>();
+        long pares = 0;
+
+        for (int i = inicio; i < fim; i++) {
+            PropriedadeRustica p1 = origens.get(i);
+            Geometry g1 = geometrias.obter(p1);
+            if (g1 == null) continue;
+
+            List<?> candidatos = index.candidatos(g1.getEnvelopeInternal());
+            PreparedGeometry preparada = null;
+
+            for (Object obj : candidatos) {
+                PropriedadeRustica p2 = (PropriedadeRustica) obj;
+
+                int ordem = p1.getObjectId().compareTo(p2.getObjectId());
+                boolean testar = ordem < 0
+                        || (ordem > 0 && idsOrigens != null && !idsOrigens.contains(p2.getObjectId()));
+
+                if (testar) {
+                    Geometry g2 = geometrias.obter(p2);
+                    if (g2 == null) continue;
+
+                    if (preparada == null) {
+                        preparada = GeoUtils.prepararGeometria(g1);
+                    }
+                    pares++;
+                    if (GeoUtils.saoAdjacentes(preparada, g2)) {
+                        arestas.add(ordem < 0
+                                ? new String[]{p1.getObjectId(), p2.getObjectId()}
+                                : new String[]{p2.getObjectId(), p1.getObjectId()});
+                    }
+                }
+            }
+        }
+        testados.add(pares);
+        return arestas;
+    }
+
+    /**
+     * Tarefa fork-join que divide o intervalo de origens ao meio até atingir o limiar sequencial.
+     */
+    private static class TarefaAdjacencia extends RecursiveTask<List<String[]>> {
+        private final List<PropriedadeRustica> origens;
+        private final int inicio;
+        private final int fim;
+        private final Consulta index;
+        private final GeometriaStore geometrias;
+        private final Set<String> idsOrigens;
+        private final LongAdder testados;
+
+        TarefaAdjacencia(List<PropriedadeRustica> origens, int inicio, int fim,
+                         Consulta index, GeometriaStore geometrias, Set<String> idsOrigens, LongAdder testados) {
+            this.origens = origens;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.index = index;
+            this.geometrias = geometrias;
+            this.idsOrigens = idsOrigens;
+            this.testados = testados;
+        }
+
+        @Override
+        protected List<String[]> compute() {
+            if (fim - inicio <= LIMIAR_SEQUENCIAL) {
+                return procurar(origens, inicio, fim, index, geometrias, idsOrigens, testados);
+            }
+            int meio = (inicio + fim) >>> 1;
+            TarefaAdjacencia esquerda = new TarefaAdjacencia(origens, inicio, meio, index, geometrias, idsOrigens, testados);
+            TarefaAdjacencia direita = new TarefaAdjacencia(origens, meio, fim, index, geometrias, idsOrigens, testados);
+            esquerda.fork();
+            List<String[]> resultadoDireita = direita.compute();
+            List<String[]> resultado = esquerda.join();
+            resultado.addAll(resultadoDireita);
+            return resultado;
+        }
+    }
+}
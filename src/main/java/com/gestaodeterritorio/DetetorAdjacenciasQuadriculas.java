@@ -0,0 +1,416 @@
+package com.gestaodeterritorio;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKBWriter;
+import org.locationtech.jts.io.WKTReader;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Deteção de adjacências por quadrículas, para cadastros maiores do que a memória disponível.
+ *
+ * O plano é dividido numa grelha de quadrículas com o lado indicado. Numa única passagem em streaming,
+ * a geometria de cada propriedade é acrescentada em WKB ao buffer de cada quadrícula que o seu envelope
+ * toca: as propriedades que atravessam a fronteira de uma quadrícula ficam assim também nas vizinhas,
+ * como uma margem. Quando os buffers passam do limite de memória, os maiores são acrescentados aos
+ * ficheiros das suas quadrículas, pelo que cada ficheiro é aberto poucas vezes mesmo que as propriedades
+ * não venham ordenadas pela posição. Depois, cada quadrícula é lida e processada isoladamente pelo
+ * {@link DetetorAdjacencias}, e várias quadrículas são processadas em simultâneo.
+ *
+ * Um par de propriedades cujos envelopes se intersetam pode aparecer em várias quadrículas. Cada aresta
+ * só é aceite na quadrícula que contém o canto mínimo da interseção dos dois envelopes, que as duas
+ * propriedades tocam sempre, pelo que cada aresta é devolvida exatamente uma vez sem qualquer estrutura
+ * global de deduplicação.
+ *
+ * A memória usada depende do limite dos buffers, do tamanho das quadrículas e do número de threads, e
+ * não do tamanho do cadastro: no cálculo, só estão em memória as geometrias das quadrículas em
+ * processamento.
+ */
+public class DetetorAdjacenciasQuadriculas {
+
+    /** Limite, em bytes, da memória ocupada pelos buffers das quadrículas durante a partição. */
+    static final long MEMORIA_BUFFERS = 64L << 20;
+
+    private static final String PREFIXO = "quadricula_";
+    private static final String SUFIXO = ".bin";
+
+    private final double lado;
+    private final int numeroThreads;
+
+    /**
+     * Cria um detetor que usa todos os processadores disponíveis.
+     *
+     * @param lado o lado das quadrículas, nas unidades das coordenadas
+     * @throws IllegalArgumentException se o lado não for positivo
+     */
+    public DetetorAdjacenciasQuadriculas(double lado) {
+        this(lado, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param lado o lado das quadrículas, nas unidades das coordenadas
+     * @param numeroThreads número de quadrículas processadas em simultâneo
+     * @throws IllegalArgumentException se o lado não for positivo ou o número de threads for inferior a 1
+     */
+    public DetetorAdjacenciasQuadriculas(double lado, int numeroThreads) {
+        if (!(lado > 0) || Double.isInfinite(lado)) {
+            throw new IllegalArgumentException("Lado de quadrícula inválido: " + lado);
+        }
+        if (numeroThreads < 1) {
+            throw new IllegalArgumentException("Número de threads inválido: " + numeroThreads);
+        }
+        this.lado = lado;
+        this.numeroThreads = numeroThreads;
+    }
+
+    /**
+     * Inicia a partição de um cadastro na diretoria indicada, apagando as quadrículas de uma partição anterior.
+     *
+     * @param diretoria a diretoria onde são escritos os ficheiros das quadrículas, criada se não existir
+     * @return a partição, à qual devem ser adicionadas as propriedades
+     * @throws IOException se a diretoria não puder ser preparada
+     */
+    public Particao particionar(Path diretoria) throws IOException {
+        return particionar(diretoria, MEMORIA_BUFFERS);
+    }
+
+    /**
+     * Inicia a partição de um cadastro, com o limite de memória indicado para os buffers das quadrículas.
+     *
+     * @param diretoria a diretoria onde são escritos os ficheiros das quadrículas, criada se não existir
+     * @param memoriaBuffers o limite, em bytes, da memória ocupada pelos buffers
+     * @return a partição, à qual devem ser adicionadas as propriedades
+     * @throws IOException se a diretoria não puder ser preparada
+     * @throws IllegalArgumentException se o limite não for positivo
+     */
+    public Particao particionar(Path diretoria, long memoriaBuffers) throws IOException {
+        if (memoriaBuffers < 1) {
+            throw new IllegalArgumentException("Limite de memória inválido: " + memoriaBuffers);
+        }
+        Files.createDirectories(diretoria);
+        apagarQuadriculas(diretoria);
+        return new Particao(diretoria, memoriaBuffers);
+    }
+
+    /**
+     * Calcula as adjacências de todas as quadrículas da partição, que é fechada se ainda estiver aberta.
+     *
+     * As arestas de cada quadrícula são entregues ao destino assim que a quadrícula termina; o destino
+     * nunca é chamado por duas threads ao mesmo tempo.
+     *
+     * @param particao a partição com todas as propriedades
+     * @param destino função chamada com as arestas [objectId1, objectId2] de cada quadrícula, com
+     *                {@code objectId1 < objectId2}
+     * @return o número total de arestas
+     * @throws IOException se ocorrer um erro ao ler as quadrículas
+     */
+    public long calcular(Particao particao, Consumer<List<String[]>> destino) throws IOException {
+        particao.close();
+        List<Long> quadriculas = new ArrayList<>(particao.quadriculas);
+        Collections.sort(quadriculas);
+        if (quadriculas.isEmpty()) return 0;
+
+        TarefaQuadriculas tarefa = new TarefaQuadriculas(particao.diretoria, quadriculas, 0, quadriculas.size(), destino);
+        ForkJoinPool pool = new ForkJoinPool(numeroThreads);
+        try {
+            return pool.invoke(tarefa);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Lê uma quadrícula e calcula as suas arestas, mantendo só as que lhe pertencem.
+     */
+    private List<String[]> processar(Path diretoria, long chave) throws IOException {
+        int qx = (int) (chave >> 32);
+        int qy = (int) chave;
+        GeometriaStore geometrias = new GeometriaStore();
+        WKBReader reader = new WKBReader(geometrias.getFactory());
+        List<PropriedadeRustica> propriedades = new ArrayList<>();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(ficheiro(diretoria, qx, qy)), 1 << 16))) {
+            while (true) {
+                String objectId;
+                try {
+                    objectId = input.readUTF();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] wkb = new byte[input.readInt()];
+                input.readFully(wkb);
+                propriedades.add(new PropriedadeRustica(objectId, null, null, null, null, null, null, null, null, null));
+                geometrias.colocar(objectId, reader.read(wkb));
+            }
+        } catch (ParseException e) {
+            throw new IOException("Quadrícula corrompida: " + qx + ", " + qy, e);
+        }
+
+        List<String[]> arestas = new DetetorAdjacencias(1).calcular(propriedades, geometrias);
+        List<String[]> proprias = new ArrayList<>(arestas.size());
+        for (String[] aresta : arestas) {
+            Envelope a = geometrias.obter(aresta[0]).getEnvelopeInternal();
+            Envelope b = geometrias.obter(aresta[1]).getEnvelopeInternal();
+            if (indice(Math.max(a.getMinX(), b.getMinX())) == qx && indice(Math.max(a.getMinY(), b.getMinY())) == qy) {
+                proprias.add(aresta);
+            }
+        }
+        return proprias;
+    }
+
+    private int indice(double coordenada) {
+        return (int) Math.floor(coordenada / lado);
+    }
+
+    private static long chave(int qx, int qy) {
+        return ((long) qx << 32) | (qy & 0xFFFFFFFFL);
+    }
+
+    private static Path ficheiro(Path diretoria, int qx, int qy) {
+        return diretoria.resolve(PREFIXO + qx + "_" + qy + SUFIXO);
+    }
+
+    private static void apagarQuadriculas(Path diretoria) throws IOException {
+        try (DirectoryStream<Path> ficheiros = Files.newDirectoryStream(diretoria, PREFIXO + "*" + SUFIXO)) {
+            for (Path f : ficheiros) {
+                Files.delete(f);
+            }
+        }
+    }
+
+    /**
+     * Buffer em memória dos registos de uma quadrícula ainda não escritos no ficheiro.
+     */
+    private static class BufferQuadricula extends ByteArrayOutputStream {
+        private final DataOutputStream dados = new DataOutputStream(this);
+    }
+
+    /**
+     * Partição de um cadastro em quadrículas, construída em streaming com {@link #adicionar}.
+     *
+     * Os registos de cada quadrícula são acumulados em memória. Quando o total passa do limite, os
+     * buffers maiores são acrescentados aos ficheiros até o total descer para metade do limite, e os
+     * restantes são escritos ao fechar a partição.
+     */
+    public class Particao implements Closeable {
+        private final Path diretoria;
+        private final long memoriaBuffers;
+        private final Set<Long> quadriculas = new HashSet<>();
+        private final Map<Long, BufferQuadricula> buffers = new HashMap<>();
+        private final WKTReader reader = new WKTReader();
+        private final WKBWriter writer = new WKBWriter();
+        private long emMemoria;
+        private long propriedades;
+        private long invalidas;
+        private long copias;
+        private long descargas;
+
+        private Particao(Path diretoria, long memoriaBuffers) {
+            this.diretoria = diretoria;
+            this.memoriaBuffers = memoriaBuffers;
+        }
+
+        /**
+         * Converte a geometria da propriedade e acrescenta-a a todas as quadrículas que o seu envelope toca.
+         *
+         * @param propriedade a propriedade a adicionar
+         * @return {@code false} se a geometria for inválida e a propriedade tiver sido ignorada
+         * @throws IOException se ocorrer um erro de escrita
+         */
+        public boolean adicionar(PropriedadeRustica propriedade) throws IOException {
+            return adicionar(propriedade, GeoUtils.parseGeometry(propriedade.getGeometry(), reader));
+        }
+
+        /**
+         * Acrescenta uma geometria já convertida a todas as quadrículas que o seu envelope toca.
+         *
+         * @param propriedade a propriedade a adicionar
+         * @param g a geometria da propriedade, ou {@code null} se for inválida
+         * @return {@code false} se a geometria for inválida e a propriedade tiver sido ignorada
+         * @throws IOException se ocorrer um erro de escrita
+         */
+        public boolean adicionar(PropriedadeRustica propriedade, Geometry g) throws IOException {
+            propriedades++;
+            if (g == null || g.isEmpty()) {
+                invalidas++;
+                return false;
+            }
+            Envelope e = g.getEnvelopeInternal();
+            byte[] wkb = writer.write(g);
+            for (int qx = indice(e.getMinX()); qx <= indice(e.getMaxX()); qx++) {
+                for (int qy = indice(e.getMinY()); qy <= indice(e.getMaxY()); qy++) {
+                    long chave = chave(qx, qy);
+                    BufferQuadricula buffer = buffers.get(chave);
+                    if (buffer == null) {
+                        buffer = new BufferQuadricula();
+                        buffers.put(chave, buffer);
+                        quadriculas.add(chave);
+                    }
+                    int antes = buffer.size();
+                    buffer.dados.writeUTF(propriedade.getObjectId());
+                    buffer.dados.writeInt(wkb.length);
+                    buffer.dados.write(wkb);
+                    emMemoria += buffer.size() - antes;
+                    copias++;
+                }
+            }
+            if (emMemoria > memoriaBuffers) {
+                descarregarMaiores();
+            }
+            return true;
+        }
+
+        /**
+         * Acrescenta aos ficheiros os buffers maiores, até a memória ocupada descer para metade do limite.
+         */
+        private void descarregarMaiores() throws IOException {
+            List<Map.Entry<Long, BufferQuadricula>> porTamanho = new ArrayList<>(buffers.entrySet());
+            porTamanho.sort((a, b) -> Integer.compare(b.getValue().size(), a.getValue().size()));
+            for (Map.Entry<Long, BufferQuadricula> entrada : porTamanho) {
+                if (emMemoria <= memoriaBuffers / 2) break;
+                descarregar(entrada.getKey(), entrada.getValue());
+            }
+        }
+
+        /**
+         * Acrescenta o buffer ao ficheiro da quadrícula e liberta-o.
+         */
+        private void descarregar(long chave, BufferQuadricula buffer) throws IOException {
+            try (OutputStream output = Files.newOutputStream(ficheiro(diretoria, (int) (chave >> 32), (int) chave),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                buffer.writeTo(output);
+            }
+            emMemoria -= buffer.size();
+            buffers.remove(chave);
+            descargas++;
+        }
+
+        /**
+         * @return o número de propriedades adicionadas, incluindo as de geometria inválida
+         */
+        public long getPropriedades() {
+            return propriedades;
+        }
+
+        /**
+         * @return o número de propriedades ignoradas por terem geometria inválida
+         */
+        public long getInvalidas() {
+            return invalidas;
+        }
+
+        /**
+         * @return o número de quadrículas com pelo menos uma propriedade
+         */
+        public int getNumeroQuadriculas() {
+            return quadriculas.size();
+        }
+
+        /**
+         * @return o número de geometrias escritas, contando uma vez por quadrícula tocada
+         */
+        public long getCopias() {
+            return copias;
+        }
+
+        /**
+         * @return o número de vezes que um buffer foi acrescentado ao ficheiro da sua quadrícula
+         */
+        public long getDescargas() {
+            return descargas;
+        }
+
+        /**
+         * Escreve nos ficheiros os buffers ainda em memória. A partição pode continuar a ser lida por
+         * {@link #calcular}.
+         *
+         * @throws IOException se ocorrer um erro ao escrever algum ficheiro
+         */
+        @Override
+        public void close() throws IOException {
+            for (Map.Entry<Long, BufferQuadricula> entrada : new ArrayList<>(buffers.entrySet())) {
+                descarregar(entrada.getKey(), entrada.getValue());
+            }
+        }
+
+        /**
+         * Fecha a partição e apaga os ficheiros das quadrículas.
+         *
+         * @throws IOException se algum ficheiro não puder ser apagado
+         */
+        public void apagar() throws IOException {
+            close();
+            apagarQuadriculas(diretoria);
+            quadriculas.clear();
+        }
+    }
+
+    /**
+     * Tarefa fork-join que divide a lista de quadrículas ao meio até restar uma só.
+     */
+    private class TarefaQuadriculas extends RecursiveTask<Long> {
+        private final Path diretoria;
+        private final List<Long> quadriculas;
+        private final int inicio;
+        private final int fim;
+        private final Consumer<List<String[]>> destino;
+
+        TarefaQuadriculas(Path diretoria, List<Long> quadriculas, int inicio, int fim, Consumer<List<String[]>> destino) {
+            this.diretoria = diretoria;
+            this.quadriculas = quadriculas;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.destino = destino;
+        }
+
+        @Override
+        protected Long compute() {
+            if (fim - inicio == 1) {
+                try {
+                    List<String[]> arestas = processar(diretoria, quadriculas.get(inicio));
+                    if (!arestas.isEmpty()) {
+                        synchronized (destino) {
+                            destino.accept(arestas);
+                        }
+                    }
+                    return (long) arestas.size();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            int meio = (inicio + fim) >>> 1;
+            TarefaQuadriculas esquerda = new TarefaQuadriculas(diretoria, quadriculas, inicio, meio, destino);
+            TarefaQuadriculas direita = new TarefaQuadriculas(diretoria, quadriculas, meio, fim, destino);
+            esquerda.fork();
+            long resultadoDireita = direita.compute();
+            return esquerda.join() + resultadoDireita;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.gestaodeterritorio;
+
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryComponentFilter;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Deteção de adjacências por segmentos de fronteira partilhados, alternativa aos testes
+ * {@link GeoUtils#saoAdjacentes} do {@link DetetorAdjacencias}.
+ *
+ * Num cadastro, propriedades vizinhas partilham normalmente os mesmos vértices, pelo que a fronteira
+ * comum é formada por segmentos exatamente iguais nas duas geometrias. Cada segmento é normalizado (o
+ * extremo menor primeiro) e reduzido a um hash de 64 bits, numa única passagem linear por todas as
+ * geometrias: quando o mesmo segmento aparece numa segunda propriedade, o par fica adjacente e o
+ * comprimento do segmento é somado ao comprimento da fronteira comum. Os segmentos emparelhados saem
+ * da tabela, que guarda apenas os que ainda esperam pelo vizinho. Não há consultas ao índice espacial
+ * nem predicados DE-9IM, e com hashes de 64 bits a probabilidade de colisão é desprezável.
+ *
+ * O hash só emparelha segmentos exatamente iguais: um vizinho com um vértice a meio de um lado da
+ * propriedade, por exemplo, deixa por emparelhar segmentos das duas. Por isso, os segmentos que ficam
+ * na tabela, e só esses, são indexados num {@code STRtree} pelo seu envelope, e cada um é comparado com
+ * os segmentos pendentes de outras propriedades que o envelope encontra: se forem colineares, o
+ * comprimento da parte sobreposta é somado ao da fronteira comum do par. Num cadastro típico, os
+ * segmentos pendentes são o limite exterior, estradas e lacunas, e o trabalho extra é proporcional a
+ * eles, e não ao número de propriedades.
+ *
+ * Só são arestas os pares com fronteira comum de comprimento positivo: propriedades que só se tocam
+ * num ponto ficam de fora, tal como propriedades sobrepostas cujas fronteiras apenas se cruzam, ou
+ * uma propriedade contida noutra sem fronteira comum. Ao contrário do {@link DetetorAdjacencias}, este
+ * modo assume que o cadastro é uma partição do território sem sobreposições.
+ */
+public class DetetorSegmentosPartilhados {
+
+    private static final int SEM_DONO = -1;
+
+    /** Distância máxima, nas unidades das coordenadas, a que um vértice é considerado sobre um segmento. */
+    static final double TOLERANCIA = 1e-6;
+
+    /**
+     * Adjacências encontradas, com o comprimento da fronteira comum de cada uma.
+     */
+    public static class Resultado {
+        private final List<String[]> arestas;
+        private final double[] comprimentos;
+        private final int segmentosPendentes;
+
+        private Resultado(List<String[]> arestas, double[] comprimentos, int segmentosPendentes) {
+            this.arestas = arestas;
+            this.comprimentos = comprimentos;
+            this.segmentosPendentes = segmentosPendentes;
+        }
+
+        /**
+         * @return lista de pares [objectId1, objectId2], com {@code objectId1 < objectId2}
+         */
+        public List<String[]> getArestas() {
+            return arestas;
+        }
+
+        /**
+         * @param aresta a posição da aresta em {@link #getArestas()}
+         * @return o comprimento da fronteira partilhada pelas duas propriedades
+         */
+        public double getComprimento(int aresta) {
+            return comprimentos[aresta];
+        }
+
+        /**
+         * @return o número de segmentos que o hash não emparelhou, comparados através do {@code STRtree}
+         */
+        public int getSegmentosPendentes() {
+            return segmentosPendentes;
+        }
+    }
+
+    /**
+     * Calcula todas as adjacências entre as propriedades fornecidas.
+     *
+     * @param propriedades lista de propriedades com geometria
+     * @param geometrias armazém com as geometrias convertidas
+     * @return as arestas, ordenadas pelo índice das propriedades, e o comprimento de cada fronteira comum
+     */
+    public Resultado calcular(List<PropriedadeRustica> propriedades, GeometriaStore geometrias) {
+        int n = propriedades.size();
+        Geometry[] porItem = new Geometry[n];
+        for (int i = 0; i < n; i++) {
+            porItem[i] = geometrias.obter(propriedades.get(i));
+        }
+
+        // passagem linear: segmentos à espera do vizinho e comprimento acumulado de cada par
+        TabelaLongos pendentes = new TabelaLongos(1 << 16);
+        TabelaLongos indicesPares = new TabelaLongos(1 << 16);
+        long[] pares = new long[1024];
+        double[] comprimentos = new double[1024];
+        int numeroPares = 0;
+        Segmentos segmentos = new Segmentos();
+
+        for (int i = 0; i < n; i++) {
+            if (porItem[i] == null) continue;
+            segmentos.limpar();
+            porItem[i].apply(segmentos);
+            for (int s = 0; s < segmentos.tamanho; s++) {
+                long hash = segmentos.hashes[s];
+                int outro = pendentes.obter(hash);
+                if (outro == SEM_DONO) {
+                    pendentes.colocar(hash, i);
+                    continue;
+                }
+                pendentes.remover(hash);
+                if (outro == i) continue;
+
+                long par = ((long) outro << 32) | i;
+                int posicao = indicesPares.obter(par);
+                if (posicao == SEM_DONO) {
+                    if (numeroPares == pares.length) {
+                        pares = Arrays.copyOf(pares, numeroPares * 2);
+                        comprimentos = Arrays.copyOf(comprimentos, numeroPares * 2);
+                    }
+                    posicao = numeroPares++;
+                    pares[posicao] = par;
+                    indicesPares.colocar(par, posicao);
+                }
+                comprimentos[posicao] += segmentos.comprimentos[s];
+            }
+        }
+
+        // recurso ao STRtree só para os segmentos por emparelhar: vizinhos sem vértices coincidentes,
+        // que partilham apenas parte de um segmento, e o limite exterior, que não encontra nenhum
+        boolean[] comPendentes = new boolean[n];
+        pendentes.paraCadaValor(i -> comPendentes[i] = true);
+        SegmentosPendentes soltos = new SegmentosPendentes();
+        for (int i = 0; i < n; i++) {
+            if (!comPendentes[i]) continue;
+            segmentos.limpar();
+            porItem[i].apply(segmentos);
+            for (int s = 0; s < segmentos.tamanho; s++) {
+                if (pendentes.obter(segmentos.hashes[s]) == i) {
+                    soltos.adicionar(segmentos, s, i);
+                }
+            }
+        }
+
+        STRtree indice = new STRtree();
+        for (int s = 0; s < soltos.tamanho; s++) {
+            indice.insert(soltos.envelope(s), s);
+        }
+        for (int s = 0; s < soltos.tamanho; s++) {
+            Envelope procura = soltos.envelope(s);
+            procura.expandBy(TOLERANCIA);
+            for (Object item : indice.query(procura)) {
+                int t = (Integer) item;
+                if (t <= s || soltos.donos[t] == soltos.donos[s]) continue;
+                double sobreposicao = soltos.sobreposicao(s, t);
+                if (sobreposicao <= TOLERANCIA) continue; // cruzamento ou contacto num único ponto
+
+                int a = soltos.donos[s], b = soltos.donos[t];
+                long par = a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+                int posicao = indicesPares.obter(par);
+                if (posicao == SEM_DONO) {
+                    if (numeroPares == pares.length) {
+                        pares = Arrays.copyOf(pares, numeroPares * 2);
+                        comprimentos = Arrays.copyOf(comprimentos, numeroPares * 2);
+                    }
+                    posicao = numeroPares++;
+                    pares[posicao] = par;
+                    indicesPares.colocar(par, posicao);
+                }
+                comprimentos[posicao] += sobreposicao;
+            }
+        }
+
+        // arestas ordenadas pelo par de índices, para um resultado determinístico
+        long[] ordem = Arrays.copyOf(pares, numeroPares);
+        Arrays.sort(ordem);
+        List<String[]> arestas = new ArrayList<>(numeroPares);
+        double[] comprimentosArestas = new double[numeroPares];
+        for (int k = 0; k < numeroPares; k++) {
+            long par = ordem[k];
+            arestas.add(ordenar(propriedades.get((int) (par >>> 32)).getObjectId(),
+                    propriedades.get((int) par).getObjectId()));
+            comprimentosArestas[k] = comprimentos[indicesPares.obter(par)];
+        }
+        return new Resultado(arestas, comprimentosArestas, soltos.tamanho);
+    }
+
+    private static String[] ordenar(String a, String b) {
+        return a.compareTo(b) < 0 ? new String[]{a, b} : new String[]{b, a};
+    }
+
+    /**
+     * Recolhe o hash, o comprimento e os extremos normalizados dos segmentos de todas as linhas de uma
+     * geometria.
+     */
+    private static class Segmentos implements GeometryComponentFilter {
+        private long[] hashes = new long[64];
+        private double[] comprimentos = new double[64];
+        private double[] extremos = new double[4 * 64];
+        private int tamanho;
+
+        void limpar() {
+            tamanho = 0;
+        }
+
+        @Override
+        public void filter(Geometry componente) {
+            if (!(componente instanceof LineString)) return;
+            CoordinateSequence coordenadas = ((LineString) componente).getCoordinateSequence();
+            for (int i = 1; i < coordenadas.size(); i++) {
+                // + 0.0 converte -0.0 em 0.0, para que os dois tenham o mesmo hash
+                double x1 = coordenadas.getX(i - 1) + 0.0, y1 = coordenadas.getY(i - 1) + 0.0;
+                double x2 = coordenadas.getX(i) + 0.0, y2 = coordenadas.getY(i) + 0.0;
+                if (x1 == x2 && y1 == y2) continue;
+                if (x1 > x2 || (x1 == x2 && y1 > y2)) {
+                    double t = x1;
+                    x1 = x2;
+                    x2 = t;
+                    t = y1;
+                    y1 = y2;
+                    y2 = t;
+                }
+                if (tamanho == hashes.length) {
+                    hashes = Arrays.copyOf(hashes, tamanho * 2);
+                    comprimentos = Arrays.copyOf(comprimentos, tamanho * 2);
+                    extremos = Arrays.copyOf(extremos, 4 * tamanho * 2);
+                }
+                extremos[4 * tamanho] = x1;
+                extremos[4 * tamanho + 1] = y1;
+                extremos[4 * tamanho + 2] = x2;
+                extremos[4 * tamanho + 3] = y2;
+                hashes[tamanho] = hash(x1, y1, x2, y2);
+                comprimentos[tamanho++] = Math.hypot(x2 - x1, y2 - y1);
+            }
+        }
+    }
+
+    /**
+     * Segmentos que o hash não emparelhou, com a propriedade a que pertence cada um.
+     */
+    private static class SegmentosPendentes {
+        private double[] extremos = new double[4 * 64];
+        private int[] donos = new int[64];
+        private int tamanho;
+
+        void adicionar(Segmentos segmentos, int s, int dono) {
+            if (tamanho == donos.length) {
+                donos = Arrays.copyOf(donos, tamanho * 2);
+                extremos = Arrays.copyOf(extremos, 4 * tamanho * 2);
+            }
+            System.arraycopy(segmentos.extremos, 4 * s, extremos, 4 * tamanho, 4);
+            donos[tamanho++] = dono;
+        }
+
+        Envelope envelope(int s) {
+            return new Envelope(extremos[4 * s], extremos[4 * s + 2], extremos[4 * s + 1], extremos[4 * s + 3]);
+        }
+
+        /**
+         * Comprimento da parte comum de dois segmentos colineares, ou zero se os extremos do segundo não
+         * estiverem sobre a reta do primeiro.
+         */
+        double sobreposicao(int s, int t) {
+            double x1 = extremos[4 * s], y1 = extremos[4 * s + 1];
+            double dx = extremos[4 * s + 2] - x1, dy = extremos[4 * s + 3] - y1;
+            double comprimento = Math.hypot(dx, dy);
+            double inicio = Double.POSITIVE_INFINITY, fim = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < 4; k += 2) {
+                double px = extremos[4 * t + k] - x1, py = extremos[4 * t + k + 1] - y1;
+                if (Math.abs(dx * py - dy * px) / comprimento > TOLERANCIA) return 0;
+                double projecao = (px * dx + py * dy) / comprimento;
+                inicio = Math.min(inicio, projecao);
+                fim = Math.max(fim, projecao);
+            }
+            return Math.max(0, Math.min(fim, comprimento) - Math.max(inicio, 0));
+        }
+    }
+
+    /**
+     * Hash de 64 bits de um segmento normalizado.
+     */
+    static long hash(double x1, double y1, double x2, double y2) {
+        long h = 0x9E3779B97F4A7C15L;
+        h = misturar(h ^ Double.doubleToLongBits(x1));
+        h = misturar(h ^ Double.doubleToLongBits(y1));
+        h = misturar(h ^ Double.doubleToLongBits(x2));
+        return misturar(h ^ Double.doubleToLongBits(y2));
+    }
+
+    /** Finalizador do SplitMix64. */
+    private static long misturar(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Tabela de endereçamento aberto de chaves {@code long} para inteiros não negativos, com remoção por
+     * deslocamento para trás, para que não fiquem marcas de posições apagadas.
+     */
+    private static class TabelaLongos {
+        private long[] chaves;
+        private int[] valores;
+        private int tamanho;
+
+        TabelaLongos(int capacidade) {
+            chaves = new long[capacidade];
+            valores = new int[capacidade];
+            Arrays.fill(valores, SEM_DONO);
+        }
+
+        private int posicao(long chave) {
+            return (int) misturar(chave) & (chaves.length - 1);
+        }
+
+        int obter(long chave) {
+            int mascara = chaves.length - 1;
+            for (int p = posicao(chave); valores[p] != SEM_DONO; p = (p + 1) & mascara) {
+                if (chaves[p] == chave) return valores[p];
+            }
+            return SEM_DONO;
+        }
+
+        /** Coloca uma chave que ainda não está na tabela. */
+        void colocar(long chave, int valor) {
+            if (2 * (tamanho + 1) > chaves.length) {
+                redimensionar();
+            }
+            int mascara = chaves.length - 1;
+            int p = posicao(chave);
+            while (valores[p] != SEM_DONO) {
+                p = (p + 1) & mascara;
+            }
+            chaves[p] = chave;
+            valores[p] = valor;
+            tamanho++;
+        }
+
+        /** Chama o consumidor com o valor de cada chave presente na tabela. */
+        void paraCadaValor(IntConsumer consumidor) {
+            for (int valor : valores) {
+                if (valor != SEM_DONO) consumidor.accept(valor);
+            }
+        }
+
+        void remover(long chave) {
+            int mascara = chaves.length - 1;
+            int p = posicao(chave);
+            while (chaves[p] != chave || valores[p] == SEM_DONO) {
+                if (valores[p] == SEM_DONO) return;
+                p = (p + 1) & mascara;
+            }
+            // desloca para trás as chaves seguintes que deixariam de ser encontradas
+            for (int q = (p + 1) & mascara; valores[q] != SEM_DONO; q = (q + 1) & mascara) {
+                int ideal = posicao(chaves[q]);
+                if (((q - ideal) & mascara) >= ((q - p) & mascara)) {
+                    chaves[p] = chaves[q];
+                    valores[p] = valores[q];
+                    p = q;
+                }
+            }
+            valores[p] = SEM_DONO;
+            tamanho--;
+        }
+
+        private void redimensionar() {
+            long[] antigasChaves = chaves;
+            int[] antigosValores = valores;
+            chaves = new long[antigasChaves.length * 2];
+            valores = new int[chaves.length];
+            Arrays.fill(valores, SEM_DONO);
+            tamanho = 0;
+            for (int p = 0; p < antigasChaves.length; p++) {
+                if (antigosValores[p] != SEM_DONO) {
+                    colocar(antigasChaves[p], antigosValores[p]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.gestaodeterritorio;
+
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.exceptions.ServiceUnavailableException;
+import org.neo4j.driver.exceptions.SessionExpiredException;
+import org.neo4j.driver.exceptions.TransientException;
+import org.neo4j.driver.summary.SummaryCounters;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Escreve grandes volumes de linhas no Neo4j em lotes, cada um na sua própria transação.
+ *
+ * Os lotes são disjuntos e distribuídos por várias sessões concorrentes, o que mantém o estado de cada
+ * transação pequeno e a ligação Bolt ocupada. Cada lote é repetido em caso de erro transitório
+ * (por exemplo, um deadlock entre lotes que tocam nos mesmos nós) e o progresso é reportado à medida
+ * que os lotes terminam.
+ *
+ * Cada escrita é registada no {@link RelatorioExecucao} numa etapa {@code neo4j: <descrição>}, com as
+ * linhas escritas, o número de repetições e o histograma da latência de cada transação.
+ */
+class EscritorLotes {
+
+    /** Tamanho de lote por omissão. */
+    static final int TAMANHO_LOTE = 5000;
+
+    /** Número de sessões concorrentes por omissão. */
+    static final int SESSOES = 4;
+
+    /** Número máximo de tentativas de cada lote. */
+    static final int MAX_TENTATIVAS = 5;
+
+    /** Espera antes da primeira repetição de um lote, que duplica a cada nova repetição. */
+    static final long ESPERA_INICIAL_MS = 100;
+
+    /**
+     * Contagens acumuladas das alterações feitas por todos os lotes.
+     */
+    static class Contagem {
+        private final AtomicLong nosCriados = new AtomicLong();
+        private final AtomicLong relacoesCriadas = new AtomicLong();
+
+        private void somar(SummaryCounters counters) {
+            nosCriados.addAndGet(counters.nodesCreated());
+            relacoesCriadas.addAndGet(counters.relationshipsCreated());
+        }
+
+        /**
+         * @return o número de nós criados
+         */
+        long getNosCriados() {
+            return nosCriados.get();
+        }
+
+        /**
+         * @return o número de relações criadas
+         */
+        long getRelacoesCriadas() {
+            return relacoesCriadas.get();
+        }
+    }
+
+    private final Driver driver;
+    private final int tamanhoLote;
+    private final int numeroSessoes;
+    private final RelatorioExecucao relatorio;
+
+    /**
+     * @param driver o driver Neo4j
+     * @param tamanhoLote número máximo de linhas por transação
+     * @param numeroSessoes número de sessões a escrever em simultâneo
+     * @throws IllegalArgumentException se algum dos valores for inferior a 1
+     */
+    EscritorLotes(Driver driver, int tamanhoLote, int numeroSessoes) {
+        this(driver, tamanhoLote, numeroSessoes, new RelatorioExecucao());
+    }
+
+    /**
+     * @param driver o driver Neo4j
+     * @param tamanhoLote número máximo de linhas por transação
+     * @param numeroSessoes número de sessões a escrever em simultâneo
+     * @param relatorio o relatório onde são registadas as escritas
+     * @throws IllegalArgumentException se algum dos valores for inferior a 1
+     */
+    EscritorLotes(Driver driver, int tamanhoLote, int numeroSessoes, RelatorioExecucao relatorio) {
+        if (tamanhoLote < 1) {
+            throw new IllegalArgumentException("Tamanho de lote inválido: " + tamanhoLote);
+        }
+        if (numeroSessoes < 1) {
+            throw new IllegalArgumentException("Número de sessões inválido: " + numeroSessoes);
+        }
+        this.driver = driver;
+        this.tamanhoLote = tamanhoLote;
+        this.numeroSessoes = numeroSessoes;
+        this.relatorio = relatorio;
+    }
+
+    /**
+     * Escreve todas as linhas, em lotes, executando a query uma vez por lote.
+     *
+     * @param descricao descrição usada nas mensagens de progresso
+     * @param query a query Cypher, que recebe o lote no parâmetro indicado
+     * @param nomeParametro o nome do parâmetro da query que recebe a lista de linhas
+     * @param linhas as linhas a escrever
+     * @return as contagens de nós e relações criados pelos lotes
+     */
+    Contagem escrever(String descricao, String query, String nomeParametro, List<?> linhas) {
+        Contagem contagem = new Contagem();
+        List<? extends List<?>> lotes = particionar(linhas, tamanhoLote);
+        if (lotes.isEmpty()) return contagem;
+
+        RelatorioExecucao.Etapa etapa = relatorio.etapa("neo4j: " + descricao);
+        etapa.medir(() -> {
+            escreverLotes(descricao, query, nomeParametro, lotes, contagem, etapa);
+            return contagem;
+        });
+        etapa.somar("nosCriados", contagem.getNosCriados());
+        etapa.somar("relacoesCriadas", contagem.getRelacoesCriadas());
+        return contagem;
+    }
+
+    private void escreverLotes(String descricao, String query, String nomeParametro, List<? extends List<?>> lotes,
+                               Contagem contagem, RelatorioExecucao.Etapa etapa) {
+        AtomicInteger concluidos = new AtomicInteger();
+        if (numeroSessoes == 1 || lotes.size() == 1) {
+            for (List<?> lote : lotes) {
+                escreverLote(query, nomeParametro, lote, contagem, etapa);
+                reportar(descricao, concluidos.incrementAndGet(), lotes.size());
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(numeroSessoes, lotes.size()));
+        try {
+            List<Future<?>> pendentes = new ArrayList<>();
+            for (List<?> lote : lotes) {
+                pendentes.add(executor.submit(() -> {
+                    escreverLote(query, nomeParametro, lote, contagem, etapa);
+                    reportar(descricao, concluidos.incrementAndGet(), lotes.size());
+                }));
+            }
+            for (Future<?> pendente : pendentes) {
+                pendente.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof RuntimeException) throw (RuntimeException) causa;
+            throw new IllegalStateException(causa);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Escrita em lotes interrompida", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Escreve um lote numa sessão própria, repetindo a transação em caso de erro transitório.
+     *
+     * A latência registada é a da tentativa bem-sucedida, incluindo a abertura da sessão.
+     */
+    private void escreverLote(String query, String nomeParametro, List<?> lote, Contagem contagem,
+                              RelatorioExecucao.Etapa etapa) {
+        long espera = ESPERA_INICIAL_MS;
+        for (int tentativa = 1; ; tentativa++) {
+            long inicio = System.nanoTime();
+            try (Session session = driver.session()) {
+                SummaryCounters counters = session.writeTransaction(tx ->
+                        tx.run(query, Values.parameters(nomeParametro, lote)).consume().counters());
+                etapa.registarLatencia("transacoes", System.nanoTime() - inicio);
+                contagem.somar(counters);
+                etapa.somarLinhas(lote.size());
+                return;
+            } catch (RuntimeException e) {
+                if (!transitorio(e)) throw e;
+                etapa.somar("repeticoes", 1);
+                if (tentativa >= MAX_TENTATIVAS) throw e;
+                try {
+                    Thread.sleep(espera);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                espera *= 2;
+            }
+        }
+    }
+
+    /**
+     * @param e o erro de uma transação
+     * @return {@code true} se a transação puder ser repetida: erro transitório do servidor ou ligação perdida
+     */
+    static boolean transitorio(Throwable e) {
+        return e instanceof TransientException || e instanceof ServiceUnavailableException
+                || e instanceof SessionExpiredException;
+    }
+
+    private static void reportar(String descricao, int concluidos, int total) {
+        System.out.println(descricao + ": lote " + concluidos + "/" + total);
+    }
+
+    /**
+     * Divide uma lista em sublistas consecutivas com no máximo {@code tamanho} elementos.
+     *
+     * @param linhas a lista a dividir
+     * @param tamanho o tamanho máximo de cada sublista
+     * @return as sublistas, pela ordem original
+     */
+    static <T> List<List<T>> particionar(List<T> linhas, int tamanho) {
+        List<List<T>> lotes = new ArrayList<>();
+        for (int inicio = 0; inicio < linhas.size(); inicio += tamanho) {
+            lotes.add(linhas.subList(inicio, Math.min(inicio + tamanho, linhas.size())));
+        }
+        return lotes;
+    }
+}
@@ -1,6 +1,9 @@
 package com.gestaodeterritorio;
 
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.IntersectionMatrix;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 import org.locationtech.jts.io.WKTReader;
 
 /**
@@ -13,6 +16,18 @@ import org.locationtech.jts.io.WKTReader;
  */
 public class GeoUtils {
 
+    /**
+     * Tipo de relação espacial entre duas propriedades.
+     */
+    public enum TipoAdjacencia {
+        /** As geometrias não têm qualquer ponto em comum. */
+        NENHUMA,
+        /** As geometrias partilham apenas a fronteira. */
+        TOQUE,
+        /** Os interiores das geometrias intersectam-se. */
+        SOBREPOSICAO
+    }
+
     /**
      * Converte uma string WKT (Well-Known Text) numa geometria do tipo {@link Geometry}.
      *
@@ -20,8 +35,20 @@ public class GeoUtils {
      * @return um objeto {@code Geometry} correspondente à string WKT, ou {@code null} se ocorrer erro
      */
     public static Geometry parseGeometry(String wkt) {
+        return parseGeometry(wkt, new WKTReader());
+    }
+
+    /**
+     * Converte uma string WKT numa geometria reutilizando um {@link WKTReader} já criado.
+     *
+     * Um {@code WKTReader} não é thread-safe, pelo que cada thread deve usar o seu próprio leitor.
+     *
+     * @param wkt a string em formato WKT que representa uma geometria
+     * @param reader o leitor WKT a reutilizar
+     * @return um objeto {@code Geometry} correspondente à string WKT, ou {@code null} se ocorrer erro
+     */
+    public static Geometry parseGeometry(String wkt, WKTReader reader) {
         try {
-            WKTReader reader = new WKTReader();
             return reader.read(wkt);
         } catch (Exception e) {
             System.err.println("Erro ao converter WKT: " + e.getMessage());
@@ -32,11 +59,75 @@ public class GeoUtils {
     /**
      * Verifica se duas geometrias são adjacentes, isto é, se se tocam ou se se intersectam.
      *
+     * Como tocar implica intersectar, basta um único teste de interseção.
+     *
      * @param g1 a primeira geometria
      * @param g2 a segunda geometria
      * @return {@code true} se as geometrias forem adjacentes, {@code false} caso contrário
      */
     public static boolean saoAdjacentes(Geometry g1, Geometry g2) {
-        return g1.touches(g2) || g1.intersects(g2);
+        return g1.intersects(g2);
+    }
+
+    /**
+     * Prepara uma geometria para ser comparada com muitas outras.
+     *
+     * A geometria preparada guarda índices internos que são reutilizados em todos os testes
+     * seguintes, pelo que deve ser criada uma vez por propriedade e usada contra todos os seus candidatos.
+     *
+     * @param g a geometria a preparar
+     * @return a geometria preparada
+     */
+    public static PreparedGeometry prepararGeometria(Geometry g) {
+        return PreparedGeometryFactory.prepare(g);
+    }
+
+    /**
+     * Verifica se uma geometria preparada é adjacente a outra geometria, com um único teste de interseção.
+     *
+     * @param g1 a geometria preparada
+     * @param g2 a geometria candidata
+     * @return {@code true} se as geometrias forem adjacentes, {@code false} caso contrário
+     */
+    public static boolean saoAdjacentes(PreparedGeometry g1, Geometry g2) {
+        return g1.intersects(g2);
+    }
+
+    /**
+     * Classifica a relação entre uma geometria preparada e outra geometria.
+     *
+     * Os candidatos disjuntos são rejeitados pelo teste preparado; só para os que se intersectam
+     * é calculada uma única matriz DE-9IM, que distingue o toque da sobreposição.
+     *
+     * @param g1 a geometria preparada
+     * @param g2 a geometria candidata
+     * @return o tipo de adjacência entre as duas geometrias
+     */
+    public static TipoAdjacencia classificarAdjacencia(PreparedGeometry g1, Geometry g2) {
+        if (!g1.intersects(g2)) {
+            return TipoAdjacencia.NENHUMA;
+        }
+        Geometry base = g1.getGeometry();
+        IntersectionMatrix matriz = base.relate(g2);
+        return matriz.isTouches(base.getDimension(), g2.getDimension())
+                ? TipoAdjacencia.TOQUE
+                : TipoAdjacencia.SOBREPOSICAO;
+    }
+
+    /**
+     * Calcula o comprimento da fronteira partilhada por duas geometrias.
+     *
+     * @param g1 a primeira geometria
+     * @param g2 a segunda geometria
+     * @return o comprimento da interseção das fronteiras, ou 0 se as geometrias só se tocarem num ponto
+     *         ou se a interseção não puder ser calculada
+     */
+    public static double comprimentoFronteira(Geometry g1, Geometry g2) {
+        try {
+            return g1.getBoundary().intersection(g2.getBoundary()).getLength();
+        } catch (Exception e) {
+            System.err.println("Erro ao calcular a fronteira comum: " + e.getMessage());
+            return 0;
+        }
     }
 }
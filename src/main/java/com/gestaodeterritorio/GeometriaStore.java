@@ -0,0 +1,190 @@
+package com.gestaodeterritorio;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.io.WKTReader;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Armazém de geometrias já interpretadas, indexado pelo {@code objectId} de cada propriedade.
+ *
+ * Cada geometria WKT é convertida uma única vez, com um {@link WKTReader} e uma
+ * {@link GeometryFactory} reutilizados, e a geometria resultante é depois partilhada pela
+ * construção do índice espacial, pela procura de adjacências e por qualquer análise posterior.
+ *
+ * Propriedades com geometria inválida ficam registadas com {@code null}, para que o WKT não volte a
+ * ser convertido: {@link #obter(String)} devolve {@code null} para elas e {@link #tamanho()} conta-as.
+ *
+ * Um armazém criado sobre uma {@link CacheGeometrias} mapeada não converte nada à partida: cada
+ * geometria é convertida a partir do WKB mapeado na primeira vez que é pedida, e reutilizada depois.
+ */
+public class GeometriaStore {
+    private final GeometryFactory factory;
+    private final WKTReader reader;
+    private final Map<String, Geometry> geometrias = new HashMap<>();
+    private final CacheGeometrias cache;
+    private final Map<String, Geometry> daCache;
+
+    /**
+     * Cria um armazém vazio com uma fábrica de geometrias por omissão.
+     */
+    public GeometriaStore() {
+        this(new GeometryFactory());
+    }
+
+    /**
+     * Cria um armazém vazio que usa a fábrica de geometrias indicada.
+     *
+     * @param factory a fábrica usada para construir todas as geometrias
+     */
+    public GeometriaStore(GeometryFactory factory) {
+        this(factory, null);
+    }
+
+    private GeometriaStore(GeometryFactory factory, CacheGeometrias cache) {
+        this.factory = factory;
+        this.reader = new WKTReader(factory);
+        this.cache = cache;
+        this.daCache = cache == null ? null : new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Cria um armazém cujas geometrias são convertidas a partir da cache apenas quando são pedidas. A
+     * cache deve estar mapeada e ser válida para todas as propriedades.
+     *
+     * @param cache a cache de geometrias, com a zona das geometrias mapeada
+     * @return o armazém, ainda sem nenhuma geometria convertida
+     */
+    static GeometriaStore mapeada(CacheGeometrias cache) {
+        return new GeometriaStore(new GeometryFactory(), cache);
+    }
+
+    /**
+     * Cria um armazém com as geometrias de todas as propriedades fornecidas.
+     *
+     * @param propriedades lista de propriedades com geometria em WKT
+     * @return o armazém preenchido
+     */
+    public static GeometriaStore carregar(List<PropriedadeRustica> propriedades) {
+        GeometriaStore store = new GeometriaStore();
+        for (PropriedadeRustica p : propriedades) {
+            store.adicionar(p);
+        }
+        return store;
+    }
+
+    /**
+     * Cria um armazém com as geometrias de todas as propriedades, lidas do WKB da cache sempre que
+     * possível. Só as propriedades que não estão na cache, ou cuja geometria mudou desde que a cache
+     * foi escrita, têm o WKT convertido.
+     *
+     * @param propriedades lista de propriedades com geometria em WKT
+     * @param cache a cache de geometrias
+     * @return o armazém preenchido
+     */
+    public static GeometriaStore carregar(List<PropriedadeRustica> propriedades, CacheGeometrias cache) {
+        GeometriaStore store = new GeometriaStore();
+        for (PropriedadeRustica p : propriedades) {
+            store.adicionar(p, cache);
+        }
+        return store;
+    }
+
+    /**
+     * Guarda a geometria de uma propriedade, lendo-a da cache se lá estiver com a mesma geometria e
+     * convertendo o WKT caso contrário.
+     *
+     * @param propriedade a propriedade cuja geometria deve ser guardada
+     * @param cache a cache de geometrias
+     * @return a geometria da propriedade, ou {@code null} se for inválida
+     */
+    public Geometry adicionar(PropriedadeRustica propriedade, CacheGeometrias cache) {
+        String objectId = propriedade.getObjectId();
+        if (registada(objectId) || !cache.contem(propriedade)) {
+            return adicionar(propriedade);
+        }
+        Geometry g = cache.obter(objectId, factory);
+        geometrias.put(objectId, g);
+        return g;
+    }
+
+    /**
+     * Converte e guarda a geometria de uma propriedade, caso ainda não tenha sido convertida.
+     *
+     * @param propriedade a propriedade cuja geometria deve ser guardada
+     * @return a geometria da propriedade, ou {@code null} se o WKT for inválido
+     */
+    public Geometry adicionar(PropriedadeRustica propriedade) {
+        String objectId = propriedade.getObjectId();
+        if (registada(objectId)) {
+            return obter(objectId);
+        }
+        Geometry g = GeoUtils.parseGeometry(propriedade.getGeometry(), reader);
+        geometrias.put(objectId, g);
+        return g;
+    }
+
+    /**
+     * Guarda uma geometria já construída, por exemplo lida em WKB, substituindo a que existir.
+     *
+     * @param objectId o identificador da propriedade
+     * @param g a geometria, ou {@code null} se for inválida
+     */
+    void colocar(String objectId, Geometry g) {
+        geometrias.put(objectId, g);
+    }
+
+    /**
+     * @param objectId o identificador da propriedade
+     * @return a geometria da propriedade, ou {@code null} se não existir ou for inválida
+     */
+    public Geometry obter(String objectId) {
+        Geometry g = geometrias.get(objectId);
+        if (g != null || cache == null || geometrias.containsKey(objectId)) {
+            return g;
+        }
+        return daCache.computeIfAbsent(objectId, id -> cache.obter(id, factory));
+    }
+
+    private boolean registada(String objectId) {
+        return geometrias.containsKey(objectId) || (cache != null && cache.contem(objectId));
+    }
+
+    /**
+     * @param propriedade a propriedade
+     * @return a geometria da propriedade, ou {@code null} se não existir ou for inválida
+     */
+    public Geometry obter(PropriedadeRustica propriedade) {
+        return obter(propriedade.getObjectId());
+    }
+
+    /**
+     * @return o número de propriedades registadas, incluindo as de geometria inválida
+     */
+    public int tamanho() {
+        if (cache == null) return geometrias.size();
+        int n = cache.tamanho();
+        for (String objectId : geometrias.keySet()) {
+            if (!cache.contem(objectId)) n++;
+        }
+        return n;
+    }
+
+    /**
+     * @return o número de geometrias já convertidas a partir da cache mapeada
+     */
+    int convertidasDaCache() {
+        return daCache == null ? 0 : daCache.size();
+    }
+
+    /**
+     * @return a fábrica de geometrias partilhada por todas as geometrias do armazém
+     */
+    public GeometryFactory getFactory() {
+        return factory;
+    }
+}
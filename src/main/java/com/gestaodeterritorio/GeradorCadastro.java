@@ -0,0 +1,302 @@
+package com.gestaodeterritorio;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Gerador determinístico de cadastros sintéticos, para testes de escala e de carga.
+ *
+ * As propriedades formam uma tesselação: uma grelha cujos vértices são deslocados aleatoriamente, com
+ * vértices intermédios em cada lado. Cada vértice e cada lado são calculados a partir da semente e da sua
+ * posição na grelha, pelo que propriedades vizinhas partilham exatamente os mesmos vértices de fronteira
+ * e o mesmo ficheiro é gerado sempre que se usa a mesma semente.
+ *
+ * As linhas são escritas à medida que são geradas, no formato CSV lido pelo {@link CadastroLoader}, sem
+ * manter nada em memória além da propriedade anterior; podem assim gerar-se ficheiros com milhões de linhas.
+ *
+ * Os proprietários seguem uma distribuição aproximadamente Zipf (poucos proprietários com muitas
+ * propriedades) e cada propriedade tem uma probabilidade configurável de pertencer ao dono da vizinha
+ * da esquerda. A grelha é dividida em ilhas (faixas verticais), cada ilha em municípios (faixas
+ * horizontais) e cada município em freguesias, de forma que cada freguesia pertence a um só município.
+ */
+public class GeradorCadastro {
+
+    /** Cabeçalho do CSV do cadastro. */
+    static final String CABECALHO = "OBJECTID;PAR_ID;PAR_NUM;Shape_Length;Shape_Area;geometry;OWNER;Freguesia;Municipio;Ilha";
+
+    private static final double LADO_CELULA = 50.0;
+    private static final double ORIGEM_X = 300000.0;
+    private static final double ORIGEM_Y = 3610000.0;
+    /** Deslocamento máximo dos cantos, em fração do lado da célula. */
+    private static final double DESVIO_CANTO = 0.25;
+    /**
+     * Deslocamento máximo dos vértices intermédios, perpendicular ao lado, em fração do comprimento de
+     * cada troço do lado, para que os polígonos continuem válidos com muitos vértices por lado.
+     */
+    private static final double DESVIO_INTERMEDIO = 0.08;
+
+    private final long semente;
+    private final int verticesPorLado;
+    private final int numeroProprietarios;
+    private final double probabilidadeVizinho;
+    private final int ilhas;
+    private final int municipiosPorIlha;
+    private final int freguesiasPorMunicipio;
+
+    /**
+     * Cria um gerador com 2 vértices intermédios por lado, 100 000 proprietários, probabilidade 0,3 de a
+     * propriedade ser do dono da vizinha, 2 ilhas, 5 municípios por ilha e 8 freguesias por município.
+     *
+     * @param semente a semente do gerador
+     */
+    public GeradorCadastro(long semente) {
+        this(semente, 2, 100000, 0.3, 2, 5, 8);
+    }
+
+    /**
+     * Cria um gerador com a configuração indicada.
+     *
+     * @param semente a semente do gerador
+     * @param verticesPorLado o número de vértices intermédios em cada lado das propriedades
+     * @param numeroProprietarios o número de proprietários distintos possíveis
+     * @param probabilidadeVizinho a probabilidade de uma propriedade ser do dono da vizinha da esquerda
+     * @param ilhas o número de ilhas
+     * @param municipiosPorIlha o número de municípios de cada ilha
+     * @param freguesiasPorMunicipio o número de freguesias de cada município
+     * @throws IllegalArgumentException se algum dos valores estiver fora do intervalo válido
+     */
+    public GeradorCadastro(long semente, int verticesPorLado, int numeroProprietarios, double probabilidadeVizinho,
+                           int ilhas, int municipiosPorIlha, int freguesiasPorMunicipio) {
+        if (verticesPorLado < 0 || numeroProprietarios < 1 || probabilidadeVizinho < 0 || probabilidadeVizinho > 1
+                || ilhas < 1 || municipiosPorIlha < 1 || freguesiasPorMunicipio < 1) {
+            throw new IllegalArgumentException("Configuração do gerador inválida");
+        }
+        this.semente = semente;
+        this.verticesPorLado = verticesPorLado;
+        this.numeroProprietarios = numeroProprietarios;
+        this.probabilidadeVizinho = probabilidadeVizinho;
+        this.ilhas = ilhas;
+        this.municipiosPorIlha = municipiosPorIlha;
+        this.freguesiasPorMunicipio = freguesiasPorMunicipio;
+    }
+
+    /**
+     * Gera o cadastro num ficheiro, substituindo-o se já existir.
+     *
+     * @param numeroPropriedades o número de propriedades a gerar
+     * @param ficheiro o ficheiro de destino
+     * @return o número de linhas escritas
+     * @throws IOException se ocorrer um erro de escrita
+     */
+    public long gerar(int numeroPropriedades, Path ficheiro) throws IOException {
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(ficheiro), StandardCharsets.UTF_8), 1 << 20)) {
+            return gerar(numeroPropriedades, writer);
+        }
+    }
+
+    /**
+     * Escreve o cabeçalho e as propriedades geradas, linha a linha.
+     *
+     * @param numeroPropriedades o número de propriedades a gerar
+     * @param writer o destino do CSV, que não é fechado
+     * @return o número de linhas escritas
+     * @throws IOException se ocorrer um erro de escrita
+     */
+    public long gerar(int numeroPropriedades, Writer writer) throws IOException {
+        if (numeroPropriedades < 0) {
+            throw new IllegalArgumentException("Número de propriedades inválido: " + numeroPropriedades);
+        }
+        int colunas = Math.max(1, (int) Math.ceil(Math.sqrt(numeroPropriedades)));
+        int linhas = Math.max(1, (numeroPropriedades + colunas - 1) / colunas);
+        int verticesAnel = 4 * (verticesPorLado + 1);
+        double[] xs = new double[verticesAnel + 1];
+        double[] ys = new double[verticesAnel + 1];
+        StringBuilder linha = new StringBuilder(256);
+
+        writer.write(CABECALHO);
+        writer.write('\n');
+        int proprietarioAnterior = 0;
+        for (int id = 1; id <= numeroPropriedades; id++) {
+            int i = (id - 1) % colunas;
+            int j = (id - 1) / colunas;
+            anel(i, j, xs, ys);
+
+            int proprietario = i > 0 && aleatorio(id, 0, 1) < probabilidadeVizinho
+                    ? proprietarioAnterior
+                    : proprietario(aleatorio(id, 0, 2));
+            proprietarioAnterior = proprietario;
+            int ilha = (int) ((long) i * ilhas / colunas);
+            int municipio = (int) ((long) j * municipiosPorIlha / linhas);
+            int freguesia = (int) ((long) i * ilhas % colunas * freguesiasPorMunicipio / colunas);
+
+            linha.setLength(0);
+            linha.append(id).append(';')
+                    .append(1000000 + id).append(';');
+            acrescentarComZeros(linha, (long) (aleatorio(id, 0, 3) * 1e9), 9).append(';')
+                    .append(arredondar(perimetro(xs, ys), 1e6)).append(';')
+                    .append(arredondar(area(xs, ys), 1e6)).append(';')
+                    .append("\"MULTIPOLYGON (((");
+            for (int k = 0; k < xs.length; k++) {
+                if (k > 0) linha.append(", ");
+                linha.append(xs[k]).append(' ').append(ys[k]);
+            }
+            linha.append(")))\";PROP");
+            acrescentarComZeros(linha, proprietario, 7).append(';')
+                    .append("Freguesia ").append(ilha + 1).append('-').append(municipio + 1).append('-').append(freguesia + 1).append(';')
+                    .append("Municipio ").append(ilha + 1).append('-').append(municipio + 1).append(';')
+                    .append("Ilha ").append(ilha + 1).append('\n');
+            writer.append(linha);
+        }
+        writer.flush();
+        return numeroPropriedades;
+    }
+
+    /**
+     * Calcula o anel exterior da célula (i, j), no sentido contrário ao dos ponteiros do relógio e fechado.
+     *
+     * Os lados partilhados com as vizinhas são calculados no mesmo sentido canónico que nelas e
+     * percorridos ao contrário quando necessário, para que os vértices coincidam exatamente.
+     */
+    private void anel(int i, int j, double[] xs, double[] ys) {
+        int p = 0;
+        p = lado(i, j, 0, false, xs, ys, p);     // base: (i, j) -> (i + 1, j)
+        p = lado(i + 1, j, 1, false, xs, ys, p); // direita: (i + 1, j) -> (i + 1, j + 1)
+        p = lado(i, j + 1, 0, true, xs, ys, p);  // topo: (i + 1, j + 1) -> (i, j + 1)
+        p = lado(i, j, 1, true, xs, ys, p);      // esquerda: (i, j + 1) -> (i, j)
+        xs[p] = xs[0];
+        ys[p] = ys[0];
+    }
+
+    /**
+     * Escreve o canto inicial e os vértices intermédios de um lado, que parte do canto (i, j) na
+     * horizontal ({@code direcao} 0) ou na vertical ({@code direcao} 1).
+     *
+     * @return a posição seguinte nos vetores de coordenadas
+     */
+    private int lado(int i, int j, int direcao, boolean invertido, double[] xs, double[] ys, int p) {
+        int i2 = direcao == 0 ? i + 1 : i;
+        int j2 = direcao == 0 ? j : j + 1;
+        double ax = cantoX(i, j), ay = cantoY(i, j);
+        double bx = cantoX(i2, j2), by = cantoY(i2, j2);
+        int n = verticesPorLado + 1;
+        for (int k = 0; k < n; k++) {
+            // no sentido invertido o lado começa em b e os intermédios são percorridos de trás para a frente
+            int passo = invertido ? n - k : k;
+            if (passo == 0) {
+                xs[p] = ax;
+                ys[p++] = ay;
+            } else if (passo == n) {
+                xs[p] = bx;
+                ys[p++] = by;
+            } else {
+                double t = (double) passo / n;
+                double desvio = DESVIO_INTERMEDIO * LADO_CELULA / n * (2 * aleatorio(chave(i, j), direcao + 2, passo) - 1);
+                // a perpendicular de um lado horizontal é vertical e vice-versa
+                xs[p] = arredondar(ax + (bx - ax) * t + (direcao == 1 ? desvio : 0), 100);
+                ys[p++] = arredondar(ay + (by - ay) * t + (direcao == 0 ? desvio : 0), 100);
+            }
+        }
+        return p;
+    }
+
+    private double cantoX(int i, int j) {
+        return arredondar(ORIGEM_X + (i + DESVIO_CANTO * (2 * aleatorio(chave(i, j), 0, 0) - 1)) * LADO_CELULA, 100);
+    }
+
+    private double cantoY(int i, int j) {
+        return arredondar(ORIGEM_Y + (j + DESVIO_CANTO * (2 * aleatorio(chave(i, j), 1, 0) - 1)) * LADO_CELULA, 100);
+    }
+
+    private static long chave(int i, int j) {
+        return ((long) i << 32) | (j & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Sorteia um proprietário com probabilidade aproximadamente proporcional a {@code 1 / posição}.
+     */
+    private int proprietario(double u) {
+        return Math.min(numeroProprietarios - 1, (int) Math.exp(u * Math.log(numeroProprietarios + 1.0)) - 1);
+    }
+
+    /**
+     * Número pseudoaleatório em [0, 1) determinado pela semente e pelos três valores indicados.
+     */
+    private double aleatorio(long a, long b, long c) {
+        long h = misturar(semente ^ 0x9E3779B97F4A7C15L);
+        h = misturar(h ^ a);
+        h = misturar(h ^ b);
+        h = misturar(h ^ c);
+        return (h >>> 11) * 0x1.0p-53;
+    }
+
+    /** Finalizador do SplitMix64. */
+    private static long misturar(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Acrescenta um número não negativo com zeros à esquerda, sem o custo de {@code String.format}.
+     */
+    private static StringBuilder acrescentarComZeros(StringBuilder destino, long valor, int digitos) {
+        String texto = Long.toString(valor);
+        for (int k = texto.length(); k < digitos; k++) {
+            destino.append('0');
+        }
+        return destino.append(texto);
+    }
+
+    private static double arredondar(double valor, double escala) {
+        return Math.round(valor * escala) / escala;
+    }
+
+    private static double perimetro(double[] xs, double[] ys) {
+        double total = 0;
+        for (int k = 1; k < xs.length; k++) {
+            total += Math.hypot(xs[k] - xs[k - 1], ys[k] - ys[k - 1]);
+        }
+        return total;
+    }
+
+    private static double area(double[] xs, double[] ys) {
+        double soma = 0;
+        for (int k = 1; k < xs.length; k++) {
+            soma += xs[k - 1] * ys[k] - xs[k] * ys[k - 1];
+        }
+        return Math.abs(soma) / 2;
+    }
+
+    /**
+     * Gera um cadastro sintético a partir da linha de comandos.
+     *
+     * Argumentos: ficheiro de destino, número de propriedades e, opcionalmente, a semente e o número de
+     * vértices intermédios por lado.
+     *
+     * @param args os argumentos da linha de comandos
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Uso: GeradorCadastro <ficheiro> <numeroPropriedades> [semente] [verticesPorLado]");
+            return;
+        }
+        try {
+            long semente = args.length > 2 ? Long.parseLong(args[2]) : 1L;
+            GeradorCadastro gerador = args.length > 3
+                    ? new GeradorCadastro(semente, Integer.parseInt(args[3]), 100000, 0.3, 2, 5, 8)
+                    : new GeradorCadastro(semente);
+            long inicio = System.nanoTime();
+            long linhas = gerador.gerar(Integer.parseInt(args[1]), Paths.get(args[0]));
+            System.out.println("Geradas " + linhas + " propriedades em " + (System.nanoTime() - inicio) / 1000000 + " ms");
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Erro ao gerar o cadastro: " + e.getMessage());
+        }
+    }
+}
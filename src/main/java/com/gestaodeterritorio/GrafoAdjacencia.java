@@ -0,0 +1,257 @@
+package com.gestaodeterritorio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Grafo de adjacência entre propriedades, imutável e guardado em memória no formato CSR
+ * (compressed sparse row).
+ *
+ * Cada propriedade recebe um índice denso entre {@code 0} e {@code numeroVertices() - 1}. Os vizinhos do
+ * vértice {@code v} ocupam as posições {@code [offsets[v], offsets[v + 1])} do array {@code destinos},
+ * ordenados e sem repetições. As arestas não são orientadas: cada adjacência aparece nos vizinhos de
+ * ambas as propriedades. Com dois arrays de inteiros, o grafo de milhões de propriedades ocupa algumas
+ * dezenas de MiB e pode ser percorrido localmente, sem pedidos ao Neo4j.
+ *
+ * Como é imutável, pode ser consultado por várias threads em simultâneo.
+ */
+public class GrafoAdjacencia {
+
+    private final String[] objectIds;
+    private final Map<String, Integer> indices;
+    private final int[] offsets;
+    private final int[] destinos;
+
+    private GrafoAdjacencia(String[] objectIds, Map<String, Integer> indices, int[] offsets, int[] destinos) {
+        this.objectIds = objectIds;
+        this.indices = indices;
+        this.offsets = offsets;
+        this.destinos = destinos;
+    }
+
+    /**
+     * Constrói o grafo a partir de uma lista de arestas. Só as propriedades que aparecem em alguma aresta
+     * se tornam vértices, pela ordem em que aparecem.
+     *
+     * @param arestas pares [objectId1, objectId2], por exemplo os calculados por {@link DetetorAdjacencias}
+     * @return o grafo construído
+     */
+    public static GrafoAdjacencia construir(List<String[]> arestas) {
+        Map<String, Integer> indices = new HashMap<>();
+        List<String> ids = new ArrayList<>();
+        for (String[] aresta : arestas) {
+            registar(aresta[0], indices, ids);
+            registar(aresta[1], indices, ids);
+        }
+        return construir(ids.toArray(new String[0]), indices, arestas);
+    }
+
+    /**
+     * Constrói o grafo com um vértice por propriedade, incluindo as que não têm vizinhos.
+     *
+     * @param propriedades as propriedades, cuja ordem define os índices dos vértices
+     * @param arestas pares [objectId1, objectId2] entre propriedades da lista
+     * @return o grafo construído
+     * @throws IllegalArgumentException se uma aresta referir uma propriedade que não está na lista
+     */
+    public static GrafoAdjacencia construir(List<PropriedadeRustica> propriedades, List<String[]> arestas) {
+        Map<String, Integer> indices = new HashMap<>();
+        List<String> ids = new ArrayList<>();
+        for (PropriedadeRustica p : propriedades) {
+            registar(p.getObjectId(), indices, ids);
+        }
+        for (String[] aresta : arestas) {
+            if (!indices.containsKey(aresta[0]) || !indices.containsKey(aresta[1])) {
+                throw new IllegalArgumentException("Aresta com propriedade desconhecida: " + aresta[0] + "-" + aresta[1]);
+            }
+        }
+        return construir(ids.toArray(new String[0]), indices, arestas);
+    }
+
+    private static void registar(String objectId, Map<String, Integer> indices, List<String> ids) {
+        if (!indices.containsKey(objectId)) {
+            indices.put(objectId, ids.size());
+            ids.add(objectId);
+        }
+    }
+
+    private static GrafoAdjacencia construir(String[] objectIds, Map<String, Integer> indices, List<String[]> arestas) {
+        int n = objectIds.length;
+
+        // 1.ª passagem: graus, contando cada aresta nos dois extremos
+        int[] offsets = new int[n + 1];
+        for (String[] aresta : arestas) {
+            int a = indices.get(aresta[0]);
+            int b = indices.get(aresta[1]);
+            if (a == b) continue;
+            offsets[a + 1]++;
+            offsets[b + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        // 2.ª passagem: destinos de cada vértice
+        int[] destinos = new int[offsets[n]];
+        int[] cursor = Arrays.copyOf(offsets, n);
+        for (String[] aresta : arestas) {
+            int a = indices.get(aresta[0]);
+            int b = indices.get(aresta[1]);
+            if (a == b) continue;
+            destinos[cursor[a]++] = b;
+            destinos[cursor[b]++] = a;
+        }
+
+        // ordena os vizinhos de cada vértice e compacta as arestas repetidas
+        int escrita = 0;
+        int inicio = 0;
+        for (int v = 0; v < n; v++) {
+            int fim = offsets[v + 1];
+            Arrays.sort(destinos, inicio, fim);
+            offsets[v] = escrita;
+            for (int i = inicio; i < fim; i++) {
+                if (i == inicio || destinos[i] != destinos[i - 1]) {
+                    destinos[escrita++] = destinos[i];
+                }
+            }
+            inicio = fim;
+        }
+        offsets[n] = escrita;
+        if (escrita < destinos.length) {
+            destinos = Arrays.copyOf(destinos, escrita);
+        }
+        return new GrafoAdjacencia(objectIds, indices, offsets, destinos);
+    }
+
+    /**
+     * @return o número de propriedades no grafo
+     */
+    public int numeroVertices() {
+        return objectIds.length;
+    }
+
+    /**
+     * @return o número de adjacências, contando uma vez cada par de propriedades
+     */
+    public long numeroArestas() {
+        return destinos.length / 2;
+    }
+
+    /**
+     * @param objectId o identificador da propriedade
+     * @return o índice do vértice, ou {@code -1} se a propriedade não estiver no grafo
+     */
+    public int indice(String objectId) {
+        Integer indice = indices.get(objectId);
+        return indice == null ? -1 : indice;
+    }
+
+    /**
+     * @param vertice o índice do vértice
+     * @return o objectId da propriedade correspondente
+     */
+    public String objectId(int vertice) {
+        return objectIds[vertice];
+    }
+
+    /**
+     * @param vertice o índice do vértice
+     * @return o número de vizinhos do vértice
+     */
+    public int grau(int vertice) {
+        return offsets[vertice + 1] - offsets[vertice];
+    }
+
+    /**
+     * @param objectId o identificador da propriedade
+     * @return o número de vizinhos da propriedade, ou {@code 0} se não estiver no grafo
+     */
+    public int grau(String objectId) {
+        int vertice = indice(objectId);
+        return vertice < 0 ? 0 : grau(vertice);
+    }
+
+    /**
+     * @param vertice o índice do vértice
+     * @return uma cópia dos índices dos vizinhos, por ordem crescente
+     */
+    public int[] vizinhos(int vertice) {
+        return Arrays.copyOfRange(destinos, offsets[vertice], offsets[vertice + 1]);
+    }
+
+    /**
+     * Percorre os vizinhos de um vértice sem criar arrays intermédios.
+     *
+     * @param vertice o índice do vértice
+     * @param consumidor função chamada com o índice de cada vizinho, por ordem crescente
+     */
+    public void paraCadaVizinho(int vertice, IntConsumer consumidor) {
+        for (int i = offsets[vertice], fim = offsets[vertice + 1]; i < fim; i++) {
+            consumidor.accept(destinos[i]);
+        }
+    }
+
+    /**
+     * Percorre o grafo em largura a partir de um vértice, até um número máximo de saltos.
+     *
+     * @param origem o índice do vértice de partida
+     * @param maxSaltos o número máximo de saltos; {@code 0} devolve apenas a origem
+     * @return os índices dos vértices alcançados, pela ordem da visita e começando pela origem
+     * @throws IllegalArgumentException se o número de saltos for negativo
+     */
+    public int[] percorrerEmLargura(int origem, int maxSaltos) {
+        if (maxSaltos < 0) {
+            throw new IllegalArgumentException("Número de saltos inválido: " + maxSaltos);
+        }
+        BitSet visitados = new BitSet(objectIds.length);
+        int[] fila = new int[16];
+        int tamanho = 0;
+        fila[tamanho++] = origem;
+        visitados.set(origem);
+
+        // cada nível da pesquisa ocupa as posições [inicioNivel, fimNivel) da fila
+        int inicioNivel = 0;
+        for (int salto = 0; salto < maxSaltos && inicioNivel < tamanho; salto++) {
+            int fimNivel = tamanho;
+            for (int q = inicioNivel; q < fimNivel; q++) {
+                int v = fila[q];
+                for (int i = offsets[v], fim = offsets[v + 1]; i < fim; i++) {
+                    int w = destinos[i];
+                    if (!visitados.get(w)) {
+                        visitados.set(w);
+                        if (tamanho == fila.length) {
+                            fila = Arrays.copyOf(fila, tamanho * 2);
+                        }
+                        fila[tamanho++] = w;
+                    }
+                }
+            }
+            inicioNivel = fimNivel;
+        }
+        return Arrays.copyOf(fila, tamanho);
+    }
+
+    /**
+     * Devolve as propriedades a no máximo {@code k} saltos de uma propriedade.
+     *
+     * @param objectId o identificador da propriedade de partida
+     * @param k o número máximo de saltos
+     * @return os objectIds alcançados, sem a propriedade de partida, por ordem de distância;
+     *         vazio se a propriedade não estiver no grafo
+     */
+    public List<String> vizinhancaK(String objectId, int k) {
+        int origem = indice(objectId);
+        List<String> resultado = new ArrayList<>();
+        if (origem < 0) return resultado;
+        int[] alcancados = percorrerEmLargura(origem, k);
+        for (int i = 1; i < alcancados.length; i++) {
+            resultado.add(objectIds[alcancados[i]]);
+        }
+        return resultado;
+    }
+}
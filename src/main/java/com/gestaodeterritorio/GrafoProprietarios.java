@@ -0,0 +1,316 @@
+package com.gestaodeterritorio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+
+/**
+ * Grafo de vizinhança entre proprietários, obtido a partir do grafo de adjacência entre propriedades.
+ *
+ * Dois proprietários são vizinhos quando alguma propriedade de um toca alguma propriedade do outro. Cada
+ * aresta guarda o número de pares de propriedades adjacentes que a originam ({@code contactos}).
+ *
+ * Os proprietários são codificados num dicionário de inteiros densos, pela ordem em que aparecem nas
+ * propriedades, e cada aresta é um par de códigos empacotado num {@code long}. A agregação percorre o
+ * grafo de propriedades em paralelo, com tarefas fork-join que produzem pares ordenados e sem repetições
+ * e que são depois intercalados, somando os contactos. O resultado é o mesmo para qualquer número de
+ * threads, com as arestas ordenadas pelos códigos dos proprietários.
+ *
+ * Propriedades sem proprietário são ignoradas, tal como as adjacências entre propriedades do mesmo dono.
+ */
+public class GrafoProprietarios {
+
+    /** Número de propriedades abaixo do qual uma tarefa não é dividida. */
+    static final int LIMIAR_SEQUENCIAL = 4096;
+
+    private final String[] proprietarios;
+    private final Map<String, Integer> indices;
+    private final int[] numeroPropriedades;
+    private final long[] pares;
+    private final int[] contactos;
+
+    private GrafoProprietarios(String[] proprietarios, Map<String, Integer> indices, int[] numeroPropriedades,
+                               long[] pares, int[] contactos) {
+        this.proprietarios = proprietarios;
+        this.indices = indices;
+        this.numeroPropriedades = numeroPropriedades;
+        this.pares = pares;
+        this.contactos = contactos;
+    }
+
+    /**
+     * Constrói o grafo de proprietários usando todos os processadores disponíveis.
+     *
+     * @param propriedades as propriedades, com o respetivo proprietário
+     * @param grafo o grafo de adjacência entre as propriedades
+     * @return o grafo de proprietários
+     */
+    public static GrafoProprietarios construir(List<PropriedadeRustica> propriedades, GrafoAdjacencia grafo) {
+        return construir(propriedades, grafo, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constrói o grafo de proprietários com o número de threads indicado.
+     *
+     * @param propriedades as propriedades, com o respetivo proprietário
+     * @param grafo o grafo de adjacência entre as propriedades
+     * @param numeroThreads número de threads; {@code 1} corresponde ao caminho sequencial
+     * @return o grafo de proprietários
+     * @throws IllegalArgumentException se o número de threads for inferior a 1
+     */
+    public static GrafoProprietarios construir(List<PropriedadeRustica> propriedades, GrafoAdjacencia grafo,
+                                               int numeroThreads) {
+        if (numeroThreads < 1) {
+            throw new IllegalArgumentException("Número de threads inválido: " + numeroThreads);
+        }
+
+        // dicionário de proprietários e código do dono de cada vértice
+        Map<String, Integer> indices = new HashMap<>();
+        List<String> nomes = new ArrayList<>();
+        int[] donos = new int[grafo.numeroVertices()];
+        Arrays.fill(donos, -1);
+        int[] contagem = new int[16];
+        for (PropriedadeRustica p : propriedades) {
+            String owner = p.getOwner();
+            int vertice = grafo.indice(p.getObjectId());
+            if (owner == null || owner.trim().isEmpty()) continue;
+
+            Integer codigo = indices.get(owner);
+            if (codigo == null) {
+                codigo = nomes.size();
+                indices.put(owner, codigo);
+                nomes.add(owner);
+                if (codigo == contagem.length) {
+                    contagem = Arrays.copyOf(contagem, codigo * 2);
+                }
+            }
+            contagem[codigo]++;
+            if (vertice >= 0) {
+                donos[vertice] = codigo;
+            }
+        }
+
+        int n = grafo.numeroVertices();
+        Agregado agregado;
+        if (numeroThreads == 1 || n <= LIMIAR_SEQUENCIAL) {
+            agregado = agregar(grafo, donos, 0, n);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(numeroThreads);
+            try {
+                agregado = pool.invoke(new TarefaAgregacao(grafo, donos, 0, n));
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        return new GrafoProprietarios(nomes.toArray(new String[0]), indices,
+                Arrays.copyOf(contagem, nomes.size()),
+                Arrays.copyOf(agregado.pares, agregado.tamanho),
+                Arrays.copyOf(agregado.contactos, agregado.tamanho));
+    }
+
+    /**
+     * @return o número de proprietários
+     */
+    public int numeroProprietarios() {
+        return proprietarios.length;
+    }
+
+    /**
+     * @return o número de pares de proprietários vizinhos
+     */
+    public int numeroArestas() {
+        return pares.length;
+    }
+
+    /**
+     * @param indice o código do proprietário
+     * @return o nome do proprietário
+     */
+    public String proprietario(int indice) {
+        return proprietarios[indice];
+    }
+
+    /**
+     * @param proprietario o nome do proprietário
+     * @return o código do proprietário, ou {@code -1} se não existir
+     */
+    public int indice(String proprietario) {
+        Integer indice = indices.get(proprietario);
+        return indice == null ? -1 : indice;
+    }
+
+    /**
+     * @param indice o código do proprietário
+     * @return o número de propriedades do proprietário
+     */
+    public int numeroPropriedades(int indice) {
+        return numeroPropriedades[indice];
+    }
+
+    /**
+     * @param aresta a posição da aresta, entre {@code 0} e {@code numeroArestas() - 1}
+     * @return o código do proprietário de origem, sempre menor do que o de destino
+     */
+    public int origem(int aresta) {
+        return (int) (pares[aresta] >>> 32);
+    }
+
+    /**
+     * @param aresta a posição da aresta, entre {@code 0} e {@code numeroArestas() - 1}
+     * @return o código do proprietário de destino
+     */
+    public int destino(int aresta) {
+        return (int) pares[aresta];
+    }
+
+    /**
+     * @param aresta a posição da aresta, entre {@code 0} e {@code numeroArestas() - 1}
+     * @return o número de pares de propriedades adjacentes entre os dois proprietários
+     */
+    public int contactos(int aresta) {
+        return contactos[aresta];
+    }
+
+    /**
+     * Procura a aresta entre dois proprietários.
+     *
+     * @param a o código de um proprietário
+     * @param b o código do outro proprietário
+     * @return a posição da aresta, ou {@code -1} se os proprietários não forem vizinhos
+     */
+    int aresta(int a, int b) {
+        long par = a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+        int posicao = Arrays.binarySearch(pares, par);
+        return posicao < 0 ? -1 : posicao;
+    }
+
+    /**
+     * Pares de proprietários ordenados e sem repetições, com o número de contactos de cada um.
+     */
+    private static class Agregado {
+        private final long[] pares;
+        private final int[] contactos;
+        private final int tamanho;
+
+        private Agregado(long[] pares, int[] contactos, int tamanho) {
+            this.pares = pares;
+            this.contactos = contactos;
+            this.tamanho = tamanho;
+        }
+    }
+
+    /**
+     * Recolhe os pares de proprietários das arestas com origem num intervalo de vértices.
+     */
+    private static class Recolha implements IntConsumer {
+        private final int[] donos;
+        private int vertice;
+        private int dono;
+        private long[] pares = new long[64];
+        private int tamanho;
+
+        Recolha(int[] donos) {
+            this.donos = donos;
+        }
+
+        @Override
+        public void accept(int vizinho) {
+            // cada aresta é vista a partir dos dois extremos; só conta a partir do menor
+            if (vizinho <= vertice) return;
+            int outro = donos[vizinho];
+            if (outro < 0 || outro == dono) return;
+            if (tamanho == pares.length) {
+                pares = Arrays.copyOf(pares, tamanho * 2);
+            }
+            pares[tamanho++] = dono < outro
+                    ? ((long) dono << 32) | outro
+                    : ((long) outro << 32) | dono;
+        }
+    }
+
+    /**
+     * Agrega sequencialmente as arestas com origem no intervalo de vértices {@code [inicio, fim)}.
+     */
+    private static Agregado agregar(GrafoAdjacencia grafo, int[] donos, int inicio, int fim) {
+        Recolha recolha = new Recolha(donos);
+        for (int v = inicio; v < fim; v++) {
+            if (donos[v] < 0) continue;
+            recolha.vertice = v;
+            recolha.dono = donos[v];
+            grafo.paraCadaVizinho(v, recolha);
+        }
+
+        long[] pares = recolha.pares;
+        int n = recolha.tamanho;
+        Arrays.sort(pares, 0, n);
+        int[] contactos = new int[n];
+        int unicos = 0;
+        for (int i = 0; i < n; i++) {
+            if (unicos > 0 && pares[unicos - 1] == pares[i]) {
+                contactos[unicos - 1]++;
+            } else {
+                pares[unicos] = pares[i];
+                contactos[unicos++] = 1;
+            }
+        }
+        return new Agregado(pares, contactos, unicos);
+    }
+
+    /**
+     * Intercala dois agregados ordenados, somando os contactos dos pares comuns.
+     */
+    private static Agregado intercalar(Agregado a, Agregado b) {
+        long[] pares = new long[a.tamanho + b.tamanho];
+        int[] contactos = new int[pares.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.tamanho || j < b.tamanho) {
+            if (j >= b.tamanho || (i < a.tamanho && a.pares[i] < b.pares[j])) {
+                pares[k] = a.pares[i];
+                contactos[k++] = a.contactos[i++];
+            } else if (i >= a.tamanho || b.pares[j] < a.pares[i]) {
+                pares[k] = b.pares[j];
+                contactos[k++] = b.contactos[j++];
+            } else {
+                pares[k] = a.pares[i];
+                contactos[k++] = a.contactos[i++] + b.contactos[j++];
+            }
+        }
+        return new Agregado(pares, contactos, k);
+    }
+
+    /**
+     * Tarefa fork-join que divide o intervalo de vértices ao meio até atingir o limiar sequencial.
+     */
+    private static class TarefaAgregacao extends RecursiveTask<Agregado> {
+        private final GrafoAdjacencia grafo;
+        private final int[] donos;
+        private final int inicio;
+        private final int fim;
+
+        TarefaAgregacao(GrafoAdjacencia grafo, int[] donos, int inicio, int fim) {
+            this.grafo = grafo;
+            this.donos = donos;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected Agregado compute() {
+            if (fim - inicio <= LIMIAR_SEQUENCIAL) {
+                return agregar(grafo, donos, inicio, fim);
+            }
+            int meio = (inicio + fim) >>> 1;
+            TarefaAgregacao esquerda = new TarefaAgregacao(grafo, donos, inicio, meio);
+            TarefaAgregacao direita = new TarefaAgregacao(grafo, donos, meio, fim);
+            esquerda.fork();
+            Agregado resultadoDireita = direita.compute();
+            return intercalar(esquerda.join(), resultadoDireita);
+        }
+    }
+}
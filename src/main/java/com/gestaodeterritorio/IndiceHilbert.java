@@ -0,0 +1,427 @@
+package com.gestaodeterritorio;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Índice espacial estático (R-tree compacta) das propriedades, ordenado pela curva de Hilbert e guardado
+ * em arrays planos, que pode ser escrito num ficheiro e mapeado em memória nos arranques seguintes.
+ *
+ * Os envelopes são ordenados pelo valor de Hilbert do seu centro e agrupados, {@link #TAMANHO_NO} a
+ * {@link #TAMANHO_NO}, em nós cujos envelopes são por sua vez agrupados até restar um único nó. Cada nó
+ * ocupa quatro {@code double} (minX, minY, maxX, maxY) e um {@code int}: nas folhas, a posição da
+ * propriedade na lista indexada; nos restantes nós, a posição do primeiro filho. Não há objetos por nó,
+ * pelo que o índice ocupa cerca de 40 bytes por propriedade.
+ *
+ * O ficheiro guarda um hash das propriedades indexadas (ver {@link #hashPropriedades(List)}) e os dois
+ * arrays em little-endian. Como o hash só depende da ordem, dos identificadores e das geometrias, uma
+ * alteração a outras colunas do CSV não obriga a reconstruir o índice. Ao abrir, o cabeçalho é lido e
+ * validado antes de o ficheiro ser mapeado; os arrays são depois lidos diretamente do ficheiro mapeado,
+ * fora do heap, sem fase de construção, e processos que abram o mesmo ficheiro partilham as mesmas
+ * páginas em memória.
+ *
+ * O índice é imutável e pode ser consultado por várias threads em simultâneo.
+ */
+public class IndiceHilbert {
+
+    /** Número máximo de filhos de cada nó. */
+    static final int TAMANHO_NO = 16;
+
+    private static final int MAGICO = 0x484C4254; // "HLBT"
+    private static final int VERSAO = 2;
+    /** Magico, versão, hash das propriedades, tamanho da lista, número de itens, tamanho do nó e número de níveis. */
+    private static final int TAMANHO_CABECALHO = 4 + 4 + 8 + 4 + 4 + 4 + 4;
+    /** Resolução da curva de Hilbert em cada eixo: 15 bits, para que o valor caiba num inteiro positivo. */
+    private static final int ORDEM_HILBERT = 15;
+
+    private final int tamanhoLista;
+    private final int numeroItens;
+    private final int tamanhoNo;
+    /** Fim (exclusivo) de cada nível, começando pelas folhas. */
+    private final int[] limitesNiveis;
+    private final DoubleBuffer envelopes;
+    private final IntBuffer indices;
+
+    private IndiceHilbert(int tamanhoLista, int numeroItens, int tamanhoNo, int[] limitesNiveis,
+                          DoubleBuffer envelopes, IntBuffer indices) {
+        this.tamanhoLista = tamanhoLista;
+        this.numeroItens = numeroItens;
+        this.tamanhoNo = tamanhoNo;
+        this.limitesNiveis = limitesNiveis;
+        this.envelopes = envelopes;
+        this.indices = indices;
+    }
+
+    /**
+     * Constrói o índice em memória com os envelopes das geometrias válidas.
+     *
+     * @param propriedades lista de propriedades a indexar; as consultas devolvem posições nesta lista
+     * @param geometrias armazém com as geometrias convertidas
+     * @return o índice construído
+     */
+    public static IndiceHilbert construir(List<PropriedadeRustica> propriedades, GeometriaStore geometrias) {
+        Envelope[] envelopes = new Envelope[propriedades.size()];
+        for (int i = 0; i < envelopes.length; i++) {
+            Geometry g = geometrias.obter(propriedades.get(i));
+            envelopes[i] = g == null ? null : g.getEnvelopeInternal();
+        }
+        return construir(envelopes, TAMANHO_NO);
+    }
+
+    /**
+     * Constrói o índice em memória a partir dos envelopes.
+     *
+     * @param envelopes o envelope de cada posição, ou {@code null} para a deixar fora do índice
+     * @param tamanhoNo número máximo de filhos de cada nó
+     * @return o índice construído
+     * @throws IllegalArgumentException se o tamanho do nó for inferior a 2
+     */
+    static IndiceHilbert construir(Envelope[] envelopes, int tamanhoNo) {
+        if (tamanhoNo < 2) {
+            throw new IllegalArgumentException("Tamanho de nó inválido: " + tamanhoNo);
+        }
+
+        // limites de todos os envelopes, para normalizar os centros na grelha de Hilbert
+        Envelope total = new Envelope();
+        int n = 0;
+        for (Envelope e : envelopes) {
+            if (e != null && !e.isNull()) {
+                total.expandToInclude(e);
+                n++;
+            }
+        }
+
+        // folhas ordenadas pelo valor de Hilbert do centro: (hilbert << 32) | posição
+        long[] ordem = new long[n];
+        int lado = (1 << ORDEM_HILBERT) - 1;
+        double largura = total.getWidth() > 0 ? total.getWidth() : 1;
+        double altura = total.getHeight() > 0 ? total.getHeight() : 1;
+        int k = 0;
+        for (int i = 0; i < envelopes.length; i++) {
+            Envelope e = envelopes[i];
+            if (e == null || e.isNull()) continue;
+            int x = (int) (lado * ((e.getMinX() + e.getMaxX()) / 2 - total.getMinX()) / largura);
+            int y = (int) (lado * ((e.getMinY() + e.getMaxY()) / 2 - total.getMinY()) / altura);
+            ordem[k++] = ((long) hilbert(x, y) << 32) | i;
+        }
+        Arrays.sort(ordem);
+
+        // fim de cada nível, das folhas até à raiz
+        int[] limites = new int[8];
+        int niveis = 1;
+        int numeroNos = n;
+        limites[0] = n;
+        for (int tamanhoNivel = n; tamanhoNivel > 1; ) {
+            tamanhoNivel = (tamanhoNivel + tamanhoNo - 1) / tamanhoNo;
+            numeroNos += tamanhoNivel;
+            if (niveis == limites.length) limites = Arrays.copyOf(limites, niveis * 2);
+            limites[niveis++] = numeroNos;
+        }
+        limites = Arrays.copyOf(limites, niveis);
+
+        double[] caixas = new double[4 * numeroNos];
+        int[] ids = new int[numeroNos];
+        for (int p = 0; p < n; p++) {
+            Envelope e = envelopes[(int) ordem[p]];
+            ids[p] = (int) ordem[p];
+            caixas[4 * p] = e.getMinX();
+            caixas[4 * p + 1] = e.getMinY();
+            caixas[4 * p + 2] = e.getMaxX();
+            caixas[4 * p + 3] = e.getMaxY();
+        }
+
+        // cada nível agrupa nós consecutivos do nível de baixo
+        int escrita = n;
+        for (int l = 1; l < niveis; l++) {
+            int inicio = l > 1 ? limites[l - 2] : 0;
+            int fim = limites[l - 1];
+            for (int filho = inicio; filho < fim; filho += tamanhoNo) {
+                int ultimo = Math.min(filho + tamanhoNo, fim);
+                double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+                double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+                for (int c = filho; c < ultimo; c++) {
+                    minX = Math.min(minX, caixas[4 * c]);
+                    minY = Math.min(minY, caixas[4 * c + 1]);
+                    maxX = Math.max(maxX, caixas[4 * c + 2]);
+                    maxY = Math.max(maxY, caixas[4 * c + 3]);
+                }
+                caixas[4 * escrita] = minX;
+                caixas[4 * escrita + 1] = minY;
+                caixas[4 * escrita + 2] = maxX;
+                caixas[4 * escrita + 3] = maxY;
+                ids[escrita++] = filho;
+            }
+        }
+        return new IndiceHilbert(envelopes.length, n, tamanhoNo, limites,
+                DoubleBuffer.wrap(caixas), IntBuffer.wrap(ids));
+    }
+
+    /**
+     * Distância ao longo da curva de Hilbert do ponto {@code (x, y)} numa grelha de
+     * {@code 2^ORDEM_HILBERT} por {@code 2^ORDEM_HILBERT} células.
+     */
+    static int hilbert(int x, int y) {
+        int d = 0;
+        for (int s = 1 << (ORDEM_HILBERT - 1); s > 0; s >>>= 1) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += s * s * ((3 * rx) ^ ry);
+            // roda o quadrante para que a curva continue no sítio certo
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = s - 1 - (x & (s - 1));
+                    y = s - 1 - (y & (s - 1));
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Abre o índice guardado num ficheiro, se existir e tiver sido construído a partir das mesmas
+     * propriedades e geometrias, ou constrói-o e guarda-o caso contrário.
+     *
+     * @param ficheiro o caminho do ficheiro do índice
+     * @param propriedades lista de propriedades indexadas, pela ordem do CSV
+     * @param geometrias armazém com as geometrias convertidas, usado apenas se o índice for construído
+     * @return o índice pronto a consultar
+     * @throws IOException se ocorrer um erro ao ler ou escrever o ficheiro
+     */
+    public static IndiceHilbert carregar(Path ficheiro, List<PropriedadeRustica> propriedades,
+                                         GeometriaStore geometrias) throws IOException {
+        long hash = hashPropriedades(propriedades);
+        IndiceHilbert indice = abrir(ficheiro, hash);
+        if (indice != null && indice.tamanhoLista() == propriedades.size()) {
+            System.out.println("Índice espacial lido de " + ficheiro);
+            return indice;
+        }
+        indice = construir(propriedades, geometrias);
+        indice.escrever(ficheiro, hash);
+        System.out.println("Índice espacial guardado em " + ficheiro);
+        return indice;
+    }
+
+    /**
+     * Calcula o hash de que o índice depende: o número de propriedades e, pela ordem da lista, o
+     * {@code objectId} e o hash da geometria de cada uma.
+     *
+     * @param propriedades lista de propriedades indexadas
+     * @return o hash de 64 bits das propriedades
+     */
+    public static long hashPropriedades(List<PropriedadeRustica> propriedades) {
+        long hash = 0xcbf29ce484222325L ^ propriedades.size();
+        for (PropriedadeRustica p : propriedades) {
+            String objectId = p.getObjectId();
+            hash = (hash ^ (objectId == null ? 0 : objectId.hashCode())) * 0x100000001b3L;
+            hash = (hash ^ p.getHashGeometria()) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Escreve o índice num ficheiro. O ficheiro é escrito ao lado do destino e só depois movido.
+     *
+     * @param ficheiro o caminho do ficheiro do índice
+     * @param hashOrigem o hash das propriedades indexadas, ver {@link #hashPropriedades(List)}
+     * @throws IOException se ocorrer um erro de escrita
+     */
+    public void escrever(Path ficheiro, long hashOrigem) throws IOException {
+        int numeroNos = numeroNos();
+        int cabecalho = alinhar(TAMANHO_CABECALHO + 4 * limitesNiveis.length);
+        ByteBuffer buffer = ByteBuffer.allocate(cabecalho).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGICO).putInt(VERSAO).putLong(hashOrigem)
+                .putInt(tamanhoLista).putInt(numeroItens).putInt(tamanhoNo).putInt(limitesNiveis.length);
+        for (int limite : limitesNiveis) {
+            buffer.putInt(limite);
+        }
+        buffer.clear();
+
+        Path temporario = ficheiro.resolveSibling(ficheiro.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            escreverTudo(canal, buffer);
+            ByteBuffer bloco = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < 4 * numeroNos; i++) {
+                if (bloco.remaining() < 8) escreverBloco(canal, bloco);
+                bloco.putDouble(envelopes.get(i));
+            }
+            for (int i = 0; i < numeroNos; i++) {
+                if (bloco.remaining() < 4) escreverBloco(canal, bloco);
+                bloco.putInt(indices.get(i));
+            }
+            escreverBloco(canal, bloco);
+        }
+        Files.move(temporario, ficheiro, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void escreverBloco(FileChannel canal, ByteBuffer bloco) throws IOException {
+        bloco.flip();
+        escreverTudo(canal, bloco);
+        bloco.clear();
+    }
+
+    private static void escreverTudo(FileChannel canal, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+    }
+
+    private static int alinhar(int posicao) {
+        return (posicao + 7) & ~7;
+    }
+
+    /**
+     * Abre um índice guardado, mapeando os envelopes e as posições diretamente do ficheiro. O cabeçalho
+     * é lido e validado primeiro, pelo que um ficheiro inválido nunca chega a ser mapeado e pode ser
+     * substituído logo a seguir.
+     *
+     * @param ficheiro o caminho do ficheiro do índice
+     * @param hashOrigem o hash das propriedades atuais, ver {@link #hashPropriedades(List)}
+     * @return o índice, ou {@code null} se o ficheiro não existir, for de outras propriedades ou estiver
+     *         incompleto
+     * @throws IOException se ocorrer um erro ao ler o ficheiro
+     */
+    public static IndiceHilbert abrir(Path ficheiro, long hashOrigem) throws IOException {
+        if (!Files.isRegularFile(ficheiro)) return null;
+        try (FileChannel canal = FileChannel.open(ficheiro, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            ByteBuffer cabecalhoFixo = ler(canal, 0, TAMANHO_CABECALHO);
+            if (cabecalhoFixo == null
+                    || cabecalhoFixo.getInt(0) != MAGICO
+                    || cabecalhoFixo.getInt(4) != VERSAO
+                    || cabecalhoFixo.getLong(8) != hashOrigem) {
+                return null;
+            }
+            int tamanhoLista = cabecalhoFixo.getInt(16);
+            int numeroItens = cabecalhoFixo.getInt(20);
+            int tamanhoNo = cabecalhoFixo.getInt(24);
+            int niveis = cabecalhoFixo.getInt(28);
+            if (niveis < 1 || tamanhoNo < 2 || TAMANHO_CABECALHO + 4L * niveis > tamanho) return null;
+            ByteBuffer bufferLimites = ler(canal, TAMANHO_CABECALHO, 4 * niveis);
+            if (bufferLimites == null) return null;
+            int[] limites = new int[niveis];
+            for (int l = 0; l < niveis; l++) {
+                limites[l] = bufferLimites.getInt(4 * l);
+            }
+            int numeroNos = limites[niveis - 1];
+            int cabecalho = alinhar(TAMANHO_CABECALHO + 4 * niveis);
+            if (limites[0] != numeroItens || cabecalho + 36L * numeroNos != tamanho) return null;
+
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanho);
+            mapa.position(cabecalho);
+            DoubleBuffer envelopes = mapa.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            mapa.position(cabecalho + 32 * numeroNos);
+            IntBuffer indices = mapa.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            return new IndiceHilbert(tamanhoLista, numeroItens, tamanhoNo, limites, envelopes, indices);
+        }
+    }
+
+    /**
+     * Lê {@code tamanho} bytes a partir da posição indicada, sem mapear o ficheiro.
+     *
+     * @return os bytes lidos, em little-endian, ou {@code null} se o ficheiro acabar antes
+     */
+    private static ByteBuffer ler(FileChannel canal, long posicao, int tamanho) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(tamanho).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer, posicao + buffer.position()) < 0) return null;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * @return o tamanho da lista de propriedades a partir da qual o índice foi construído
+     */
+    public int tamanhoLista() {
+        return tamanhoLista;
+    }
+
+    /**
+     * @return o número de propriedades indexadas, isto é, com geometria válida
+     */
+    public int numeroItens() {
+        return numeroItens;
+    }
+
+    private int numeroNos() {
+        return limitesNiveis[limitesNiveis.length - 1];
+    }
+
+    /**
+     * Percorre as propriedades cujo envelope interseta o envelope dado, sem criar listas intermédias.
+     *
+     * @param envelope a área de pesquisa
+     * @param consumidor função chamada com a posição de cada propriedade na lista indexada
+     */
+    public void consultar(Envelope envelope, IntConsumer consumidor) {
+        if (numeroItens == 0 || envelope.isNull()) return;
+        double minX = envelope.getMinX(), minY = envelope.getMinY();
+        double maxX = envelope.getMaxX(), maxY = envelope.getMaxY();
+
+        int[] pilha = new int[2 * limitesNiveis.length * tamanhoNo + 2];
+        int topo = 0;
+        int raiz = numeroNos() - 1;
+        if (!intersecta(raiz, minX, minY, maxX, maxY)) return;
+        pilha[topo++] = raiz;
+        pilha[topo++] = limitesNiveis.length - 1;
+
+        while (topo > 0) {
+            int nivel = pilha[--topo];
+            int no = pilha[--topo];
+            if (nivel == 0) {
+                consumidor.accept(indices.get(no));
+                continue;
+            }
+            int primeiro = indices.get(no);
+            int ultimo = Math.min(primeiro + tamanhoNo, limitesNiveis[nivel - 1]);
+            for (int filho = primeiro; filho < ultimo; filho++) {
+                if (intersecta(filho, minX, minY, maxX, maxY)) {
+                    if (topo + 2 > pilha.length) pilha = Arrays.copyOf(pilha, pilha.length * 2);
+                    pilha[topo++] = filho;
+                    pilha[topo++] = nivel - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param envelope a área de pesquisa
+     * @return as posições, na lista indexada, das propriedades cujo envelope interseta o envelope dado
+     */
+    public int[] consultar(Envelope envelope) {
+        int[][] resultado = {new int[16]};
+        int[] tamanho = {0};
+        consultar(envelope, item -> {
+            if (tamanho[0] == resultado[0].length) {
+                resultado[0] = Arrays.copyOf(resultado[0], tamanho[0] * 2);
+            }
+            resultado[0][tamanho[0]++] = item;
+        });
+        return Arrays.copyOf(resultado[0], tamanho[0]);
+    }
+
+    private boolean intersecta(int no, double minX, double minY, double maxX, double maxY) {
+        int base = 4 * no;
+        return envelopes.get(base) <= maxX && envelopes.get(base + 1) <= maxY
+                && envelopes.get(base + 2) >= minX && envelopes.get(base + 3) >= minY;
+    }
+}
@@ -0,0 +1,248 @@
+package com.gestaodeterritorio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Leitor de CSV de cadastro escrito à medida, alternativo ao mapeamento por reflexão do OpenCSV.
+ *
+ * Divide cada linha por {@code ;} respeitando campos entre aspas (incluindo aspas duplicadas e mudanças
+ * de linha dentro do campo), lendo o ficheiro através de um buffer grande e copiando cada campo em blocos
+ * contíguos, o que torna barato o campo WKT com vários kilobytes. As propriedades são construídas
+ * diretamente a partir das colunas do cabeçalho, sem anotações nem reflexão.
+ *
+ * O comportamento segue a configuração usada com o OpenCSV: espaços antes de uma aspa de abertura são
+ * ignorados, linhas vazias são saltadas e os nomes das colunas não distinguem maiúsculas de minúsculas.
+ */
+class LeitorCsvCadastro implements Iterator<PropriedadeRustica>, Closeable {
+
+    /** Nomes das colunas, pela ordem dos argumentos do construtor de {@link PropriedadeRustica}. */
+    static final String[] COLUNAS = {
+            "OBJECTID", "PAR_ID", "PAR_NUM", "Shape_Length", "Shape_Area",
+            "geometry", "OWNER", "Freguesia", "Municipio", "Ilha"
+    };
+
+    private static final int TAMANHO_BUFFER = 1 << 20;
+    private static final char SEPARADOR = ';';
+    private static final char ASPAS = '"';
+    private static final int FIM = -1;
+
+    private final Reader reader;
+    private final char[] buffer = new char[TAMANHO_BUFFER];
+    private int pos;
+    private int limite;
+
+    private final StringBuilder campo = new StringBuilder(1024);
+    private final List<String> campos = new ArrayList<>(COLUNAS.length);
+    private boolean campoComAspas;
+
+    private final int[] indices = new int[COLUNAS.length];
+    private final int numeroColunas;
+    private long registo;
+    private PropriedadeRustica proximo;
+
+    /**
+     * Cria o leitor e interpreta a linha de cabeçalho.
+     *
+     * @param reader o leitor do ficheiro CSV
+     * @throws IOException se ocorrer um erro de leitura ou o ficheiro não tiver cabeçalho
+     */
+    LeitorCsvCadastro(Reader reader) throws IOException {
+        this.reader = reader;
+        if (!lerRegisto()) {
+            throw new IOException("Ficheiro CSV sem cabeçalho");
+        }
+        numeroColunas = campos.size();
+        for (int i = 0; i < COLUNAS.length; i++) {
+            indices[i] = -1;
+            for (int j = 0; j < numeroColunas; j++) {
+                String nome = campos.get(j).trim();
+                if (j == 0 && !nome.isEmpty() && nome.charAt(0) == '\uFEFF') {
+                    nome = nome.substring(1);
+                }
+                if (nome.equalsIgnoreCase(COLUNAS[i])) {
+                    indices[i] = j;
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (proximo == null) {
+            try {
+                proximo = lerPropriedade();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return proximo != null;
+    }
+
+    @Override
+    public PropriedadeRustica next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        PropriedadeRustica p = proximo;
+        proximo = null;
+        return p;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Lê o próximo registo de dados e constrói a propriedade correspondente.
+     *
+     * @return a propriedade lida, ou {@code null} no fim do ficheiro
+     * @throws IOException se ocorrer um erro de leitura ou o registo tiver um número de campos inválido
+     */
+    private PropriedadeRustica lerPropriedade() throws IOException {
+        if (!lerRegisto()) {
+            return null;
+        }
+        registo++;
+        if (campos.size() != numeroColunas) {
+            throw new IOException("Registo " + registo + ": número de campos (" + campos.size()
+                    + ") diferente do cabeçalho (" + numeroColunas + ")");
+        }
+        return new PropriedadeRustica(valor(0), valor(1), valor(2), valor(3), valor(4),
+                valor(5), valor(6), valor(7), valor(8), valor(9));
+    }
+
+    private String valor(int coluna) {
+        int indice = indices[coluna];
+        return indice < 0 ? null : campos.get(indice);
+    }
+
+    /**
+     * Lê um registo completo para a lista de campos, saltando linhas vazias.
+     *
+     * @return {@code false} se o fim do ficheiro for atingido sem mais registos
+     * @throws IOException se ocorrer um erro de leitura
+     */
+    private boolean lerRegisto() throws IOException {
+        campos.clear();
+        while (true) {
+            int terminador = lerCampo();
+            campos.add(campo.toString());
+            if (terminador == SEPARADOR) {
+                continue;
+            }
+            boolean linhaVazia = campos.size() == 1 && campo.length() == 0 && !campoComAspas;
+            if (!linhaVazia) {
+                return true;
+            }
+            campos.clear();
+            if (terminador == FIM) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Lê um campo para o buffer de campo.
+     *
+     * @return o carácter que terminou o campo ({@code ;} ou {@code \n}), ou {@link #FIM} no fim do ficheiro
+     * @throws IOException se ocorrer um erro de leitura ou um campo entre aspas não for terminado
+     */
+    private int lerCampo() throws IOException {
+        campo.setLength(0);
+        campoComAspas = false;
+        boolean entreAspas = false;
+
+        while (true) {
+            if (pos >= limite && !encher()) {
+                if (entreAspas) {
+                    throw new IOException("Campo entre aspas não terminado no registo " + (registo + 1));
+                }
+                return FIM;
+            }
+
+            if (entreAspas) {
+                int inicio = pos;
+                while (pos < limite && buffer[pos] != ASPAS) {
+                    pos++;
+                }
+                campo.append(buffer, inicio, pos - inicio);
+                if (pos < limite) {
+                    pos++;
+                    if ((pos < limite || encher()) && buffer[pos] == ASPAS) {
+                        campo.append(ASPAS);
+                        pos++;
+                    } else {
+                        entreAspas = false;
+                    }
+                }
+                continue;
+            }
+
+            int inicio = pos;
+            char c = 0;
+            while (pos < limite) {
+                c = buffer[pos];
+                if (c == SEPARADOR || c == '\n' || c == '\r' || c == ASPAS) {
+                    break;
+                }
+                pos++;
+            }
+            campo.append(buffer, inicio, pos - inicio);
+            if (pos >= limite) {
+                continue;
+            }
+            pos++;
+
+            if (c == ASPAS) {
+                if (!campoComAspas && apenasEspacos(campo)) {
+                    campo.setLength(0);
+                    campoComAspas = true;
+                    entreAspas = true;
+                } else {
+                    campo.append(ASPAS);
+                }
+            } else if (c == '\r') {
+                if ((pos < limite || encher()) && buffer[pos] == '\n') {
+                    pos++;
+                }
+                return '\n';
+            } else {
+                return c;
+            }
+        }
+    }
+
+    private static boolean apenasEspacos(StringBuilder texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (!Character.isWhitespace(texto.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Volta a encher o buffer a partir do leitor.
+     *
+     * @return {@code false} se não houver mais dados
+     * @throws IOException se ocorrer um erro de leitura
+     */
+    private boolean encher() throws IOException {
+        int lidos = reader.read(buffer, 0, buffer.length);
+        while (lidos == 0) {
+            lidos = reader.read(buffer, 0, buffer.length);
+        }
+        pos = 0;
+        limite = Math.max(lidos, 0);
+        return lidos > 0;
+    }
+}
@@ -0,0 +1,258 @@
+package com.gestaodeterritorio;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Localização da propriedade que contém um ponto, por exemplo uma posição GPS recolhida no terreno.
+ *
+ * Os candidatos são os envelopes do {@link IndiceHilbert} que contêm o ponto, e cada candidato é testado
+ * com a sua geometria preparada. As geometrias preparadas guardam índices internos que só compensam se
+ * forem reutilizados, pelo que ficam numa cache LRU limitada: pontos próximos, como os de uma mesma
+ * inspeção, reutilizam as mesmas geometrias sem que todo o cadastro fique preparado em memória.
+ *
+ * Um ponto na fronteira comum de duas propriedades pertence à que tem a menor posição na lista.
+ *
+ * O localizador pode ser consultado por várias threads em simultâneo; a cache está dividida em segmentos
+ * com bloqueios independentes.
+ */
+public class LocalizadorPropriedades {
+
+    /** Número de geometrias preparadas guardadas por omissão. */
+    static final int CAPACIDADE_CACHE = 4096;
+
+    /** Abaixo deste número de pontos, uma localização em lote é feita numa única thread. */
+    static final int LIMIAR_SEQUENCIAL = 1024;
+
+    /** Número de segmentos da cache, potência de dois. */
+    private static final int SEGMENTOS = 16;
+
+    private final List<PropriedadeRustica> propriedades;
+    private final GeometriaStore geometrias;
+    private final IndiceHilbert indice;
+    private final int numeroThreads;
+    private final GeometryFactory factory;
+    private final SegmentoCache[] cache = new SegmentoCache[SEGMENTOS];
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+
+    /**
+     * Cria um localizador com um índice construído em memória, a cache por omissão e todos os
+     * processadores disponíveis para as localizações em lote.
+     *
+     * @param propriedades lista de propriedades
+     * @param geometrias armazém com as geometrias convertidas das propriedades
+     */
+    public LocalizadorPropriedades(List<PropriedadeRustica> propriedades, GeometriaStore geometrias) {
+        this(propriedades, geometrias, IndiceHilbert.construir(propriedades, geometrias),
+                CAPACIDADE_CACHE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Cria um localizador sobre um índice já existente, por exemplo aberto a partir do ficheiro.
+     *
+     * @param propriedades lista de propriedades a partir da qual o índice foi construído
+     * @param geometrias armazém com as geometrias convertidas das propriedades
+     * @param indice o índice espacial das propriedades
+     * @param capacidadeCache número máximo de geometrias preparadas em memória
+     * @param numeroThreads número de threads usado nas localizações em lote
+     * @throws IllegalArgumentException se o índice não corresponder à lista, ou se a capacidade ou o número
+     *                                  de threads forem inferiores a 1
+     */
+    public LocalizadorPropriedades(List<PropriedadeRustica> propriedades, GeometriaStore geometrias,
+                                   IndiceHilbert indice, int capacidadeCache, int numeroThreads) {
+        if (indice.tamanhoLista() != propriedades.size()) {
+            throw new IllegalArgumentException("Índice construído para " + indice.tamanhoLista()
+                    + " propriedades, mas a lista tem " + propriedades.size());
+        }
+        if (capacidadeCache < 1) {
+            throw new IllegalArgumentException("Capacidade de cache inválida: " + capacidadeCache);
+        }
+        if (numeroThreads < 1) {
+            throw new IllegalArgumentException("Número de threads inválido: " + numeroThreads);
+        }
+        this.propriedades = propriedades;
+        this.geometrias = geometrias;
+        this.indice = indice;
+        this.numeroThreads = numeroThreads;
+        this.factory = geometrias.getFactory();
+        int capacidadeSegmento = Math.max(1, (capacidadeCache + SEGMENTOS - 1) / SEGMENTOS);
+        for (int s = 0; s < SEGMENTOS; s++) {
+            cache[s] = new SegmentoCache(capacidadeSegmento);
+        }
+    }
+
+    /**
+     * @param x coordenada x do ponto
+     * @param y coordenada y do ponto
+     * @return a propriedade que contém o ponto, incluindo a sua fronteira, ou {@code null} se nenhuma o contiver
+     */
+    public PropriedadeRustica localizar(double x, double y) {
+        int posicao = posicao(x, y);
+        return posicao < 0 ? null : propriedades.get(posicao);
+    }
+
+    /**
+     * Localiza vários pontos, dividindo-os por várias threads.
+     *
+     * @param xs coordenadas x dos pontos
+     * @param ys coordenadas y dos pontos
+     * @return para cada ponto, a propriedade que o contém, ou {@code null}
+     * @throws IllegalArgumentException se os dois arrays tiverem tamanhos diferentes
+     */
+    public PropriedadeRustica[] localizar(double[] xs, double[] ys) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Coordenadas com tamanhos diferentes: " + xs.length + "/" + ys.length);
+        }
+        PropriedadeRustica[] resultado = new PropriedadeRustica[xs.length];
+        if (numeroThreads == 1 || xs.length <= LIMIAR_SEQUENCIAL) {
+            localizar(xs, ys, resultado, 0, xs.length);
+            return resultado;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(numeroThreads);
+        try {
+            pool.invoke(new TarefaLocalizacao(xs, ys, resultado, 0, xs.length));
+        } finally {
+            pool.shutdown();
+        }
+        return resultado;
+    }
+
+    private void localizar(double[] xs, double[] ys, PropriedadeRustica[] resultado, int inicio, int fim) {
+        for (int i = inicio; i < fim; i++) {
+            resultado[i] = localizar(xs[i], ys[i]);
+        }
+    }
+
+    /**
+     * @return a posição, na lista, da propriedade que contém o ponto, ou -1
+     */
+    private int posicao(double x, double y) {
+        int[] candidatos = indice.consultar(new Envelope(x, x, y, y));
+        if (candidatos.length == 0) return -1;
+
+        Point ponto = factory.createPoint(new Coordinate(x, y));
+        int melhor = -1;
+        for (int candidato : candidatos) {
+            if (melhor >= 0 && candidato > melhor) continue;
+            if (preparada(candidato).covers(ponto)) {
+                melhor = candidato;
+            }
+        }
+        return melhor;
+    }
+
+    /**
+     * Obtém a geometria preparada de uma posição, preparando-a e guardando-a na cache se lá não estiver.
+     */
+    private PreparedGeometry preparada(int posicao) {
+        SegmentoCache segmento = cache[mistura(posicao) & (SEGMENTOS - 1)];
+        PreparedGeometry preparada;
+        synchronized (segmento) {
+            preparada = segmento.get(posicao);
+        }
+        if (preparada != null) {
+            acertos.increment();
+            return preparada;
+        }
+
+        falhas.increment();
+        Geometry g = geometrias.obter(propriedades.get(posicao));
+        preparada = GeoUtils.prepararGeometria(g);
+        synchronized (segmento) {
+            segmento.put(posicao, preparada);
+        }
+        return preparada;
+    }
+
+    private static int mistura(int posicao) {
+        int h = posicao * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return o número de geometrias preparadas encontradas na cache
+     */
+    public long getAcertos() {
+        return acertos.sum();
+    }
+
+    /**
+     * @return o número de geometrias que tiveram de ser preparadas por não estarem na cache
+     */
+    public long getFalhas() {
+        return falhas.sum();
+    }
+
+    /**
+     * @return o número de geometrias preparadas atualmente na cache
+     */
+    public int tamanhoCache() {
+        int total = 0;
+        for (SegmentoCache segmento : cache) {
+            synchronized (segmento) {
+                total += segmento.size();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Segmento da cache LRU, que descarta a geometria usada há mais tempo quando fica cheio.
+     */
+    private static class SegmentoCache extends LinkedHashMap<Integer, PreparedGeometry> {
+        private final int capacidade;
+
+        SegmentoCache(int capacidade) {
+            super(16, 0.75f, true);
+            this.capacidade = capacidade;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, PreparedGeometry> maisAntiga) {
+            return size() > capacidade;
+        }
+    }
+
+    /**
+     * Tarefa fork-join que divide o intervalo de pontos ao meio até atingir o limiar sequencial.
+     */
+    private class TarefaLocalizacao extends RecursiveAction {
+        private final double[] xs;
+        private final double[] ys;
+        private final PropriedadeRustica[] resultado;
+        private final int inicio;
+        private final int fim;
+
+        TarefaLocalizacao(double[] xs, double[] ys, PropriedadeRustica[] resultado, int inicio, int fim) {
+            this.xs = xs;
+            this.ys = ys;
+            this.resultado = resultado;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected void compute() {
+            if (fim - inicio <= LIMIAR_SEQUENCIAL) {
+                localizar(xs, ys, resultado, inicio, fim);
+                return;
+            }
+            int meio = (inicio + fim) >>> 1;
+            invokeAll(new TarefaLocalizacao(xs, ys, resultado, inicio, meio),
+                    new TarefaLocalizacao(xs, ys, resultado, meio, fim));
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package com.gestaodeterritorio;
 
 import io.github.cdimascio.dotenv.Dotenv;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
-import org.locationtech.jts.index.strtree.STRtree;
+import org.locationtech.jts.geom.Point;
 import org.neo4j.driver.*;
 import org.neo4j.driver.Record;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -19,9 +24,58 @@ import java.util.Set;
  */
 public class Neo4jConnector implements AutoCloseable {
     private final Driver driver;
+    private DetetorAdjacencias detetor;
+    private int tamanhoLote = EscritorLotes.TAMANHO_LOTE;
+    private int sessoesEscrita = EscritorLotes.SESSOES;
+    private boolean esquemaCriado;
+    private RelatorioExecucao relatorio = new RelatorioExecucao();
+
+    /** SRID dos pontos cartesianos 2D do Neo4j, usado para as coordenadas projetadas do cadastro. */
+    static final int SRID_CARTESIANO = 7203;
+
+    /** Query de inserção de propriedades, que recebe a lista de nós no parâmetro {@code propriedades}. */
+    static final String QUERY_PROPRIEDADES = "UNWIND $propriedades AS prop " +
+            "MERGE (p:Propriedade {objectId: prop.objectId}) " +
+            "SET p += prop";
+
+    /**
+     * Query que apaga, com as suas relações, até {@code lote} propriedades cujo objectId não está na lista
+     * {@code ids}, e devolve quantas apagou.
+     */
+    static final String QUERY_REMOVER_AUSENTES = "MATCH (p:Propriedade) WHERE NOT p.objectId IN $ids " +
+            "WITH p LIMIT $lote " +
+            "DETACH DELETE p " +
+            "RETURN count(*) AS removidas";
+
+    /**
+     * Query da pesquisa por raio, que recebe o ponto {@code centro} e a distância {@code raio} e é
+     * resolvida pelo índice de pontos sobre {@code centroide}.
+     */
+    static final String QUERY_RAIO = "MATCH (p:Propriedade) " +
+            "WHERE point.distance(p.centroide, $centro) <= $raio " +
+            "RETURN p.objectId AS id ORDER BY point.distance(p.centroide, $centro), id";
+
+    /** Query da maior {@code extensao} do grafo, resolvida pelo índice sobre {@code extensao}. */
+    static final String QUERY_MAIOR_EXTENSAO = "MATCH (p:Propriedade) WHERE p.extensao IS NOT NULL " +
+            "RETURN p.extensao AS extensao ORDER BY p.extensao DESC LIMIT 1";
+
+    /**
+     * Query da pesquisa por caixa, que recebe a caixa alargada em {@code inferior} e {@code superior},
+     * procurada no índice de pontos, e a caixa pedida em {@code minX}, {@code minY}, {@code maxX} e
+     * {@code maxY}, usada para filtrar os envelopes.
+     */
+    static final String QUERY_CAIXA = "MATCH (p:Propriedade) " +
+            "WHERE point.withinBBox(p.centroide, $inferior, $superior) " +
+            "AND p.minX <= $maxX AND p.maxX >= $minX AND p.minY <= $maxY AND p.maxY >= $minY " +
+            "RETURN p.objectId AS id ORDER BY id";
 
     /**
      * Construtor que estabelece ligação ao servidor Neo4j utilizando variáveis do ficheiro credentials.env.
+     *
+     * A variável opcional {@code ADJACENCIA_THREADS} define o número de threads usado na deteção de
+     * adjacências; por omissão são usados todos os processadores disponíveis. As variáveis opcionais
+     * {@code NEO4J_TAMANHO_LOTE} e {@code NEO4J_SESSOES_ESCRITA} definem o número de linhas por transação
+     * e o número de sessões que escrevem em simultâneo.
      */
     public Neo4jConnector() {
         Dotenv dotenv = Dotenv.configure().filename("credentials.env").load();
@@ -30,6 +84,62 @@ public class Neo4jConnector implements AutoCloseable {
         String password = dotenv.get("NEO4J_PASSWORD");
 
         driver = GraphDatabase.driver(uri, AuthTokens.basic(user, password));
+
+        String threads = dotenv.get("ADJACENCIA_THREADS");
+        detetor = threads == null ? new DetetorAdjacencias() : new DetetorAdjacencias(Integer.parseInt(threads.trim()));
+
+        String lote = dotenv.get("NEO4J_TAMANHO_LOTE");
+        String sessoes = dotenv.get("NEO4J_SESSOES_ESCRITA");
+        setEscritaEmLotes(lote == null ? EscritorLotes.TAMANHO_LOTE : Integer.parseInt(lote.trim()),
+                sessoes == null ? EscritorLotes.SESSOES : Integer.parseInt(sessoes.trim()));
+    }
+
+    /**
+     * Define o número de threads usado na deteção de adjacências.
+     *
+     * @param numeroThreads número de threads; {@code 1} corresponde ao caminho sequencial
+     */
+    public void setNumeroThreadsAdjacencia(int numeroThreads) {
+        detetor = new DetetorAdjacencias(numeroThreads);
+    }
+
+    /**
+     * Define como são divididas as escritas de nós e relações.
+     *
+     * @param tamanhoLote número máximo de linhas por transação
+     * @param sessoesEscrita número de sessões que escrevem lotes em simultâneo
+     * @throws IllegalArgumentException se algum dos valores for inferior a 1
+     */
+    public void setEscritaEmLotes(int tamanhoLote, int sessoesEscrita) {
+        if (tamanhoLote < 1 || sessoesEscrita < 1) {
+            throw new IllegalArgumentException("Configuração de escrita inválida: " + tamanhoLote + "/" + sessoesEscrita);
+        }
+        this.tamanhoLote = tamanhoLote;
+        this.sessoesEscrita = sessoesEscrita;
+    }
+
+    /**
+     * Define o relatório onde são registadas as etapas das operações seguintes: deteção de adjacências,
+     * escritas em lotes e pipeline de ingestão.
+     *
+     * @param relatorio o relatório da execução
+     */
+    public void setRelatorio(RelatorioExecucao relatorio) {
+        this.relatorio = relatorio;
+    }
+
+    /**
+     * @return o relatório onde são registadas as etapas das operações do conector
+     */
+    public RelatorioExecucao getRelatorio() {
+        return relatorio;
+    }
+
+    /**
+     * @return um escritor em lotes com a configuração atual do conector
+     */
+    private EscritorLotes escritor() {
+        return new EscritorLotes(driver, tamanhoLote, sessoesEscrita, relatorio);
     }
 
     /**
@@ -41,74 +151,209 @@ public class Neo4jConnector implements AutoCloseable {
     }
 
     /**
-     * Insere propriedades no grafo se ainda não existirem na base de dados.
+     * Cria, se ainda não existirem, as restrições de unicidade sobre {@code Propriedade.objectId} e
+     * {@code Proprietario.nome}, e os índices espaciais das propriedades.
+     *
+     * Cada restrição é suportada por um índice, usado tanto pelo {@code MERGE} da inserção de nós
+     * como pelo {@code MATCH} da inserção de relações. O índice de pontos sobre {@code centroide} serve
+     * as pesquisas por raio e por caixa, e o índice sobre {@code extensao} dá a maior propriedade sem
+     * percorrer todos os nós. Só é executada uma vez por conector.
+     */
+    public void criarEsquema() {
+        if (esquemaCriado) return;
+        try (Session session = driver.session()) {
+            session.run("CREATE CONSTRAINT propriedade_objectid IF NOT EXISTS " +
+                    "FOR (p:Propriedade) REQUIRE p.objectId IS UNIQUE").consume();
+            session.run("CREATE CONSTRAINT proprietario_nome IF NOT EXISTS " +
+                    "FOR (o:Proprietario) REQUIRE o.nome IS UNIQUE").consume();
+            session.run("CREATE POINT INDEX propriedade_centroide IF NOT EXISTS " +
+                    "FOR (p:Propriedade) ON (p.centroide)").consume();
+            session.run("CREATE RANGE INDEX propriedade_extensao IF NOT EXISTS " +
+                    "FOR (p:Propriedade) ON (p.extensao)").consume();
+        }
+        esquemaCriado = true;
+    }
+
+    /**
+     * Insere ou atualiza propriedades no grafo.
+     *
+     * A operação é idempotente: cada propriedade é procurada no servidor pelo seu {@code objectId},
+     * através do índice da restrição de unicidade, e só é criada se ainda não existir.
      *
      * @param propriedades lista de propriedades a inserir
      */
     public void criarPropriedadesGrafo(List<PropriedadeRustica> propriedades) {
+        criarPropriedadesGrafo(propriedades, GeometriaStore.carregar(propriedades));
+    }
+
+    /**
+     * Insere ou atualiza propriedades no grafo usando geometrias já convertidas, das quais são
+     * calculados o centróide e o envelope de cada nó.
+     *
+     * @param propriedades lista de propriedades a inserir
+     * @param geometrias armazém com as geometrias convertidas das propriedades
+     * @see #criarPropriedadesGrafo(List)
+     */
+    public void criarPropriedadesGrafo(List<PropriedadeRustica> propriedades, GeometriaStore geometrias) {
         if (propriedades.isEmpty()) return;
 
-        Set<String> existentes = obterPropriedadesExistentes();
-        List<PropriedadeRustica> novasPropriedades = new ArrayList<>();
+        criarEsquema();
+        long novas = inserirPropriedades(propriedades, geometrias);
+        if (novas > 0) {
+            System.out.println("Inseridas " + novas + " novas propriedades");
+        }
+    }
 
+    /**
+     * Insere ou atualiza uma lista de propriedades como nós no grafo, em lotes escritos por várias sessões.
+     *
+     * @param propriedades lista de propriedades a inserir
+     * @param geometrias armazém com as geometrias convertidas das propriedades
+     * @return o número de nós criados
+     */
+    private long inserirPropriedades(List<PropriedadeRustica> propriedades, GeometriaStore geometrias) {
+        return inserirPropriedades(propriedades, geometrias, new HashSet<>());
+    }
+
+    /**
+     * Insere ou atualiza propriedades, deixando sem {@code hashGeometria} as indicadas.
+     *
+     * @param propriedades lista de propriedades a inserir
+     * @param geometrias armazém com as geometrias convertidas das propriedades
+     * @param semHash objectIds cujo hash só deve ser escrito depois de as suas relações serem refeitas
+     * @return o número de nós criados
+     */
+    private long inserirPropriedades(List<PropriedadeRustica> propriedades, GeometriaStore geometrias,
+                                     Set<String> semHash) {
+        List<Value> linhas = new ArrayList<>();
         for (PropriedadeRustica p : propriedades) {
-            if (!existentes.contains(p.getObjectId())) {
-                novasPropriedades.add(p);
-            }
+            linhas.add(parametros(p, geometrias.obter(p), !semHash.contains(p.getObjectId())));
         }
+        return escritor().escrever("Propriedades", QUERY_PROPRIEDADES, "propriedades", linhas).getNosCriados();
+    }
+
+    /**
+     * Converte uma propriedade nas propriedades do nó correspondente, usadas por {@link #QUERY_PROPRIEDADES},
+     * convertendo o WKT para obter o centróide e o envelope.
+     *
+     * @param p a propriedade a converter
+     * @return o mapa de propriedades do nó
+     */
+    static Value parametros(PropriedadeRustica p) {
+        return parametros(p, GeoUtils.parseGeometry(p.getGeometry()));
+    }
+
+    /**
+     * Converte uma propriedade nas propriedades do nó correspondente, usadas por {@link #QUERY_PROPRIEDADES}.
+     *
+     * Além dos atributos do cadastro, o nó guarda o centróide como ponto cartesiano nativo
+     * ({@code centroide}), o envelope ({@code minX}, {@code minY}, {@code maxX}, {@code maxY}) e o maior
+     * lado do envelope ({@code extensao}). Sem geometria válida, estas propriedades ficam a {@code null}
+     * e são removidas do nó.
+     *
+     * @param p a propriedade a converter
+     * @param g a geometria já convertida da propriedade, ou {@code null} se for inválida
+     * @return o mapa de propriedades do nó
+     */
+    static Value parametros(PropriedadeRustica p, Geometry g) {
+        return parametros(p, g, true);
+    }
 
-        if (!novasPropriedades.isEmpty()) {
-            inserirPropriedades(novasPropriedades);
-            System.out.println("Inseridas " + novasPropriedades.size() + " novas propriedades");
+    /**
+     * @param p a propriedade a converter
+     * @param g a geometria já convertida da propriedade, ou {@code null} se for inválida
+     * @param comHash {@code false} para deixar {@code hashGeometria} a {@code null}, marcando o nó como
+     *                pendente para a próxima atualização incremental
+     * @return o mapa de propriedades do nó
+     * @see #parametros(PropriedadeRustica, Geometry)
+     */
+    private static Value parametros(PropriedadeRustica p, Geometry g, boolean comHash) {
+        Value centroide = null;
+        Double minX = null, minY = null, maxX = null, maxY = null, extensao = null;
+        if (g != null && !g.isEmpty()) {
+            Point c = g.getCentroid();
+            if (!c.isEmpty()) {
+                centroide = Values.point(SRID_CARTESIANO, c.getX(), c.getY());
+            }
+            Envelope e = g.getEnvelopeInternal();
+            minX = e.getMinX();
+            minY = e.getMinY();
+            maxX = e.getMaxX();
+            maxY = e.getMaxY();
+            extensao = Math.max(e.getWidth(), e.getHeight());
         }
+        return Values.parameters(
+                "objectId", p.getObjectId(),
+                "parId", p.getParId(),
+                "parNum", p.getParNum(),
+                "municipio", p.getMunicipio(),
+                "freguesia", p.getFreguesia(),
+                "shapeArea", p.getShapeArea(),
+                "ilha", p.getIlha(),
+                "geometry", p.getGeometry(),
+                "hashGeometria", comHash ? p.getHashGeometria() : null,
+                "centroide", centroide,
+                "minX", minX,
+                "minY", minY,
+                "maxX", maxX,
+                "maxY", maxY,
+                "extensao", extensao
+        );
     }
 
     /**
-     * Obtém o conjunto de objectIds das propriedades já existentes no grafo.
+     * Procura as propriedades cujo centróide está a uma distância do ponto dado não superior ao raio.
+     *
+     * A filtragem é feita no servidor, com o índice de pontos sobre {@code centroide}.
      *
-     * @return conjunto de objectIds existentes
+     * @param x coordenada x do centro
+     * @param y coordenada y do centro
+     * @param raio a distância máxima, nas unidades das coordenadas
+     * @return os objectIds encontrados, do mais próximo para o mais afastado
+     * @throws IllegalArgumentException se o raio for negativo ou não for um número
      */
-    private Set<String> obterPropriedadesExistentes() {
-        Set<String> propriedades = new HashSet<>();
+    public List<String> procurarNoRaio(double x, double y, double raio) {
+        if (!(raio >= 0)) {
+            throw new IllegalArgumentException("Raio inválido: " + raio);
+        }
+        Value parametros = Values.parameters("centro", Values.point(SRID_CARTESIANO, x, y), "raio", raio);
         try (Session session = driver.session()) {
-            session.readTransaction(tx -> {
-                Result result = tx.run("MATCH (p:Propriedade) RETURN p.objectId AS id");
-                while (result.hasNext()) {
-                    propriedades.add(result.next().get("id").asString());
-                }
-                return null;
-            });
+            return session.readTransaction(tx -> tx.run(QUERY_RAIO, parametros).list(r -> r.get("id").asString()));
         }
-        return propriedades;
     }
 
     /**
-     * Insere uma lista de propriedades como nós no grafo.
+     * Procura as propriedades cujo envelope interseta a caixa dada.
      *
-     * @param propriedades lista de propriedades a inserir
+     * O centróide de uma propriedade está sempre dentro do seu envelope, pelo que, se o envelope intersetar
+     * a caixa, o centróide está na caixa alargada pela maior {@code extensao} do grafo. Essa caixa alargada
+     * é pesquisada no índice de pontos e os candidatos são depois filtrados pelo envelope guardado, tudo
+     * no servidor.
+     *
+     * A margem é a maior {@code extensao} de todo o grafo, e não a das propriedades perto da caixa: uma
+     * única propriedade muito grande alarga todas as pesquisas por caixa, que no limite passam a percorrer
+     * quase todo o índice de pontos.
+     *
+     * @param caixa a área de pesquisa
+     * @return os objectIds encontrados, por ordem crescente
+     * @throws IllegalArgumentException se a caixa for nula
      */
-    private void inserirPropriedades(List<PropriedadeRustica> propriedades) {
+    public List<String> procurarNaCaixa(Envelope caixa) {
+        if (caixa.isNull()) {
+            throw new IllegalArgumentException("Caixa de pesquisa nula");
+        }
         try (Session session = driver.session()) {
-            session.writeTransaction(tx -> {
-                String query = "UNWIND $propriedades AS prop " +
-                        "CREATE (p:Propriedade {objectId: prop.objectId, parId: prop.parId, parNum: prop.parNum, " +
-                        "municipio: prop.municipio, freguesia: prop.freguesia, shapeArea: prop.shapeArea, ilha: prop.ilha, " +
-                        "geometry: prop.geometry})";
-                List<Value> parametros = new ArrayList<>();
-                for (PropriedadeRustica p : propriedades) {
-                    parametros.add(Values.parameters(
-                            "objectId", p.getObjectId(),
-                            "parId", p.getParId(),
-                            "parNum", p.getParNum(),
-                            "municipio", p.getMunicipio(),
-                            "freguesia", p.getFreguesia(),
-                            "shapeArea", p.getShapeArea(),
-                            "ilha", p.getIlha(),
-                            "geometry", p.getGeometry()
-                    ));
-                }
-                tx.run(query, Values.parameters("propriedades", parametros));
-                return null;
+            return session.readTransaction(tx -> {
+                List<Record> maior = tx.run(QUERY_MAIOR_EXTENSAO).list();
+                if (maior.isEmpty()) return new ArrayList<String>();
+                double margem = maior.get(0).get("extensao").asDouble();
+
+                Value parametros = Values.parameters(
+                        "inferior", Values.point(SRID_CARTESIANO, caixa.getMinX() - margem, caixa.getMinY() - margem),
+                        "superior", Values.point(SRID_CARTESIANO, caixa.getMaxX() + margem, caixa.getMaxY() + margem),
+                        "minX", caixa.getMinX(), "minY", caixa.getMinY(),
+                        "maxX", caixa.getMaxX(), "maxY", caixa.getMaxY());
+                return tx.run(QUERY_CAIXA, parametros).list(r -> r.get("id").asString());
             });
         }
     }
@@ -117,45 +362,377 @@ public class Neo4jConnector implements AutoCloseable {
      * Cria relações de adjacência no grafo entre propriedades cuja geometria se intersecta ou toca.
      *
      * @param propriedades lista de propriedades com geometria
+     * @return o grafo de adjacência em memória, com todas as relações calculadas
      */
-    public void criarRelacoesAdjacenciaGrafo(List<PropriedadeRustica> propriedades) {
-        STRtree index = new STRtree();
-        for (PropriedadeRustica p : propriedades) {
-            Geometry g = GeoUtils.parseGeometry(p.getGeometry());
-            if (g != null) {
-                index.insert(g.getEnvelopeInternal(), p);
+    public GrafoAdjacencia criarRelacoesAdjacenciaGrafo(List<PropriedadeRustica> propriedades) {
+        return criarRelacoesAdjacenciaGrafo(propriedades, GeometriaStore.carregar(propriedades));
+    }
+
+    /**
+     * Cria relações de adjacência no grafo usando geometrias já convertidas.
+     *
+     * Além de escrever as novas relações no Neo4j, devolve todas as adjacências como um
+     * {@link GrafoAdjacencia}, para que possam ser analisadas localmente.
+     *
+     * @param propriedades lista de propriedades com geometria
+     * @param geometrias armazém com as geometrias convertidas das propriedades
+     * @return o grafo de adjacência em memória, com todas as relações calculadas
+     */
+    public GrafoAdjacencia criarRelacoesAdjacenciaGrafo(List<PropriedadeRustica> propriedades, GeometriaStore geometrias) {
+        criarEsquema();
+        List<String[]> relacoes = detetor.medir(relatorio, propriedades.size(),
+                () -> detetor.calcular(propriedades, geometrias));
+        inserirNovasRelacoes(relacoes);
+        return GrafoAdjacencia.construir(propriedades, relacoes);
+    }
+
+    /**
+     * Cria relações de adjacência detetadas por segmentos de fronteira partilhados (ver
+     * {@link DetetorSegmentosPartilhados}), guardando em cada relação o comprimento da fronteira comum.
+     *
+     * Uma relação já existente, em qualquer sentido, é reutilizada e fica apenas com o comprimento atualizado.
+     *
+     * @param propriedades lista de propriedades com geometria
+     * @param geometrias armazém com as geometrias convertidas das propriedades
+     * @return o grafo de adjacência em memória, com todas as relações calculadas
+     */
+    public GrafoAdjacencia criarRelacoesAdjacenciaPorSegmentos(List<PropriedadeRustica> propriedades, GeometriaStore geometrias) {
+        criarEsquema();
+        RelatorioExecucao.Etapa etapa = relatorio.etapa("adjacencias por segmentos");
+        DetetorSegmentosPartilhados.Resultado resultado =
+                etapa.medir(() -> new DetetorSegmentosPartilhados().calcular(propriedades, geometrias));
+        List<String[]> arestas = resultado.getArestas();
+        etapa.somarLinhas(propriedades.size());
+        etapa.somar("arestas", arestas.size());
+        etapa.somar("segmentosPendentes", resultado.getSegmentosPendentes());
+        List<Value> relacoes = new ArrayList<>(arestas.size());
+        for (int k = 0; k < arestas.size(); k++) {
+            relacoes.add(Values.parameters(
+                    "origem", arestas.get(k)[0],
+                    "destino", arestas.get(k)[1],
+                    "comprimento", resultado.getComprimento(k)));
+        }
+        escritor().escrever("Relações",
+                "UNWIND $relacoes AS relacao " +
+                        "MATCH (a:Propriedade {objectId: relacao.origem}), (b:Propriedade {objectId: relacao.destino}) " +
+                        "MERGE (a)-[r:ADJACENTE_A]-(b) " +
+                        "SET r.comprimentoFronteira = relacao.comprimento",
+                "relacoes", relacoes);
+        System.out.println("Escritas " + arestas.size() + " relações adjacentes ("
+                + resultado.getSegmentosPendentes() + " segmentos por emparelhar)");
+        return GrafoAdjacencia.construir(propriedades, arestas);
+    }
+
+    /**
+     * Cria o grafo completo a partir de um ficheiro CSV, sobrepondo as várias etapas da ingestão.
+     *
+     * A leitura do CSV, a conversão das geometrias, a escrita assíncrona dos nós e a deteção de
+     * adjacências decorrem em simultâneo, ligadas por filas limitadas (ver {@link PipelineIngestao}).
+     * As relações são escritas no fim, quando todos os nós já existem.
+     *
+     * @param loader o carregador usado para ler o CSV
+     * @param nomeFicheiro o nome do recurso no classpath ou o caminho do ficheiro
+     * @return o número de propriedades lidas
+     * @throws IOException se ocorrer um erro ao ler o ficheiro
+     */
+    public long criarGrafoEmPipeline(CadastroLoader loader, String nomeFicheiro) throws IOException {
+        criarEsquema();
+        PipelineIngestao.Resultado resultado =
+                new PipelineIngestao(driver, detetor, tamanhoLote, sessoesEscrita, relatorio).executar(loader, nomeFicheiro);
+        if (resultado.getNosCriados() > 0) {
+            System.out.println("Inseridas " + resultado.getNosCriados() + " novas propriedades");
+        }
+        inserirNovasRelacoes(resultado.getArestas());
+        return resultado.getPropriedades().size();
+    }
+
+    /**
+     * Cria o grafo completo a partir de um ficheiro CSV sem manter o cadastro em memória, para ficheiros
+     * maiores do que a memória disponível.
+     *
+     * Numa única leitura em streaming, cada lote é escrito como nós e as suas geometrias são repartidas
+     * por quadrículas em ficheiros temporários (ver {@link DetetorAdjacenciasQuadriculas}). As adjacências
+     * são depois calculadas quadrícula a quadrícula e as relações de cada quadrícula escritas assim que
+     * ficam prontas. Os ficheiros temporários são apagados no fim.
+     *
+     * @param loader o carregador usado para ler o CSV
+     * @param nomeFicheiro o nome do recurso no classpath ou o caminho do ficheiro
+     * @param ladoQuadricula o lado das quadrículas, nas unidades das coordenadas
+     * @return o número de propriedades lidas
+     * @throws IOException se ocorrer um erro ao ler o ficheiro ou ao escrever as quadrículas
+     */
+    public long criarGrafoPorQuadriculas(CadastroLoader loader, String nomeFicheiro, double ladoQuadricula) throws IOException {
+        criarEsquema();
+        DetetorAdjacenciasQuadriculas quadriculas = new DetetorAdjacenciasQuadriculas(ladoQuadricula, detetor.getNumeroThreads());
+        Path diretoria = Files.createTempDirectory("quadriculas");
+        try {
+            DetetorAdjacenciasQuadriculas.Particao particao = quadriculas.particionar(diretoria);
+            try {
+                long lidas;
+                RelatorioExecucao.Etapa csv = relatorio.etapa("csv e quadrículas");
+                try {
+                    lidas = csv.medir(() -> loader.carregarEmLotes(nomeFicheiro, tamanhoLote, lote -> {
+                        GeometriaStore geometrias = GeometriaStore.carregar(lote);
+                        inserirPropriedades(lote, geometrias);
+                        try {
+                            for (PropriedadeRustica p : lote) {
+                                particao.adicionar(p, geometrias.obter(p));
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                csv.somarLinhas(lidas);
+                csv.somar("geometriasInvalidas", particao.getInvalidas());
+                csv.somar("quadriculas", particao.getNumeroQuadriculas());
+                csv.somar("copias", particao.getCopias());
+                csv.somar("descargas", particao.getDescargas());
+
+                RelatorioExecucao.Etapa adjacencias = relatorio.etapa("adjacencias por quadrículas");
+                long arestas = adjacencias.medir(() -> quadriculas.calcular(particao, this::inserirRelacoes));
+                adjacencias.somarLinhas(particao.getCopias());
+                adjacencias.somar("arestas", arestas);
+                System.out.println("Escritas " + arestas + " relações adjacentes em "
+                        + particao.getNumeroQuadriculas() + " quadrículas");
+                return lidas;
+            } finally {
+                particao.apagar();
             }
+        } finally {
+            Files.deleteIfExists(diretoria);
         }
+    }
 
-        Set<String> relacoesExistentes = obterRelacoesExistentes();
-        List<String[]> novasRelacoes = new ArrayList<>();
+    /**
+     * Insere as relações calculadas que ainda não existem no grafo.
+     *
+     * @param relacoes pares [objectId1, objectId2] das relações calculadas
+     */
+    private void inserirNovasRelacoes(List<String[]> relacoes) {
+        ConjuntoArestas relacoesExistentes = obterRelacoesExistentes();
+        ConjuntoArestas novasRelacoes = new ConjuntoArestas();
 
-        for (PropriedadeRustica p1 : propriedades) {
-            Geometry g1 = GeoUtils.parseGeometry(p1.getGeometry());
-            if (g1 == null) continue;
+        for (String[] relacao : relacoes) {
+            if (!relacoesExistentes.contem(relacao[0], relacao[1])) {
+                novasRelacoes.adicionar(relacao[0], relacao[1]);
+            }
+        }
+        if (!novasRelacoes.isEmpty()) {
+            inserirRelacoes(novasRelacoes.paraLista());
+            System.out.println("Inseridas " + novasRelacoes.tamanho() + " novas relações adjacentes");
+        }
+    }
 
-            List<?> candidatos = index.query(g1.getEnvelopeInternal());
+    /**
+     * Insere o grafo de proprietários: um nó {@code Proprietario} por proprietário e uma relação
+     * {@code VIZINHO_DE} entre proprietários com propriedades adjacentes, com o número de contactos.
+     *
+     * Nós e relações são escritos em lotes, por várias sessões, e a operação é idempotente.
+     *
+     * @param grafo o grafo de proprietários
+     */
+    public void criarProprietariosGrafo(GrafoProprietarios grafo) {
+        if (grafo.numeroProprietarios() == 0) return;
 
-            for (Object obj : candidatos) {
-                PropriedadeRustica p2 = (PropriedadeRustica) obj;
+        criarEsquema();
+        List<Value> nos = new ArrayList<>(grafo.numeroProprietarios());
+        for (int i = 0; i < grafo.numeroProprietarios(); i++) {
+            nos.add(Values.parameters("nome", grafo.proprietario(i), "numeroPropriedades", grafo.numeroPropriedades(i)));
+        }
+        long novos = escritor().escrever("Proprietários",
+                "UNWIND $proprietarios AS prop " +
+                        "MERGE (o:Proprietario {nome: prop.nome}) " +
+                        "SET o.numeroPropriedades = prop.numeroPropriedades",
+                "proprietarios", nos).getNosCriados();
 
-                if (!p1.getObjectId().equals(p2.getObjectId())) {
-                    Geometry g2 = GeoUtils.parseGeometry(p2.getGeometry());
-                    if (g2 == null) continue;
+        List<Value> relacoes = new ArrayList<>(grafo.numeroArestas());
+        for (int k = 0; k < grafo.numeroArestas(); k++) {
+            relacoes.add(Values.parameters(
+                    "origem", grafo.proprietario(grafo.origem(k)),
+                    "destino", grafo.proprietario(grafo.destino(k)),
+                    "contactos", grafo.contactos(k)));
+        }
+        escritor().escrever("Vizinhança de proprietários",
+                "UNWIND $relacoes AS relacao " +
+                        "MATCH (a:Proprietario {nome: relacao.origem}), (b:Proprietario {nome: relacao.destino}) " +
+                        "MERGE (a)-[v:VIZINHO_DE]->(b) " +
+                        "SET v.contactos = relacao.contactos",
+                "relacoes", relacoes);
+        System.out.println("Inseridos " + novos + " novos proprietários e " + grafo.numeroArestas()
+                + " relações de vizinhança");
+    }
 
-                    if (GeoUtils.saoAdjacentes(g1, g2)) {
-                        String relacao = p1.getObjectId() + "-" + p2.getObjectId();
-                        if (p1.getObjectId().compareTo(p2.getObjectId()) < 0 && !relacoesExistentes.contains(relacao)) {
-                            novasRelacoes.add(new String[]{p1.getObjectId(), p2.getObjectId()});
-                        }
-                    }
-                }
+    /**
+     * Atualiza o grafo de forma incremental, recalculando apenas as adjacências das propriedades novas
+     * ou com geometria alterada.
+     *
+     * As propriedades alteradas são identificadas no servidor comparando o hash da geometria com o
+     * guardado em cada nó, pelo que só os seus {@code objectId} regressam ao cliente. Depois de atualizar
+     * os nós, são removidas as relações dessas propriedades e o índice espacial é consultado apenas à
+     * volta delas para criar as novas relações. As restantes relações não são lidas nem alteradas.
+     *
+     * O hash de uma propriedade alterada só é escrito depois de as suas relações terem sido refeitas, pelo
+     * que uma execução interrompida é retomada na seguinte. As propriedades do grafo que já não constam
+     * da lista são removidas com as suas relações.
+     *
+     * @param propriedades lista completa de propriedades do cadastro
+     * @param geometrias armazém com as geometrias convertidas das propriedades
+     * @return o número de propriedades novas ou alteradas
+     */
+    public int atualizarGrafoIncremental(List<PropriedadeRustica> propriedades, GeometriaStore geometrias) {
+        return atualizarGrafoIncremental(propriedades, geometrias, IndiceHilbert.construir(propriedades, geometrias));
+    }
+
+    /**
+     * Atualiza o grafo de forma incremental usando um índice espacial já construído ou lido de um
+     * ficheiro, sem fase de construção do índice.
+     *
+     * @param propriedades lista completa de propriedades do cadastro
+     * @param geometrias armazém com as geometrias convertidas das propriedades
+     * @param indice índice espacial construído a partir de {@code propriedades}
+     * @return o número de propriedades novas ou alteradas
+     * @see #atualizarGrafoIncremental(List, GeometriaStore)
+     */
+    public int atualizarGrafoIncremental(List<PropriedadeRustica> propriedades, GeometriaStore geometrias,
+                                         IndiceHilbert indice) {
+        if (propriedades.isEmpty()) return 0;
+
+        criarEsquema();
+        long removidas = removerPropriedadesAusentes(propriedades);
+        if (removidas > 0) {
+            System.out.println("Removidas " + removidas + " propriedades que deixaram de constar do cadastro");
+        }
+        Set<String> alteradas = obterPropriedadesAlteradas(propriedades);
+        long novas = inserirPropriedades(propriedades, geometrias, alteradas);
+        if (novas > 0) {
+            System.out.println("Inseridas " + novas + " novas propriedades");
+        }
+        if (alteradas.isEmpty()) {
+            System.out.println("Nenhuma propriedade nova ou alterada");
+            return 0;
+        }
+
+        List<PropriedadeRustica> origens = new ArrayList<>();
+        for (PropriedadeRustica p : propriedades) {
+            if (alteradas.contains(p.getObjectId())) {
+                origens.add(p);
             }
         }
+
+        removerRelacoes(alteradas);
+        List<String[]> novasRelacoes = detetor.medir(relatorio, origens.size(),
+                () -> detetor.calcularVizinhanca(origens, propriedades, indice, geometrias));
         if (!novasRelacoes.isEmpty()) {
             inserirRelacoes(novasRelacoes);
-            System.out.println("Inseridas " + novasRelacoes.size() + " novas relações adjacentes");
         }
+        confirmarHashes(origens);
+        System.out.println("Atualizadas " + alteradas.size() + " propriedades alteradas com "
+                + novasRelacoes.size() + " relações adjacentes");
+        return alteradas.size();
+    }
+
+    /**
+     * Obtém os objectIds das propriedades que não existem no grafo ou cuja geometria mudou.
+     *
+     * A comparação é feita no servidor, em lotes, com o hash da geometria guardado em cada nó.
+     *
+     * @param propriedades lista de propriedades a comparar
+     * @return conjunto de objectIds novos ou alterados
+     */
+    private Set<String> obterPropriedadesAlteradas(List<PropriedadeRustica> propriedades) {
+        String query = "UNWIND $linhas AS linha " +
+                "OPTIONAL MATCH (p:Propriedade {objectId: linha.objectId}) " +
+                "WITH linha, p WHERE p IS NULL OR p.hashGeometria IS NULL OR p.hashGeometria <> linha.hash " +
+                "RETURN linha.objectId AS id";
+        Set<String> alteradas = new HashSet<>();
+        try (Session session = driver.session()) {
+            for (List<PropriedadeRustica> lote : EscritorLotes.particionar(propriedades, tamanhoLote)) {
+                List<Value> linhas = new ArrayList<>();
+                for (PropriedadeRustica p : lote) {
+                    linhas.add(Values.parameters("objectId", p.getObjectId(), "hash", p.getHashGeometria()));
+                }
+                session.readTransaction(tx -> {
+                    Result result = tx.run(query, Values.parameters("linhas", linhas));
+                    while (result.hasNext()) {
+                        alteradas.add(result.next().get("id").asString());
+                    }
+                    return null;
+                });
+            }
+        }
+        return alteradas;
+    }
+
+    /**
+     * Remove os nós, e as suas relações, das propriedades do grafo que não constam da lista.
+     *
+     * A comparação é feita no servidor: a lista de objectIds é enviada e os nós que não estão nela são
+     * apagados em transações de, no máximo, {@code tamanhoLote} nós, até não restar nenhum. Nenhum
+     * objectId do grafo regressa ao cliente.
+     *
+     * @param propriedades lista completa de propriedades do cadastro
+     * @return o número de propriedades removidas
+     */
+    private long removerPropriedadesAusentes(List<PropriedadeRustica> propriedades) {
+        List<String> atuais = new ArrayList<>(propriedades.size());
+        for (PropriedadeRustica p : propriedades) {
+            atuais.add(p.getObjectId());
+        }
+        Value parametros = Values.parameters("ids", atuais, "lote", tamanhoLote);
+        RelatorioExecucao.Etapa etapa = relatorio.etapa("neo4j: Remoção de propriedades");
+        return etapa.medir(() -> {
+            long total = 0;
+            try (Session session = driver.session()) {
+                while (true) {
+                    long inicio = System.nanoTime();
+                    long removidas = session.executeWrite(tx ->
+                            tx.run(QUERY_REMOVER_AUSENTES, parametros).single().get("removidas").asLong());
+                    etapa.registarLatencia("transacoes", System.nanoTime() - inicio);
+                    etapa.somarLinhas(removidas);
+                    total += removidas;
+                    if (removidas < tamanhoLote) return total;
+                }
+            }
+        });
+    }
+
+    /**
+     * Escreve o hash da geometria das propriedades cujas relações já foram refeitas.
+     *
+     * Só depois deste passo uma propriedade alterada deixa de ser detetada como tal: se a atualização
+     * falhar antes, o nó fica sem hash e é reprocessado na execução seguinte.
+     *
+     * @param propriedades as propriedades cujas relações foram refeitas
+     */
+    private void confirmarHashes(List<PropriedadeRustica> propriedades) {
+        List<Value> linhas = new ArrayList<>(propriedades.size());
+        for (PropriedadeRustica p : propriedades) {
+            linhas.add(Values.parameters("objectId", p.getObjectId(), "hash", p.getHashGeometria()));
+        }
+        escritor().escrever("Hashes de geometria",
+                "UNWIND $linhas AS linha " +
+                        "MATCH (p:Propriedade {objectId: linha.objectId}) " +
+                        "SET p.hashGeometria = linha.hash",
+                "linhas", linhas);
+    }
+
+    /**
+     * Remove todas as relações de adjacência das propriedades indicadas, em lotes.
+     *
+     * Os lotes são escritos numa única sessão, porque duas propriedades alteradas e vizinhas partilham
+     * a mesma relação e lotes concorrentes tentariam apagá-la ao mesmo tempo.
+     *
+     * @param objectIds identificadores das propriedades cujas relações devem ser removidas
+     */
+    private void removerRelacoes(Set<String> objectIds) {
+        String query = "UNWIND $ids AS id " +
+                "MATCH (:Propriedade {objectId: id})-[r:ADJACENTE_A]-() " +
+                "DELETE r";
+        new EscritorLotes(driver, tamanhoLote, 1, relatorio)
+                .escrever("Remoção de relações", query, "ids", new ArrayList<>(objectIds));
     }
 
     /**
@@ -163,15 +740,14 @@ public class Neo4jConnector implements AutoCloseable {
      *
      * @return conjunto de pares objectId representando relações já inseridas
      */
-    private Set<String> obterRelacoesExistentes() {
-        Set<String> relacoes = new HashSet<>();
+    private ConjuntoArestas obterRelacoesExistentes() {
+        ConjuntoArestas relacoes = new ConjuntoArestas();
         try (Session session = driver.session()) {
             session.readTransaction(tx -> {
                 Result result = tx.run("MATCH (p1:Propriedade)-[:ADJACENTE_A]->(p2:Propriedade) RETURN p1.objectId, p2.objectId");
                 while (result.hasNext()) {
                     Record record = result.next();
-                    String relacao = record.get("p1.objectId").asString() + "-" + record.get("p2.objectId").asString();
-                    relacoes.add(relacao);
+                    relacoes.adicionar(record.get("p1.objectId").asString(), record.get("p2.objectId").asString());
                 }
                 return null;
             });
@@ -180,19 +756,14 @@ public class Neo4jConnector implements AutoCloseable {
     }
 
     /**
-     * Insere novas relações de adjacência no grafo entre propriedades.
+     * Insere novas relações de adjacência no grafo entre propriedades, em lotes escritos por várias sessões.
      *
      * @param novasRelacoes lista de pares [objectId1, objectId2] representando as relações a criar
      */
     private void inserirRelacoes(List<String[]> novasRelacoes) {
-        try (Session session = driver.session()) {
-            session.writeTransaction(tx -> {
-                String query = "UNWIND $relacoes AS relacao " +
-                        "MATCH (a:Propriedade {objectId: relacao[0]}), (b:Propriedade {objectId: relacao[1]}) " +
-                        "MERGE (a)-[:ADJACENTE_A]->(b)";
-                tx.run(query, Values.parameters("relacoes", novasRelacoes));
-                return null;
-            });
-        }
+        String query = "UNWIND $relacoes AS relacao " +
+                "MATCH (a:Propriedade {objectId: relacao[0]}), (b:Propriedade {objectId: relacao[1]}) " +
+                "MERGE (a)-[:ADJACENTE_A]->(b)";
+        escritor().escrever("Relações", query, "relacoes", novasRelacoes);
     }
 }
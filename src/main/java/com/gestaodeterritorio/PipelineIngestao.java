@@ -0,0 +1,390 @@
+package com.gestaodeterritorio;
+
+import org.locationtech.jts.geom.Geometry;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.async.AsyncSession;
+import org.neo4j.driver.async.ResultCursor;
+import org.neo4j.driver.summary.ResultSummary;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Ingestão de um ficheiro de cadastro em etapas sobrepostas, ligadas por filas limitadas.
+ *
+ * <ul>
+ *   <li>leitura: o CSV é lido em lotes e cada lote é entregue à etapa de geometrias;</li>
+ *   <li>geometrias: as geometrias de cada lote são convertidas, uma única vez, e o lote segue para a
+ *   escrita já com o centróide e o envelope de cada nó; no fim da leitura, são calculadas as adjacências
+ *   de todas as propriedades;</li>
+ *   <li>escrita: cada lote é escrito no Neo4j numa sessão assíncrona, com um número limitado de
+ *   transações em curso e as mesmas repetições que o {@link EscritorLotes} em caso de erro transitório.</li>
+ * </ul>
+ *
+ * As filas têm capacidade fixa, pelo que uma etapa mais lenta trava a leitura em vez de acumular lotes
+ * em memória, e o tempo total aproxima-se do da etapa mais lenta em vez da soma de todas. Se uma etapa
+ * falhar, as restantes são interrompidas e o primeiro erro é relançado.
+ *
+ * As etapas {@code csv}, {@code wkt}, {@code adjacencias} e {@code neo4j: Propriedades} são registadas
+ * no {@link RelatorioExecucao}. Como decorrem em simultâneo, o tempo de cada uma inclui a espera pelas
+ * filas; a etapa mais lenta é a que menos espera.
+ */
+class PipelineIngestao {
+
+    /** Número de lotes que cada fila guarda antes de travar a leitura. */
+    static final int CAPACIDADE_FILA = 4;
+
+    private static final long ESPERA_FILA_MS = 100;
+
+    /** Marca de fim de leitura, comparada por identidade. */
+    private static final List<PropriedadeRustica> FIM = new ArrayList<>();
+
+    /** Marca de fim da fila de escrita, comparada por identidade. */
+    private static final List<Value> FIM_LINHAS = new ArrayList<>();
+
+    /**
+     * Resultado de uma execução do pipeline.
+     */
+    static class Resultado {
+        private final List<PropriedadeRustica> propriedades;
+        private final GeometriaStore geometrias;
+        private final List<String[]> arestas;
+        private long nosCriados;
+
+        private Resultado(List<PropriedadeRustica> propriedades, GeometriaStore geometrias, List<String[]> arestas) {
+            this.propriedades = propriedades;
+            this.geometrias = geometrias;
+            this.arestas = arestas;
+        }
+
+        /**
+         * @return as propriedades lidas, pela ordem do ficheiro
+         */
+        List<PropriedadeRustica> getPropriedades() {
+            return propriedades;
+        }
+
+        /**
+         * @return as geometrias convertidas das propriedades
+         */
+        GeometriaStore getGeometrias() {
+            return geometrias;
+        }
+
+        /**
+         * @return os pares [objectId1, objectId2] de propriedades adjacentes
+         */
+        List<String[]> getArestas() {
+            return arestas;
+        }
+
+        /**
+         * @return o número de nós criados no grafo
+         */
+        long getNosCriados() {
+            return nosCriados;
+        }
+    }
+
+    private final Driver driver;
+    private final DetetorAdjacencias detetor;
+    private final int tamanhoLote;
+    private final int escritasEmCurso;
+    private final RelatorioExecucao relatorio;
+
+    private final AtomicBoolean abortado = new AtomicBoolean();
+    private final AtomicReference<Throwable> erro = new AtomicReference<>();
+
+    /**
+     * @param driver o driver Neo4j
+     * @param detetor o detetor usado para calcular as adjacências
+     * @param tamanhoLote número de propriedades por lote e por transação
+     * @param escritasEmCurso número máximo de transações de escrita em curso ao mesmo tempo
+     * @throws IllegalArgumentException se o tamanho de lote ou o número de escritas for inferior a 1
+     */
+    PipelineIngestao(Driver driver, DetetorAdjacencias detetor, int tamanhoLote, int escritasEmCurso) {
+        this(driver, detetor, tamanhoLote, escritasEmCurso, new RelatorioExecucao());
+    }
+
+    /**
+     * @param driver o driver Neo4j
+     * @param detetor o detetor usado para calcular as adjacências
+     * @param tamanhoLote número de propriedades por lote e por transação
+     * @param escritasEmCurso número máximo de transações de escrita em curso ao mesmo tempo
+     * @param relatorio o relatório onde são registadas as etapas
+     * @throws IllegalArgumentException se o tamanho de lote ou o número de escritas for inferior a 1
+     */
+    PipelineIngestao(Driver driver, DetetorAdjacencias detetor, int tamanhoLote, int escritasEmCurso,
+                     RelatorioExecucao relatorio) {
+        if (tamanhoLote < 1) {
+            throw new IllegalArgumentException("Tamanho de lote inválido: " + tamanhoLote);
+        }
+        if (escritasEmCurso < 1) {
+            throw new IllegalArgumentException("Número de escritas em curso inválido: " + escritasEmCurso);
+        }
+        this.driver = driver;
+        this.detetor = detetor;
+        this.tamanhoLote = tamanhoLote;
+        this.escritasEmCurso = escritasEmCurso;
+        this.relatorio = relatorio;
+    }
+
+    /**
+     * Executa o pipeline sobre o ficheiro indicado. Cada instância deve ser executada uma única vez.
+     *
+     * @param loader o carregador usado para ler o CSV
+     * @param nomeFicheiro o nome do recurso no classpath ou o caminho do ficheiro
+     * @return as propriedades lidas, as suas geometrias e adjacências e o número de nós criados
+     * @throws IOException se ocorrer um erro ao ler o ficheiro
+     */
+    Resultado executar(CadastroLoader loader, String nomeFicheiro) throws IOException {
+        BlockingQueue<List<PropriedadeRustica>> filaGeometrias = new ArrayBlockingQueue<>(CAPACIDADE_FILA);
+        BlockingQueue<List<Value>> filaEscrita = new ArrayBlockingQueue<>(CAPACIDADE_FILA);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> leitura = executor.submit(() -> ler(loader, nomeFicheiro, filaGeometrias));
+            Future<Resultado> indexacao = executor.submit(() -> indexar(filaGeometrias, filaEscrita));
+            long nosCriados = escrever(filaEscrita);
+
+            leitura.get();
+            Resultado resultado = indexacao.get();
+            relancarErro();
+            resultado.nosCriados = nosCriados;
+            return resultado;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Pipeline de ingestão interrompido", e);
+        } catch (ExecutionException e) {
+            falhar(e.getCause());
+            relancarErro();
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            abortado.set(true);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Etapa de leitura: entrega cada lote lido à fila de geometrias.
+     */
+    private void ler(CadastroLoader loader, String nomeFicheiro,
+                     BlockingQueue<List<PropriedadeRustica>> filaGeometrias) {
+        RelatorioExecucao.Etapa etapa = relatorio.etapa("csv");
+        try {
+            etapa.medir(() -> loader.carregarEmLotes(nomeFicheiro, tamanhoLote, lote -> {
+                etapa.somarLinhas(lote.size());
+                colocar(filaGeometrias, lote);
+            }));
+        } catch (Exception e) {
+            falhar(e);
+        } finally {
+            colocar(filaGeometrias, FIM);
+        }
+    }
+
+    /**
+     * Etapa de geometrias: converte as geometrias de cada lote, entrega à fila de escrita as linhas dos
+     * nós e, no fim, calcula as adjacências.
+     *
+     * @return o resultado sem o número de nós criados, ou {@code null} se o pipeline tiver sido abortado
+     */
+    private Resultado indexar(BlockingQueue<List<PropriedadeRustica>> fila, BlockingQueue<List<Value>> filaEscrita) {
+        try {
+            GeometriaStore geometrias = new GeometriaStore();
+            RelatorioExecucao.Etapa etapa = relatorio.etapa("wkt");
+            List<PropriedadeRustica> propriedades;
+            try {
+                propriedades = etapa.medir(() -> converter(fila, filaEscrita, geometrias, etapa));
+            } finally {
+                colocar(filaEscrita, FIM_LINHAS);
+            }
+            if (abortado.get()) return null;
+            return new Resultado(propriedades, geometrias,
+                    detetor.medir(relatorio, propriedades.size(), () -> detetor.calcular(propriedades, geometrias)));
+        } catch (RuntimeException e) {
+            falhar(e);
+            return null;
+        }
+    }
+
+    /**
+     * Converte as geometrias de cada lote da fila e entrega à fila de escrita as linhas dos nós.
+     *
+     * @return todas as propriedades lidas, pela ordem do CSV
+     */
+    private List<PropriedadeRustica> converter(BlockingQueue<List<PropriedadeRustica>> fila,
+                                               BlockingQueue<List<Value>> filaEscrita, GeometriaStore geometrias,
+                                               RelatorioExecucao.Etapa etapa) {
+        List<PropriedadeRustica> propriedades = new ArrayList<>();
+        for (List<PropriedadeRustica> lote = retirar(fila, FIM); lote != FIM; lote = retirar(fila, FIM)) {
+            int invalidas = 0;
+            List<Value> linhas = new ArrayList<>(lote.size());
+            for (PropriedadeRustica p : lote) {
+                Geometry g = geometrias.adicionar(p);
+                if (g == null) invalidas++;
+                linhas.add(Neo4jConnector.parametros(p, g));
+            }
+            colocar(filaEscrita, linhas);
+            propriedades.addAll(lote);
+            etapa.somarLinhas(lote.size());
+            etapa.somar("geometriasInvalidas", invalidas);
+        }
+        return propriedades;
+    }
+
+    /**
+     * Etapa de escrita: envia cada lote numa sessão assíncrona, esperando por uma vaga sempre que o
+     * número máximo de transações em curso é atingido.
+     *
+     * @return o número de nós criados
+     */
+    private long escrever(BlockingQueue<List<Value>> fila) throws InterruptedException {
+        RelatorioExecucao.Etapa etapa = relatorio.etapa("neo4j: Propriedades");
+        return etapa.medir(() -> {
+            long nosCriados = escrever(fila, etapa);
+            etapa.somar("nosCriados", nosCriados);
+            return nosCriados;
+        });
+    }
+
+    private long escrever(BlockingQueue<List<Value>> fila, RelatorioExecucao.Etapa etapa)
+            throws InterruptedException {
+        Semaphore vagas = new Semaphore(escritasEmCurso);
+        AtomicLong nosCriados = new AtomicLong();
+        AtomicInteger concluidos = new AtomicInteger();
+        ScheduledExecutorService agenda = Executors.newSingleThreadScheduledExecutor();
+        try {
+            for (List<Value> lote = retirar(fila, FIM_LINHAS); lote != FIM_LINHAS; lote = retirar(fila, FIM_LINHAS)) {
+                List<Value> linhas = lote;
+                vagas.acquire();
+                escreverLote(linhas, etapa, agenda, 1, EscritorLotes.ESPERA_INICIAL_MS)
+                        .whenComplete((summary, e) -> {
+                            if (e != null) {
+                                falhar(e);
+                            } else {
+                                etapa.somarLinhas(linhas.size());
+                                nosCriados.addAndGet(summary.counters().nodesCreated());
+                                System.out.println("Propriedades: lote " + concluidos.incrementAndGet() + " escrito");
+                            }
+                            vagas.release();
+                        });
+            }
+            vagas.acquire(escritasEmCurso);
+        } finally {
+            agenda.shutdownNow();
+        }
+        return nosCriados.get();
+    }
+
+    /**
+     * Escreve um lote numa sessão assíncrona própria. Tal como no {@link EscritorLotes}, um erro
+     * transitório faz repetir o lote, até {@link EscritorLotes#MAX_TENTATIVAS} tentativas e com uma
+     * espera que duplica a cada repetição; a latência registada é a da tentativa bem-sucedida.
+     *
+     * @return o resumo da transação, ou o erro que fez desistir do lote
+     */
+    private CompletableFuture<ResultSummary> escreverLote(List<Value> linhas, RelatorioExecucao.Etapa etapa,
+                                                          ScheduledExecutorService agenda, int tentativa,
+                                                          long espera) {
+        CompletableFuture<ResultSummary> resultado = new CompletableFuture<>();
+        long inicio = System.nanoTime();
+        AsyncSession session = driver.session(AsyncSession.class);
+        session.executeWriteAsync(tx -> tx.runAsync(Neo4jConnector.QUERY_PROPRIEDADES,
+                        Values.parameters("propriedades", linhas)).thenCompose(ResultCursor::consumeAsync))
+                .whenComplete((summary, e) -> session.closeAsync().whenComplete((v, erroFecho) -> {
+                    if (e == null) {
+                        etapa.registarLatencia("transacoes", System.nanoTime() - inicio);
+                        resultado.complete(summary);
+                        return;
+                    }
+                    Throwable causa = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (!EscritorLotes.transitorio(causa) || tentativa >= EscritorLotes.MAX_TENTATIVAS
+                            || abortado.get()) {
+                        resultado.completeExceptionally(causa);
+                        return;
+                    }
+                    etapa.somar("repeticoes", 1);
+                    agenda.schedule(() -> escreverLote(linhas, etapa, agenda, tentativa + 1, espera * 2)
+                            .whenComplete((repetido, erroRepetido) -> {
+                                if (erroRepetido != null) {
+                                    resultado.completeExceptionally(erroRepetido);
+                                } else {
+                                    resultado.complete(repetido);
+                                }
+                            }), espera, TimeUnit.MILLISECONDS);
+                }));
+        return resultado;
+    }
+
+    /**
+     * Coloca um lote na fila, esperando por espaço enquanto o pipeline não for abortado.
+     */
+    private <T> void colocar(BlockingQueue<List<T>> fila, List<T> lote) {
+        try {
+            while (!abortado.get()) {
+                if (fila.offer(lote, ESPERA_FILA_MS, TimeUnit.MILLISECONDS)) return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            falhar(e);
+        }
+    }
+
+    /**
+     * Retira o próximo lote da fila.
+     *
+     * @param fim a marca de fim da fila
+     * @return o lote, ou {@code fim} no fim da fila ou se o pipeline tiver sido abortado
+     */
+    private <T> List<T> retirar(BlockingQueue<List<T>> fila, List<T> fim) {
+        try {
+            while (!abortado.get()) {
+                List<T> lote = fila.poll(ESPERA_FILA_MS, TimeUnit.MILLISECONDS);
+                if (lote != null) return lote;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            falhar(e);
+        }
+        return fim;
+    }
+
+    /**
+     * Regista o primeiro erro e aborta todas as etapas.
+     */
+    private void falhar(Throwable e) {
+        if (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        erro.compareAndSet(null, e);
+        abortado.set(true);
+    }
+
+    private void relancarErro() throws IOException {
+        Throwable e = erro.get();
+        if (e == null) return;
+        if (e instanceof IOException) throw (IOException) e;
+        if (e instanceof RuntimeException) throw (RuntimeException) e;
+        if (e instanceof Error) throw (Error) e;
+        throw new IllegalStateException("Falha no pipeline de ingestão", e);
+    }
+}
@@ -40,6 +40,40 @@ public class PropriedadeRustica {
     @CsvBindByName(column = "Ilha")
     private String ilha;
 
+    /**
+     * Cria uma propriedade vazia, preenchida pelo OpenCSV através das anotações dos campos.
+     */
+    public PropriedadeRustica() {
+    }
+
+    /**
+     * Cria uma propriedade com todos os atributos, sem recorrer a reflexão.
+     *
+     * @param objectId o identificador único da propriedade
+     * @param parId o identificador da parcela
+     * @param parNum o número da parcela
+     * @param shapeLength o perímetro da geometria
+     * @param shapeArea a área da propriedade
+     * @param geometry a geometria em formato WKT
+     * @param owner o nome do proprietário
+     * @param freguesia a freguesia
+     * @param municipio o município
+     * @param ilha a ilha
+     */
+    PropriedadeRustica(String objectId, String parId, String parNum, String shapeLength, String shapeArea,
+                       String geometry, String owner, String freguesia, String municipio, String ilha) {
+        this.objectId = objectId;
+        this.parId = parId;
+        this.parNum = parNum;
+        this.shapeLength = shapeLength;
+        this.shapeArea = shapeArea;
+        this.geometry = geometry;
+        this.owner = owner;
+        this.freguesia = freguesia;
+        this.municipio = municipio;
+        this.ilha = ilha;
+    }
+
     /**
      * @return o identificador único da propriedade
      */
@@ -110,6 +144,23 @@ public class PropriedadeRustica {
         return ilha;
     }
 
+    /**
+     * Calcula um hash de 64 bits (FNV-1a) do texto WKT da geometria, usado para detetar geometrias alteradas
+     * entre cargas sucessivas do cadastro.
+     *
+     * @return o hash da geometria, ou {@code 0} se a propriedade não tiver geometria
+     */
+    public long getHashGeometria() {
+        String geometry = getGeometry();
+        if (geometry == null) return 0;
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < geometry.length(); i++) {
+            hash ^= geometry.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
     /**
      * Representação textual formatada da propriedade rústica.
      *
@@ -118,6 +169,6 @@ public class PropriedadeRustica {
     @Override
     public String toString() {
         return String.format("[%s] %s - %s - %s (Área: %s) [%s]",
-                objectId, municipio, freguesia, parNum, shapeArea, ilha);
+                getObjectId(), getMunicipio(), getFreguesia(), getParNum(), getShapeArea(), getIlha());
     }
 }
@@ -0,0 +1,431 @@
+package com.gestaodeterritorio;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Relatório de uma execução da ingestão, com as métricas de cada etapa, escrito em JSON no fim.
+ *
+ * Cada etapa (leitura do CSV, conversão de WKT, deteção de adjacências, escritas no Neo4j) acumula o
+ * tempo de parede, o número de linhas processadas, contadores próprios (por exemplo, pares de candidatos
+ * testados e arestas encontradas), as recolhas do GC e a memória alocada enquanto decorreu, e
+ * histogramas de latência (por exemplo, de cada transação).
+ *
+ * As recolhas do GC e a memória alocada são medidas para todo o processo: quando duas etapas decorrem
+ * em simultâneo, como no pipeline de ingestão, ambas as contam. A memória alocada soma as threads vivas
+ * no início e no fim de cada medição, pelo que não inclui threads criadas e terminadas entretanto.
+ *
+ * Todas as operações podem ser chamadas por várias threads ao mesmo tempo.
+ */
+public class RelatorioExecucao {
+
+    private final long inicio = System.currentTimeMillis();
+    private final long inicioNanos = System.nanoTime();
+    private final Map<String, Etapa> etapas = new LinkedHashMap<>();
+    private volatile String erro;
+
+    /**
+     * Devolve a etapa com o nome indicado, criando-a na primeira utilização.
+     *
+     * @param nome o nome da etapa
+     * @return a etapa
+     */
+    public Etapa etapa(String nome) {
+        synchronized (etapas) {
+            return etapas.computeIfAbsent(nome, Etapa::new);
+        }
+    }
+
+    /**
+     * @return as etapas, pela ordem em que foram usadas pela primeira vez
+     */
+    public List<Etapa> getEtapas() {
+        synchronized (etapas) {
+            return new ArrayList<>(etapas.values());
+        }
+    }
+
+    /**
+     * Regista a falha que terminou a execução.
+     *
+     * @param e o erro
+     */
+    public void registarErro(Throwable e) {
+        erro = e.getClass().getName() + (e.getMessage() == null ? "" : ": " + e.getMessage());
+    }
+
+    /**
+     * @return a descrição do erro registado, ou {@code null} se a execução não tiver falhado
+     */
+    public String getErro() {
+        return erro;
+    }
+
+    /**
+     * Escreve o relatório em JSON no ficheiro indicado.
+     *
+     * @param ficheiro o ficheiro de destino
+     * @throws IOException se ocorrer um erro de escrita
+     */
+    public void escrever(Path ficheiro) throws IOException {
+        Files.write(ficheiro, paraJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return o relatório em JSON
+     */
+    public String paraJson() {
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"inicio\": ").append(texto(Instant.ofEpochMilli(inicio).toString())).append(",\n");
+        json.append("  \"duracaoMs\": ").append(ms(System.nanoTime() - inicioNanos)).append(",\n");
+        json.append("  \"erro\": ").append(erro == null ? "null" : texto(erro)).append(",\n");
+        json.append("  \"etapas\": [");
+        List<Etapa> lista = getEtapas();
+        for (int i = 0; i < lista.size(); i++) {
+            json.append(i == 0 ? "\n" : ",\n");
+            lista.get(i).paraJson(json);
+        }
+        return json.append(lista.isEmpty() ? "]\n}\n" : "\n  ]\n}\n").toString();
+    }
+
+    /**
+     * Métricas acumuladas de uma etapa.
+     */
+    public static class Etapa {
+        private final String nome;
+        private final AtomicLong chamadas = new AtomicLong();
+        private final AtomicLong tempoNanos = new AtomicLong();
+        private final AtomicLong linhas = new AtomicLong();
+        private final AtomicLong colecoesGc = new AtomicLong();
+        private final AtomicLong tempoGcMs = new AtomicLong();
+        private final AtomicLong bytesAlocados = new AtomicLong();
+        private final Map<String, AtomicLong> contadores = new ConcurrentHashMap<>();
+        private final Map<String, Histograma> latencias = new ConcurrentHashMap<>();
+
+        private Etapa(String nome) {
+            this.nome = nome;
+        }
+
+        /**
+         * Inicia uma medição da etapa, que deve ser fechada no fim. Ver {@link #medir(Calculo)}.
+         *
+         * @return a medição em curso
+         */
+        public Medicao iniciar() {
+            return new Medicao(this);
+        }
+
+        /**
+         * Executa um cálculo dentro de uma medição da etapa, que é fechada mesmo que o cálculo falhe.
+         *
+         * @param calculo o cálculo a medir
+         * @param <T> o tipo do resultado
+         * @param <E> a exceção que o cálculo pode lançar
+         * @return o resultado do cálculo
+         * @throws E se o cálculo falhar
+         */
+        public <T, E extends Exception> T medir(Calculo<T, E> calculo) throws E {
+            Medicao medicao = iniciar();
+            try {
+                return calculo.executar();
+            } finally {
+                medicao.close();
+            }
+        }
+
+        /**
+         * @param n o número de linhas processadas a somar
+         */
+        public void somarLinhas(long n) {
+            linhas.addAndGet(n);
+        }
+
+        /**
+         * @param contador o nome do contador
+         * @param n o valor a somar
+         */
+        public void somar(String contador, long n) {
+            contadores.computeIfAbsent(contador, c -> new AtomicLong()).addAndGet(n);
+        }
+
+        /**
+         * @param nome o nome do histograma, por exemplo {@code transacoes}
+         * @param nanos a duração a registar, em nanossegundos
+         */
+        public void registarLatencia(String nome, long nanos) {
+            latencias.computeIfAbsent(nome, n -> new Histograma()).registar(nanos);
+        }
+
+        /**
+         * @return o nome da etapa
+         */
+        public String getNome() {
+            return nome;
+        }
+
+        /**
+         * @return o número de medições concluídas
+         */
+        public long getChamadas() {
+            return chamadas.get();
+        }
+
+        /**
+         * @return o tempo de parede acumulado, em nanossegundos
+         */
+        public long getTempoNanos() {
+            return tempoNanos.get();
+        }
+
+        /**
+         * @return o número de linhas processadas
+         */
+        public long getLinhas() {
+            return linhas.get();
+        }
+
+        /**
+         * @param contador o nome do contador
+         * @return o valor do contador, ou 0 se nunca tiver sido usado
+         */
+        public long getContador(String contador) {
+            AtomicLong valor = contadores.get(contador);
+            return valor == null ? 0 : valor.get();
+        }
+
+        /**
+         * @param nome o nome do histograma
+         * @return o histograma, ou {@code null} se nunca tiver sido usado
+         */
+        public Histograma getLatencia(String nome) {
+            return latencias.get(nome);
+        }
+
+        private void paraJson(StringBuilder json) {
+            long tempo = tempoNanos.get();
+            json.append("    {\n");
+            json.append("      \"nome\": ").append(texto(nome)).append(",\n");
+            json.append("      \"chamadas\": ").append(chamadas.get()).append(",\n");
+            json.append("      \"tempoMs\": ").append(ms(tempo)).append(",\n");
+            json.append("      \"linhas\": ").append(linhas.get()).append(",\n");
+            json.append("      \"linhasPorSegundo\": ")
+                    .append(tempo == 0 ? "0" : decimal(linhas.get() * 1e9 / tempo)).append(",\n");
+            json.append("      \"colecoesGc\": ").append(colecoesGc.get()).append(",\n");
+            json.append("      \"tempoGcMs\": ").append(tempoGcMs.get()).append(",\n");
+            json.append("      \"bytesAlocados\": ").append(bytesAlocados.get()).append(",\n");
+            json.append("      \"contadores\": {");
+            Map<String, AtomicLong> ordenados = new TreeMap<>(contadores);
+            String separador = "";
+            for (Map.Entry<String, AtomicLong> c : ordenados.entrySet()) {
+                json.append(separador).append(texto(c.getKey())).append(": ").append(c.getValue().get());
+                separador = ", ";
+            }
+            json.append("},\n");
+            long testados = getContador("paresTestados");
+            if (testados > 0) {
+                json.append("      \"arestasPorParTestado\": ")
+                        .append(decimal((double) getContador("arestas") / testados)).append(",\n");
+            }
+            json.append("      \"latencias\": {");
+            separador = "";
+            for (Map.Entry<String, Histograma> h : new TreeMap<>(latencias).entrySet()) {
+                json.append(separador).append("\n        ").append(texto(h.getKey())).append(": ");
+                h.getValue().paraJson(json);
+                separador = ",";
+            }
+            json.append(latencias.isEmpty() ? "}\n" : "\n      }\n");
+            json.append("    }");
+        }
+    }
+
+    /**
+     * Cálculo medido por {@link Etapa#medir(Calculo)}, que pode lançar uma exceção verificada.
+     *
+     * @param <T> o tipo do resultado
+     * @param <E> a exceção que o cálculo pode lançar
+     */
+    public interface Calculo<T, E extends Exception> {
+        T executar() throws E;
+    }
+
+    /**
+     * Medição em curso de uma etapa: ao ser fechada soma o tempo decorrido, as recolhas do GC e a memória
+     * alocada desde que foi iniciada.
+     */
+    public static class Medicao implements AutoCloseable {
+        private final Etapa etapa;
+        private final long inicio = System.nanoTime();
+        private final long colecoesInicio = colecoesGc();
+        private final long tempoGcInicio = tempoGc();
+        private final Map<Long, Long> alocadosInicio = bytesAlocadosPorThread();
+
+        private Medicao(Etapa etapa) {
+            this.etapa = etapa;
+        }
+
+        @Override
+        public void close() {
+            etapa.chamadas.incrementAndGet();
+            etapa.tempoNanos.addAndGet(System.nanoTime() - inicio);
+            etapa.colecoesGc.addAndGet(colecoesGc() - colecoesInicio);
+            etapa.tempoGcMs.addAndGet(tempoGc() - tempoGcInicio);
+            long alocados = 0;
+            for (Map.Entry<Long, Long> t : bytesAlocadosPorThread().entrySet()) {
+                Long antes = alocadosInicio.get(t.getKey());
+                alocados += t.getValue() - (antes == null ? 0 : antes);
+            }
+            etapa.bytesAlocados.addAndGet(alocados);
+        }
+    }
+
+    /**
+     * Histograma de latências com classes em potências de 2 de microssegundos.
+     *
+     * A classe {@code k} conta as durações entre {@code 2^(k-1)} e {@code 2^k} microssegundos, pelo que
+     * os percentis são majorantes com um erro relativo de, no máximo, o dobro.
+     */
+    public static class Histograma {
+        private static final int CLASSES = 64;
+
+        private final AtomicLongArray contagens = new AtomicLongArray(CLASSES);
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong somaNanos = new AtomicLong();
+        private final AtomicLong minimoNanos = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong maximoNanos = new AtomicLong();
+
+        /**
+         * @param nanos a duração a registar, em nanossegundos
+         */
+        public void registar(long nanos) {
+            long micros = Math.max(0, nanos) / 1000;
+            contagens.incrementAndGet(CLASSES - Long.numberOfLeadingZeros(micros));
+            total.incrementAndGet();
+            somaNanos.addAndGet(nanos);
+            minimoNanos.accumulateAndGet(nanos, Math::min);
+            maximoNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        /**
+         * @return o número de durações registadas
+         */
+        public long getTotal() {
+            return total.get();
+        }
+
+        /**
+         * @return a maior duração registada, em nanossegundos
+         */
+        public long getMaximoNanos() {
+            return maximoNanos.get();
+        }
+
+        /**
+         * @param percentil o percentil pedido, entre 0 e 100
+         * @return o limite superior da classe que contém o percentil, em nanossegundos, nunca acima do máximo
+         */
+        public long percentilNanos(double percentil) {
+            long n = total.get();
+            if (n == 0) return 0;
+            long alvo = Math.max(1, (long) Math.ceil(n * percentil / 100));
+            long acumulado = 0;
+            for (int k = 0; k < CLASSES; k++) {
+                acumulado += contagens.get(k);
+                if (acumulado >= alvo) {
+                    long limite = k == 0 ? 1000 : (k >= 54 ? Long.MAX_VALUE : (1L << k) * 1000);
+                    return Math.min(limite, maximoNanos.get());
+                }
+            }
+            return maximoNanos.get();
+        }
+
+        private void paraJson(StringBuilder json) {
+            long n = total.get();
+            json.append("{\"total\": ").append(n)
+                    .append(", \"minimoMs\": ").append(n == 0 ? "0" : ms(minimoNanos.get()))
+                    .append(", \"mediaMs\": ").append(n == 0 ? "0" : ms(somaNanos.get() / n))
+                    .append(", \"p50Ms\": ").append(ms(percentilNanos(50)))
+                    .append(", \"p90Ms\": ").append(ms(percentilNanos(90)))
+                    .append(", \"p99Ms\": ").append(ms(percentilNanos(99)))
+                    .append(", \"maximoMs\": ").append(ms(maximoNanos.get()))
+                    .append("}");
+        }
+    }
+
+    private static long colecoesGc() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long tempoGc() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    /**
+     * @return os bytes alocados por cada thread viva, ou um mapa vazio se a JVM não os disponibilizar
+     */
+    private static Map<Long, Long> bytesAlocadosPorThread() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Map<Long, Long> alocados = new HashMap<>();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) return alocados;
+        com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) threads;
+        if (!sun.isThreadAllocatedMemorySupported() || !sun.isThreadAllocatedMemoryEnabled()) return alocados;
+        long[] ids = sun.getAllThreadIds();
+        long[] bytes = sun.getThreadAllocatedBytes(ids);
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] >= 0) alocados.put(ids[i], bytes[i]);
+        }
+        return alocados;
+    }
+
+    private static String ms(long nanos) {
+        return decimal(nanos / 1e6);
+    }
+
+    private static String decimal(double valor) {
+        return String.format(Locale.ROOT, "%.3f", valor);
+    }
+
+    private static String texto(String valor) {
+        StringBuilder json = new StringBuilder("\"");
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        return json.append('"').toString();
+    }
+}
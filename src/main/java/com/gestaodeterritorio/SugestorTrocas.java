@@ -0,0 +1,386 @@
+package com.gestaodeterritorio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Sugere trocas de propriedades entre proprietários que aumentem a contiguidade das suas explorações.
+ *
+ * Uma troca entre os proprietários A e B consiste em A ceder a propriedade {@code pa} a B e B ceder
+ * {@code pb} a A. Para evitar a enumeração de todos os pares de propriedades, só são consideradas as
+ * propriedades na fronteira entre dois proprietários vizinhos: {@code pa} tem de tocar numa propriedade
+ * de B e {@code pb} numa propriedade de A. Os pares de vizinhos vêm do {@link GrafoProprietarios} e as
+ * fronteiras das arestas do {@link GrafoAdjacencia}.
+ *
+ * O ganho de cada proprietário é a variação da soma dos quadrados das áreas das suas explorações,
+ * dividida pela sua área total, ou seja, a variação da área contígua média ponderada pela área. A
+ * estimativa é local: a exploração que perde uma propriedade não é dividida e a que a recebe junta-se
+ * às explorações do novo dono que lhe tocam. Só são sugeridas trocas em que ambos ganham, pontuadas
+ * pela soma dos ganhos multiplicada pela semelhança das áreas trocadas (menor área sobre maior área).
+ *
+ * A pontuação é feita em paralelo por pares de proprietários e cada tarefa guarda apenas as melhores
+ * sugestões num heap limitado, juntando os heaps no fim.
+ */
+public class SugestorTrocas {
+
+    /** Número de pares de proprietários abaixo do qual uma tarefa não é dividida. */
+    static final int LIMIAR_SEQUENCIAL = 256;
+
+    /**
+     * Uma troca sugerida entre dois proprietários.
+     */
+    public static class Sugestao {
+        private final String proprietarioA;
+        private final String cedidaPorA;
+        private final String proprietarioB;
+        private final String cedidaPorB;
+        private final double ganhoA;
+        private final double ganhoB;
+        private final double semelhanca;
+        private final double pontuacao;
+
+        private Sugestao(String proprietarioA, String cedidaPorA, String proprietarioB, String cedidaPorB,
+                         double ganhoA, double ganhoB, double semelhanca) {
+            this.proprietarioA = proprietarioA;
+            this.cedidaPorA = cedidaPorA;
+            this.proprietarioB = proprietarioB;
+            this.cedidaPorB = cedidaPorB;
+            this.ganhoA = ganhoA;
+            this.ganhoB = ganhoB;
+            this.semelhanca = semelhanca;
+            this.pontuacao = (ganhoA + ganhoB) * semelhanca;
+        }
+
+        /**
+         * @return o proprietário A
+         */
+        public String getProprietarioA() {
+            return proprietarioA;
+        }
+
+        /**
+         * @return o objectId da propriedade que A cede a B
+         */
+        public String getCedidaPorA() {
+            return cedidaPorA;
+        }
+
+        /**
+         * @return o proprietário B
+         */
+        public String getProprietarioB() {
+            return proprietarioB;
+        }
+
+        /**
+         * @return o objectId da propriedade que B cede a A
+         */
+        public String getCedidaPorB() {
+            return cedidaPorB;
+        }
+
+        /**
+         * @return o aumento da área contígua média de A
+         */
+        public double getGanhoA() {
+            return ganhoA;
+        }
+
+        /**
+         * @return o aumento da área contígua média de B
+         */
+        public double getGanhoB() {
+            return ganhoB;
+        }
+
+        /**
+         * @return a razão entre a menor e a maior das áreas trocadas, entre 0 e 1
+         */
+        public double getSemelhanca() {
+            return semelhanca;
+        }
+
+        /**
+         * @return a pontuação da troca; maior é melhor
+         */
+        public double getPontuacao() {
+            return pontuacao;
+        }
+    }
+
+    /** Ordem crescente de qualidade, com desempate pelos identificadores para um resultado determinístico. */
+    private static final Comparator<Sugestao> PIOR_PRIMEIRO = Comparator
+            .comparingDouble(Sugestao::getPontuacao)
+            .thenComparing(Sugestao::getCedidaPorA, Comparator.reverseOrder())
+            .thenComparing(Sugestao::getCedidaPorB, Comparator.reverseOrder());
+
+    private final int numeroThreads;
+
+    /**
+     * Cria um sugestor que usa todos os processadores disponíveis.
+     */
+    public SugestorTrocas() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param numeroThreads número de threads; {@code 1} corresponde ao caminho sequencial
+     * @throws IllegalArgumentException se o número de threads for inferior a 1
+     */
+    public SugestorTrocas(int numeroThreads) {
+        if (numeroThreads < 1) {
+            throw new IllegalArgumentException("Número de threads inválido: " + numeroThreads);
+        }
+        this.numeroThreads = numeroThreads;
+    }
+
+    /**
+     * Calcula as melhores trocas entre proprietários vizinhos.
+     *
+     * @param propriedades as propriedades, com proprietário e {@code Shape_Area}
+     * @param grafo o grafo de adjacência, construído com {@link GrafoAdjacencia#construir(List, List)}
+     * @param k o número máximo de sugestões
+     * @return as melhores sugestões, da melhor para a pior
+     * @throws IllegalArgumentException se {@code k} for inferior a 1
+     */
+    public List<Sugestao> sugerir(List<PropriedadeRustica> propriedades, GrafoAdjacencia grafo, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("Número de sugestões inválido: " + k);
+        }
+        Contexto contexto = new Contexto(propriedades, grafo);
+        int grupos = contexto.numeroGrupos();
+
+        PriorityQueue<Sugestao> melhores;
+        if (numeroThreads == 1 || grupos <= LIMIAR_SEQUENCIAL) {
+            melhores = pontuar(contexto, 0, grupos, k);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(numeroThreads);
+            try {
+                melhores = pool.invoke(new TarefaPontuacao(contexto, 0, grupos, k));
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        List<Sugestao> resultado = new ArrayList<>(melhores);
+        resultado.sort(PIOR_PRIMEIRO.reversed());
+        return resultado;
+    }
+
+    /**
+     * Dados partilhados, só de leitura, por todas as tarefas de pontuação.
+     */
+    private static class Contexto {
+        private final GrafoAdjacencia grafo;
+        private final GrafoProprietarios proprietarios;
+        private final UniaoPropriedades exploracoes;
+        private final PropriedadeRustica[] porVertice;
+        private final int[] donos;
+        private final double[] areas;
+        private final double[] areasExploracoes;
+        private final double[] areasProprietarios;
+
+        /** Fronteiras, ordenadas por (aresta entre proprietários, lado, vértice). */
+        private final long[] fronteiras;
+        /** Início de cada grupo (aresta entre proprietários) em {@link #fronteiras}. */
+        private final int[] inicioGrupos;
+
+        Contexto(List<PropriedadeRustica> propriedades, GrafoAdjacencia grafo) {
+            this.grafo = grafo;
+            this.proprietarios = GrafoProprietarios.construir(propriedades, grafo, 1);
+            this.exploracoes = UniaoPropriedades.calcular(propriedades, grafo);
+            this.areasExploracoes = exploracoes.calcularAreas(UniaoPropriedades.ModoArea.SOMA, null, 1);
+
+            int n = grafo.numeroVertices();
+            porVertice = new PropriedadeRustica[n];
+            donos = new int[n];
+            areas = new double[n];
+            areasProprietarios = new double[proprietarios.numeroProprietarios()];
+            Arrays.fill(donos, -1);
+            for (PropriedadeRustica p : propriedades) {
+                int v = grafo.indice(p.getObjectId());
+                if (v < 0 || porVertice[v] != null) continue;
+                porVertice[v] = p;
+                areas[v] = AgregadorAreas.converter(p.getShapeArea());
+                if (p.getOwner() != null) {
+                    donos[v] = proprietarios.indice(p.getOwner());
+                }
+                if (donos[v] >= 0 && !Double.isNaN(areas[v])) {
+                    areasProprietarios[donos[v]] += areas[v];
+                }
+            }
+
+            // cada vértice na fronteira entre dois proprietários, identificada pela aresta entre eles e
+            // pelo lado: 0 se o vértice pertence ao proprietário de menor código, 1 caso contrário
+            long[] entradas = new long[16];
+            int tamanho = 0;
+            for (int v = 0; v < n; v++) {
+                int dono = donos[v];
+                if (dono < 0) continue;
+                for (int w : grafo.vizinhos(v)) {
+                    int outro = donos[w];
+                    if (outro < 0 || outro == dono) continue;
+                    long grupo = 2L * proprietarios.aresta(dono, outro) + (dono < outro ? 0 : 1);
+                    if (tamanho == entradas.length) {
+                        entradas = Arrays.copyOf(entradas, tamanho * 2);
+                    }
+                    entradas[tamanho++] = (grupo << 32) | v;
+                }
+            }
+            Arrays.sort(entradas, 0, tamanho);
+            int unicos = 0;
+            for (int i = 0; i < tamanho; i++) {
+                if (unicos == 0 || entradas[unicos - 1] != entradas[i]) {
+                    entradas[unicos++] = entradas[i];
+                }
+            }
+            fronteiras = Arrays.copyOf(entradas, unicos);
+
+            int grupos = proprietarios.numeroArestas();
+            inicioGrupos = new int[grupos + 1];
+            int posicao = 0;
+            for (int g = 0; g <= grupos; g++) {
+                while (posicao < unicos && (fronteiras[posicao] >>> 32) / 2 < g) {
+                    posicao++;
+                }
+                inicioGrupos[g] = posicao;
+            }
+        }
+
+        int numeroGrupos() {
+            return inicioGrupos.length - 1;
+        }
+
+        /**
+         * Estima o ganho de um proprietário que cede a propriedade {@code cede} e recebe {@code recebe}.
+         */
+        double ganho(int dono, int cede, int recebe) {
+            double a = areas[cede];
+            double b = areas[recebe];
+            int exploracaoCedida = exploracoes.componenteVertice(cede);
+            double areaCedida = areasExploracoes[exploracaoCedida];
+
+            // explorações do dono que tocam na propriedade recebida, sem contar com a que é cedida
+            int[] juntas = new int[4];
+            int numeroJuntas = 0;
+            boolean cedidaJunta = false;
+            for (int w : grafo.vizinhos(recebe)) {
+                if (w == cede || donos[w] != dono) continue;
+                int exploracao = exploracoes.componenteVertice(w);
+                boolean repetida = false;
+                for (int i = 0; i < numeroJuntas; i++) {
+                    if (juntas[i] == exploracao) {
+                        repetida = true;
+                        break;
+                    }
+                }
+                if (repetida) continue;
+                if (numeroJuntas == juntas.length) {
+                    juntas = Arrays.copyOf(juntas, numeroJuntas * 2);
+                }
+                juntas[numeroJuntas++] = exploracao;
+                cedidaJunta |= exploracao == exploracaoCedida;
+            }
+
+            double antes = cedidaJunta ? 0 : areaCedida * areaCedida;
+            double depois = cedidaJunta ? 0 : (areaCedida - a) * (areaCedida - a);
+            double unida = b;
+            for (int i = 0; i < numeroJuntas; i++) {
+                double area = areasExploracoes[juntas[i]];
+                antes += area * area;
+                unida += juntas[i] == exploracaoCedida ? area - a : area;
+            }
+            depois += unida * unida;
+            return (depois - antes) / areasProprietarios[dono];
+        }
+
+        Sugestao avaliar(int pa, int pb) {
+            double a = areas[pa];
+            double b = areas[pb];
+            if (Double.isNaN(a) || Double.isNaN(b) || a <= 0 || b <= 0) return null;
+            int donoA = donos[pa];
+            int donoB = donos[pb];
+            double ganhoA = ganho(donoA, pa, pb);
+            double ganhoB = ganho(donoB, pb, pa);
+            if (!(ganhoA > 0) || !(ganhoB > 0)) return null;
+            return new Sugestao(proprietarios.proprietario(donoA), porVertice[pa].getObjectId(),
+                    proprietarios.proprietario(donoB), porVertice[pb].getObjectId(),
+                    ganhoA, ganhoB, Math.min(a, b) / Math.max(a, b));
+        }
+    }
+
+    /**
+     * Pontua as trocas dos grupos {@code [inicio, fim)}, guardando as {@code k} melhores.
+     */
+    private static PriorityQueue<Sugestao> pontuar(Contexto contexto, int inicio, int fim, int k) {
+        PriorityQueue<Sugestao> melhores = new PriorityQueue<>(k + 1, PIOR_PRIMEIRO);
+        long[] fronteiras = contexto.fronteiras;
+        for (int g = inicio; g < fim; g++) {
+            int inicioGrupo = contexto.inicioGrupos[g];
+            int fimGrupo = contexto.inicioGrupos[g + 1];
+
+            // o grupo tem primeiro os vértices do lado 0 (proprietário A) e depois os do lado 1 (B)
+            int meio = inicioGrupo;
+            while (meio < fimGrupo && (fronteiras[meio] >>> 32) % 2 == 0) {
+                meio++;
+            }
+            for (int i = inicioGrupo; i < meio; i++) {
+                int pa = (int) fronteiras[i];
+                for (int j = meio; j < fimGrupo; j++) {
+                    Sugestao sugestao = contexto.avaliar(pa, (int) fronteiras[j]);
+                    if (sugestao != null) {
+                        guardar(melhores, sugestao, k);
+                    }
+                }
+            }
+        }
+        return melhores;
+    }
+
+    private static void guardar(PriorityQueue<Sugestao> melhores, Sugestao sugestao, int k) {
+        if (melhores.size() < k) {
+            melhores.add(sugestao);
+        } else if (PIOR_PRIMEIRO.compare(sugestao, melhores.peek()) > 0) {
+            melhores.poll();
+            melhores.add(sugestao);
+        }
+    }
+
+    /**
+     * Tarefa fork-join que divide o intervalo de grupos ao meio até atingir o limiar sequencial.
+     */
+    private static class TarefaPontuacao extends RecursiveTask<PriorityQueue<Sugestao>> {
+        private final Contexto contexto;
+        private final int inicio;
+        private final int fim;
+        private final int k;
+
+        TarefaPontuacao(Contexto contexto, int inicio, int fim, int k) {
+            this.contexto = contexto;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.k = k;
+        }
+
+        @Override
+        protected PriorityQueue<Sugestao> compute() {
+            if (fim - inicio <= LIMIAR_SEQUENCIAL) {
+                return pontuar(contexto, inicio, fim, k);
+            }
+            int meio = (inicio + fim) >>> 1;
+            TarefaPontuacao esquerda = new TarefaPontuacao(contexto, inicio, meio, k);
+            TarefaPontuacao direita = new TarefaPontuacao(contexto, meio, fim, k);
+            esquerda.fork();
+            PriorityQueue<Sugestao> melhores = direita.compute();
+            for (Sugestao sugestao : esquerda.join()) {
+                guardar(melhores, sugestao, k);
+            }
+            return melhores;
+        }
+    }
+}
@@ -0,0 +1,447 @@
+package com.gestaodeterritorio;
+
+import java.math.BigDecimal;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Cadastro guardado em memória por colunas, alternativo a uma lista de {@link PropriedadeRustica}.
+ *
+ * Cada propriedade ocupa uma posição em arrays paralelos: {@code Shape_Area} e {@code Shape_Length} são
+ * convertidos uma única vez para {@code double}, e o proprietário, a freguesia, o município e a ilha são
+ * guardados como códigos inteiros de um {@link Dicionario}, pelo que cada valor repetido existe uma só
+ * vez em memória. As geometrias WKT ficam numa coluna à parte, que pode ser omitida no carregamento
+ * quando só são precisos os atributos.
+ *
+ * Para os métodos que recebem propriedades, {@link #linhas()} devolve uma vista em lista em que cada
+ * elemento é uma {@link Linha} que lê os valores das colunas, sem copiar dados.
+ *
+ * A tabela é imutável depois de construída e pode ser lida por várias threads em simultâneo.
+ */
+public class TabelaCadastro {
+
+    /**
+     * Dicionário de valores de uma coluna categórica, com códigos densos pela ordem em que aparecem.
+     */
+    public static class Dicionario {
+        private final Map<String, Integer> codigos = new HashMap<>();
+        private final List<String> valores = new ArrayList<>();
+
+        /**
+         * Devolve o código do valor, acrescentando-o ao dicionário se ainda não existir.
+         *
+         * @return o código, ou {@code -1} para {@code null}
+         */
+        private int codificar(String valor) {
+            if (valor == null) return -1;
+            Integer codigo = codigos.get(valor);
+            if (codigo == null) {
+                codigo = valores.size();
+                codigos.put(valor, codigo);
+                valores.add(valor);
+            }
+            return codigo;
+        }
+
+        /**
+         * @param valor o valor a procurar
+         * @return o código do valor, ou {@code -1} se não existir na coluna
+         */
+        public int codigo(String valor) {
+            Integer codigo = codigos.get(valor);
+            return codigo == null ? -1 : codigo;
+        }
+
+        /**
+         * @param codigo o código do valor
+         * @return o valor, ou {@code null} se o código for {@code -1}
+         */
+        public String valor(int codigo) {
+            return codigo < 0 ? null : valores.get(codigo);
+        }
+
+        /**
+         * @return o número de valores distintos
+         */
+        public int tamanho() {
+            return valores.size();
+        }
+    }
+
+    private final int tamanho;
+    private final String[] objectIds;
+    private final String[] parIds;
+    private final String[] parNums;
+    private final double[] areas;
+    private final double[] comprimentos;
+    private final String[] geometrias;
+    private final int[] proprietarios;
+    private final int[] freguesias;
+    private final int[] municipios;
+    private final int[] ilhas;
+    private final Dicionario dicionarioProprietarios;
+    private final Dicionario dicionarioFreguesias;
+    private final Dicionario dicionarioMunicipios;
+    private final Dicionario dicionarioIlhas;
+
+    private TabelaCadastro(Construtor c) {
+        this.tamanho = c.tamanho;
+        this.objectIds = Arrays.copyOf(c.objectIds, c.tamanho);
+        this.parIds = Arrays.copyOf(c.parIds, c.tamanho);
+        this.parNums = Arrays.copyOf(c.parNums, c.tamanho);
+        this.areas = Arrays.copyOf(c.areas, c.tamanho);
+        this.comprimentos = Arrays.copyOf(c.comprimentos, c.tamanho);
+        this.geometrias = c.geometrias == null ? null : Arrays.copyOf(c.geometrias, c.tamanho);
+        this.proprietarios = Arrays.copyOf(c.proprietarios, c.tamanho);
+        this.freguesias = Arrays.copyOf(c.freguesias, c.tamanho);
+        this.municipios = Arrays.copyOf(c.municipios, c.tamanho);
+        this.ilhas = Arrays.copyOf(c.ilhas, c.tamanho);
+        this.dicionarioProprietarios = c.dicionarioProprietarios;
+        this.dicionarioFreguesias = c.dicionarioFreguesias;
+        this.dicionarioMunicipios = c.dicionarioMunicipios;
+        this.dicionarioIlhas = c.dicionarioIlhas;
+    }
+
+    /**
+     * Constrói uma tabela a partir de uma lista de propriedades, guardando as geometrias.
+     *
+     * @param propriedades as propriedades a copiar
+     * @return a tabela construída
+     */
+    public static TabelaCadastro de(List<PropriedadeRustica> propriedades) {
+        Construtor construtor = new Construtor(true);
+        for (PropriedadeRustica p : propriedades) {
+            construtor.adicionar(p);
+        }
+        return construtor.construir();
+    }
+
+    /**
+     * @return o número de propriedades
+     */
+    public int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * @param linha a posição da propriedade
+     * @return o identificador único da propriedade
+     */
+    public String objectId(int linha) {
+        return objectIds[linha];
+    }
+
+    /**
+     * @param linha a posição da propriedade
+     * @return a área da propriedade, ou {@code NaN} se estiver vazia ou for inválida
+     */
+    public double area(int linha) {
+        return areas[linha];
+    }
+
+    /**
+     * @param linha a posição da propriedade
+     * @return o perímetro da propriedade, ou {@code NaN} se estiver vazio ou for inválido
+     */
+    public double comprimento(int linha) {
+        return comprimentos[linha];
+    }
+
+    /**
+     * @param linha a posição da propriedade
+     * @return a geometria em WKT, ou {@code null} se as geometrias não tiverem sido guardadas
+     */
+    public String geometria(int linha) {
+        return geometrias == null ? null : geometrias[linha];
+    }
+
+    /**
+     * @return {@code true} se a tabela guarda a coluna das geometrias
+     */
+    public boolean temGeometrias() {
+        return geometrias != null;
+    }
+
+    /**
+     * @param linha a posição da propriedade
+     * @return o código do proprietário em {@link #proprietarios()}, ou {@code -1} se não tiver
+     */
+    public int codigoProprietario(int linha) {
+        return proprietarios[linha];
+    }
+
+    /**
+     * @param linha a posição da propriedade
+     * @return o código da freguesia em {@link #freguesias()}, ou {@code -1} se não tiver
+     */
+    public int codigoFreguesia(int linha) {
+        return freguesias[linha];
+    }
+
+    /**
+     * @param linha a posição da propriedade
+     * @return o código do município em {@link #municipios()}, ou {@code -1} se não tiver
+     */
+    public int codigoMunicipio(int linha) {
+        return municipios[linha];
+    }
+
+    /**
+     * @param linha a posição da propriedade
+     * @return o código da ilha em {@link #ilhas()}, ou {@code -1} se não tiver
+     */
+    public int codigoIlha(int linha) {
+        return ilhas[linha];
+    }
+
+    /**
+     * @return o dicionário dos proprietários
+     */
+    public Dicionario proprietarios() {
+        return dicionarioProprietarios;
+    }
+
+    /**
+     * @return o dicionário das freguesias
+     */
+    public Dicionario freguesias() {
+        return dicionarioFreguesias;
+    }
+
+    /**
+     * @return o dicionário dos municípios
+     */
+    public Dicionario municipios() {
+        return dicionarioMunicipios;
+    }
+
+    /**
+     * @return o dicionário das ilhas
+     */
+    public Dicionario ilhas() {
+        return dicionarioIlhas;
+    }
+
+    /**
+     * @return uma cópia das áreas, indexadas pela posição da propriedade
+     */
+    public double[] areas() {
+        return Arrays.copyOf(areas, tamanho);
+    }
+
+    /**
+     * @return uma cópia dos perímetros, indexados pela posição da propriedade
+     */
+    public double[] comprimentos() {
+        return Arrays.copyOf(comprimentos, tamanho);
+    }
+
+    /**
+     * @param linha a posição da propriedade
+     * @return uma vista da propriedade sobre as colunas da tabela
+     */
+    public Linha linha(int linha) {
+        if (linha < 0 || linha >= tamanho) {
+            throw new IndexOutOfBoundsException("Linha inválida: " + linha);
+        }
+        return new Linha(this, linha);
+    }
+
+    /**
+     * Devolve as propriedades como uma lista só de leitura, para os métodos que recebem
+     * {@code List<PropriedadeRustica>}. Cada acesso cria uma {@link Linha} sem copiar os dados.
+     *
+     * @return a vista em lista da tabela
+     */
+    public List<PropriedadeRustica> linhas() {
+        return new Vista();
+    }
+
+    private class Vista extends AbstractList<PropriedadeRustica> implements RandomAccess {
+        @Override
+        public PropriedadeRustica get(int indice) {
+            return linha(indice);
+        }
+
+        @Override
+        public int size() {
+            return tamanho;
+        }
+    }
+
+    /**
+     * Vista de uma propriedade da tabela com a interface de {@link PropriedadeRustica}.
+     *
+     * Os campos numéricos são devolvidos como texto a partir do valor convertido, pelo que a
+     * formatação original do CSV (por exemplo, vírgula decimal) não é preservada e valores inválidos
+     * são devolvidos como {@code null}.
+     */
+    public static class Linha extends PropriedadeRustica {
+        private final TabelaCadastro tabela;
+        private final int linha;
+
+        private Linha(TabelaCadastro tabela, int linha) {
+            this.tabela = tabela;
+            this.linha = linha;
+        }
+
+        /**
+         * @return a posição da propriedade na tabela
+         */
+        public int getLinha() {
+            return linha;
+        }
+
+        @Override
+        public String getObjectId() {
+            return tabela.objectIds[linha];
+        }
+
+        @Override
+        public String getParId() {
+            return tabela.parIds[linha];
+        }
+
+        @Override
+        public String getParNum() {
+            return tabela.parNums[linha];
+        }
+
+        @Override
+        public String getShapeLength() {
+            return formatar(tabela.comprimentos[linha]);
+        }
+
+        @Override
+        public String getShapeArea() {
+            return formatar(tabela.areas[linha]);
+        }
+
+        @Override
+        public String getGeometry() {
+            return tabela.geometria(linha);
+        }
+
+        @Override
+        public String getOwner() {
+            return tabela.dicionarioProprietarios.valor(tabela.proprietarios[linha]);
+        }
+
+        @Override
+        public String getFreguesia() {
+            return tabela.dicionarioFreguesias.valor(tabela.freguesias[linha]);
+        }
+
+        @Override
+        public String getMunicipio() {
+            return tabela.dicionarioMunicipios.valor(tabela.municipios[linha]);
+        }
+
+        @Override
+        public String getIlha() {
+            return tabela.dicionarioIlhas.valor(tabela.ilhas[linha]);
+        }
+
+        private static String formatar(double valor) {
+            if (Double.isNaN(valor)) return null;
+            return BigDecimal.valueOf(valor).toPlainString();
+        }
+    }
+
+    /**
+     * Acumula as propriedades, uma de cada vez, diretamente nas colunas, para que a leitura de um CSV
+     * não precise de manter a lista de objetos em memória.
+     */
+    public static class Construtor {
+        private int tamanho;
+        private String[] objectIds = new String[1024];
+        private String[] parIds = new String[1024];
+        private String[] parNums = new String[1024];
+        private double[] areas = new double[1024];
+        private double[] comprimentos = new double[1024];
+        private String[] geometrias;
+        private int[] proprietarios = new int[1024];
+        private int[] freguesias = new int[1024];
+        private int[] municipios = new int[1024];
+        private int[] ilhas = new int[1024];
+        private final Dicionario dicionarioProprietarios = new Dicionario();
+        private final Dicionario dicionarioFreguesias = new Dicionario();
+        private final Dicionario dicionarioMunicipios = new Dicionario();
+        private final Dicionario dicionarioIlhas = new Dicionario();
+        private boolean construido;
+
+        /**
+         * @param comGeometrias {@code true} para guardar a coluna das geometrias WKT
+         */
+        public Construtor(boolean comGeometrias) {
+            this.geometrias = comGeometrias ? new String[1024] : null;
+        }
+
+        /**
+         * Acrescenta uma propriedade ao fim da tabela.
+         *
+         * @param p a propriedade a copiar
+         * @return este construtor
+         * @throws IllegalStateException se a tabela já tiver sido construída
+         */
+        public Construtor adicionar(PropriedadeRustica p) {
+            if (construido) {
+                throw new IllegalStateException("A tabela já foi construída");
+            }
+            if (tamanho == objectIds.length) {
+                crescer(tamanho * 2);
+            }
+            objectIds[tamanho] = p.getObjectId();
+            parIds[tamanho] = p.getParId();
+            parNums[tamanho] = p.getParNum();
+            areas[tamanho] = AgregadorAreas.converter(p.getShapeArea());
+            comprimentos[tamanho] = AgregadorAreas.converter(p.getShapeLength());
+            if (geometrias != null) {
+                geometrias[tamanho] = p.getGeometry();
+            }
+            proprietarios[tamanho] = dicionarioProprietarios.codificar(p.getOwner());
+            freguesias[tamanho] = dicionarioFreguesias.codificar(p.getFreguesia());
+            municipios[tamanho] = dicionarioMunicipios.codificar(p.getMunicipio());
+            ilhas[tamanho] = dicionarioIlhas.codificar(p.getIlha());
+            tamanho++;
+            return this;
+        }
+
+        /**
+         * @return o número de propriedades acrescentadas
+         */
+        public int tamanho() {
+            return tamanho;
+        }
+
+        /**
+         * Termina a construção. Os arrays são ajustados ao número de propriedades.
+         *
+         * @return a tabela construída
+         */
+        public TabelaCadastro construir() {
+            construido = true;
+            return new TabelaCadastro(this);
+        }
+
+        private void crescer(int capacidade) {
+            objectIds = Arrays.copyOf(objectIds, capacidade);
+            parIds = Arrays.copyOf(parIds, capacidade);
+            parNums = Arrays.copyOf(parNums, capacidade);
+            areas = Arrays.copyOf(areas, capacidade);
+            comprimentos = Arrays.copyOf(comprimentos, capacidade);
+            if (geometrias != null) {
+                geometrias = Arrays.copyOf(geometrias, capacidade);
+            }
+            proprietarios = Arrays.copyOf(proprietarios, capacidade);
+            freguesias = Arrays.copyOf(freguesias, capacidade);
+            municipios = Arrays.copyOf(municipios, capacidade);
+            ilhas = Arrays.copyOf(ilhas, capacidade);
+        }
+    }
+}
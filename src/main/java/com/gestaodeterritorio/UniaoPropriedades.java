@@ -0,0 +1,340 @@
+package com.gestaodeterritorio;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.operation.union.CascadedPolygonUnion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Agrupa em explorações as propriedades adjacentes do mesmo proprietário.
+ *
+ * Cada exploração é uma componente ligada do grafo de adjacência restrito às arestas entre propriedades
+ * com o mesmo dono, calculada com union-find (união por tamanho e compressão de caminhos), em tempo
+ * praticamente linear no número de arestas. Propriedades sem proprietário formam explorações isoladas.
+ *
+ * A área de cada exploração pode ser a soma dos {@code Shape_Area}, suficiente quando as parcelas
+ * apenas se tocam, ou a área da união das geometrias, que não conta duas vezes as sobreposições. A união
+ * usa {@link CascadedPolygonUnion} e é calculada em paralelo, por grupos de explorações, apenas para as
+ * explorações com mais de uma propriedade.
+ */
+public class UniaoPropriedades {
+
+    /** Número de explorações abaixo do qual uma tarefa de união não é dividida. */
+    static final int LIMIAR_SEQUENCIAL = 64;
+
+    /**
+     * Forma de calcular a área de uma exploração.
+     */
+    public enum ModoArea {
+        /** Soma dos {@code Shape_Area} das propriedades, sem tocar nas geometrias. */
+        SOMA,
+        /** Área da união das geometrias das propriedades. */
+        UNIAO
+    }
+
+    private final PropriedadeRustica[] propriedades;
+    private final GrafoAdjacencia grafo;
+    private final int[] componentes;
+    private final int[] inicios;
+    private final int[] membros;
+
+    private UniaoPropriedades(PropriedadeRustica[] propriedades, GrafoAdjacencia grafo, int[] componentes,
+                              int[] inicios, int[] membros) {
+        this.propriedades = propriedades;
+        this.grafo = grafo;
+        this.componentes = componentes;
+        this.inicios = inicios;
+        this.membros = membros;
+    }
+
+    /**
+     * Calcula as explorações a partir do grafo de adjacência entre as propriedades.
+     *
+     * @param propriedades as propriedades, com o respetivo proprietário
+     * @param grafo o grafo de adjacência, construído com {@link GrafoAdjacencia#construir(List, List)};
+     *              vértices sem propriedade correspondente são ignorados
+     * @return as explorações encontradas
+     */
+    public static UniaoPropriedades calcular(List<PropriedadeRustica> propriedades, GrafoAdjacencia grafo) {
+        int n = grafo.numeroVertices();
+        PropriedadeRustica[] porVertice = new PropriedadeRustica[n];
+        for (PropriedadeRustica p : propriedades) {
+            int v = grafo.indice(p.getObjectId());
+            if (v >= 0 && porVertice[v] == null) {
+                porVertice[v] = p;
+            }
+        }
+
+        // union-find sobre as arestas entre propriedades do mesmo proprietário
+        int[] pai = new int[n];
+        int[] tamanho = new int[n];
+        for (int v = 0; v < n; v++) {
+            pai[v] = v;
+            tamanho[v] = 1;
+        }
+        for (int v = 0; v < n; v++) {
+            String dono = dono(porVertice[v]);
+            if (dono == null) continue;
+            int origem = v;
+            grafo.paraCadaVizinho(v, w -> {
+                if (w > origem && dono.equals(dono(porVertice[w]))) {
+                    unir(pai, tamanho, origem, w);
+                }
+            });
+        }
+
+        // numeração densa das componentes, pela ordem do primeiro vértice
+        int[] componentes = new int[n];
+        int[] numeroRaiz = new int[n];
+        Arrays.fill(numeroRaiz, -1);
+        int numeroComponentes = 0;
+        for (int v = 0; v < n; v++) {
+            if (porVertice[v] == null) {
+                componentes[v] = -1;
+                continue;
+            }
+            int raiz = raiz(pai, v);
+            if (numeroRaiz[raiz] < 0) {
+                numeroRaiz[raiz] = numeroComponentes++;
+            }
+            componentes[v] = numeroRaiz[raiz];
+        }
+
+        // membros de cada componente, contíguos e por ordem de vértice
+        int[] inicios = new int[numeroComponentes + 1];
+        for (int v = 0; v < n; v++) {
+            if (componentes[v] >= 0) inicios[componentes[v] + 1]++;
+        }
+        for (int c = 0; c < numeroComponentes; c++) {
+            inicios[c + 1] += inicios[c];
+        }
+        int[] membros = new int[inicios[numeroComponentes]];
+        int[] cursor = Arrays.copyOf(inicios, numeroComponentes);
+        for (int v = 0; v < n; v++) {
+            if (componentes[v] >= 0) membros[cursor[componentes[v]]++] = v;
+        }
+        return new UniaoPropriedades(porVertice, grafo, componentes, inicios, membros);
+    }
+
+    private static String dono(PropriedadeRustica p) {
+        if (p == null || p.getOwner() == null || p.getOwner().trim().isEmpty()) return null;
+        return p.getOwner();
+    }
+
+    private static int raiz(int[] pai, int v) {
+        while (pai[v] != v) {
+            pai[v] = pai[pai[v]];
+            v = pai[v];
+        }
+        return v;
+    }
+
+    private static void unir(int[] pai, int[] tamanho, int a, int b) {
+        int ra = raiz(pai, a);
+        int rb = raiz(pai, b);
+        if (ra == rb) return;
+        if (tamanho[ra] < tamanho[rb]) {
+            int t = ra;
+            ra = rb;
+            rb = t;
+        }
+        pai[rb] = ra;
+        tamanho[ra] += tamanho[rb];
+    }
+
+    /**
+     * @return o número de explorações
+     */
+    public int numeroComponentes() {
+        return inicios.length - 1;
+    }
+
+    /**
+     * @param objectId o identificador da propriedade
+     * @return a exploração a que a propriedade pertence, ou {@code -1} se não existir
+     */
+    public int componente(String objectId) {
+        int v = grafo.indice(objectId);
+        return v < 0 ? -1 : componentes[v];
+    }
+
+    /**
+     * @param vertice o índice do vértice no grafo de adjacência
+     * @return a exploração a que o vértice pertence, ou {@code -1} se não tiver propriedade
+     */
+    int componenteVertice(int vertice) {
+        return componentes[vertice];
+    }
+
+    /**
+     * @param componente a exploração
+     * @return o número de propriedades da exploração
+     */
+    public int tamanho(int componente) {
+        return inicios[componente + 1] - inicios[componente];
+    }
+
+    /**
+     * @param componente a exploração
+     * @return os objectIds das propriedades da exploração
+     */
+    public List<String> membros(int componente) {
+        List<String> ids = new ArrayList<>(tamanho(componente));
+        for (int i = inicios[componente]; i < inicios[componente + 1]; i++) {
+            ids.add(propriedades[membros[i]].getObjectId());
+        }
+        return ids;
+    }
+
+    /**
+     * @param componente a exploração
+     * @return o proprietário da exploração, ou {@code null} se for uma propriedade sem proprietário
+     */
+    public String proprietario(int componente) {
+        return dono(propriedades[membros[inicios[componente]]]);
+    }
+
+    /**
+     * @param componente a exploração
+     * @return a soma dos {@code Shape_Area} válidos das propriedades da exploração, ou {@code NaN} se
+     *         nenhuma tiver área válida
+     */
+    public double areaSomada(int componente) {
+        double soma = 0;
+        boolean valida = false;
+        for (int i = inicios[componente]; i < inicios[componente + 1]; i++) {
+            double area = AgregadorAreas.converter(propriedades[membros[i]].getShapeArea());
+            if (!Double.isNaN(area)) {
+                soma += area;
+                valida = true;
+            }
+        }
+        return valida ? soma : Double.NaN;
+    }
+
+    /**
+     * Calcula a área de todas as explorações.
+     *
+     * No modo {@link ModoArea#UNIAO}, uma exploração com uma só propriedade usa a área da sua geometria e
+     * as restantes a área da união das geometrias. Se alguma geometria faltar ou a união falhar, é usada
+     * a soma dos {@code Shape_Area}.
+     *
+     * @param modo a forma de calcular a área
+     * @param geometrias as geometrias convertidas das propriedades; ignorado no modo {@link ModoArea#SOMA}
+     * @param numeroThreads número de threads usado nas uniões
+     * @return a área de cada exploração, indexada pelo número da exploração
+     * @throws IllegalArgumentException se o número de threads for inferior a 1
+     */
+    public double[] calcularAreas(ModoArea modo, GeometriaStore geometrias, int numeroThreads) {
+        if (numeroThreads < 1) {
+            throw new IllegalArgumentException("Número de threads inválido: " + numeroThreads);
+        }
+        int k = numeroComponentes();
+        double[] areas = new double[k];
+        if (modo == ModoArea.SOMA) {
+            for (int c = 0; c < k; c++) {
+                areas[c] = areaSomada(c);
+            }
+            return areas;
+        }
+
+        if (numeroThreads == 1 || k <= LIMIAR_SEQUENCIAL) {
+            unirIntervalo(geometrias, areas, 0, k);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(numeroThreads);
+            try {
+                pool.invoke(new TarefaUniao(geometrias, areas, 0, k));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return areas;
+    }
+
+    /**
+     * Agrega as áreas das explorações por freguesia, município e ilha. Cada exploração conta uma vez,
+     * na região da sua maior propriedade.
+     *
+     * @param areas a área de cada exploração, por exemplo a devolvida por {@link #calcularAreas}
+     * @return as estatísticas de área por região
+     */
+    public AgregadorAreas estatisticas(double[] areas) {
+        int k = numeroComponentes();
+        List<PropriedadeRustica> regioes = new ArrayList<>(k);
+        for (int c = 0; c < k; c++) {
+            PropriedadeRustica maior = null;
+            double areaMaior = Double.NEGATIVE_INFINITY;
+            for (int i = inicios[c]; i < inicios[c + 1]; i++) {
+                PropriedadeRustica p = propriedades[membros[i]];
+                double area = AgregadorAreas.converter(p.getShapeArea());
+                if (maior == null || area > areaMaior) {
+                    maior = p;
+                    areaMaior = area;
+                }
+            }
+            regioes.add(maior);
+        }
+        double[] perimetros = new double[k];
+        Arrays.fill(perimetros, Double.NaN);
+        return AgregadorAreas.agregar(regioes, areas, perimetros);
+    }
+
+    /**
+     * Calcula a área por união das geometrias das explorações {@code [inicio, fim)}.
+     */
+    private void unirIntervalo(GeometriaStore geometrias, double[] areas, int inicio, int fim) {
+        for (int c = inicio; c < fim; c++) {
+            areas[c] = areaUniao(c, geometrias);
+        }
+    }
+
+    private double areaUniao(int componente, GeometriaStore geometrias) {
+        List<Geometry> partes = new ArrayList<>(tamanho(componente));
+        for (int i = inicios[componente]; i < inicios[componente + 1]; i++) {
+            Geometry g = geometrias.obter(propriedades[membros[i]]);
+            if (g == null) return areaSomada(componente);
+            partes.add(g);
+        }
+        if (partes.size() == 1) {
+            return partes.get(0).getArea();
+        }
+        try {
+            return CascadedPolygonUnion.union(partes).getArea();
+        } catch (RuntimeException e) {
+            System.err.println("Erro ao unir as geometrias da exploração " + componente + ": " + e.getMessage());
+            return areaSomada(componente);
+        }
+    }
+
+    /**
+     * Tarefa fork-join que divide o intervalo de explorações ao meio até atingir o limiar sequencial.
+     */
+    private class TarefaUniao extends RecursiveAction {
+        private final GeometriaStore geometrias;
+        private final double[] areas;
+        private final int inicio;
+        private final int fim;
+
+        TarefaUniao(GeometriaStore geometrias, double[] areas, int inicio, int fim) {
+            this.geometrias = geometrias;
+            this.areas = areas;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected void compute() {
+            if (fim - inicio <= LIMIAR_SEQUENCIAL) {
+                unirIntervalo(geometrias, areas, inicio, fim);
+                return;
+            }
+            int meio = (inicio + fim) >>> 1;
+            invokeAll(new TarefaUniao(geometrias, areas, inicio, meio),
+                    new TarefaUniao(geometrias, areas, meio, fim));
+        }
+    }
+}
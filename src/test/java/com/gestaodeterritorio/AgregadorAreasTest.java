@@ -0,0 +1,144 @@
+package com.gestaodeterritorio;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class AgregadorAreasTest {
+
+    // Helper method to build a PropriedadeRustica with the attributes used by the aggregation.
+    private PropriedadeRustica createPropriedade(String area, String perimetro, String freguesia, String municipio, String ilha) {
+        return new PropriedadeRustica("1", null, null, perimetro, area, null, null, freguesia, municipio, ilha);
+    }
+
+    // ------------------ calcular Tests (CC = 4) ------------------
+
+    // Test 1: All three levels are answered from one pass.
+    @Test
+    public void calcular1() {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(createPropriedade("100", "40", "Se", "Funchal", "Madeira"));
+        props.add(createPropriedade("300", "80", "Se", "Funchal", "Madeira"));
+        props.add(createPropriedade("50", "30", "Monte", "Funchal", "Madeira"));
+        props.add(createPropriedade("10", "12", "Camacha", "Porto Santo", "Porto Santo"));
+        AgregadorAreas agregador = AgregadorAreas.calcular(props);
+
+        AgregadorAreas.Estatisticas se = agregador.obter(AgregadorAreas.Nivel.FREGUESIA, AgregadorAreas.chave("Madeira", "Funchal", "Se"));
+        assertEquals(2, se.getNumeroPropriedades(), "Error: Expected two parcels in Se"); // Error if count differs.
+        assertEquals(200.0, se.getAreaMedia(), 1e-9, "Error: Unexpected mean area in Se"); // Error if mean differs.
+        assertEquals(60.0, se.getPerimetroMedio(), 1e-9, "Error: Unexpected mean perimeter in Se"); // Error if mean differs.
+
+        AgregadorAreas.Estatisticas funchal = agregador.obter(AgregadorAreas.Nivel.MUNICIPIO, AgregadorAreas.chave("Madeira", "Funchal"));
+        assertEquals(450.0, funchal.getAreaTotal(), 1e-9, "Error: Unexpected total area in Funchal"); // Error if sum differs.
+        assertEquals(50.0, funchal.getAreaMinima(), 1e-9, "Error: Unexpected minimum area in Funchal"); // Error if min differs.
+        assertEquals(300.0, funchal.getAreaMaxima(), 1e-9, "Error: Unexpected maximum area in Funchal"); // Error if max differs.
+
+        Map<String, AgregadorAreas.Estatisticas> ilhas = agregador.obter(AgregadorAreas.Nivel.ILHA);
+        assertEquals(Arrays.asList("Madeira", "Porto Santo"), new ArrayList<>(ilhas.keySet()),
+                "Error: Regions should be sorted by name"); // Error if keys differ.
+        assertNull(agregador.obter(AgregadorAreas.Nivel.ILHA, "Desertas"), "Error: Unknown region should return null"); // Error if not null.
+    }
+
+    // Test 2: Invalid areas are skipped, comma decimals are accepted and missing regions are ignored per level.
+    @Test
+    public void calcular2() {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(createPropriedade("12,5", "1", "Se", "Funchal", "Madeira"));
+        props.add(createPropriedade("abc", "1", "Se", "Funchal", "Madeira"));
+        props.add(createPropriedade("", "1", "Se", "Funchal", "Madeira"));
+        props.add(createPropriedade("7.5", "1", null, "Funchal", "Madeira"));
+        AgregadorAreas agregador = AgregadorAreas.calcular(props);
+        assertEquals(1, agregador.obter(AgregadorAreas.Nivel.FREGUESIA, AgregadorAreas.chave("Madeira", "Funchal", "Se")).getNumeroPropriedades(),
+                "Error: Only the valid area should count in Se"); // Error if count differs.
+        assertEquals(12.5, agregador.obter(AgregadorAreas.Nivel.FREGUESIA, AgregadorAreas.chave("Madeira", "Funchal", "Se")).getAreaTotal(), 1e-9,
+                "Error: Comma decimal separator should be accepted"); // Error if sum differs.
+        assertEquals(2, agregador.obter(AgregadorAreas.Nivel.MUNICIPIO, AgregadorAreas.chave("Madeira", "Funchal")).getNumeroPropriedades(),
+                "Error: Parcel without freguesia should still count in its municipio"); // Error if count differs.
+        assertEquals(1, agregador.obter(AgregadorAreas.Nivel.FREGUESIA).size(),
+                "Error: Missing freguesia should not create a region"); // Error if size differs.
+    }
+
+    // Test 3: A large input split across threads gives exact counts and extremes.
+    @Test
+    public void calcular3() {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        for (int i = 1; i <= 100000; i++) {
+            props.add(createPropriedade(Integer.toString(i), "4", "F" + (i % 10), "M" + (i % 3), "Madeira"));
+        }
+        AgregadorAreas.Estatisticas ilha = AgregadorAreas.calcular(props).obter(AgregadorAreas.Nivel.ILHA, "Madeira");
+        assertEquals(100000, ilha.getNumeroPropriedades(), "Error: Every parcel should be counted once"); // Error if count differs.
+        assertEquals(50000.5, ilha.getAreaMedia(), 1e-6, "Error: Unexpected mean area"); // Error if mean differs.
+        assertEquals(1.0, ilha.getAreaMinima(), 0.0, "Error: Unexpected minimum area"); // Error if min differs.
+        assertEquals(100000.0, ilha.getAreaMaxima(), 0.0, "Error: Unexpected maximum area"); // Error if max differs.
+    }
+
+    // Test 4: An empty list yields no regions.
+    @Test
+    public void calcular4() {
+        assertTrue(AgregadorAreas.calcular(new ArrayList<>()).obter(AgregadorAreas.Nivel.MUNICIPIO).isEmpty(),
+                "Error: Expected no regions for an empty list"); // Error if not empty.
+    }
+
+    // Test 5: The mean perimeter ignores parcels with an invalid perimeter but a valid area.
+    @Test
+    public void calcular5() {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(createPropriedade("100", "40", "Se", "Funchal", "Madeira"));
+        props.add(createPropriedade("100", "abc", "Se", "Funchal", "Madeira"));
+        AgregadorAreas.Estatisticas se = AgregadorAreas.calcular(props).obter(AgregadorAreas.Nivel.FREGUESIA, AgregadorAreas.chave("Madeira", "Funchal", "Se"));
+        assertEquals(2, se.getNumeroPropriedades(), "Error: Both parcels have a valid area"); // Error if count differs.
+        assertEquals(40.0, se.getPerimetroMedio(), 1e-9, "Error: Invalid perimeters should not lower the mean"); // Error if mean differs.
+    }
+
+    // Test 6: A columnar table gives the same statistics as the list of properties.
+    @Test
+    public void calcular6() {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(new PropriedadeRustica("1", null, null, "4", "10", null, "a", "F1", "M1", "Madeira"));
+        props.add(new PropriedadeRustica("2", null, null, "8", "30", null, "b", "F1", "M1", "Madeira"));
+        props.add(new PropriedadeRustica("3", null, null, null, "x", null, "b", "F2", "M1", "Madeira"));
+        AgregadorAreas.Estatisticas lista = AgregadorAreas.calcular(props).obter(AgregadorAreas.Nivel.FREGUESIA, AgregadorAreas.chave("Madeira", "M1", "F1"));
+        AgregadorAreas.Estatisticas tabela = AgregadorAreas.calcular(TabelaCadastro.de(props)).obter(AgregadorAreas.Nivel.FREGUESIA, AgregadorAreas.chave("Madeira", "M1", "F1"));
+        assertEquals(lista.getNumeroPropriedades(), tabela.getNumeroPropriedades(), "Error: Counts should match"); // Error if counts differ.
+        assertEquals(lista.getAreaMedia(), tabela.getAreaMedia(), 1e-9, "Error: Mean areas should match"); // Error if means differ.
+        assertEquals(lista.getPerimetroMedio(), tabela.getPerimetroMedio(), 1e-9, "Error: Mean perimeters should match"); // Error if means differ.
+        assertNull(AgregadorAreas.calcular(TabelaCadastro.de(props)).obter(AgregadorAreas.Nivel.FREGUESIA, AgregadorAreas.chave("Madeira", "M1", "F2")),
+                "Error: Invalid areas should still be skipped"); // Error if F2 is present.
+    }
+
+    // Test 7: Freguesias and municipios with the same name in different municipios or islands stay apart.
+    @Test
+    public void calcular7() {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(createPropriedade("100", "40", "Santa Cruz", "Santa Cruz", "Madeira"));
+        props.add(createPropriedade("300", "80", "Santa Cruz", "Vila do Porto", "Santa Maria"));
+        props.add(createPropriedade("50", "30", "Se", "Funchal", "Madeira"));
+        props.add(createPropriedade("70", "30", "Se", "Angra do Heroismo", "Terceira"));
+        AgregadorAreas agregador = AgregadorAreas.calcular(props);
+        assertEquals(4, agregador.obter(AgregadorAreas.Nivel.FREGUESIA).size(),
+                "Error: Same-named freguesias should be separate regions"); // Error if they were merged.
+        assertEquals(100.0, agregador.obter(AgregadorAreas.Nivel.FREGUESIA,
+                AgregadorAreas.chave("Madeira", "Santa Cruz", "Santa Cruz")).getAreaTotal(), 1e-9,
+                "Error: Unexpected total area in Santa Cruz, Madeira"); // Error if areas were mixed.
+        assertEquals(70.0, agregador.obter(AgregadorAreas.Nivel.FREGUESIA,
+                AgregadorAreas.chave("Terceira", "Angra do Heroismo", "Se")).getAreaTotal(), 1e-9,
+                "Error: Unexpected total area in Se, Terceira"); // Error if areas were mixed.
+        assertNull(agregador.obter(AgregadorAreas.Nivel.FREGUESIA, "Se"),
+                "Error: A bare name should not be a region key"); // Error if the bare name is found.
+        assertEquals(1, agregador.obter(AgregadorAreas.Nivel.MUNICIPIO,
+                AgregadorAreas.chave("Madeira", "Santa Cruz")).getNumeroPropriedades(),
+                "Error: Municipio should be keyed by its island"); // Error if count differs.
+    }
+
+    // ------------------ converter Tests (CC = 4) ------------------
+    @Test
+    public void converter() {
+        assertEquals(1.5, AgregadorAreas.converter(" 1.5 "), 0.0, "Error: Surrounding spaces should be ignored"); // Error if value differs.
+        assertTrue(Double.isNaN(AgregadorAreas.converter(null)), "Error: Null should convert to NaN"); // Error if not NaN.
+        assertTrue(Double.isNaN(AgregadorAreas.converter("x")), "Error: Invalid value should convert to NaN"); // Error if not NaN.
+    }
+}
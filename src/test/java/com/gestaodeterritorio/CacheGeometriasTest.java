@@ -0,0 +1,158 @@
+package com.gestaodeterritorio;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CacheGeometriasTest {
+
+    @TempDir
+    Path tempDir;
+
+    // Helper method to build a list of square parcels plus one parcel with invalid WKT.
+    private List<PropriedadeRustica> createPropriedades(int n) {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            props.add(PropriedadesTeste.criar(Integer.toString(i),
+                    "POLYGON ((" + i + " 0, " + (i + 1) + " 0, " + (i + 1) + " 1, " + i + " 1, " + i + " 0))"));
+        }
+        props.add(PropriedadesTeste.criar("invalida", "POLYGON ((0 0, 1 0"));
+        return props;
+    }
+
+    // ------------------ escrever / abrir Tests (CC = 5) ------------------
+
+    // Test 1: Geometries written to the cache are read back unchanged, including invalid ones.
+    @Test
+    public void abrir1() throws Exception {
+        List<PropriedadeRustica> props = createPropriedades(10);
+        GeometriaStore store = GeometriaStore.carregar(props);
+        Path ficheiro = tempDir.resolve("cache.bin");
+        CacheGeometrias.escrever(ficheiro, props, store);
+
+        try (CacheGeometrias cache = CacheGeometrias.abrir(ficheiro)) {
+            assertNotNull(cache, "Error: Expected the cache to open"); // Error if cache is null.
+            assertEquals(11, cache.tamanho(), "Error: Expected one entry per property"); // Error if size differs.
+            for (int i = 0; i < 10; i++) {
+                assertTrue(store.obter(Integer.toString(i)).equalsExact(cache.obter(Integer.toString(i))),
+                        "Error: Cached geometry should equal the parsed one"); // Error if geometries differ.
+            }
+            assertTrue(cache.contem("invalida"), "Error: Invalid geometries should be remembered"); // Error if missing.
+            assertNull(cache.obter("invalida"), "Error: Invalid geometries should be read back as null"); // Error if not null.
+            assertFalse(cache.contem("outra"), "Error: Unknown ids should not be in the cache"); // Error if present.
+        }
+        assertFalse(Files.exists(tempDir.resolve("cache.bin.tmp")), "Error: Temporary file should be moved into place"); // Error if left behind.
+    }
+
+    // Test 2: An entry is only valid for the geometry it was written from, and a missing or corrupt file is ignored.
+    @Test
+    public void abrir2() throws Exception {
+        List<PropriedadeRustica> props = createPropriedades(3);
+        Path ficheiro = tempDir.resolve("cache.bin");
+        assertNull(CacheGeometrias.abrir(ficheiro), "Error: A missing cache should be ignored"); // Error if not null.
+
+        CacheGeometrias.escrever(ficheiro, props, GeometriaStore.carregar(props));
+        try (CacheGeometrias cache = CacheGeometrias.abrir(ficheiro)) {
+            assertTrue(cache.contem(props.get(1)), "Error: An unchanged geometry should be valid"); // Error if rejected.
+            assertFalse(cache.contem(PropriedadesTeste.criar("1", "POLYGON ((5 5, 6 5, 6 6, 5 5))")),
+                    "Error: A changed geometry should not be valid"); // Error if accepted.
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(ficheiro.toFile(), "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+        assertNull(CacheGeometrias.abrir(ficheiro), "Error: A truncated cache should be ignored"); // Error if not null.
+
+        Files.write(ficheiro, new byte[]{1, 2, 3});
+        assertNull(CacheGeometrias.abrir(ficheiro), "Error: A file without header should be ignored"); // Error if not null.
+    }
+
+    // Test 3: Geometries that cross a mapped segment boundary are read correctly.
+    @Test
+    public void abrir3() throws Exception {
+        List<PropriedadeRustica> props = createPropriedades(50);
+        GeometriaStore store = GeometriaStore.carregar(props);
+        Path ficheiro = tempDir.resolve("cache.bin");
+        CacheGeometrias.escrever(ficheiro, props, store);
+        try (CacheGeometrias cache = CacheGeometrias.abrir(ficheiro, 100)) {
+            for (int i = 0; i < 50; i++) {
+                assertTrue(store.obter(Integer.toString(i)).equalsExact(cache.obter(Integer.toString(i))),
+                        "Error: Geometry spanning two segments should be read whole"); // Error if geometries differ.
+            }
+        }
+    }
+
+    // ------------------ obter Tests (CC = 1) ------------------
+    @Test
+    public void obter() throws Exception {
+        List<PropriedadeRustica> props = createPropriedades(1);
+        Path ficheiro = tempDir.resolve("cache.bin");
+        CacheGeometrias.escrever(ficheiro, props, GeometriaStore.carregar(props));
+        GeometryFactory factory = new GeometryFactory();
+        try (CacheGeometrias cache = CacheGeometrias.abrir(ficheiro)) {
+            assertSame(factory, cache.obter("0", factory).getFactory(), "Error: Geometry should use the given factory"); // Error if factory differs.
+        }
+    }
+
+    // ------------------ carregar Tests (CC = 4) ------------------
+
+    // Test 1: A first run writes the cache, and an unchanged run decodes each geometry from it only when asked.
+    @Test
+    public void carregar1() throws Exception {
+        Path ficheiro = tempDir.resolve("cache.bin");
+        List<PropriedadeRustica> props = createPropriedades(5);
+        GeometriaStore frio = CacheGeometrias.carregar(props, ficheiro);
+        assertTrue(Files.exists(ficheiro), "Error: The first run should write the cache"); // Error if no cache file.
+
+        GeometriaStore quente = CacheGeometrias.carregar(props, escreverTrocadas(props, ficheiro));
+        assertEquals(0, quente.convertidasDaCache(), "Error: A warm start should decode nothing up front"); // Error if eager.
+        assertEquals(6, quente.tamanho(), "Error: Every cached property should be registered"); // Error if size differs.
+        assertTrue(frio.obter("0").equalsExact(quente.obter("4")),
+                "Error: A warm start should read geometries from the cache"); // Error if the WKT was parsed.
+        assertSame(quente.obter("4"), quente.obter("4"), "Error: A decoded geometry should be reused"); // Error if decoded twice.
+        assertEquals(1, quente.convertidasDaCache(), "Error: Only the requested geometry should be decoded"); // Error if count differs.
+    }
+
+    // Test 2: Only changed geometries are parsed again, and the cache is rewritten with them.
+    @Test
+    public void carregar2() throws Exception {
+        List<PropriedadeRustica> props = createPropriedades(5);
+        Path ficheiro = escreverTrocadas(props, tempDir.resolve("cache.bin"));
+
+        List<PropriedadeRustica> alteradas = new ArrayList<>(props);
+        alteradas.set(4, PropriedadesTeste.criar("4", "POLYGON ((9 9, 10 9, 10 10, 9 9))"));
+        alteradas.add(PropriedadesTeste.criar("nova", "POINT (1 2)"));
+        GeometriaStore geometrias = CacheGeometrias.carregar(alteradas, ficheiro);
+        assertTrue(GeometriaStore.carregar(props).obter("0").equalsExact(geometrias.obter("3")),
+                "Error: An unchanged geometry should come from the cache"); // Error if the WKT was parsed.
+        assertEquals("POLYGON ((9 9, 10 9, 10 10, 9 9))", geometrias.obter("4").toText(),
+                "Error: A changed geometry should be parsed from its WKT"); // Error if the stale geometry is returned.
+        assertEquals("POINT (1 2)", geometrias.obter("nova").toText(),
+                "Error: A new geometry should be parsed from its WKT"); // Error if null.
+
+        try (CacheGeometrias cache = CacheGeometrias.abrir(ficheiro)) {
+            assertEquals(7, cache.tamanho(), "Error: The rewritten cache should hold every property"); // Error if not rewritten.
+            assertTrue(cache.contem(alteradas.get(4)), "Error: The rewritten cache should hold the new geometry"); // Error if stale.
+        }
+    }
+
+    // Helper method to write a cache that stores the geometry of parcel "0" for every parcel, so that
+    // geometries read from the cache can be told apart from parsed ones.
+    private Path escreverTrocadas(List<PropriedadeRustica> props, Path ficheiro) throws Exception {
+        Geometry primeira = GeometriaStore.carregar(props).obter("0");
+        GeometriaStore trocadas = new GeometriaStore();
+        for (PropriedadeRustica p : props) {
+            trocadas.colocar(p.getObjectId(), primeira);
+        }
+        CacheGeometrias.escrever(ficheiro, props, trocadas);
+        return ficheiro;
+    }
+}
@@ -1,10 +1,36 @@
 package com.gestaodeterritorio;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 public class CadastroLoaderTest {
 
+    @TempDir
+    Path tempDir;
+
+    // Helper method to write a small cadastre CSV with the given number of rows to the filesystem.
+    private Path createCsv(int linhas) throws Exception {
+        StringBuilder csv = new StringBuilder("OBJECTID;PAR_ID;PAR_NUM;Shape_Length;Shape_Area;geometry;OWNER;Freguesia;Municipio;Ilha\n");
+        for (int i = 1; i <= linhas; i++) {
+            csv.append(i).append(";p").append(i).append(";n").append(i).append(";4.0;1.0;")
+                    .append("\"POLYGON ((").append(i).append(" 0, ").append(i + 1).append(" 0, ").append(i + 1)
+                    .append(" 1, ").append(i).append(" 1, ").append(i).append(" 0))\"")
+                    .append(";owner").append(i).append(";Freguesia;Municipio;Madeira\n");
+        }
+        Path ficheiro = tempDir.resolve("cadastro.csv");
+        Files.write(ficheiro, csv.toString().getBytes(StandardCharsets.UTF_8));
+        return ficheiro;
+    }
+
     // ------------------ Constructor Test (CC = 1) ------------------
     @Test
     public void constructor() {
@@ -28,4 +54,77 @@ public class CadastroLoaderTest {
         String expectedMessage = "Ficheiro não encontrado:";
         assertTrue(exception.getMessage().contains(expectedMessage), "Error: Exception message should contain '" + expectedMessage + "'"); // Error if message does not contain expected text.
     }
+
+    /**
+     * carregar - Filesystem path:
+     * A file that is not in the classpath is read from the filesystem.
+     */
+    @Test
+    public void carregarFicheiro() throws Exception {
+        Path ficheiro = createCsv(3);
+        List<PropriedadeRustica> props = new CadastroLoader().carregar(ficheiro.toString());
+        assertEquals(3, props.size(), "Error: Expected all rows to be loaded from the filesystem path"); // Error if size != 3.
+        assertEquals("POLYGON ((1 0, 2 0, 2 1, 1 1, 1 0))", props.get(0).getGeometry(), "Error: Quoted WKT should be read unchanged"); // Error if WKT differs.
+    }
+
+    /**
+     * carregar - Native parser:
+     * The hand-rolled parser returns the same properties as the OpenCSV path.
+     */
+    @Test
+    public void carregarNativo() throws Exception {
+        Path ficheiro = createCsv(4);
+        List<PropriedadeRustica> openCsv = new CadastroLoader(CadastroLoader.Parser.OPENCSV).carregar(ficheiro.toString());
+        List<PropriedadeRustica> nativo = new CadastroLoader(CadastroLoader.Parser.NATIVO).carregar(ficheiro.toString());
+        assertEquals(openCsv.size(), nativo.size(), "Error: Both parsers should read the same number of rows"); // Error if sizes differ.
+        for (int i = 0; i < openCsv.size(); i++) {
+            assertEquals(openCsv.get(i).toString(), nativo.get(i).toString(), "Error: Both parsers should read the same values"); // Error if rows differ.
+            assertEquals(openCsv.get(i).getGeometry(), nativo.get(i).getGeometry(), "Error: Both parsers should read the same WKT"); // Error if WKT differs.
+            assertEquals(openCsv.get(i).getOwner(), nativo.get(i).getOwner(), "Error: Both parsers should read the same owner"); // Error if owner differs.
+        }
+    }
+
+    // ------------------ carregarTabela Tests (CC = 1) ------------------
+    @Test
+    public void carregarTabela() throws Exception {
+        Path ficheiro = createCsv(3);
+        TabelaCadastro tabela = new CadastroLoader(CadastroLoader.Parser.NATIVO).carregarTabela(ficheiro.toString(), false);
+        assertEquals(3, tabela.tamanho(), "Error: Expected every row in the table"); // Error if size != 3.
+        assertEquals(1.0, tabela.area(2), 1e-9, "Error: Areas should be stored as doubles"); // Error if area differs.
+        assertEquals(1, tabela.freguesias().tamanho(), "Error: Repeated parishes should share one dictionary entry"); // Error if dictionary size differs.
+        assertNull(tabela.linha(0).getGeometry(), "Error: Geometries should be dropped when not requested"); // Error if WKT is kept.
+    }
+
+    // ------------------ stream Tests (CC = 1) ------------------
+    @Test
+    public void stream() throws Exception {
+        Path ficheiro = createCsv(3);
+        List<String> ids;
+        try (Stream<PropriedadeRustica> props = new CadastroLoader().stream(ficheiro.toString())) {
+            ids = props.map(PropriedadeRustica::getObjectId).collect(Collectors.toList());
+        }
+        assertEquals(3, ids.size(), "Error: Stream should deliver every row"); // Error if size != 3.
+        assertEquals("1", ids.get(0), "Error: Stream should keep the file order"); // Error if order differs.
+    }
+
+    // ------------------ carregarEmLotes Tests (CC = 3) ------------------
+
+    // Test 1: Rows are delivered in batches of at most the requested size, with a final partial batch.
+    @Test
+    public void carregarEmLotes1() throws Exception {
+        Path ficheiro = createCsv(5);
+        List<Integer> tamanhos = new ArrayList<>();
+        long total = new CadastroLoader().carregarEmLotes(ficheiro.toString(), 2, lote -> tamanhos.add(lote.size()));
+        assertEquals(5, total, "Error: Expected the total number of rows read"); // Error if total != 5.
+        assertEquals(3, tamanhos.size(), "Error: Expected three batches for five rows in batches of two"); // Error if batch count differs.
+        assertEquals(1, (int) tamanhos.get(2), "Error: Last batch should hold the remaining row"); // Error if last batch size differs.
+    }
+
+    // Test 2: A batch size below 1 is rejected.
+    @Test
+    public void carregarEmLotes2() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CadastroLoader().carregarEmLotes("nonexistent.csv", 0, lote -> { }),
+                "Error: Expected IllegalArgumentException for an invalid batch size"); // Error if no exception is thrown.
+    }
 }
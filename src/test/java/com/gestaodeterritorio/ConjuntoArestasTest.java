@@ -0,0 +1,73 @@
+package com.gestaodeterritorio;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class ConjuntoArestasTest {
+
+    // ------------------ Constructor Tests (CC = 2) ------------------
+    @Test
+    public void constructor() {
+        ConjuntoArestas conjunto = new ConjuntoArestas(1000);
+        assertTrue(conjunto.isEmpty(), "Error: A new set should be empty"); // Error if not empty.
+        assertTrue(conjunto.bytesTabela() >= 1000 * Long.BYTES, "Error: Table should be sized for the expected edges"); // Error if too small.
+    }
+
+    // ------------------ adicionar / contem Tests (CC = 3) ------------------
+
+    // Test 1: Numeric ids are stored without the dictionary and duplicates are rejected.
+    @Test
+    public void adicionar1() {
+        ConjuntoArestas conjunto = new ConjuntoArestas();
+        assertTrue(conjunto.adicionar("1", "2"), "Error: First insertion should return true"); // Error if false.
+        assertFalse(conjunto.adicionar("1", "2"), "Error: Duplicate insertion should return false"); // Error if true.
+        assertTrue(conjunto.contem("1", "2"), "Error: Inserted edge should be present"); // Error if missing.
+        assertFalse(conjunto.contem("2", "1"), "Error: Edges are directed, the reverse edge should be absent"); // Error if present.
+        assertEquals(0, conjunto.tamanhoDicionario(), "Error: Numeric ids should not use the dictionary"); // Error if dictionary used.
+    }
+
+    // Test 2: Non-numeric and non-canonical ids use the dictionary and never collide with numeric ids.
+    @Test
+    public void adicionar2() {
+        ConjuntoArestas conjunto = new ConjuntoArestas();
+        conjunto.adicionar("A", "B");
+        conjunto.adicionar("012", "12");
+        assertTrue(conjunto.contem("A", "B"), "Error: Non-numeric edge should be present"); // Error if missing.
+        assertTrue(conjunto.contem("012", "12"), "Error: Mixed edge should be present"); // Error if missing.
+        assertFalse(conjunto.contem("12", "12"), "Error: '012' and '12' should be different ids"); // Error if they collide.
+        assertFalse(conjunto.contem("A", "C"), "Error: Unknown id should not be present"); // Error if present.
+        assertEquals(3, conjunto.tamanhoDicionario(), "Error: Expected A, B and 012 in the dictionary"); // Error if dictionary size differs.
+    }
+
+    // Test 3: The table grows past its initial capacity without losing edges.
+    @Test
+    public void adicionar3() {
+        ConjuntoArestas conjunto = new ConjuntoArestas();
+        for (int i = 0; i < 10000; i++) {
+            conjunto.adicionar(Integer.toString(i), Integer.toString(i + 1));
+        }
+        assertEquals(10000, conjunto.tamanho(), "Error: Expected every edge after resizing"); // Error if size differs.
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(conjunto.contem(Integer.toString(i), Integer.toString(i + 1)), "Error: Edge lost after resizing"); // Error if missing.
+        }
+    }
+
+    // ------------------ paraLista Tests (CC = 1) ------------------
+    @Test
+    public void paraLista() {
+        ConjuntoArestas conjunto = new ConjuntoArestas();
+        conjunto.adicionar("7", "9");
+        conjunto.adicionar("X", "7");
+        List<String[]> arestas = conjunto.paraLista();
+        Set<String> pares = new HashSet<>();
+        for (String[] aresta : arestas) {
+            pares.add(aresta[0] + "-" + aresta[1]);
+        }
+        assertEquals(2, arestas.size(), "Error: Expected one entry per edge"); // Error if size differs.
+        assertTrue(pares.contains("7-9") && pares.contains("X-7"), "Error: Edges should be decoded to their original ids"); // Error if decoding fails.
+    }
+}
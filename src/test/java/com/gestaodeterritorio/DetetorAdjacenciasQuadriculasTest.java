@@ -0,0 +1,167 @@
+package com.gestaodeterritorio;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public class DetetorAdjacenciasQuadriculasTest {
+
+    @TempDir
+    Path tempDir;
+
+    // Number of buffer flushes of the last partition built by calcularPorQuadriculas.
+    private long descargas;
+
+
+    // Helper method to build a grid of unit squares, each sharing its borders with its neighbours.
+    private List<PropriedadeRustica> createGrelha(int lado) {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        for (int x = 0; x < lado; x++) {
+            for (int y = 0; y < lado; y++) {
+                String wkt = String.format("POLYGON((%d %d, %d %d, %d %d, %d %d, %d %d))",
+                        x, y, x + 1, y, x + 1, y + 1, x, y + 1, x, y);
+                props.add(PropriedadesTeste.criar(String.format("%06d", x * lado + y), wkt));
+            }
+        }
+        return props;
+    }
+
+    // Helper method to partition the properties and collect every edge as "objectId1-objectId2", failing on duplicates.
+    private Set<String> calcularPorQuadriculas(DetetorAdjacenciasQuadriculas detetor, List<PropriedadeRustica> props)
+            throws IOException {
+        return calcularPorQuadriculas(detetor, props, DetetorAdjacenciasQuadriculas.MEMORIA_BUFFERS);
+    }
+
+    // Helper method to partition the properties with the given buffer budget and collect every edge.
+    private Set<String> calcularPorQuadriculas(DetetorAdjacenciasQuadriculas detetor, List<PropriedadeRustica> props,
+                                               long memoria) throws IOException {
+        Set<String> pares = new HashSet<>();
+        try (DetetorAdjacenciasQuadriculas.Particao particao = detetor.particionar(tempDir, memoria)) {
+            for (PropriedadeRustica p : props) {
+                particao.adicionar(p);
+            }
+            long total = detetor.calcular(particao, arestas -> {
+                for (String[] aresta : arestas) {
+                    assertTrue(pares.add(aresta[0] + "-" + aresta[1]), "Error: Edge reported twice"); // Error if an edge is duplicated.
+                }
+            });
+            assertEquals(pares.size(), total, "Error: Returned count should match delivered edges"); // Error if count differs.
+            descargas = particao.getDescargas();
+        }
+        return pares;
+    }
+
+    // Helper method to compute the expected edges with the in-memory detector.
+    private Set<String> calcularEmMemoria(List<PropriedadeRustica> props) {
+        Set<String> pares = new HashSet<>();
+        for (String[] aresta : new DetetorAdjacencias(1).calcular(props, GeometriaStore.carregar(props))) {
+            pares.add(aresta[0] + "-" + aresta[1]);
+        }
+        return pares;
+    }
+
+    // Helper method to count the tile files left in the temporary directory.
+    private long contarFicheiros() throws IOException {
+        try (Stream<Path> ficheiros = Files.list(tempDir)) {
+            return ficheiros.count();
+        }
+    }
+
+    // ------------------ DetetorAdjacenciasQuadriculas Tests (CC = 3) ------------------
+
+    // Test 1: A non-positive or infinite tile size is rejected.
+    @Test
+    public void construtor1() {
+        assertThrows(IllegalArgumentException.class, () -> new DetetorAdjacenciasQuadriculas(0),
+                "Error: Zero tile size should be rejected"); // Error if no exception is thrown.
+        assertThrows(IllegalArgumentException.class, () -> new DetetorAdjacenciasQuadriculas(Double.NaN),
+                "Error: NaN tile size should be rejected"); // Error if no exception is thrown.
+        assertThrows(IllegalArgumentException.class, () -> new DetetorAdjacenciasQuadriculas(10, 0),
+                "Error: Zero threads should be rejected"); // Error if no exception is thrown.
+    }
+
+    // ------------------ calcular Tests (CC = 4) ------------------
+
+    // Test 1: Tile borders aligned with parcel borders give the same edges as the in-memory detector.
+    @Test
+    public void calcular1() throws IOException {
+        List<PropriedadeRustica> props = createGrelha(10);
+        Set<String> pares = calcularPorQuadriculas(new DetetorAdjacenciasQuadriculas(3, 1), props);
+        assertEquals(calcularEmMemoria(props), pares, "Error: Edges should match the in-memory detector"); // Error if edges differ.
+    }
+
+    // Test 2: Tile borders crossing parcels, with several threads, give the same edges.
+    @Test
+    public void calcular2() throws IOException {
+        List<PropriedadeRustica> props = createGrelha(12);
+        Set<String> pares = calcularPorQuadriculas(new DetetorAdjacenciasQuadriculas(2.5, 4), props);
+        assertEquals(calcularEmMemoria(props), pares, "Error: Edges should match the in-memory detector"); // Error if edges differ.
+    }
+
+    // Test 3: A small buffer budget flushes tiles several times, appending to their files without losing edges.
+    @Test
+    public void calcular3() throws IOException {
+        List<PropriedadeRustica> props = createGrelha(20);
+        DetetorAdjacenciasQuadriculas detetor = new DetetorAdjacenciasQuadriculas(1, 2);
+        Set<String> pares = calcularPorQuadriculas(detetor, props, 4096);
+        assertTrue(descargas > contarFicheiros(), "Error: Some tiles should be flushed more than once"); // Error if the budget is not exercised.
+        assertEquals(calcularEmMemoria(props), pares, "Error: Edges should match the in-memory detector"); // Error if edges differ.
+    }
+
+    // Test 4: An empty partition produces no edges and never calls the destination.
+    @Test
+    public void calcular4() throws IOException {
+        DetetorAdjacenciasQuadriculas detetor = new DetetorAdjacenciasQuadriculas(10, 1);
+        try (DetetorAdjacenciasQuadriculas.Particao particao = detetor.particionar(tempDir)) {
+            long total = detetor.calcular(particao, arestas -> fail("Error: Destination should not be called"));
+            assertEquals(0, total, "Error: Expected no edges"); // Error if edges are found.
+        }
+    }
+
+    // ------------------ Particao Tests (CC = 4) ------------------
+
+    // Test 1: A parcel spanning several tiles is copied to each, and invalid geometries are skipped.
+    @Test
+    public void particao1() throws IOException {
+        DetetorAdjacenciasQuadriculas detetor = new DetetorAdjacenciasQuadriculas(10, 1);
+        try (DetetorAdjacenciasQuadriculas.Particao particao = detetor.particionar(tempDir)) {
+            assertTrue(particao.adicionar(PropriedadesTeste.criar("A", "POLYGON((5 5, 15 5, 15 15, 5 15, 5 5))")),
+                    "Error: Valid geometry should be accepted"); // Error if rejected.
+            assertFalse(particao.adicionar(PropriedadesTeste.criar("B", "POLYGON((invalid))")),
+                    "Error: Invalid geometry should be skipped"); // Error if accepted.
+            assertEquals(2, particao.getPropriedades(), "Error: Both properties should be counted"); // Error if count differs.
+            assertEquals(1, particao.getInvalidas(), "Error: Expected one invalid geometry"); // Error if count differs.
+            assertEquals(4, particao.getNumeroQuadriculas(), "Error: Parcel should touch four tiles"); // Error if count differs.
+            assertEquals(4, particao.getCopias(), "Error: Parcel should be copied to four tiles"); // Error if count differs.
+            assertEquals(0, particao.getDescargas(), "Error: Buffers should stay in memory until closed"); // Error if flushed early.
+            particao.close();
+            assertEquals(4, particao.getDescargas(), "Error: Closing should flush each tile once"); // Error if count differs.
+        }
+        assertThrows(IllegalArgumentException.class, () -> detetor.particionar(tempDir, 0),
+                "Error: A zero buffer budget should be rejected"); // Error if no exception is thrown.
+    }
+
+    // Test 2: Stale tiles from a previous partition are removed, and apagar deletes the tile files.
+    @Test
+    public void particao2() throws IOException {
+        DetetorAdjacenciasQuadriculas detetor = new DetetorAdjacenciasQuadriculas(10, 1);
+        Files.write(tempDir.resolve("quadricula_7_7.bin"), new byte[]{1, 2, 3});
+        Files.write(tempDir.resolve("outro.txt"), new byte[]{1});
+        DetetorAdjacenciasQuadriculas.Particao particao = detetor.particionar(tempDir);
+        assertFalse(Files.exists(tempDir.resolve("quadricula_7_7.bin")), "Error: Stale tile should be removed"); // Error if it remains.
+        particao.adicionar(PropriedadesTeste.criar("A", "POLYGON((1 1, 2 1, 2 2, 1 2, 1 1))"));
+        particao.close();
+        assertTrue(Files.exists(tempDir.resolve("quadricula_0_0.bin")), "Error: Tile file should be written"); // Error if missing.
+        particao.apagar();
+        assertEquals(1, contarFicheiros(), "Error: Only unrelated files should remain"); // Error if tiles remain.
+    }
+}
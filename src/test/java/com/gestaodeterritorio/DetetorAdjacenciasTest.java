@@ -0,0 +1,161 @@
+package com.gestaodeterritorio;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class DetetorAdjacenciasTest {
+
+    // Helper method to build a grid of unit squares, each sharing its borders with its neighbours.
+    private List<PropriedadeRustica> createGrelha(int lado) throws Exception {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        for (int x = 0; x < lado; x++) {
+            for (int y = 0; y < lado; y++) {
+                String wkt = String.format("POLYGON((%d %d, %d %d, %d %d, %d %d, %d %d))",
+                        x, y, x + 1, y, x + 1, y + 1, x, y + 1, x, y);
+                props.add(PropriedadesTeste.criar(String.format("%06d", x * lado + y), wkt));
+            }
+        }
+        return props;
+    }
+
+    // ------------------ Constructor Tests (CC = 2) ------------------
+    @Test
+    public void constructor1() {
+        DetetorAdjacencias detetor = new DetetorAdjacencias();
+        assertEquals(Runtime.getRuntime().availableProcessors(), detetor.getNumeroThreads(),
+                "Error: Default constructor should use all available processors"); // Error if thread count differs.
+    }
+
+    @Test
+    public void constructor2() {
+        assertThrows(IllegalArgumentException.class, () -> new DetetorAdjacencias(0),
+                "Error: Expected IllegalArgumentException for a thread count below 1"); // Error if no exception is thrown.
+    }
+
+    // ------------------ calcular Tests (CC = 3) ------------------
+
+    // Test 1: Two touching squares produce a single ordered edge.
+    @Test
+    public void calcular1() throws Exception {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(PropriedadesTeste.criar("B", "POLYGON((0 0, 1 0, 1 1, 0 1, 0 0))"));
+        props.add(PropriedadesTeste.criar("A", "POLYGON((1 0, 2 0, 2 1, 1 1, 1 0))"));
+        List<String[]> arestas = new DetetorAdjacencias(1).calcular(props, GeometriaStore.carregar(props));
+        assertEquals(1, arestas.size(), "Error: Expected exactly one edge between two touching squares"); // Error if size != 1.
+        assertArrayEquals(new String[]{"A", "B"}, arestas.get(0), "Error: Edge should be ordered by objectId"); // Error if order is wrong.
+    }
+
+    // Test 2: The parallel path returns exactly the same edges, in the same order, as the sequential path.
+    @Test
+    public void calcular2() throws Exception {
+        List<PropriedadeRustica> props = createGrelha(30);
+        GeometriaStore geometrias = GeometriaStore.carregar(props);
+        List<String[]> sequencial = new DetetorAdjacencias(1).calcular(props, geometrias);
+        List<String[]> paralelo = new DetetorAdjacencias(4).calcular(props, geometrias);
+        // 30x30 grid: 2*30*29 edge neighbours plus 2*29*29 corner neighbours.
+        assertEquals(2 * 30 * 29 + 2 * 29 * 29, sequencial.size(), "Error: Unexpected number of edges in the grid"); // Error if count differs.
+        assertEquals(sequencial.size(), paralelo.size(), "Error: Parallel path should find the same number of edges"); // Error if sizes differ.
+        for (int i = 0; i < sequencial.size(); i++) {
+            assertArrayEquals(sequencial.get(i), paralelo.get(i), "Error: Parallel path should keep the sequential order"); // Error if edges differ.
+        }
+    }
+
+    // Test 3: Parcels with invalid geometry are ignored.
+    @Test
+    public void calcular3() throws Exception {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(PropriedadesTeste.criar("A", "POLYGON((0 0, 1 0, 1 1, 0 1, 0 0))"));
+        props.add(PropriedadesTeste.criar("B", "INVALID_WKT"));
+        List<String[]> arestas = new DetetorAdjacencias(2).calcular(props, GeometriaStore.carregar(props));
+        assertTrue(arestas.isEmpty(), "Error: No edge should be created for an invalid geometry"); // Error if not empty.
+    }
+
+    // ------------------ calcularVizinhanca Tests (CC = 2) ------------------
+
+    // Test 1: Only edges touching an origin are returned, once each, including neighbours with smaller ids.
+    @Test
+    public void calcularVizinhanca() throws Exception {
+        List<PropriedadeRustica> props = createGrelha(3); // ids 000000..000008, centre is 000004
+        GeometriaStore geometrias = GeometriaStore.carregar(props);
+        List<PropriedadeRustica> origens = new ArrayList<>();
+        origens.add(props.get(4)); // centre
+        origens.add(props.get(0)); // corner, also a neighbour of the centre
+        List<String[]> arestas = new DetetorAdjacencias(1).calcularVizinhanca(origens,
+                DetetorAdjacencias.construirIndice(props, geometrias), geometrias);
+        // Centre touches all 8 others; corner 000000 touches 000001, 000003 and 000004 (already counted).
+        assertEquals(10, arestas.size(), "Error: Expected every edge around the origins exactly once"); // Error if count differs.
+        for (String[] aresta : arestas) {
+            assertTrue(aresta[0].compareTo(aresta[1]) < 0, "Error: Edges should be ordered by objectId"); // Error if not ordered.
+        }
+    }
+
+    // Helper method to turn a list of edges into sorted "a-b" strings, for order-independent comparison.
+    private List<String> ordenar(List<String[]> arestas) {
+        List<String> texto = new ArrayList<>();
+        for (String[] aresta : arestas) {
+            texto.add(aresta[0] + "-" + aresta[1]);
+        }
+        Collections.sort(texto);
+        return texto;
+    }
+
+    // ------------------ calcular com IndiceHilbert Tests (CC = 2) ------------------
+
+    // Test 1: The packed index finds the same edges as the STRtree, sequentially and in parallel.
+    @Test
+    public void calcularHilbert1() throws Exception {
+        List<PropriedadeRustica> props = createGrelha(30);
+        GeometriaStore geometrias = GeometriaStore.carregar(props);
+        IndiceHilbert indice = IndiceHilbert.construir(props, geometrias);
+        List<String> esperado = ordenar(new DetetorAdjacencias(1).calcular(props, geometrias));
+        assertEquals(esperado, ordenar(new DetetorAdjacencias(1).calcular(props, indice, geometrias)),
+                "Error: Sequential Hilbert path should find the STRtree edges"); // Error if edges differ.
+        assertEquals(esperado, ordenar(new DetetorAdjacencias(4).calcular(props, indice, geometrias)),
+                "Error: Parallel Hilbert path should find the STRtree edges"); // Error if edges differ.
+
+        List<PropriedadeRustica> origens = new ArrayList<>();
+        origens.add(props.get(4));
+        origens.add(props.get(0));
+        assertEquals(ordenar(new DetetorAdjacencias(1).calcularVizinhanca(origens,
+                        DetetorAdjacencias.construirIndice(props, geometrias), geometrias)),
+                ordenar(new DetetorAdjacencias(1).calcularVizinhanca(origens, props, indice, geometrias)),
+                "Error: Neighbourhood search should match the STRtree one"); // Error if edges differ.
+    }
+
+    // Test 2: An index built for another list is rejected.
+    @Test
+    public void calcularHilbert2() throws Exception {
+        List<PropriedadeRustica> props = createGrelha(3);
+        GeometriaStore geometrias = GeometriaStore.carregar(props);
+        IndiceHilbert indice = IndiceHilbert.construir(props.subList(0, 4), geometrias);
+        assertThrows(IllegalArgumentException.class, () -> new DetetorAdjacencias(1).calcular(props, indice, geometrias),
+                "Error: Expected IllegalArgumentException for an index of another list"); // Error if no exception is thrown.
+    }
+
+    // ------------------ medir Tests (CC = 1) ------------------
+
+    // Test 1: The adjacency stage records origins, candidate pairs tested and edges found, in both paths.
+    @Test
+    public void medir() throws Exception {
+        List<PropriedadeRustica> props = createGrelha(30);
+        GeometriaStore geometrias = GeometriaStore.carregar(props);
+        RelatorioExecucao relatorio = new RelatorioExecucao();
+        DetetorAdjacencias sequencial = new DetetorAdjacencias(1);
+        DetetorAdjacencias paralelo = new DetetorAdjacencias(4);
+        List<String[]> arestas = sequencial.medir(relatorio, props.size(), () -> sequencial.calcular(props, geometrias));
+        paralelo.medir(relatorio, props.size(), () -> paralelo.calcular(props, geometrias));
+
+        RelatorioExecucao.Etapa etapa = relatorio.etapa("adjacencias");
+        assertEquals(2, etapa.getChamadas(), "Error: Expected one measurement per call"); // Error if count differs.
+        assertEquals(1800, etapa.getLinhas(), "Error: Expected the origins of both calls"); // Error if count differs.
+        assertEquals(2L * arestas.size(), etapa.getContador("arestas"), "Error: Expected the edges of both calls"); // Error if count differs.
+        assertEquals(sequencial.getParesTestados(), paralelo.getParesTestados(),
+                "Error: Both paths should test the same pairs"); // Error if counts differ.
+        assertEquals(arestas.size(), sequencial.getParesTestados(),
+                "Error: In a grid every envelope candidate is adjacent"); // Error if counts differ.
+    }
+}
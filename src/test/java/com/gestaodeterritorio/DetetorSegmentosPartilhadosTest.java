@@ -0,0 +1,140 @@
+package com.gestaodeterritorio;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DetetorSegmentosPartilhadosTest {
+
+    // Helper method to build a grid of unit squares, each sharing its borders with its neighbours.
+    private List<PropriedadeRustica> createGrelha(int lado) {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        for (int x = 0; x < lado; x++) {
+            for (int y = 0; y < lado; y++) {
+                String wkt = String.format("POLYGON((%d %d, %d %d, %d %d, %d %d, %d %d))",
+                        x, y, x + 1, y, x + 1, y + 1, x, y + 1, x, y);
+                props.add(PropriedadesTeste.criar(String.format("%06d", x * lado + y), wkt));
+            }
+        }
+        return props;
+    }
+
+    // Helper method to index the result by "objectId1-objectId2".
+    private Map<String, Double> porPar(DetetorSegmentosPartilhados.Resultado resultado) {
+        Map<String, Double> pares = new HashMap<>();
+        for (int k = 0; k < resultado.getArestas().size(); k++) {
+            String[] aresta = resultado.getArestas().get(k);
+            pares.put(aresta[0] + "-" + aresta[1], resultado.getComprimento(k));
+        }
+        return pares;
+    }
+
+    // ------------------ calcular Tests (CC = 12) ------------------
+
+    // Test 1: In a grid, every shared edge is found once with its length, and corner-only contacts are not edges.
+    @Test
+    public void calcular1() {
+        List<PropriedadeRustica> props = createGrelha(3);
+        DetetorSegmentosPartilhados.Resultado resultado =
+                new DetetorSegmentosPartilhados().calcular(props, GeometriaStore.carregar(props));
+        Map<String, Double> pares = porPar(resultado);
+        assertEquals(12, resultado.getArestas().size(), "Error: A 3x3 grid has 12 shared edges"); // Error if count differs.
+        assertEquals(12, pares.size(), "Error: Each edge should be reported once"); // Error if duplicates exist.
+        assertEquals(1.0, pares.get("000000-000001"), 1e-9, "Error: Expected unit border length"); // Error if length differs.
+        assertFalse(pares.containsKey("000000-000004"), "Error: Corner contacts should not be edges"); // Error if diagonal present.
+        assertEquals(12, resultado.getSegmentosPendentes(), "Error: Only the outer boundary has unmatched segments"); // Error if count differs.
+        for (String[] aresta : resultado.getArestas()) {
+            assertTrue(aresta[0].compareTo(aresta[1]) < 0, "Error: Edges should be ordered by objectId"); // Error if order differs.
+        }
+    }
+
+    // Test 2: Borders split into several segments are summed into one edge.
+    @Test
+    public void calcular2() {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(PropriedadesTeste.criar("A", "POLYGON((0 0, 1 0, 1 1, 1 2, 0 2, 0 0))"));
+        props.add(PropriedadesTeste.criar("B", "POLYGON((1 0, 2 0, 2 2, 1 2, 1 1, 1 0))"));
+        DetetorSegmentosPartilhados.Resultado resultado =
+                new DetetorSegmentosPartilhados().calcular(props, GeometriaStore.carregar(props));
+        assertEquals(1, resultado.getArestas().size(), "Error: Expected a single A-B edge"); // Error if count differs.
+        assertEquals(2.0, resultado.getComprimento(0), 1e-9, "Error: Segment lengths should be summed"); // Error if length differs.
+    }
+
+    // Test 3: A parcel without shared vertices is paired through the STRtree of unmatched segments.
+    @Test
+    public void calcular3() {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(PropriedadesTeste.criar("A", "POLYGON((0 0, 2 0, 2 2, 0 2, 0 0))"));
+        props.add(PropriedadesTeste.criar("B", "POLYGON((2 0.5, 3 0.5, 3 1.5, 2 1.5, 2 0.5))"));
+        props.add(PropriedadesTeste.criar("C", "POLYGON((0 2, 2 2, 2 3, 0 3, 0 2))"));
+        DetetorSegmentosPartilhados.Resultado resultado =
+                new DetetorSegmentosPartilhados().calcular(props, GeometriaStore.carregar(props));
+        Map<String, Double> pares = porPar(resultado);
+        assertEquals(10, resultado.getSegmentosPendentes(), "Error: Only A-C should be paired by hash"); // Error if count differs.
+        assertEquals(2.0, pares.get("A-C"), 1e-9, "Error: Expected the hashed A-C edge"); // Error if length differs.
+        assertEquals(1.0, pares.get("A-B"), 1e-9, "Error: Expected the fallback A-B edge with its length"); // Error if length differs.
+        assertEquals(2, pares.size(), "Error: B and C do not touch"); // Error if extra edges exist.
+    }
+
+    // Test 4: Properties with invalid or missing geometry are ignored.
+    @Test
+    public void calcular4() {
+        List<PropriedadeRustica> props = createGrelha(2);
+        props.add(PropriedadesTeste.criar("invalida", "INVALID_WKT"));
+        props.add(PropriedadesTeste.criar("sem", null));
+        DetetorSegmentosPartilhados.Resultado resultado =
+                new DetetorSegmentosPartilhados().calcular(props, GeometriaStore.carregar(props));
+        assertEquals(4, resultado.getArestas().size(), "Error: A 2x2 grid has 4 shared edges"); // Error if count differs.
+        assertEquals(8, resultado.getSegmentosPendentes(), "Error: Invalid geometries should add no segments"); // Error if count differs.
+    }
+
+    // Test 5: Enough segments to grow the internal tables still pair every edge.
+    @Test
+    public void calcular5() {
+        List<PropriedadeRustica> props = createGrelha(120);
+        DetetorSegmentosPartilhados.Resultado resultado =
+                new DetetorSegmentosPartilhados().calcular(props, GeometriaStore.carregar(props));
+        assertEquals(2 * 120 * 119, resultado.getArestas().size(), "Error: Expected every grid edge"); // Error if count differs.
+    }
+
+    // Test 6: A neighbour whose vertex splits another parcel's side is found even when both parcels also have
+    // hashed neighbours, and corner-only contacts found by the fallback are not edges.
+    @Test
+    public void calcular6() {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(PropriedadesTeste.criar("P", "POLYGON((0 0, 2 0, 2 1, 0 1, 0 0))"));
+        props.add(PropriedadesTeste.criar("B", "POLYGON((0 -1, 2 -1, 2 0, 1 0, 0 0, 0 -1))"));
+        props.add(PropriedadesTeste.criar("C", "POLYGON((2 0, 3 0, 3 1, 2 1, 2 0))"));
+        props.add(PropriedadesTeste.criar("D", "POLYGON((3 1, 4 1, 4 2, 3 2, 3 1))"));
+        props.add(PropriedadesTeste.criar("E", "POLYGON((0 -2, 2 -2, 2 -1, 0 -1, 0 -2))"));
+        DetetorSegmentosPartilhados.Resultado resultado =
+                new DetetorSegmentosPartilhados().calcular(props, GeometriaStore.carregar(props));
+        Map<String, Double> pares = porPar(resultado);
+        assertEquals(2.0, pares.get("B-P"), 1e-9, "Error: Expected the T-junction B-P edge with its length"); // Error if missing.
+        assertEquals(1.0, pares.get("C-P"), 1e-9, "Error: Expected the hashed C-P edge"); // Error if length differs.
+        assertEquals(2.0, pares.get("B-E"), 1e-9, "Error: Expected the hashed B-E edge"); // Error if length differs.
+        assertFalse(pares.containsKey("B-C"), "Error: B and C only share a corner"); // Error if the corner contact is an edge.
+        assertFalse(pares.containsKey("C-D"), "Error: C and D only share a corner"); // Error if the corner contact is an edge.
+        assertEquals(3, pares.size(), "Error: Expected exactly three edges"); // Error if extra edges exist.
+    }
+
+    // Test 7: A neighbour shifted along a side gets the overlap length, and overlapping parcels whose
+    // boundaries only cross are not edges.
+    @Test
+    public void calcular7() {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(PropriedadesTeste.criar("A", "POLYGON((0 0, 2 0, 2 2, 0 2, 0 0))"));
+        props.add(PropriedadesTeste.criar("B", "POLYGON((2 1, 4 1, 4 3, 2 3, 2 1))"));
+        props.add(PropriedadesTeste.criar("C", "POLYGON((-1 -1, 0.5 -1, 0.5 0.5, -1 0.5, -1 -1))"));
+        DetetorSegmentosPartilhados.Resultado resultado =
+                new DetetorSegmentosPartilhados().calcular(props, GeometriaStore.carregar(props));
+        Map<String, Double> pares = porPar(resultado);
+        assertEquals(1.0, pares.get("A-B"), 1e-9, "Error: Expected the overlapping part of the shared side"); // Error if length differs.
+        assertFalse(pares.containsKey("A-C"), "Error: Crossing boundaries should not be an edge"); // Error if the overlap is an edge.
+        assertEquals(1, pares.size(), "Error: Expected a single edge"); // Error if extra edges exist.
+    }
+}
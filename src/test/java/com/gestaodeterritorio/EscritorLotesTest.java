@@ -0,0 +1,64 @@
+package com.gestaodeterritorio;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.neo4j.driver.exceptions.ClientException;
+import org.neo4j.driver.exceptions.ServiceUnavailableException;
+import org.neo4j.driver.exceptions.TransientException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class EscritorLotesTest {
+
+    // ------------------ Constructor Tests (CC = 3) ------------------
+    @Test
+    public void constructor1() {
+        assertThrows(IllegalArgumentException.class, () -> new EscritorLotes(null, 0, 1),
+                "Error: Expected IllegalArgumentException for a batch size below 1"); // Error if no exception is thrown.
+    }
+
+    @Test
+    public void constructor2() {
+        assertThrows(IllegalArgumentException.class, () -> new EscritorLotes(null, 1, 0),
+                "Error: Expected IllegalArgumentException for a session count below 1"); // Error if no exception is thrown.
+    }
+
+    // ------------------ escrever Tests (CC = 1) ------------------
+    @Test
+    public void escrever() {
+        // An empty list is a no-op and never touches the driver.
+        new EscritorLotes(null, 10, 2).escrever("Vazio", "RETURN 1", "linhas", new ArrayList<>());
+    }
+
+    // ------------------ particionar Tests (CC = 2) ------------------
+
+    // Test 1: The list is split into consecutive batches with a final partial batch.
+    @Test
+    public void particionar1() {
+        List<List<Integer>> lotes = EscritorLotes.particionar(Arrays.asList(1, 2, 3, 4, 5), 2);
+        assertEquals(3, lotes.size(), "Error: Expected three batches for five rows in batches of two"); // Error if count differs.
+        assertEquals(Arrays.asList(1, 2), lotes.get(0), "Error: First batch should hold the first two rows"); // Error if content differs.
+        assertEquals(Arrays.asList(5), lotes.get(2), "Error: Last batch should hold the remaining row"); // Error if content differs.
+    }
+
+    // Test 2: An empty list yields no batches.
+    @Test
+    public void particionar2() {
+        assertTrue(EscritorLotes.particionar(new ArrayList<>(), 3).isEmpty(), "Error: Expected no batches for an empty list"); // Error if not empty.
+    }
+
+    // ------------------ transitorio Tests (CC = 3) ------------------
+
+    // Test 1: Transient server errors and lost connections are retried, and other errors are not.
+    @Test
+    public void transitorio1() {
+        assertTrue(EscritorLotes.transitorio(new TransientException("N", "deadlock")),
+                "Error: A transient error should be retried"); // Error if not retried.
+        assertTrue(EscritorLotes.transitorio(new ServiceUnavailableException("down")),
+                "Error: A lost connection should be retried"); // Error if not retried.
+        assertFalse(EscritorLotes.transitorio(new ClientException("syntax")),
+                "Error: A client error should not be retried"); // Error if retried.
+    }
+}
@@ -3,6 +3,7 @@ package com.gestaodeterritorio;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
 
 public class GeoUtilsTest {
 
@@ -67,4 +68,66 @@ public class GeoUtilsTest {
         boolean result = GeoUtils.saoAdjacentes(g1, g2);
         assertFalse(result, "Error: Expected false when geometries neither touch nor intersect"); // Error if result is true.
     }
+
+    // ------------------ saoAdjacentes (PreparedGeometry) Tests (CC = 1) ------------------
+
+    // Test 1: A prepared geometry reused against several candidates gives the same answers as the raw predicate.
+    @Test
+    public void saoAdjacentesPreparada() {
+        Geometry base = GeoUtils.parseGeometry("POLYGON((0 0, 2 0, 2 2, 0 2, 0 0))");
+        PreparedGeometry preparada = GeoUtils.prepararGeometria(base);
+        Geometry vizinho = GeoUtils.parseGeometry("POLYGON((2 0, 4 0, 4 2, 2 2, 2 0))");
+        Geometry afastado = GeoUtils.parseGeometry("POLYGON((5 5, 6 5, 6 6, 5 6, 5 5))");
+        assertTrue(GeoUtils.saoAdjacentes(preparada, vizinho), "Error: Expected true for a touching candidate"); // Error if false.
+        assertFalse(GeoUtils.saoAdjacentes(preparada, afastado), "Error: Expected false for a disjoint candidate"); // Error if true.
+    }
+
+    // ------------------ classificarAdjacencia Tests (CC = 3) ------------------
+
+    // Test 1: Disjoint geometries are classified as NENHUMA.
+    @Test
+    public void classificarAdjacencia1() {
+        PreparedGeometry g1 = GeoUtils.prepararGeometria(GeoUtils.parseGeometry("POLYGON((0 0, 1 0, 1 1, 0 1, 0 0))"));
+        Geometry g2 = GeoUtils.parseGeometry("POLYGON((2 2, 3 2, 3 3, 2 3, 2 2))");
+        assertEquals(GeoUtils.TipoAdjacencia.NENHUMA, GeoUtils.classificarAdjacencia(g1, g2),
+                "Error: Expected NENHUMA for disjoint geometries"); // Error if other kind.
+    }
+
+    // Test 2: Geometries sharing only a border are classified as TOQUE.
+    @Test
+    public void classificarAdjacencia2() {
+        PreparedGeometry g1 = GeoUtils.prepararGeometria(GeoUtils.parseGeometry("POLYGON((0 0, 2 0, 2 2, 0 2, 0 0))"));
+        Geometry g2 = GeoUtils.parseGeometry("POLYGON((2 0, 4 0, 4 2, 2 2, 2 0))");
+        assertEquals(GeoUtils.TipoAdjacencia.TOQUE, GeoUtils.classificarAdjacencia(g1, g2),
+                "Error: Expected TOQUE for geometries sharing a border"); // Error if other kind.
+    }
+
+    // Test 3: Geometries whose interiors intersect are classified as SOBREPOSICAO.
+    @Test
+    public void classificarAdjacencia3() {
+        PreparedGeometry g1 = GeoUtils.prepararGeometria(GeoUtils.parseGeometry("POLYGON((0 0, 4 0, 4 4, 0 4, 0 0))"));
+        Geometry g2 = GeoUtils.parseGeometry("POLYGON((1 1, 3 1, 3 3, 1 3, 1 1))");
+        assertEquals(GeoUtils.TipoAdjacencia.SOBREPOSICAO, GeoUtils.classificarAdjacencia(g1, g2),
+                "Error: Expected SOBREPOSICAO for overlapping geometries"); // Error if other kind.
+    }
+
+    // ------------------ comprimentoFronteira Tests (CC = 2) ------------------
+
+    // Test 1: The shared border length is measured even when the vertices do not coincide.
+    @Test
+    public void comprimentoFronteira1() {
+        Geometry g1 = GeoUtils.parseGeometry("POLYGON((0 0, 2 0, 2 4, 0 4, 0 0))");
+        Geometry g2 = GeoUtils.parseGeometry("POLYGON((2 1, 5 1, 5 3, 2 3, 2 1))");
+        assertEquals(2.0, GeoUtils.comprimentoFronteira(g1, g2), 1e-9,
+                "Error: Expected the length of the shared border"); // Error if length differs.
+    }
+
+    // Test 2: Geometries touching at a single point share no border length.
+    @Test
+    public void comprimentoFronteira2() {
+        Geometry g1 = GeoUtils.parseGeometry("POLYGON((0 0, 1 0, 1 1, 0 1, 0 0))");
+        Geometry g2 = GeoUtils.parseGeometry("POLYGON((1 1, 2 1, 2 2, 1 2, 1 1))");
+        assertEquals(0.0, GeoUtils.comprimentoFronteira(g1, g2), 1e-9,
+                "Error: Expected no shared length for a corner contact"); // Error if length differs.
+    }
 }
@@ -0,0 +1,85 @@
+package com.gestaodeterritorio;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class GeometriaStoreTest {
+
+    // ------------------ Constructor Tests (CC = 1) ------------------
+    @Test
+    public void constructor1() {
+        GeometriaStore store = new GeometriaStore();
+        assertNotNull(store.getFactory(), "Error: Default constructor should create a GeometryFactory"); // Error if factory is null.
+        assertEquals(0, store.tamanho(), "Error: A new store should be empty"); // Error if not empty.
+    }
+
+    @Test
+    public void constructor2() {
+        GeometryFactory factory = new GeometryFactory();
+        GeometriaStore store = new GeometriaStore(factory);
+        assertSame(factory, store.getFactory(), "Error: Store should keep the provided GeometryFactory"); // Error if not same.
+    }
+
+    // ------------------ adicionar Tests (CC = 2) ------------------
+
+    // Test 1: A valid geometry is parsed and built with the shared factory.
+    @Test
+    public void adicionar1() throws Exception {
+        GeometriaStore store = new GeometriaStore();
+        Geometry g = store.adicionar(PropriedadesTeste.criar("1", "POLYGON((0 0, 1 0, 1 1, 0 1, 0 0))"));
+        assertNotNull(g, "Error: Expected a parsed geometry for valid WKT"); // Error if g is null.
+        assertSame(store.getFactory(), g.getFactory(), "Error: Geometry should be built with the store's factory"); // Error if factory differs.
+    }
+
+    // Test 2: The same objectId is parsed only once and the cached instance is returned.
+    @Test
+    public void adicionar2() throws Exception {
+        GeometriaStore store = new GeometriaStore();
+        PropriedadeRustica prop = PropriedadesTeste.criar("1", "POINT (0 0)");
+        Geometry first = store.adicionar(prop);
+        Geometry second = store.adicionar(prop);
+        assertSame(first, second, "Error: Geometry should be parsed only once per objectId"); // Error if a new instance is created.
+        assertEquals(1, store.tamanho(), "Error: Store should contain exactly one entry"); // Error if size != 1.
+    }
+
+    // ------------------ carregar / obter Tests (CC = 1) ------------------
+    @Test
+    public void carregar() throws Exception {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(PropriedadesTeste.criar("A", "POINT (1 1)"));
+        props.add(PropriedadesTeste.criar("B", "INVALID_WKT"));
+        GeometriaStore store = GeometriaStore.carregar(props);
+        assertNotNull(store.obter("A"), "Error: Valid geometry should be available by objectId"); // Error if null.
+        assertNotNull(store.obter(props.get(0)), "Error: Valid geometry should be available by property"); // Error if null.
+        assertNull(store.obter("B"), "Error: Invalid geometry should be returned as null"); // Error if not null.
+        assertNull(store.obter("C"), "Error: Unknown objectId should be returned as null"); // Error if not null.
+    }
+
+    // ------------------ adicionar com cache Tests (CC = 3) ------------------
+    @Test
+    public void adicionarComCache(@TempDir Path tempDir) throws Exception {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(PropriedadesTeste.criar("A", "POINT (1 1)"));
+        Path ficheiro = tempDir.resolve("cache.bin");
+        CacheGeometrias.escrever(ficheiro, props, GeometriaStore.carregar(props));
+
+        try (CacheGeometrias cache = CacheGeometrias.abrir(ficheiro)) {
+            GeometriaStore store = new GeometriaStore();
+            Geometry a = store.adicionar(props.get(0), cache);
+            assertNotNull(a, "Error: Geometry in the cache should be returned"); // Error if a is null.
+            assertSame(store.getFactory(), a.getFactory(), "Error: Cached geometry should use the store's factory"); // Error if factory differs.
+            assertNotNull(store.adicionar(PropriedadesTeste.criar("B", "POINT (2 2)"), cache),
+                    "Error: Geometry missing from the cache should be parsed from WKT"); // Error if null.
+            assertEquals(2, store.tamanho(), "Error: Store should contain both properties"); // Error if size differs.
+            assertEquals("POINT (3 3)", new GeometriaStore().adicionar(PropriedadesTeste.criar("A", "POINT (3 3)"), cache).toText(),
+                    "Error: A changed geometry should be parsed from WKT"); // Error if the cached geometry is used.
+        }
+    }
+}
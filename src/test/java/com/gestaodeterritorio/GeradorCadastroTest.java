@@ -0,0 +1,130 @@
+package com.gestaodeterritorio;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import org.locationtech.jts.geom.Geometry;
+
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class GeradorCadastroTest {
+
+    @TempDir
+    Path tempDir;
+
+    // Helper method to generate a cadastre into a string.
+    private String gerar(GeradorCadastro gerador, int numeroPropriedades) throws Exception {
+        StringWriter writer = new StringWriter();
+        gerador.gerar(numeroPropriedades, writer);
+        return writer.toString();
+    }
+
+    // ------------------ Constructor Tests (CC = 2) ------------------
+
+    // Test 1: The default configuration is valid.
+    @Test
+    public void constructor1() {
+        assertNotNull(new GeradorCadastro(1L), "Error: Expected a generator with the default configuration"); // Error if null.
+    }
+
+    // Test 2: Invalid configurations are rejected.
+    @Test
+    public void constructor2() {
+        assertThrows(IllegalArgumentException.class, () -> new GeradorCadastro(1L, -1, 10, 0.3, 1, 1, 1),
+                "Error: Expected IllegalArgumentException for negative vertex count"); // Error if no exception is thrown.
+        assertThrows(IllegalArgumentException.class, () -> new GeradorCadastro(1L, 2, 10, 1.5, 1, 1, 1),
+                "Error: Expected IllegalArgumentException for a probability above 1"); // Error if no exception is thrown.
+    }
+
+    // ------------------ gerar Tests (CC = 5) ------------------
+
+    // Test 1: The same seed produces the same file and a different seed a different one.
+    @Test
+    public void gerar1() throws Exception {
+        String a = gerar(new GeradorCadastro(42L), 50);
+        assertEquals(a, gerar(new GeradorCadastro(42L), 50), "Error: Same seed should give the same output"); // Error if outputs differ.
+        assertNotEquals(a, gerar(new GeradorCadastro(43L), 50), "Error: Different seeds should give different output"); // Error if outputs match.
+        assertTrue(a.startsWith(GeradorCadastro.CABECALHO + "\n"), "Error: Expected the cadastre CSV header"); // Error if header differs.
+    }
+
+    // Test 2: The file is read back by both parsers, with valid geometries and the requested vertex count.
+    @Test
+    public void gerar2() throws Exception {
+        Path ficheiro = tempDir.resolve("sintetico.csv");
+        assertEquals(30, new GeradorCadastro(7L, 3, 100, 0.3, 2, 2, 2).gerar(30, ficheiro),
+                "Error: Expected one line per property"); // Error if count differs.
+        List<PropriedadeRustica> opencsv = new CadastroLoader().carregar(ficheiro.toString());
+        List<PropriedadeRustica> nativo = new CadastroLoader(CadastroLoader.Parser.NATIVO).carregar(ficheiro.toString());
+        assertEquals(30, opencsv.size(), "Error: OpenCSV should read every property"); // Error if count differs.
+        assertEquals(opencsv.get(29).toString(), nativo.get(29).toString(), "Error: Both parsers should agree"); // Error if rows differ.
+        for (PropriedadeRustica p : opencsv) {
+            Geometry g = GeoUtils.parseGeometry(p.getGeometry());
+            assertTrue(g.isValid(), "Error: Generated polygons should be valid"); // Error if geometry is invalid.
+            assertEquals(17, g.getNumPoints(), "Error: Expected 4 corners, 12 intermediate vertices and the closing point"); // Error if count differs.
+            assertEquals(g.getArea(), Double.parseDouble(p.getShapeArea()), 1e-3, "Error: Shape_Area should match the polygon"); // Error if area differs.
+        }
+
+        // com muitos vértices por lado, os intermédios ficam muito mais perto uns dos outros e dos cantos
+        Path denso = tempDir.resolve("denso.csv");
+        new GeradorCadastro(7L, 64, 100, 0.3, 2, 2, 2).gerar(100, denso);
+        for (PropriedadeRustica p : new CadastroLoader(CadastroLoader.Parser.NATIVO).carregar(denso.toString())) {
+            Geometry g = GeoUtils.parseGeometry(p.getGeometry());
+            assertTrue(g.isValid(), "Error: Polygons with 64 vertices per side should be valid"); // Error if geometry is invalid.
+            assertEquals(4 * 65 + 1, g.getNumPoints(), "Error: Expected 4 corners, 256 intermediate vertices and the closing point"); // Error if count differs.
+        }
+    }
+
+    // Test 3: Neighbouring parcels share exact boundary segments, so only the outer boundary is left unmatched.
+    @Test
+    public void gerar3() throws Exception {
+        Path ficheiro = tempDir.resolve("sintetico.csv");
+        new GeradorCadastro(3L).gerar(100, ficheiro);
+        List<PropriedadeRustica> props = new CadastroLoader(CadastroLoader.Parser.NATIVO).carregar(ficheiro.toString());
+        DetetorSegmentosPartilhados.Resultado resultado =
+                new DetetorSegmentosPartilhados().calcular(props, GeometriaStore.carregar(props));
+        assertEquals(2 * 10 * 9, resultado.getArestas().size(), "Error: A 10x10 tessellation has 180 shared edges"); // Error if count differs.
+        assertEquals(4 * 10 * 3, resultado.getSegmentosPendentes(), "Error: Only the outer boundary should be unmatched"); // Error if count differs.
+    }
+
+    // Test 4: Each freguesia belongs to one municipio and each municipio to one ilha; owners repeat.
+    @Test
+    public void gerar4() throws Exception {
+        Path ficheiro = tempDir.resolve("sintetico.csv");
+        new GeradorCadastro(5L, 0, 50, 0.5, 2, 3, 4).gerar(400, ficheiro);
+        List<PropriedadeRustica> props = new CadastroLoader(CadastroLoader.Parser.NATIVO).carregar(ficheiro.toString());
+        Map<String, String> municipioDaFreguesia = new HashMap<>();
+        Map<String, String> ilhaDoMunicipio = new HashMap<>();
+        Set<String> donos = new HashSet<>();
+        for (PropriedadeRustica p : props) {
+            assertEquals(p.getMunicipio(), municipioDaFreguesia.computeIfAbsent(p.getFreguesia(), f -> p.getMunicipio()),
+                    "Error: A freguesia should belong to a single municipio"); // Error if municipio differs.
+            assertEquals(p.getIlha(), ilhaDoMunicipio.computeIfAbsent(p.getMunicipio(), m -> p.getIlha()),
+                    "Error: A municipio should belong to a single ilha"); // Error if ilha differs.
+            donos.add(p.getOwner());
+        }
+        assertEquals(2 * 3 * 4, municipioDaFreguesia.size(), "Error: Expected every freguesia to be used"); // Error if count differs.
+        assertTrue(donos.size() <= 50, "Error: Owners should come from the configured pool"); // Error if too many owners.
+    }
+
+    // Test 5: A negative number of properties is rejected.
+    @Test
+    public void gerar5() {
+        assertThrows(IllegalArgumentException.class, () -> gerar(new GeradorCadastro(1L), -1),
+                "Error: Expected IllegalArgumentException for a negative size"); // Error if no exception is thrown.
+    }
+
+    // ------------------ main Tests (CC = 3) ------------------
+    @Test
+    public void main() throws Exception {
+        Path ficheiro = tempDir.resolve("main.csv");
+        GeradorCadastro.main(new String[]{ficheiro.toString(), "10", "9", "1"});
+        assertEquals(11, Files.readAllLines(ficheiro).size(), "Error: Expected the header and 10 rows"); // Error if line count differs.
+    }
+}
@@ -0,0 +1,113 @@
+package com.gestaodeterritorio;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class GrafoAdjacenciaTest {
+
+    // Helper method to build a path A-B-C-D-E.
+    private List<String[]> createCaminho() {
+        List<String[]> arestas = new ArrayList<>();
+        arestas.add(new String[]{"A", "B"});
+        arestas.add(new String[]{"B", "C"});
+        arestas.add(new String[]{"C", "D"});
+        arestas.add(new String[]{"D", "E"});
+        return arestas;
+    }
+
+    // ------------------ construir Tests (CC = 5) ------------------
+
+    // Test 1: Vertices follow first appearance and edges are stored in both directions.
+    @Test
+    public void construir1() {
+        GrafoAdjacencia grafo = GrafoAdjacencia.construir(createCaminho());
+        assertEquals(5, grafo.numeroVertices(), "Error: Expected one vertex per distinct objectId"); // Error if count differs.
+        assertEquals(4, grafo.numeroArestas(), "Error: Expected each edge to be counted once"); // Error if count differs.
+        assertEquals("A", grafo.objectId(0), "Error: Indices should follow first appearance"); // Error if order differs.
+        assertEquals(1, grafo.indice("B"), "Error: Indices should follow first appearance"); // Error if index differs.
+        assertEquals(-1, grafo.indice("Z"), "Error: Unknown objectId should have index -1"); // Error if index differs.
+    }
+
+    // Test 2: Duplicate and reversed edges and self-loops are dropped.
+    @Test
+    public void construir2() {
+        List<String[]> arestas = createCaminho();
+        arestas.add(new String[]{"B", "A"});
+        arestas.add(new String[]{"A", "B"});
+        arestas.add(new String[]{"C", "C"});
+        GrafoAdjacencia grafo = GrafoAdjacencia.construir(arestas);
+        assertEquals(4, grafo.numeroArestas(), "Error: Repeated edges should be stored once"); // Error if count differs.
+        assertArrayEquals(new int[]{1, 3}, grafo.vizinhos(grafo.indice("C")), "Error: Self-loop should be dropped"); // Error if neighbours differ.
+    }
+
+    // Test 3: Properties without edges become isolated vertices.
+    @Test
+    public void construir3() throws Exception {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(PropriedadesTeste.criar("X", null));
+        props.add(PropriedadesTeste.criar("A", null));
+        props.add(PropriedadesTeste.criar("B", null));
+        List<String[]> arestas = new ArrayList<>();
+        arestas.add(new String[]{"A", "B"});
+        GrafoAdjacencia grafo = GrafoAdjacencia.construir(props, arestas);
+        assertEquals(3, grafo.numeroVertices(), "Error: Expected one vertex per property"); // Error if count differs.
+        assertEquals(0, grafo.indice("X"), "Error: Indices should follow the property list"); // Error if index differs.
+        assertEquals(0, grafo.grau("X"), "Error: Isolated property should have degree 0"); // Error if degree differs.
+    }
+
+    // Test 4: An edge to a property outside the list is rejected.
+    @Test
+    public void construir4() throws Exception {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(PropriedadesTeste.criar("A", null));
+        List<String[]> arestas = new ArrayList<>();
+        arestas.add(new String[]{"A", "B"});
+        assertThrows(IllegalArgumentException.class, () -> GrafoAdjacencia.construir(props, arestas),
+                "Error: Expected IllegalArgumentException for an unknown objectId"); // Error if no exception is thrown.
+    }
+
+    // ------------------ grau / vizinhos Tests (CC = 2) ------------------
+    @Test
+    public void vizinhos() {
+        GrafoAdjacencia grafo = GrafoAdjacencia.construir(createCaminho());
+        assertEquals(1, grafo.grau("A"), "Error: End of the path should have one neighbour"); // Error if degree differs.
+        assertEquals(2, grafo.grau("C"), "Error: Middle of the path should have two neighbours"); // Error if degree differs.
+        assertEquals(0, grafo.grau("Z"), "Error: Unknown objectId should have degree 0"); // Error if degree differs.
+        assertArrayEquals(new int[]{1, 3}, grafo.vizinhos(grafo.indice("C")), "Error: Neighbours should be sorted"); // Error if neighbours differ.
+
+        List<Integer> visitados = new ArrayList<>();
+        grafo.paraCadaVizinho(grafo.indice("C"), visitados::add);
+        assertEquals(Arrays.asList(1, 3), visitados, "Error: paraCadaVizinho should visit the same neighbours"); // Error if neighbours differ.
+    }
+
+    // ------------------ percorrerEmLargura Tests (CC = 5) ------------------
+
+    // Test 1: The traversal stops after the given number of hops.
+    @Test
+    public void percorrerEmLargura1() {
+        GrafoAdjacencia grafo = GrafoAdjacencia.construir(createCaminho());
+        assertArrayEquals(new int[]{0}, grafo.percorrerEmLargura(0, 0), "Error: Zero hops should return only the origin"); // Error if result differs.
+        assertArrayEquals(new int[]{2, 1, 3, 0, 4}, grafo.percorrerEmLargura(2, 2), "Error: Expected the BFS order by distance"); // Error if result differs.
+        assertEquals(5, grafo.percorrerEmLargura(0, 100).length, "Error: A large hop count should reach the whole component"); // Error if count differs.
+    }
+
+    // Test 2: A negative hop count is rejected.
+    @Test
+    public void percorrerEmLargura2() {
+        GrafoAdjacencia grafo = GrafoAdjacencia.construir(createCaminho());
+        assertThrows(IllegalArgumentException.class, () -> grafo.percorrerEmLargura(0, -1),
+                "Error: Expected IllegalArgumentException for a negative hop count"); // Error if no exception is thrown.
+    }
+
+    // ------------------ vizinhancaK Tests (CC = 3) ------------------
+    @Test
+    public void vizinhancaK() {
+        GrafoAdjacencia grafo = GrafoAdjacencia.construir(createCaminho());
+        assertEquals(Arrays.asList("B", "C"), grafo.vizinhancaK("A", 2), "Error: Expected the properties within two hops"); // Error if result differs.
+        assertTrue(grafo.vizinhancaK("Z", 2).isEmpty(), "Error: Unknown objectId should have no neighbourhood"); // Error if not empty.
+    }
+}
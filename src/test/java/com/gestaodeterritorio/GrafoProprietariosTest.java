@@ -0,0 +1,90 @@
+package com.gestaodeterritorio;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class GrafoProprietariosTest {
+
+    // Helper method to build a lado x lado grid graph whose parcels belong to one owner per column band.
+    private GrafoProprietarios createGrelha(int lado, int largura, int threads) throws Exception {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        List<String[]> arestas = new ArrayList<>();
+        for (int x = 0; x < lado; x++) {
+            for (int y = 0; y < lado; y++) {
+                int v = x * lado + y;
+                props.add(PropriedadesTeste.comDono(Integer.toString(v), "owner" + (x / largura)));
+                if (y + 1 < lado) arestas.add(new String[]{Integer.toString(v), Integer.toString(v + 1)});
+                if (x + 1 < lado) arestas.add(new String[]{Integer.toString(v), Integer.toString(v + lado)});
+            }
+        }
+        return GrafoProprietarios.construir(props, GrafoAdjacencia.construir(props, arestas), threads);
+    }
+
+    // ------------------ construir Tests (CC = 7) ------------------
+
+    // Test 1: Parcels of the same owner collapse; contacts count every adjacent parcel pair.
+    @Test
+    public void construir1() throws Exception {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(PropriedadesTeste.comDono("1", "Ana"));
+        props.add(PropriedadesTeste.comDono("2", "Ana"));
+        props.add(PropriedadesTeste.comDono("3", "Rui"));
+        props.add(PropriedadesTeste.comDono("4", "Rui"));
+        List<String[]> arestas = new ArrayList<>();
+        arestas.add(new String[]{"1", "2"}); // same owner, ignored
+        arestas.add(new String[]{"1", "3"});
+        arestas.add(new String[]{"2", "4"});
+        arestas.add(new String[]{"2", "3"});
+        GrafoProprietarios grafo = GrafoProprietarios.construir(props, GrafoAdjacencia.construir(props, arestas), 1);
+        assertEquals(2, grafo.numeroProprietarios(), "Error: Expected two distinct owners"); // Error if count differs.
+        assertEquals(1, grafo.numeroArestas(), "Error: Expected a single Ana-Rui edge"); // Error if count differs.
+        assertEquals("Ana", grafo.proprietario(grafo.origem(0)), "Error: Origin should have the smaller code"); // Error if origin differs.
+        assertEquals("Rui", grafo.proprietario(grafo.destino(0)), "Error: Destination should have the larger code"); // Error if destination differs.
+        assertEquals(3, grafo.contactos(0), "Error: Expected three adjacent parcel pairs between Ana and Rui"); // Error if count differs.
+        assertEquals(2, grafo.numeroPropriedades(grafo.indice("Ana")), "Error: Ana should own two parcels"); // Error if count differs.
+    }
+
+    // Test 2: Parcels without owner are ignored.
+    @Test
+    public void construir2() throws Exception {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(PropriedadesTeste.comDono("1", "Ana"));
+        props.add(PropriedadesTeste.comDono("2", null));
+        props.add(PropriedadesTeste.comDono("3", " "));
+        List<String[]> arestas = new ArrayList<>();
+        arestas.add(new String[]{"1", "2"});
+        arestas.add(new String[]{"1", "3"});
+        GrafoProprietarios grafo = GrafoProprietarios.construir(props, GrafoAdjacencia.construir(props, arestas), 1);
+        assertEquals(1, grafo.numeroProprietarios(), "Error: Parcels without owner should not create owners"); // Error if count differs.
+        assertEquals(0, grafo.numeroArestas(), "Error: Parcels without owner should not create edges"); // Error if count differs.
+        assertEquals(-1, grafo.indice("Rui"), "Error: Unknown owner should have index -1"); // Error if index differs.
+    }
+
+    // Test 3: The parallel path returns exactly the same edges and contacts as the sequential path.
+    @Test
+    public void construir3() throws Exception {
+        GrafoProprietarios sequencial = createGrelha(120, 7, 1);
+        GrafoProprietarios paralelo = createGrelha(120, 7, 4);
+        // 18 owners in bands of 7 columns (the last one has 1): 17 boundaries with 120 contacts each.
+        assertEquals(18, sequencial.numeroProprietarios(), "Error: Unexpected number of owners"); // Error if count differs.
+        assertEquals(17, sequencial.numeroArestas(), "Error: Expected one edge between consecutive bands"); // Error if count differs.
+        assertEquals(sequencial.numeroArestas(), paralelo.numeroArestas(), "Error: Parallel path should find the same edges"); // Error if count differs.
+        for (int k = 0; k < sequencial.numeroArestas(); k++) {
+            assertEquals(120, sequencial.contactos(k), "Error: Expected one contact per row across a band boundary"); // Error if count differs.
+            assertEquals(sequencial.origem(k), paralelo.origem(k), "Error: Parallel path should keep the edge order"); // Error if edges differ.
+            assertEquals(sequencial.destino(k), paralelo.destino(k), "Error: Parallel path should keep the edge order"); // Error if edges differ.
+            assertEquals(sequencial.contactos(k), paralelo.contactos(k), "Error: Parallel path should sum the same contacts"); // Error if counts differ.
+        }
+    }
+
+    // Test 4: A thread count below 1 is rejected.
+    @Test
+    public void construir4() {
+        assertThrows(IllegalArgumentException.class,
+                () -> GrafoProprietarios.construir(new ArrayList<>(), GrafoAdjacencia.construir(new ArrayList<>()), 0),
+                "Error: Expected IllegalArgumentException for a thread count below 1"); // Error if no exception is thrown.
+    }
+}
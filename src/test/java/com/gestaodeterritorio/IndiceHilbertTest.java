@@ -0,0 +1,173 @@
+package com.gestaodeterritorio;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import org.locationtech.jts.geom.Envelope;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class IndiceHilbertTest {
+
+    @TempDir
+    Path tempDir;
+
+    // Helper method to build random small envelopes, with a few null positions left out of the index.
+    private Envelope[] createEnvelopes(int n, long semente) {
+        Random random = new Random(semente);
+        Envelope[] envelopes = new Envelope[n];
+        for (int i = 0; i < n; i++) {
+            if (i % 17 == 5) continue;
+            double x = random.nextDouble() * 1000;
+            double y = random.nextDouble() * 1000;
+            envelopes[i] = new Envelope(x, x + random.nextDouble() * 10, y, y + random.nextDouble() * 10);
+        }
+        return envelopes;
+    }
+
+    // Helper method to answer a query by brute force, returning the sorted matching positions.
+    private int[] forcaBruta(Envelope[] envelopes, Envelope consulta) {
+        List<Integer> itens = new ArrayList<>();
+        for (int i = 0; i < envelopes.length; i++) {
+            if (envelopes[i] != null && envelopes[i].intersects(consulta)) itens.add(i);
+        }
+        return itens.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Helper method to sort the result of a query.
+    private int[] ordenar(int[] itens) {
+        int[] copia = itens.clone();
+        Arrays.sort(copia);
+        return copia;
+    }
+
+    // Helper method to build a row of unit squares.
+    private List<PropriedadeRustica> createPropriedades(int n) {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            props.add(PropriedadesTeste.criar(Integer.toString(i),
+                    "POLYGON ((" + i + " 0, " + (i + 1) + " 0, " + (i + 1) + " 1, " + i + " 1, " + i + " 0))"));
+        }
+        return props;
+    }
+
+    // ------------------ construir Tests (CC = 4) ------------------
+
+    // Test 1: Queries return exactly the brute-force matches, for several node sizes.
+    @Test
+    public void construir1() {
+        Envelope[] envelopes = createEnvelopes(3000, 1);
+        Random random = new Random(2);
+        for (int tamanhoNo : new int[]{2, 7, 16}) {
+            IndiceHilbert indice = IndiceHilbert.construir(envelopes, tamanhoNo);
+            assertEquals(3000 - 177, indice.numeroItens(), "Error: Null envelopes should be left out"); // Error if count differs.
+            for (int q = 0; q < 200; q++) {
+                double x = random.nextDouble() * 1000;
+                double y = random.nextDouble() * 1000;
+                Envelope consulta = new Envelope(x, x + random.nextDouble() * 50, y, y + random.nextDouble() * 50);
+                assertArrayEquals(forcaBruta(envelopes, consulta), ordenar(indice.consultar(consulta)),
+                        "Error: Query should match brute force with node size " + tamanhoNo); // Error if results differ.
+            }
+        }
+    }
+
+    // Test 2: Empty and single-item indexes answer queries.
+    @Test
+    public void construir2() {
+        IndiceHilbert vazio = IndiceHilbert.construir(new Envelope[0], 16);
+        assertEquals(0, vazio.consultar(new Envelope(0, 1, 0, 1)).length, "Error: An empty index should find nothing"); // Error if not empty.
+        IndiceHilbert um = IndiceHilbert.construir(new Envelope[]{null, new Envelope(0, 1, 0, 1)}, 16);
+        assertArrayEquals(new int[]{1}, um.consultar(new Envelope(0.5, 2, 0.5, 2)), "Error: Expected the single item"); // Error if results differ.
+        assertEquals(0, um.consultar(new Envelope(5, 6, 5, 6)).length, "Error: Disjoint query should find nothing"); // Error if not empty.
+        assertEquals(2, um.tamanhoLista(), "Error: List size should include positions without envelope"); // Error if size differs.
+    }
+
+    // Test 3: A node size below 2 is rejected.
+    @Test
+    public void construir3() {
+        assertThrows(IllegalArgumentException.class, () -> IndiceHilbert.construir(new Envelope[0], 1),
+                "Error: Expected IllegalArgumentException for a node size below 2"); // Error if no exception is thrown.
+    }
+
+    // ------------------ hilbert Tests (CC = 3) ------------------
+    @Test
+    public void hilbert() {
+        assertEquals(0, IndiceHilbert.hilbert(0, 0), "Error: The curve should start at the origin"); // Error if value differs.
+        assertTrue(IndiceHilbert.hilbert(0, 1) == 1 || IndiceHilbert.hilbert(1, 0) == 1,
+                "Error: The second cell should be next to the origin"); // Error if the curve jumps.
+        assertTrue(IndiceHilbert.hilbert(32767, 0) > 0, "Error: Values should stay positive"); // Error if the value overflows.
+    }
+
+    // ------------------ escrever / abrir Tests (CC = 4) ------------------
+
+    // Test 1: A memory-mapped index answers queries like the one it was written from.
+    @Test
+    public void abrir1() throws Exception {
+        Envelope[] envelopes = createEnvelopes(1000, 3);
+        IndiceHilbert original = IndiceHilbert.construir(envelopes, 16);
+        Path ficheiro = tempDir.resolve("indice.bin");
+        original.escrever(ficheiro, 99L);
+
+        IndiceHilbert mapeado = IndiceHilbert.abrir(ficheiro, 99L);
+        assertNotNull(mapeado, "Error: Expected the index to open with the matching hash"); // Error if null.
+        assertEquals(original.numeroItens(), mapeado.numeroItens(), "Error: Item count should be kept"); // Error if count differs.
+        assertEquals(1000, mapeado.tamanhoLista(), "Error: List size should be kept"); // Error if size differs.
+        Envelope consulta = new Envelope(100, 400, 100, 400);
+        assertArrayEquals(ordenar(original.consultar(consulta)), ordenar(mapeado.consultar(consulta)),
+                "Error: Mapped index should return the same items"); // Error if results differ.
+        assertFalse(Files.exists(tempDir.resolve("indice.bin.tmp")), "Error: Temporary file should be moved into place"); // Error if left behind.
+    }
+
+    // Test 2: Missing, stale and truncated files are ignored.
+    @Test
+    public void abrir2() throws Exception {
+        Path ficheiro = tempDir.resolve("indice.bin");
+        assertNull(IndiceHilbert.abrir(ficheiro, 1L), "Error: A missing file should be ignored"); // Error if not null.
+        IndiceHilbert.construir(createEnvelopes(100, 4), 16).escrever(ficheiro, 1L);
+        assertNull(IndiceHilbert.abrir(ficheiro, 2L), "Error: An index for another source should be ignored"); // Error if not null.
+        byte[] bytes = Files.readAllBytes(ficheiro);
+        Files.write(ficheiro, Arrays.copyOf(bytes, bytes.length - 4));
+        assertNull(IndiceHilbert.abrir(ficheiro, 1L), "Error: A truncated index should be ignored"); // Error if not null.
+    }
+
+    // ------------------ carregar Tests (CC = 2) ------------------
+
+    // Test 1: A warm start with the same parcels reads the index instead of building it.
+    @Test
+    public void carregar1() throws Exception {
+        List<PropriedadeRustica> props = createPropriedades(20);
+        GeometriaStore geometrias = GeometriaStore.carregar(props);
+        Path ficheiro = tempDir.resolve("indice.bin");
+        IndiceHilbert construido = IndiceHilbert.carregar(ficheiro, props, geometrias);
+        assertTrue(Files.exists(ficheiro), "Error: The first run should write the index"); // Error if no file.
+
+        IndiceHilbert lido = IndiceHilbert.carregar(ficheiro, props, new GeometriaStore());
+        assertEquals(20, lido.numeroItens(), "Error: A warm start should read the index without geometries"); // Error if rebuilt from the empty store.
+        assertArrayEquals(ordenar(construido.consultar(new Envelope(3.5, 5.5, 0, 1))), ordenar(lido.consultar(new Envelope(3.5, 5.5, 0, 1))),
+                "Error: The reopened index should find the same parcels"); // Error if results differ.
+    }
+
+    // Test 2: Changing other columns keeps the index, and changing a geometry rebuilds it.
+    @Test
+    public void carregar2() throws Exception {
+        List<PropriedadeRustica> props = createPropriedades(20);
+        Path ficheiro = tempDir.resolve("indice.bin");
+        IndiceHilbert.carregar(ficheiro, props, GeometriaStore.carregar(props));
+
+        List<PropriedadeRustica> outroDono = new ArrayList<>(props);
+        outroDono.set(3, new PropriedadeRustica("3", null, null, "4", "1", props.get(3).getGeometry(), "Ana", null, null, null));
+        assertEquals(20, IndiceHilbert.carregar(ficheiro, outroDono, new GeometriaStore()).numeroItens(),
+                "Error: Changing only the owner should keep the stored index"); // Error if rebuilt from the empty store.
+
+        List<PropriedadeRustica> movida = new ArrayList<>(props);
+        movida.set(3, PropriedadesTeste.criar("3", "POLYGON ((50 0, 51 0, 51 1, 50 1, 50 0))"));
+        IndiceHilbert reconstruido = IndiceHilbert.carregar(ficheiro, movida, GeometriaStore.carregar(movida));
+        assertArrayEquals(new int[]{3}, reconstruido.consultar(new Envelope(50.5, 50.5, 0.5, 0.5)),
+                "Error: A moved parcel should be found at its new place"); // Error if the stale index is used.
+    }
+}
@@ -0,0 +1,82 @@
+package com.gestaodeterritorio;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LeitorCsvCadastroTest {
+
+    private static final String CABECALHO = "OBJECTID;PAR_ID;PAR_NUM;Shape_Length;Shape_Area;geometry;OWNER;Freguesia;Municipio;Ilha\n";
+
+    // Helper method to read every property from an in-memory CSV.
+    private List<PropriedadeRustica> ler(String csv) throws IOException {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        try (LeitorCsvCadastro leitor = new LeitorCsvCadastro(new StringReader(csv))) {
+            leitor.forEachRemaining(props::add);
+        }
+        return props;
+    }
+
+    // ------------------ Constructor Tests (CC = 2) ------------------
+    @Test
+    public void constructor() {
+        assertThrows(IOException.class, () -> new LeitorCsvCadastro(new StringReader("")),
+                "Error: Expected IOException when the CSV has no header"); // Error if no exception is thrown.
+    }
+
+    // ------------------ next Tests (CC = 4) ------------------
+
+    // Test 1: Every column is mapped by header name, whatever the column order.
+    @Test
+    public void next1() throws Exception {
+        String csv = "Ilha;OWNER;objectid;PAR_ID;PAR_NUM;Shape_Length;Shape_Area;geometry;Freguesia;Municipio\n"
+                + "Madeira;Ana;7;p7;n7;12.5;9.75;POINT (1 2);Se;Funchal\n";
+        PropriedadeRustica p = ler(csv).get(0);
+        assertEquals("7", p.getObjectId(), "Error: OBJECTID should be matched ignoring case"); // Error if value differs.
+        assertEquals("Ana", p.getOwner(), "Error: OWNER should be mapped by header name"); // Error if value differs.
+        assertEquals("9.75", p.getShapeArea(), "Error: Shape_Area should be mapped by header name"); // Error if value differs.
+        assertEquals("POINT (1 2)", p.getGeometry(), "Error: geometry should be mapped by header name"); // Error if value differs.
+        assertEquals("Madeira", p.getIlha(), "Error: Ilha should be mapped by header name"); // Error if value differs.
+    }
+
+    // Test 2: Quoted fields keep separators, doubled quotes and line breaks; whitespace before a quote is ignored.
+    @Test
+    public void next2() throws Exception {
+        String csv = CABECALHO + "1;;n1; 4.0;1.0;  \"POLYGON ((0 0; 1 \"\"x\"\"\n 0))\";o;F;M;I\r\n";
+        PropriedadeRustica p = ler(csv).get(0);
+        assertEquals("", p.getParId(), "Error: Empty field should be read as an empty string"); // Error if value differs.
+        assertEquals(" 4.0", p.getShapeLength(), "Error: Unquoted leading whitespace should be kept"); // Error if value differs.
+        assertEquals("POLYGON ((0 0; 1 \"x\"\n 0))", p.getGeometry(), "Error: Quoted field should be unescaped"); // Error if value differs.
+        assertEquals("I", p.getIlha(), "Error: CRLF line ending should not leak into the last field"); // Error if value differs.
+    }
+
+    // Test 3: Empty lines are skipped and the last line may have no line break.
+    @Test
+    public void next3() throws Exception {
+        String csv = CABECALHO + "\n1;p;n;1;1;g;o;F;M;I\n\n2;p;n;1;1;g;o;F;M;I";
+        List<PropriedadeRustica> props = ler(csv);
+        assertEquals(2, props.size(), "Error: Expected two records after skipping empty lines"); // Error if size != 2.
+        assertEquals("2", props.get(1).getObjectId(), "Error: Last record without line break should be read"); // Error if value differs.
+    }
+
+    // Test 4: A record with a wrong number of fields is rejected.
+    @Test
+    public void next4() {
+        String csv = CABECALHO + "1;p;n\n";
+        assertThrows(UncheckedIOException.class, () -> ler(csv),
+                "Error: Expected an exception for a record with missing fields"); // Error if no exception is thrown.
+    }
+
+    // Test 5: An unterminated quoted field is rejected.
+    @Test
+    public void next5() {
+        String csv = CABECALHO + "1;p;n;1;1;\"POLYGON ((0 0;o;F;M;I\n";
+        assertThrows(UncheckedIOException.class, () -> ler(csv),
+                "Error: Expected an exception for an unterminated quoted field"); // Error if no exception is thrown.
+    }
+}
@@ -0,0 +1,115 @@
+package com.gestaodeterritorio;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class LocalizadorPropriedadesTest {
+
+    // Helper method to build a grid of unit squares, each sharing its borders with its neighbours.
+    private List<PropriedadeRustica> createGrelha(int lado) {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        for (int x = 0; x < lado; x++) {
+            for (int y = 0; y < lado; y++) {
+                String wkt = String.format("POLYGON((%d %d, %d %d, %d %d, %d %d, %d %d))",
+                        x, y, x + 1, y, x + 1, y + 1, x, y + 1, x, y);
+                props.add(PropriedadesTeste.criar(x + "_" + y, wkt));
+            }
+        }
+        return props;
+    }
+
+    // Helper method to build a locator with the given cache capacity and number of threads.
+    private LocalizadorPropriedades createLocalizador(List<PropriedadeRustica> props, int capacidade, int threads) {
+        GeometriaStore geometrias = GeometriaStore.carregar(props);
+        return new LocalizadorPropriedades(props, geometrias, IndiceHilbert.construir(props, geometrias), capacidade, threads);
+    }
+
+    // ------------------ LocalizadorPropriedades Tests (CC = 4) ------------------
+
+    // Test 1: An index built for another list, a zero capacity or zero threads are rejected.
+    @Test
+    public void construtor1() {
+        List<PropriedadeRustica> props = createGrelha(2);
+        GeometriaStore geometrias = GeometriaStore.carregar(props);
+        IndiceHilbert indice = IndiceHilbert.construir(props, geometrias);
+        assertThrows(IllegalArgumentException.class,
+                () -> new LocalizadorPropriedades(props.subList(0, 3), geometrias, indice, 10, 1),
+                "Error: An index for another list should be rejected"); // Error if no exception is thrown.
+        assertThrows(IllegalArgumentException.class,
+                () -> new LocalizadorPropriedades(props, geometrias, indice, 0, 1),
+                "Error: Zero capacity should be rejected"); // Error if no exception is thrown.
+        assertThrows(IllegalArgumentException.class,
+                () -> new LocalizadorPropriedades(props, geometrias, indice, 10, 0),
+                "Error: Zero threads should be rejected"); // Error if no exception is thrown.
+    }
+
+    // ------------------ localizar Tests (CC = 5) ------------------
+
+    // Test 1: A point inside a parcel returns that parcel, and a point outside every parcel returns null.
+    @Test
+    public void localizar1() {
+        List<PropriedadeRustica> props = createGrelha(3);
+        LocalizadorPropriedades localizador = new LocalizadorPropriedades(props, GeometriaStore.carregar(props));
+        assertEquals("1_2", localizador.localizar(1.5, 2.5).getObjectId(), "Error: Expected parcel 1_2"); // Error if wrong parcel.
+        assertNull(localizador.localizar(10, 10), "Error: Point outside the grid should return null"); // Error if a parcel is returned.
+    }
+
+    // Test 2: A point inside the envelope but outside the polygon returns null.
+    @Test
+    public void localizar2() {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(PropriedadesTeste.criar("L", "POLYGON((0 0, 2 0, 2 1, 1 1, 1 2, 0 2, 0 0))"));
+        props.add(PropriedadesTeste.criar("X", "POLYGON((invalid))"));
+        LocalizadorPropriedades localizador = createLocalizador(props, 10, 1);
+        assertNull(localizador.localizar(1.5, 1.5), "Error: Point in the notch should return null"); // Error if L is returned.
+        assertEquals("L", localizador.localizar(0.5, 1.5).getObjectId(), "Error: Expected parcel L"); // Error if wrong parcel.
+    }
+
+    // Test 3: A point on a shared border belongs to the parcel with the lowest position in the list.
+    @Test
+    public void localizar3() {
+        List<PropriedadeRustica> props = createGrelha(2);
+        LocalizadorPropriedades localizador = createLocalizador(props, 10, 1);
+        assertEquals("0_0", localizador.localizar(1, 1).getObjectId(), "Error: Corner should go to the first parcel"); // Error if wrong parcel.
+        assertEquals("1_0", localizador.localizar(1.5, 1).getObjectId(), "Error: Border should go to the first parcel"); // Error if wrong parcel.
+    }
+
+    // Test 4: Repeated lookups reuse the cache, which never exceeds its capacity.
+    @Test
+    public void localizar4() {
+        LocalizadorPropriedades localizador = createLocalizador(createGrelha(20), 32, 1);
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            localizador.localizar(random.nextDouble() * 20, random.nextDouble() * 20);
+        }
+        assertTrue(localizador.tamanhoCache() <= 32, "Error: Cache should stay within its capacity"); // Error if unbounded.
+        localizador.localizar(0.5, 0.5);
+        long acertos = localizador.getAcertos();
+        localizador.localizar(0.5, 0.5);
+        assertEquals(acertos + 1, localizador.getAcertos(), "Error: A repeated lookup should hit the cache"); // Error if prepared again.
+    }
+
+    // Test 5: Batch lookups with several threads match single lookups, and mismatched arrays are rejected.
+    @Test
+    public void localizar5() {
+        LocalizadorPropriedades localizador = createLocalizador(createGrelha(30), 64, 4);
+        Random random = new Random(11);
+        int n = LocalizadorPropriedades.LIMIAR_SEQUENCIAL * 5;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = random.nextDouble() * 32 - 1;
+            ys[i] = random.nextDouble() * 32 - 1;
+        }
+        PropriedadeRustica[] resultado = localizador.localizar(xs, ys);
+        for (int i = 0; i < n; i++) {
+            assertSame(localizador.localizar(xs[i], ys[i]), resultado[i], "Error: Batch and single lookups differ"); // Error if results differ.
+        }
+        assertThrows(IllegalArgumentException.class, () -> localizador.localizar(new double[2], new double[1]),
+                "Error: Mismatched arrays should be rejected"); // Error if no exception is thrown.
+    }
+}
@@ -2,15 +2,21 @@ package com.gestaodeterritorio;
 
 import org.junit.jupiter.api.*;
 import org.neo4j.driver.*;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.summary.Plan;
 import org.neo4j.harness.Neo4j;
 import org.neo4j.harness.Neo4jBuilders;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -25,17 +31,23 @@ public class Neo4jConnectorTest {
     @BeforeAll
     public void setUpAll() {
         embeddedDatabase = Neo4jBuilders.newInProcessBuilder().withDisabledServer().build();
-        testDriver = GraphDatabase.driver(embeddedDatabase.boltURI(), Config.builder().withoutEncryption().build());
     }
 
     @AfterAll
     public void tearDownAll() {
-        testDriver.close();
         embeddedDatabase.close();
     }
 
+    @AfterEach
+    public void tearDown() {
+        testDriver.close();
+    }
+
     @BeforeEach
     public void setUp() throws Exception {
+        // A fresh driver per test, since close() shuts the driver down.
+        testDriver = GraphDatabase.driver(embeddedDatabase.boltURI(), Config.builder().withoutEncryption().build());
+
         // Instantiate the connector and override its driver with our in-memory test driver.
         connector = new Neo4jConnector();
         Field driverField = Neo4jConnector.class.getDeclaredField("driver");
@@ -171,6 +183,172 @@ public class Neo4jConnectorTest {
         }
     }
 
+    @Test
+    public void criarPropriedadesGrafo4() throws Exception {
+        // Path 4: Properties and relationships are written in several small batches by concurrent sessions.
+        connector.setEscritaEmLotes(2, 3);
+        List<PropriedadeRustica> props = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            props.add(createPropriedade("P" + i, "p" + i, "num" + i, "4", "1",
+                    "POLYGON((" + i + " 0, " + (i + 1) + " 0, " + (i + 1) + " 1, " + i + " 1, " + i + " 0))",
+                    "owner", "freg", "mun", "ilha"));
+        }
+        connector.criarPropriedadesGrafo(props);
+        connector.criarRelacoesAdjacenciaGrafo(props);
+        try (Session session = testDriver.session()) {
+            long nodes = session.readTransaction(tx -> tx.run("MATCH (n:Propriedade) RETURN count(n) AS count")
+                    .single().get("count").asLong());
+            long rels = session.readTransaction(tx -> tx.run("MATCH ()-[:ADJACENTE_A]->() RETURN count(*) AS count")
+                    .single().get("count").asLong());
+            assertEquals(5, nodes, "Error: All properties should be inserted across batches"); // Error if count != 5.
+            assertEquals(4, rels, "Error: All adjacency relationships should be inserted across batches"); // Error if count != 4.
+        }
+    }
+
+    @Test
+    public void criarPropriedadesGrafo5() throws Exception {
+        // Path 5: Re-running the ingest is idempotent and updates changed attributes in place.
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(createPropriedade("1", "p1", "num1", "10", "100", "POINT(0 0)", "owner", "freg", "mun", "ilha"));
+        connector.criarPropriedadesGrafo(props);
+        props.set(0, createPropriedade("1", "p1", "num1", "10", "250", "POINT(0 0)", "owner", "freg", "mun", "ilha"));
+        connector.criarPropriedadesGrafo(props);
+        try (Session session = testDriver.session()) {
+            List<String> areas = session.readTransaction(tx -> tx.run("MATCH (n:Propriedade) RETURN n.shapeArea AS area")
+                    .list(r -> r.get("area").asString()));
+            assertEquals(1, areas.size(), "Error: Re-running the ingest should not duplicate nodes"); // Error if count != 1.
+            assertEquals("250", areas.get(0), "Error: Changed attributes should be updated by the upsert"); // Error if not updated.
+        }
+    }
+
+    @Test
+    public void criarPropriedadesGrafo6() throws Exception {
+        // Path 6: Each node stores a native centroid point and its bounding box; invalid geometries store neither.
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(createPropriedade("1", "p1", "num1", "10", "8", "POLYGON((0 0, 4 0, 4 2, 0 2, 0 0))",
+                "owner", "freg", "mun", "ilha"));
+        props.add(createPropriedade("2", "p2", "num2", "10", "8", "POLYGON((invalid))", "owner", "freg", "mun", "ilha"));
+        connector.criarPropriedadesGrafo(props);
+        try (Session session = testDriver.session()) {
+            Record r = session.readTransaction(tx -> tx.run("MATCH (n:Propriedade {objectId: '1'}) " +
+                    "RETURN n.centroide AS c, n.minX AS minX, n.maxY AS maxY, n.extensao AS extensao").single());
+            assertEquals(2.0, r.get("c").asPoint().x(), 1e-9, "Error: Expected centroid x = 2"); // Error if x differs.
+            assertEquals(1.0, r.get("c").asPoint().y(), 1e-9, "Error: Expected centroid y = 1"); // Error if y differs.
+            assertEquals(Neo4jConnector.SRID_CARTESIANO, r.get("c").asPoint().srid(), "Error: Expected a cartesian point"); // Error if SRID differs.
+            assertEquals(0.0, r.get("minX").asDouble(), 1e-9, "Error: Expected minX = 0"); // Error if minX differs.
+            assertEquals(2.0, r.get("maxY").asDouble(), 1e-9, "Error: Expected maxY = 2"); // Error if maxY differs.
+            assertEquals(4.0, r.get("extensao").asDouble(), 1e-9, "Error: Expected extent = 4"); // Error if extent differs.
+            boolean semCentroide = session.readTransaction(tx -> tx.run("MATCH (n:Propriedade {objectId: '2'}) " +
+                    "RETURN n.centroide IS NULL AS vazio").single().get("vazio").asBoolean());
+            assertTrue(semCentroide, "Error: Invalid geometry should not get a centroid"); // Error if a centroid is stored.
+        }
+    }
+
+    // ------------------ criarEsquema Tests (Cyclomatic Complexity = 2) ------------------
+    @Test
+    public void criarEsquema() {
+        connector.criarEsquema();
+        connector.criarEsquema(); // second call is a no-op
+        try (Session session = testDriver.session()) {
+            long count = session.run("SHOW CONSTRAINTS YIELD name, type, labelsOrTypes, properties " +
+                    "WHERE type = 'UNIQUENESS' AND 'Propriedade' IN labelsOrTypes AND 'objectId' IN properties " +
+                    "RETURN count(*) AS count").single().get("count").asLong();
+            assertEquals(1, count, "Error: Expected a uniqueness constraint on Propriedade.objectId"); // Error if count != 1.
+            long pontos = session.run("SHOW INDEXES YIELD type, labelsOrTypes, properties " +
+                    "WHERE type = 'POINT' AND 'Propriedade' IN labelsOrTypes AND 'centroide' IN properties " +
+                    "RETURN count(*) AS count").single().get("count").asLong();
+            assertEquals(1, pontos, "Error: Expected a point index on Propriedade.centroide"); // Error if count != 1.
+        }
+    }
+
+    @Test
+    public void setEscritaEmLotes() {
+        assertThrows(IllegalArgumentException.class, () -> connector.setEscritaEmLotes(0, 1),
+                "Error: Expected IllegalArgumentException for an invalid batch size"); // Error if no exception is thrown.
+    }
+
+    // ------------------ procurarNoRaio Tests (Cyclomatic Complexity = 2) ------------------
+
+    // Helper method to insert a row of unit squares starting at x = 0, 1, ..., n - 1.
+    private List<PropriedadeRustica> inserirQuadrados(int n) throws Exception {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            props.add(quadrado(Integer.toString(i), i));
+        }
+        connector.criarPropriedadesGrafo(props);
+        return props;
+    }
+
+    // Helper method to collect every operator of a query plan, waiting for the indexes to come online first.
+    private List<String> operadores(String query, Value parametros) {
+        try (Session session = testDriver.session()) {
+            session.run("CALL db.awaitIndexes(60)").consume();
+            List<String> operadores = new ArrayList<>();
+            List<Plan> pendentes = new ArrayList<>();
+            pendentes.add(session.run("EXPLAIN " + query, parametros).consume().plan());
+            while (!pendentes.isEmpty()) {
+                Plan plano = pendentes.remove(pendentes.size() - 1);
+                operadores.add(plano.operatorType());
+                pendentes.addAll(plano.children());
+            }
+            return operadores;
+        }
+    }
+
+    @Test
+    public void procurarNoRaio1() throws Exception {
+        // Path 1: Centroids within the radius are returned nearest first, using the point index.
+        inserirQuadrados(5);
+        assertEquals(Arrays.asList("2", "3", "1"), connector.procurarNoRaio(2.6, 0.5, 1.2),
+                "Error: Expected squares 2, 3 and 1 ordered by distance"); // Error if result differs.
+        assertTrue(connector.procurarNoRaio(100, 100, 1).isEmpty(), "Error: Expected no parcel far away"); // Error if not empty.
+        List<String> operadores = operadores(Neo4jConnector.QUERY_RAIO, Values.parameters(
+                "centro", Values.point(Neo4jConnector.SRID_CARTESIANO, 0, 0), "raio", 1.0));
+        assertTrue(operadores.stream().anyMatch(o -> o.startsWith("NodeIndexSeek")),
+                "Error: Radius search should seek the point index, plan: " + operadores); // Error if the index is not used.
+    }
+
+    @Test
+    public void procurarNoRaio2() {
+        // Path 2: A negative radius is rejected.
+        assertThrows(IllegalArgumentException.class, () -> connector.procurarNoRaio(0, 0, -1),
+                "Error: Expected IllegalArgumentException for a negative radius"); // Error if no exception is thrown.
+    }
+
+    // ------------------ procurarNaCaixa Tests (Cyclomatic Complexity = 3) ------------------
+    @Test
+    public void procurarNaCaixa1() throws Exception {
+        // Path 1: A large parcel whose centroid is outside the box is found through its bounding box.
+        List<PropriedadeRustica> props = inserirQuadrados(3);
+        props.add(createPropriedade("L", "pL", "nL", "4", "1", "POLYGON((10 0, 30 0, 30 1, 10 1, 10 0))",
+                "owner", "freg", "mun", "ilha"));
+        connector.criarPropriedadesGrafo(props);
+        assertEquals(Arrays.asList("2", "L"),
+                connector.procurarNaCaixa(new Envelope(2.5, 11, 0.2, 0.8)),
+                "Error: Expected the square at x = 2 and the long parcel"); // Error if result differs.
+        assertTrue(connector.procurarNaCaixa(new Envelope(50, 60, 0, 1)).isEmpty(),
+                "Error: Expected no parcel in an empty area"); // Error if not empty.
+
+        List<String> operadores = operadores(Neo4jConnector.QUERY_CAIXA, Values.parameters(
+                "inferior", Values.point(Neo4jConnector.SRID_CARTESIANO, 0, 0),
+                "superior", Values.point(Neo4jConnector.SRID_CARTESIANO, 1, 1),
+                "minX", 0.0, "minY", 0.0, "maxX", 1.0, "maxY", 1.0));
+        assertTrue(operadores.stream().anyMatch(o -> o.startsWith("NodeIndexSeek")),
+                "Error: Box search should seek the point index, plan: " + operadores); // Error if the index is not used.
+        operadores = operadores(Neo4jConnector.QUERY_MAIOR_EXTENSAO, Values.parameters());
+        assertTrue(operadores.stream().anyMatch(o -> o.startsWith("NodeIndex")),
+                "Error: Largest extent should come from the extensao index, plan: " + operadores); // Error if the index is not used.
+    }
+
+    @Test
+    public void procurarNaCaixa2() {
+        // Path 2: An empty graph returns nothing, and a null envelope is rejected.
+        assertTrue(connector.procurarNaCaixa(new Envelope(0, 1, 0, 1)).isEmpty(),
+                "Error: Expected no parcel in an empty graph"); // Error if not empty.
+        assertThrows(IllegalArgumentException.class, () -> connector.procurarNaCaixa(new Envelope()),
+                "Error: Expected IllegalArgumentException for a null envelope"); // Error if no exception is thrown.
+    }
+
     // ------------------ criarRelacoesAdjacenciaGrafo Tests (Cyclomatic Complexity = 6) ------------------
     @Test
     public void criarRelacoesAdjacenciaGrafo1() throws Exception {
@@ -274,14 +452,253 @@ public class Neo4jConnectorTest {
         }
     }
 
+    @Test
+    public void criarRelacoesAdjacenciaGrafo7() throws Exception {
+        // Path 7: The returned in-memory graph holds every property, including isolated ones, and every edge.
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(quadrado("A", 0));
+        props.add(quadrado("B", 1));
+        props.add(quadrado("C", 5));
+        GrafoAdjacencia grafo = connector.criarRelacoesAdjacenciaGrafo(props);
+        assertEquals(3, grafo.numeroVertices(), "Error: Expected one vertex per property"); // Error if count differs.
+        assertEquals(1, grafo.numeroArestas(), "Error: Expected only the A-B edge"); // Error if count differs.
+        assertEquals(0, grafo.grau("C"), "Error: Isolated property should have no neighbours"); // Error if degree differs.
+    }
+
+    // ------------------ criarRelacoesAdjacenciaPorSegmentos Tests (Cyclomatic Complexity = 2) ------------------
+    @Test
+    public void criarRelacoesAdjacenciaPorSegmentos() throws Exception {
+        // Shared-edge relationships carry the border length, reuse existing ones and do not duplicate on a second run.
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(quadrado("A", 0));
+        props.add(quadrado("B", 1));
+        props.add(quadrado("C", 5));
+        connector.criarPropriedadesGrafo(props);
+        GrafoAdjacencia grafo = connector.criarRelacoesAdjacenciaPorSegmentos(props, GeometriaStore.carregar(props));
+        connector.criarRelacoesAdjacenciaPorSegmentos(props, GeometriaStore.carregar(props));
+        assertEquals(1, grafo.numeroArestas(), "Error: Expected only the A-B edge"); // Error if count differs.
+        assertEquals(1, contarRelacoes(), "Error: A second run should not duplicate relationships"); // Error if count differs.
+        try (Session session = testDriver.session()) {
+            double comprimento = session.readTransaction(tx -> tx.run(
+                    "MATCH (:Propriedade)-[r:ADJACENTE_A]->(:Propriedade) RETURN r.comprimentoFronteira AS c")
+                    .single().get("c").asDouble());
+            assertEquals(1.0, comprimento, 1e-9, "Error: Expected the shared border length on the relationship"); // Error if length differs.
+        }
+    }
+
+    // ------------------ criarProprietariosGrafo Tests (Cyclomatic Complexity = 2) ------------------
+    @Test
+    public void criarProprietariosGrafo() throws Exception {
+        // Owner nodes and a VIZINHO_DE relationship with its contact count; a second run changes nothing.
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(createPropriedade("A", "pA", "nA", "4", "1", "POLYGON((0 0, 1 0, 1 1, 0 1, 0 0))", "Ana", "f", "m", "i"));
+        props.add(createPropriedade("B", "pB", "nB", "4", "1", "POLYGON((1 0, 2 0, 2 1, 1 1, 1 0))", "Rui", "f", "m", "i"));
+        props.add(createPropriedade("C", "pC", "nC", "4", "1", "POLYGON((2 0, 3 0, 3 1, 2 1, 2 0))", "Ana", "f", "m", "i"));
+        GrafoProprietarios grafo = GrafoProprietarios.construir(props, connector.criarRelacoesAdjacenciaGrafo(props));
+        connector.criarProprietariosGrafo(grafo);
+        connector.criarProprietariosGrafo(grafo);
+        try (Session session = testDriver.session()) {
+            long donos = session.readTransaction(tx -> tx.run("MATCH (o:Proprietario) RETURN count(o) AS count")
+                    .single().get("count").asLong());
+            assertEquals(2, donos, "Error: Expected one node per owner"); // Error if count differs.
+            Record r = session.readTransaction(tx -> tx.run(
+                    "MATCH (a:Proprietario)-[v:VIZINHO_DE]->(b:Proprietario) RETURN a.nome AS a, b.nome AS b, v.contactos AS c, a.numeroPropriedades AS n")
+                    .single());
+            assertEquals("Ana", r.get("a").asString(), "Error: Expected Ana as origin"); // Error if origin differs.
+            assertEquals("Rui", r.get("b").asString(), "Error: Expected Rui as destination"); // Error if destination differs.
+            assertEquals(2, r.get("c").asInt(), "Error: Expected two parcel contacts between Ana and Rui"); // Error if count differs.
+            assertEquals(2, r.get("n").asInt(), "Error: Ana should own two parcels"); // Error if count differs.
+        }
+    }
+
+    // ------------------ criarGrafoEmPipeline Tests (Cyclomatic Complexity = 2) ------------------
+    @Test
+    public void criarGrafoEmPipeline() throws Exception {
+        // Nodes and relationships are created from the file, and a second run adds nothing.
+        Path ficheiro = Files.createTempFile("cadastro", ".csv");
+        Files.write(ficheiro, ("OBJECTID;PAR_ID;PAR_NUM;Shape_Length;Shape_Area;geometry;OWNER;Freguesia;Municipio;Ilha\n"
+                + "1;p1;n1;4;1;POLYGON((0 0, 1 0, 1 1, 0 1, 0 0));o;F;M;I\n"
+                + "2;p2;n2;4;1;POLYGON((1 0, 2 0, 2 1, 1 1, 1 0));o;F;M;I\n"
+                + "3;p3;n3;4;1;POLYGON((5 0, 6 0, 6 1, 5 1, 5 0));o;F;M;I\n").getBytes(StandardCharsets.UTF_8));
+        try {
+            assertEquals(3, connector.criarGrafoEmPipeline(new CadastroLoader(), ficheiro.toString()),
+                    "Error: Expected three properties to be read"); // Error if count differs.
+            assertEquals(1, contarRelacoes(), "Error: Expected only the 1-2 relationship"); // Error if count != 1.
+            try (Session session = testDriver.session()) {
+                long pontos = session.readTransaction(tx -> tx.run("MATCH (n:Propriedade) WHERE n.centroide IS NOT NULL " +
+                        "RETURN count(n) AS count").single().get("count").asLong());
+                assertEquals(3, pontos, "Error: Every node should get its centroid from the pipeline"); // Error if count != 3.
+            }
+            connector.criarGrafoEmPipeline(new CadastroLoader(), ficheiro.toString());
+            assertEquals(1, contarRelacoes(), "Error: A second run should not duplicate relationships"); // Error if count != 1.
+        } finally {
+            Files.delete(ficheiro);
+        }
+    }
+
+    // ------------------ criarGrafoPorQuadriculas Tests (Cyclomatic Complexity = 3) ------------------
+    @Test
+    public void criarGrafoPorQuadriculas() throws Exception {
+        // Parcels on both sides of a tile border are linked once, and a second run adds nothing.
+        Path ficheiro = Files.createTempFile("cadastro", ".csv");
+        Files.write(ficheiro, ("OBJECTID;PAR_ID;PAR_NUM;Shape_Length;Shape_Area;geometry;OWNER;Freguesia;Municipio;Ilha\n"
+                + "1;p1;n1;4;1;POLYGON((0 0, 1 0, 1 1, 0 1, 0 0));o;F;M;I\n"
+                + "2;p2;n2;4;1;POLYGON((1 0, 2 0, 2 1, 1 1, 1 0));o;F;M;I\n"
+                + "3;p3;n3;4;1;POLYGON((2 0, 3 0, 3 1, 2 1, 2 0));o;F;M;I\n"
+                + "4;p4;n4;4;1;POLYGON((5 0, 6 0, 6 1, 5 1, 5 0));o;F;M;I\n").getBytes(StandardCharsets.UTF_8));
+        try {
+            assertEquals(4, connector.criarGrafoPorQuadriculas(new CadastroLoader(), ficheiro.toString(), 1.5),
+                    "Error: Expected four properties to be read"); // Error if count differs.
+            assertEquals(2, contarRelacoes(), "Error: Expected the 1-2 and 2-3 relationships"); // Error if count != 2.
+            connector.criarGrafoPorQuadriculas(new CadastroLoader(), ficheiro.toString(), 1.5);
+            assertEquals(2, contarRelacoes(), "Error: A second run should not duplicate relationships"); // Error if count != 2.
+            assertEquals(4, connector.getRelatorio().etapa("adjacencias por quadrículas").getContador("arestas"),
+                    "Error: The report should count the edges of both runs"); // Error if not recorded.
+        } finally {
+            Files.delete(ficheiro);
+        }
+    }
+
+    // ------------------ atualizarGrafoIncremental Tests (Cyclomatic Complexity = 5) ------------------
+
+    // Helper method to count adjacency relationships.
+    private long contarRelacoes() {
+        try (Session session = testDriver.session()) {
+            return session.readTransaction(tx -> tx.run("MATCH ()-[:ADJACENTE_A]->() RETURN count(*) AS count")
+                    .single().get("count").asLong());
+        }
+    }
+
+    private PropriedadeRustica quadrado(String id, int x) throws Exception {
+        return createPropriedade(id, "p" + id, "n" + id, "4", "1",
+                "POLYGON((" + x + " 0, " + (x + 1) + " 0, " + (x + 1) + " 1, " + x + " 1, " + x + " 0))",
+                "owner", "freg", "mun", "ilha");
+    }
+
+    @Test
+    public void atualizarGrafoIncremental1() throws Exception {
+        // Path 1: Empty list, nothing to update.
+        assertEquals(0, connector.atualizarGrafoIncremental(new ArrayList<>(), new GeometriaStore()),
+                "Error: No property should be reported as changed for an empty list"); // Error if not 0.
+    }
+
+    @Test
+    public void atualizarGrafoIncremental2() throws Exception {
+        // Path 2: First run treats every property as new; a second identical run changes nothing.
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(quadrado("A", 0));
+        props.add(quadrado("B", 1));
+        props.add(quadrado("C", 2));
+        assertEquals(3, connector.atualizarGrafoIncremental(props, GeometriaStore.carregar(props)),
+                "Error: All properties should be new on the first run"); // Error if not 3.
+        assertEquals(2, contarRelacoes(), "Error: Expected A-B and B-C after the first run"); // Error if count != 2.
+        assertEquals(0, connector.atualizarGrafoIncremental(props, GeometriaStore.carregar(props)),
+                "Error: No property should be changed on an identical second run"); // Error if not 0.
+        assertEquals(2, contarRelacoes(), "Error: Relationships should be unchanged on an identical run"); // Error if count != 2.
+    }
+
+    @Test
+    public void atualizarGrafoIncremental3() throws Exception {
+        // Path 3: A moved property loses its old edges and a new property gains its edges, including to smaller ids.
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(quadrado("B", 1));
+        props.add(quadrado("C", 2));
+        props.add(quadrado("D", 3));
+        connector.criarPropriedadesGrafo(props);
+        connector.criarRelacoesAdjacenciaGrafo(props);
+        assertEquals(2, contarRelacoes(), "Error: Expected B-C and C-D after the full run"); // Error if count != 2.
+
+        RelatorioExecucao relatorio = new RelatorioExecucao();
+        connector.setRelatorio(relatorio);
+        props.set(2, quadrado("D", 10)); // D moves away from C
+        props.add(quadrado("A", 0));     // A is new and touches B
+        assertEquals(2, connector.atualizarGrafoIncremental(props, GeometriaStore.carregar(props)),
+                "Error: Expected A (new) and D (moved) to be detected as changed"); // Error if not 2.
+        assertEquals(2, relatorio.etapa("neo4j: Remoção de relações").getLinhas(),
+                "Error: The relationship removal should be in the run report"); // Error if it is not recorded.
+        try (Session session = testDriver.session()) {
+            List<String> relacoes = session.readTransaction(tx -> tx.run(
+                    "MATCH (a)-[:ADJACENTE_A]->(b) RETURN a.objectId + '-' + b.objectId AS r ORDER BY r")
+                    .list(r -> r.get("r").asString()));
+            assertEquals(Arrays.asList("A-B", "B-C"), relacoes,
+                    "Error: Expected only A-B and B-C after the incremental run"); // Error if edges differ.
+        }
+    }
+
+    @Test
+    public void atualizarGrafoIncremental4() throws Exception {
+        // Path 4: A run that fails after the nodes are written is repaired by the next run.
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(quadrado("A", 0));
+        props.add(quadrado("B", 1));
+        props.add(quadrado("C", 5));
+        connector.atualizarGrafoIncremental(props, GeometriaStore.carregar(props));
+        assertEquals(1, contarRelacoes(), "Error: Expected only A-B after the first run"); // Error if count != 1.
+
+        props.set(2, quadrado("C", 2)); // C moves next to B
+        Field detetorField = Neo4jConnector.class.getDeclaredField("detetor");
+        detetorField.setAccessible(true);
+        DetetorAdjacencias original = (DetetorAdjacencias) detetorField.get(connector);
+        detetorField.set(connector, new DetetorAdjacencias(1) {
+            @Override
+            public List<String[]> calcularVizinhanca(List<PropriedadeRustica> origens, List<PropriedadeRustica> propriedades,
+                                                     IndiceHilbert indice, GeometriaStore geometrias) {
+                throw new IllegalStateException("falha simulada");
+            }
+        });
+        assertThrows(IllegalStateException.class, () -> connector.atualizarGrafoIncremental(props, GeometriaStore.carregar(props)),
+                "Error: Expected the simulated detector failure"); // Error if no exception is thrown.
+
+        detetorField.set(connector, original);
+        assertEquals(1, connector.atualizarGrafoIncremental(props, GeometriaStore.carregar(props)),
+                "Error: C should still be pending after the failed run"); // Error if not 1.
+        assertEquals(2, contarRelacoes(), "Error: Expected A-B and B-C after the repair"); // Error if count != 2.
+    }
+
+    @Test
+    public void atualizarGrafoIncremental5() throws Exception {
+        // Path 5: A property missing from the list is deleted together with its relationships.
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(quadrado("A", 0));
+        props.add(quadrado("B", 1));
+        props.add(quadrado("C", 2));
+        connector.atualizarGrafoIncremental(props, GeometriaStore.carregar(props));
+        props.remove(2);
+        assertEquals(0, connector.atualizarGrafoIncremental(props, GeometriaStore.carregar(props)),
+                "Error: No remaining property changed"); // Error if not 0.
+        try (Session session = testDriver.session()) {
+            List<String> ids = session.readTransaction(tx -> tx.run(
+                    "MATCH (p:Propriedade) RETURN p.objectId AS id ORDER BY id").list(r -> r.get("id").asString()));
+            assertEquals(Arrays.asList("A", "B"), ids, "Error: C should have been deleted"); // Error if C remains.
+        }
+        assertEquals(1, contarRelacoes(), "Error: Only A-B should remain"); // Error if count != 1.
+    }
+
+    @Test
+    public void atualizarGrafoIncremental6() throws Exception {
+        // Path 6: More missing properties than one batch are deleted over several transactions on the server.
+        connector.setEscritaEmLotes(2, 1);
+        List<PropriedadeRustica> props = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            props.add(quadrado(Integer.toString(i), 2 * i));
+        }
+        connector.atualizarGrafoIncremental(props, GeometriaStore.carregar(props));
+        List<PropriedadeRustica> restantes = new ArrayList<>(props.subList(0, 2));
+        connector.atualizarGrafoIncremental(restantes, GeometriaStore.carregar(restantes));
+        try (Session session = testDriver.session()) {
+            List<String> ids = session.readTransaction(tx -> tx.run(
+                    "MATCH (p:Propriedade) RETURN p.objectId AS id ORDER BY id").list(r -> r.get("id").asString()));
+            assertEquals(Arrays.asList("0", "1"), ids, "Error: Every missing property should be deleted"); // Error if any remains.
+        }
+    }
+
     // ------------------ obterRelacoesExistentes Tests (Cyclomatic Complexity = 2) ------------------
     @Test
     public void obterRelacoesExistentes1() throws Exception {
         // Path 1: No relationships exist; expect an empty set.
         Method method = Neo4jConnector.class.getDeclaredMethod("obterRelacoesExistentes");
         method.setAccessible(true);
-        @SuppressWarnings("unchecked")
-        Set<String> result = (Set<String>) method.invoke(connector);
+        ConjuntoArestas result = (ConjuntoArestas) method.invoke(connector);
         assertTrue(result.isEmpty(), "Error: Expected empty set when no relationships exist"); // Error if set is not empty.
     }
 
@@ -298,8 +715,7 @@ public class Neo4jConnectorTest {
         }
         Method method = Neo4jConnector.class.getDeclaredMethod("obterRelacoesExistentes");
         method.setAccessible(true);
-        @SuppressWarnings("unchecked")
-        Set<String> result = (Set<String>) method.invoke(connector);
-        assertTrue(result.contains("A-B"), "Error: Expected relationship 'A-B' to be present in the set"); // Error if not contained.
+        ConjuntoArestas result = (ConjuntoArestas) method.invoke(connector);
+        assertTrue(result.contem("A", "B"), "Error: Expected relationship 'A-B' to be present in the set"); // Error if not contained.
     }
 }
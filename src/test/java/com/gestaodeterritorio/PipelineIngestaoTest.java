@@ -0,0 +1,142 @@
+package com.gestaodeterritorio;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.neo4j.driver.*;
+import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PipelineIngestaoTest {
+
+    private Neo4j embeddedDatabase;
+    private Driver testDriver;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    public void setUpAll() {
+        embeddedDatabase = Neo4jBuilders.newInProcessBuilder().withDisabledServer().build();
+        testDriver = GraphDatabase.driver(embeddedDatabase.boltURI(), Config.builder().withoutEncryption().build());
+    }
+
+    @AfterAll
+    public void tearDownAll() {
+        testDriver.close();
+        embeddedDatabase.close();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        // Clean the database before each test.
+        try (Session session = testDriver.session()) {
+            session.writeTransaction(tx -> {
+                tx.run("MATCH (n) DETACH DELETE n");
+                return null;
+            });
+        }
+    }
+
+    // Helper method to write a CSV with a row of unit squares, each touching the next one.
+    private Path createCsv(int linhas) throws Exception {
+        StringBuilder csv = new StringBuilder("OBJECTID;PAR_ID;PAR_NUM;Shape_Length;Shape_Area;geometry;OWNER;Freguesia;Municipio;Ilha\n");
+        for (int i = 1; i <= linhas; i++) {
+            csv.append(i).append(";p").append(i).append(";n").append(i).append(";4.0;1.0;")
+                    .append("\"POLYGON ((").append(i).append(" 0, ").append(i + 1).append(" 0, ").append(i + 1)
+                    .append(" 1, ").append(i).append(" 1, ").append(i).append(" 0))\"")
+                    .append(";owner").append(i).append(";Freguesia;Municipio;Madeira\n");
+        }
+        Path ficheiro = tempDir.resolve("cadastro.csv");
+        Files.write(ficheiro, csv.toString().getBytes(StandardCharsets.UTF_8));
+        return ficheiro;
+    }
+
+    private long contarPropriedades() {
+        try (Session session = testDriver.session()) {
+            return session.readTransaction(tx -> tx.run("MATCH (n:Propriedade) RETURN count(n) AS count")
+                    .single().get("count").asLong());
+        }
+    }
+
+    // ------------------ Constructor Tests (CC = 3) ------------------
+    @Test
+    public void constructor1() {
+        assertThrows(IllegalArgumentException.class, () -> new PipelineIngestao(testDriver, new DetetorAdjacencias(1), 0, 1),
+                "Error: Expected IllegalArgumentException for a batch size below 1"); // Error if no exception is thrown.
+    }
+
+    @Test
+    public void constructor2() {
+        assertThrows(IllegalArgumentException.class, () -> new PipelineIngestao(testDriver, new DetetorAdjacencias(1), 1, 0),
+                "Error: Expected IllegalArgumentException for a write limit below 1"); // Error if no exception is thrown.
+    }
+
+    // ------------------ executar Tests (CC = 4) ------------------
+
+    // Test 1: Small batches and a single write in flight force backpressure; every node and edge is still produced.
+    @Test
+    public void executar1() throws Exception {
+        Path ficheiro = createCsv(50);
+        PipelineIngestao.Resultado resultado = new PipelineIngestao(testDriver, new DetetorAdjacencias(2), 3, 1)
+                .executar(new CadastroLoader(CadastroLoader.Parser.NATIVO), ficheiro.toString());
+        assertEquals(50, resultado.getPropriedades().size(), "Error: Expected every row to be read"); // Error if size differs.
+        assertEquals("1", resultado.getPropriedades().get(0).getObjectId(), "Error: Rows should keep the file order"); // Error if order differs.
+        assertEquals(50, resultado.getGeometrias().tamanho(), "Error: Expected every geometry to be parsed"); // Error if size differs.
+        assertEquals(49, resultado.getArestas().size(), "Error: Expected one edge between each pair of consecutive squares"); // Error if count differs.
+        assertEquals(50, resultado.getNosCriados(), "Error: Expected every node to be reported as created"); // Error if count differs.
+        assertEquals(50, contarPropriedades(), "Error: Expected every node to be written"); // Error if count differs.
+    }
+
+    // Test 2: Several writes in flight produce the same graph, and a second run creates no nodes.
+    @Test
+    public void executar2() throws Exception {
+        Path ficheiro = createCsv(40);
+        new PipelineIngestao(testDriver, new DetetorAdjacencias(1), 4, 4).executar(new CadastroLoader(), ficheiro.toString());
+        PipelineIngestao.Resultado resultado = new PipelineIngestao(testDriver, new DetetorAdjacencias(1), 4, 4)
+                .executar(new CadastroLoader(), ficheiro.toString());
+        assertEquals(0, resultado.getNosCriados(), "Error: A second run should not create nodes"); // Error if nodes were created.
+        assertEquals(40, contarPropriedades(), "Error: Expected each node exactly once"); // Error if count differs.
+    }
+
+    // Test 3: A failure in the reading stage stops the pipeline and is rethrown.
+    @Test
+    public void executar3() {
+        PipelineIngestao pipeline = new PipelineIngestao(testDriver, new DetetorAdjacencias(1), 10, 2);
+        assertThrows(IllegalArgumentException.class,
+                () -> pipeline.executar(new CadastroLoader(), tempDir.resolve("inexistente.csv").toString()),
+                "Error: Expected the missing file error to be rethrown"); // Error if no exception is thrown.
+    }
+
+    // Test 4: A failure in the writing stage stops the pipeline and is rethrown.
+    @Test
+    public void executar4() throws Exception {
+        Path ficheiro = createCsv(20);
+        Driver fechado = GraphDatabase.driver(embeddedDatabase.boltURI(), Config.builder().withoutEncryption().build());
+        fechado.close();
+        PipelineIngestao pipeline = new PipelineIngestao(fechado, new DetetorAdjacencias(1), 5, 2);
+        assertThrows(RuntimeException.class, () -> pipeline.executar(new CadastroLoader(), ficheiro.toString()),
+                "Error: Expected the write error to be rethrown"); // Error if no exception is thrown.
+    }
+
+    // Test 5: Every stage is recorded in the run report, with a latency sample per write transaction.
+    @Test
+    public void executar5() throws Exception {
+        Path ficheiro = createCsv(50);
+        RelatorioExecucao relatorio = new RelatorioExecucao();
+        new PipelineIngestao(testDriver, new DetetorAdjacencias(1), 10, 2, relatorio)
+                .executar(new CadastroLoader(CadastroLoader.Parser.NATIVO), ficheiro.toString());
+        assertEquals(50, relatorio.etapa("csv").getLinhas(), "Error: Expected every row read"); // Error if count differs.
+        assertEquals(50, relatorio.etapa("wkt").getLinhas(), "Error: Expected every geometry parsed"); // Error if count differs.
+        assertEquals(49, relatorio.etapa("adjacencias").getContador("arestas"), "Error: Expected the edges found"); // Error if count differs.
+        RelatorioExecucao.Etapa escrita = relatorio.etapa("neo4j: Propriedades");
+        assertEquals(50, escrita.getLinhas(), "Error: Expected every node written"); // Error if count differs.
+        assertEquals(5, escrita.getLatencia("transacoes").getTotal(), "Error: Expected one latency per batch"); // Error if count differs.
+    }
+}
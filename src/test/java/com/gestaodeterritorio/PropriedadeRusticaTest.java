@@ -111,6 +111,21 @@ public class PropriedadeRusticaTest {
         assertEquals(expected, pr.getIlha(), "Error: getIlha should return the value set for ilha"); // Error if not equal.
     }
 
+    // ------------------ getHashGeometria Test (CC = 2) ------------------
+    @Test
+    public void getHashGeometria() throws Exception {
+        PropriedadeRustica pr = new PropriedadeRustica();
+        assertEquals(0L, pr.getHashGeometria(), "Error: getHashGeometria should return 0 without geometry"); // Error if not 0.
+        setField(pr, "geometry", "POINT(1 2)");
+        long hash = pr.getHashGeometria();
+        PropriedadeRustica igual = new PropriedadeRustica();
+        setField(igual, "geometry", "POINT(1 2)");
+        PropriedadeRustica diferente = new PropriedadeRustica();
+        setField(diferente, "geometry", "POINT(1 3)");
+        assertEquals(hash, igual.getHashGeometria(), "Error: Equal WKT should produce the same hash"); // Error if hashes differ.
+        assertNotEquals(hash, diferente.getHashGeometria(), "Error: Different WKT should produce a different hash"); // Error if hashes are equal.
+    }
+
     // ------------------ toString Test (CC = 1) ------------------
     @Test
     public void toStringTest() throws Exception {
@@ -0,0 +1,20 @@
+package com.gestaodeterritorio;
+
+/**
+ * Propriedades de teste com apenas os atributos usados por cada teste preenchidos.
+ */
+final class PropriedadesTeste {
+
+    private PropriedadesTeste() {
+    }
+
+    // Helper method to build a PropriedadeRustica with only objectId and geometry set.
+    static PropriedadeRustica criar(String objectId, String geometry) {
+        return new PropriedadeRustica(objectId, null, null, null, null, geometry, null, null, null, null);
+    }
+
+    // Helper method to build a PropriedadeRustica with only objectId and owner set.
+    static PropriedadeRustica comDono(String objectId, String owner) {
+        return new PropriedadeRustica(objectId, null, null, null, null, null, owner, null, null, null);
+    }
+}
@@ -0,0 +1,98 @@
+package com.gestaodeterritorio;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class RelatorioExecucaoTest {
+
+    @TempDir
+    Path tempDir;
+
+    // ------------------ etapa Tests (CC = 2) ------------------
+    @Test
+    public void etapa() {
+        RelatorioExecucao relatorio = new RelatorioExecucao();
+        RelatorioExecucao.Etapa csv = relatorio.etapa("csv");
+        relatorio.etapa("wkt");
+        assertSame(csv, relatorio.etapa("csv"), "Error: The same name should return the same stage"); // Error if a new stage is created.
+        assertEquals("csv", relatorio.getEtapas().get(0).getNome(), "Error: Stages should keep the order of first use"); // Error if order differs.
+        assertEquals(2, relatorio.getEtapas().size(), "Error: Expected two stages"); // Error if count differs.
+    }
+
+    // ------------------ medir Tests (CC = 1) ------------------
+    @Test
+    public void medicao() throws Exception {
+        RelatorioExecucao.Etapa etapa = new RelatorioExecucao().etapa("teste");
+        etapa.medir(() -> {
+            Thread.sleep(5);
+            return null;
+        });
+        assertEquals(7, (int) etapa.medir(() -> {
+            etapa.somarLinhas(10);
+            etapa.somar("arestas", 3);
+            etapa.somar("arestas", 2);
+            return 7;
+        }), "Error: The result of the measured computation should be returned"); // Error if result differs.
+        assertEquals(2, etapa.getChamadas(), "Error: Expected two measurements"); // Error if count differs.
+        assertTrue(etapa.getTempoNanos() >= 5000000, "Error: Wall time should include the sleep"); // Error if time is too short.
+        assertEquals(10, etapa.getLinhas(), "Error: Expected the rows added"); // Error if count differs.
+        assertEquals(5, etapa.getContador("arestas"), "Error: Counters should accumulate"); // Error if count differs.
+        assertEquals(0, etapa.getContador("outro"), "Error: Unused counters should be 0"); // Error if count differs.
+
+        assertThrows(IOException.class, () -> etapa.medir(() -> {
+            throw new IOException("falha");
+        }), "Error: The computation's exception should be rethrown"); // Error if no exception is thrown.
+        assertEquals(3, etapa.getChamadas(), "Error: A failed computation should still be measured"); // Error if count differs.
+    }
+
+    // ------------------ Histograma Tests (CC = 3) ------------------
+    @Test
+    public void histograma() {
+        RelatorioExecucao.Histograma histograma = new RelatorioExecucao.Histograma();
+        assertEquals(0, histograma.percentilNanos(50), "Error: An empty histogram should report 0"); // Error if not 0.
+        for (int i = 1; i <= 99; i++) {
+            histograma.registar(1500000); // 1,5 ms
+        }
+        histograma.registar(40000000); // 40 ms
+        assertEquals(100, histograma.getTotal(), "Error: Expected every sample counted"); // Error if count differs.
+        long p50 = histograma.percentilNanos(50);
+        assertTrue(p50 >= 1500000 && p50 <= 3000000, "Error: p50 should be within a factor of 2 of 1.5 ms"); // Error if out of the bucket.
+        assertTrue(histograma.percentilNanos(99) < 40000000, "Error: p99 should not reach the outlier"); // Error if p99 is the outlier.
+        assertEquals(40000000, histograma.percentilNanos(100), "Error: p100 should be the maximum"); // Error if p100 differs.
+    }
+
+    // ------------------ paraJson Tests (CC = 3) ------------------
+    @Test
+    public void paraJson() {
+        RelatorioExecucao relatorio = new RelatorioExecucao();
+        RelatorioExecucao.Etapa etapa = relatorio.etapa("adjacencias \"teste\"");
+        etapa.somar("paresTestados", 4);
+        etapa.somar("arestas", 1);
+        etapa.registarLatencia("transacoes", 2000000);
+        relatorio.registarErro(new IllegalStateException("falhou"));
+        String json = relatorio.paraJson();
+        assertTrue(json.contains("\"nome\": \"adjacencias \\\"teste\\\"\""), "Error: Names should be escaped"); // Error if quotes are not escaped.
+        assertTrue(json.contains("\"arestasPorParTestado\": 0.250"), "Error: Expected the edge ratio"); // Error if ratio is missing.
+        assertTrue(json.contains("\"transacoes\": {\"total\": 1"), "Error: Expected the latency histogram"); // Error if histogram is missing.
+        assertTrue(json.contains("\"erro\": \"java.lang.IllegalStateException: falhou\""), "Error: Expected the error"); // Error if error is missing.
+        assertTrue(new RelatorioExecucao().paraJson().contains("\"etapas\": []"), "Error: Expected an empty stage list"); // Error if list differs.
+    }
+
+    // ------------------ escrever Tests (CC = 1) ------------------
+    @Test
+    public void escrever() throws Exception {
+        RelatorioExecucao relatorio = new RelatorioExecucao();
+        relatorio.etapa("csv").somarLinhas(7);
+        Path ficheiro = tempDir.resolve("relatorio.json");
+        relatorio.escrever(ficheiro);
+        String json = new String(Files.readAllBytes(ficheiro), StandardCharsets.UTF_8);
+        assertTrue(json.contains("\"linhas\": 7"), "Error: Expected the report in the file"); // Error if content differs.
+        assertTrue(json.contains("\"erro\": null"), "Error: A successful run should have no error"); // Error if error is set.
+    }
+}
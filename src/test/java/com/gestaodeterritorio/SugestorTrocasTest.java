@@ -0,0 +1,113 @@
+package com.gestaodeterritorio;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class SugestorTrocasTest {
+
+    // Helper method to build a PropriedadeRustica with the attributes used by the engine.
+    private PropriedadeRustica createPropriedade(String id, String owner, String area) {
+        return new PropriedadeRustica(id, null, null, null, area, null, owner, null, null, null);
+    }
+
+    // Helper method to build a row of parcels where each parcel touches the next one.
+    private GrafoAdjacencia createLinha(List<PropriedadeRustica> props) {
+        List<String[]> arestas = new ArrayList<>();
+        for (int i = 0; i + 1 < props.size(); i++) {
+            arestas.add(new String[]{props.get(i).getObjectId(), props.get(i + 1).getObjectId()});
+        }
+        return GrafoAdjacencia.construir(props, arestas);
+    }
+
+    // ------------------ Constructor Tests (CC = 2) ------------------
+    @Test
+    public void constructor() {
+        assertThrows(IllegalArgumentException.class, () -> new SugestorTrocas(0),
+                "Error: Expected IllegalArgumentException for a thread count below 1"); // Error if no exception is thrown.
+    }
+
+    // ------------------ sugerir Tests (CC = 5) ------------------
+
+    // Test 1: In a row A B A B, only the two swaps that make both owners contiguous are suggested.
+    @Test
+    public void sugerir1() {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(createPropriedade("0", "A", "1"));
+        props.add(createPropriedade("1", "B", "1"));
+        props.add(createPropriedade("2", "A", "1"));
+        props.add(createPropriedade("3", "B", "1"));
+        List<SugestorTrocas.Sugestao> sugestoes = new SugestorTrocas(1).sugerir(props, createLinha(props), 10);
+        assertEquals(2, sugestoes.size(), "Error: Expected the swaps 0<->3 and 2<->1 only"); // Error if count differs.
+        SugestorTrocas.Sugestao melhor = sugestoes.get(0);
+        assertEquals("0", melhor.getCedidaPorA(), "Error: Ties should be broken by objectId"); // Error if order differs.
+        assertEquals("3", melhor.getCedidaPorB(), "Error: Ties should be broken by objectId"); // Error if order differs.
+        assertEquals(1.0, melhor.getGanhoA(), 1e-9, "Error: A should go from two holdings of 1 to one of 2"); // Error if gain differs.
+        assertEquals(1.0, melhor.getGanhoB(), 1e-9, "Error: B should go from two holdings of 1 to one of 2"); // Error if gain differs.
+        assertEquals(2.0, melhor.getPontuacao(), 1e-9, "Error: Equal areas should keep the full gain"); // Error if score differs.
+    }
+
+    // Test 2: A swap that would split the larger holding of one owner is not suggested.
+    @Test
+    public void sugerir2() {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(createPropriedade("0", "A", "1"));
+        props.add(createPropriedade("1", "B", "4"));
+        props.add(createPropriedade("2", "A", "1"));
+        props.add(createPropriedade("3", "B", "1"));
+        List<SugestorTrocas.Sugestao> sugestoes = new SugestorTrocas(1).sugerir(props, createLinha(props), 10);
+        assertEquals(1, sugestoes.size(), "Error: Expected B to refuse giving away its larger parcel"); // Error if count differs.
+        assertEquals("0", sugestoes.get(0).getCedidaPorA(), "Error: Expected A to cede parcel 0"); // Error if parcel differs.
+        assertEquals("3", sugestoes.get(0).getCedidaPorB(), "Error: Expected B to cede parcel 3"); // Error if parcel differs.
+        assertEquals(1.6, sugestoes.get(0).getGanhoB(), 1e-9, "Error: B should go from 4+1 to one holding of 5"); // Error if gain differs.
+    }
+
+    // Test 3: Owners that already hold contiguous parcels get no suggestion.
+    @Test
+    public void sugerir3() {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(createPropriedade("0", "A", "1"));
+        props.add(createPropriedade("1", "A", "1"));
+        props.add(createPropriedade("2", "B", "1"));
+        props.add(createPropriedade("3", "B", "1"));
+        assertTrue(new SugestorTrocas(1).sugerir(props, createLinha(props), 10).isEmpty(),
+                "Error: No swap should be suggested when no owner gains"); // Error if not empty.
+    }
+
+    // Test 4: The parallel path keeps exactly the same top-k as the sequential path.
+    @Test
+    public void sugerir4() {
+        int lado = 60;
+        Random random = new Random(7);
+        List<PropriedadeRustica> props = new ArrayList<>();
+        List<String[]> arestas = new ArrayList<>();
+        for (int v = 0; v < lado * lado; v++) {
+            props.add(createPropriedade(Integer.toString(v), "owner" + random.nextInt(300), Integer.toString(1 + random.nextInt(5))));
+            if (v % lado + 1 < lado) arestas.add(new String[]{Integer.toString(v), Integer.toString(v + 1)});
+            if (v + lado < lado * lado) arestas.add(new String[]{Integer.toString(v), Integer.toString(v + lado)});
+        }
+        GrafoAdjacencia grafo = GrafoAdjacencia.construir(props, arestas);
+        List<SugestorTrocas.Sugestao> sequencial = new SugestorTrocas(1).sugerir(props, grafo, 25);
+        List<SugestorTrocas.Sugestao> paralelo = new SugestorTrocas(4).sugerir(props, grafo, 25);
+        assertEquals(25, sequencial.size(), "Error: Expected the heap to be filled up to k"); // Error if size differs.
+        for (int i = 0; i < sequencial.size(); i++) {
+            assertEquals(sequencial.get(i).getCedidaPorA(), paralelo.get(i).getCedidaPorA(), "Error: Parallel top-k should match"); // Error if suggestions differ.
+            assertEquals(sequencial.get(i).getCedidaPorB(), paralelo.get(i).getCedidaPorB(), "Error: Parallel top-k should match"); // Error if suggestions differ.
+            if (i > 0) {
+                assertTrue(sequencial.get(i - 1).getPontuacao() >= sequencial.get(i).getPontuacao(),
+                        "Error: Suggestions should be sorted from best to worst"); // Error if not sorted.
+            }
+        }
+    }
+
+    // Test 5: k below 1 is rejected.
+    @Test
+    public void sugerir5() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new SugestorTrocas(1).sugerir(new ArrayList<>(), GrafoAdjacencia.construir(new ArrayList<>()), 0),
+                "Error: Expected IllegalArgumentException for k below 1"); // Error if no exception is thrown.
+    }
+}
@@ -0,0 +1,102 @@
+package com.gestaodeterritorio;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TabelaCadastroTest {
+
+    // Helper method to build a small list of properties with repeated categorical values.
+    private List<PropriedadeRustica> createPropriedades() {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(new PropriedadeRustica("1", "p1", "n1", "4.0", "1.5", "POLYGON ((0 0, 1 0, 1 1, 0 0))", "Ana", "Sé", "Funchal", "Madeira"));
+        props.add(new PropriedadeRustica("2", "p2", "n2", "8,5", "2", null, "Rui", "Sé", "Funchal", "Madeira"));
+        props.add(new PropriedadeRustica("3", "p3", "n3", "", "abc", null, "Ana", "Monte", "Funchal", null));
+        return props;
+    }
+
+    // ------------------ de Tests (CC = 1) ------------------
+    @Test
+    public void de() {
+        TabelaCadastro tabela = TabelaCadastro.de(createPropriedades());
+        assertEquals(3, tabela.tamanho(), "Error: Expected one row per property"); // Error if size != 3.
+        assertTrue(tabela.temGeometrias(), "Error: Geometries should be kept by default"); // Error if the WKT column is missing.
+        assertEquals("2", tabela.objectId(1), "Error: Rows should keep the input order"); // Error if order differs.
+    }
+
+    // ------------------ Column Tests (CC = 2) ------------------
+
+    // Test 1: Numeric columns are parsed once, accepting comma decimals and storing NaN for invalid values.
+    @Test
+    public void colunasNumericas() {
+        TabelaCadastro tabela = TabelaCadastro.de(createPropriedades());
+        assertEquals(1.5, tabela.area(0), 1e-9, "Error: Area should be parsed to a double"); // Error if area differs.
+        assertEquals(8.5, tabela.comprimento(1), 1e-9, "Error: Comma decimals should be accepted"); // Error if length differs.
+        assertTrue(Double.isNaN(tabela.area(2)), "Error: Invalid areas should be stored as NaN"); // Error if not NaN.
+        assertTrue(Double.isNaN(tabela.comprimento(2)), "Error: Empty lengths should be stored as NaN"); // Error if not NaN.
+    }
+
+    // Test 2: Categorical columns share one dictionary entry per distinct value.
+    @Test
+    public void colunasCategoricas() {
+        TabelaCadastro tabela = TabelaCadastro.de(createPropriedades());
+        assertEquals(2, tabela.proprietarios().tamanho(), "Error: Expected two distinct owners"); // Error if dictionary size differs.
+        assertEquals(tabela.codigoProprietario(0), tabela.codigoProprietario(2), "Error: Same owner should share a code"); // Error if codes differ.
+        assertEquals(1, tabela.municipios().tamanho(), "Error: Expected a single municipality"); // Error if dictionary size differs.
+        assertEquals(-1, tabela.codigoIlha(2), "Error: Missing values should be coded as -1"); // Error if code differs.
+        assertEquals(-1, tabela.freguesias().codigo("Inexistente"), "Error: Unknown values should not have a code"); // Error if a code is returned.
+        assertEquals("Monte", tabela.freguesias().valor(tabela.codigoFreguesia(2)), "Error: Codes should map back to values"); // Error if value differs.
+    }
+
+    // ------------------ linha Tests (CC = 2) ------------------
+
+    // Test 1: The row view exposes the same values as the original property.
+    @Test
+    public void linha1() {
+        List<PropriedadeRustica> props = createPropriedades();
+        TabelaCadastro.Linha linha = TabelaCadastro.de(props).linha(0);
+        assertEquals(0, linha.getLinha(), "Error: Row view should know its position"); // Error if position differs.
+        assertEquals(props.get(0).toString(), linha.toString(), "Error: Row view should print like the property"); // Error if text differs.
+        assertEquals(props.get(0).getHashGeometria(), linha.getHashGeometria(), "Error: Geometry hash should match"); // Error if hash differs.
+        assertEquals("Ana", linha.getOwner(), "Error: Owner should be decoded from the dictionary"); // Error if owner differs.
+        assertEquals("p1", linha.getParId(), "Error: PAR_ID should be kept"); // Error if PAR_ID differs.
+        assertNull(TabelaCadastro.de(props).linha(2).getShapeArea(), "Error: Invalid areas should be read back as null"); // Error if not null.
+    }
+
+    // Test 2: Positions outside the table are rejected.
+    @Test
+    public void linha2() {
+        TabelaCadastro tabela = TabelaCadastro.de(createPropriedades());
+        assertThrows(IndexOutOfBoundsException.class, () -> tabela.linha(3),
+                "Error: Expected IndexOutOfBoundsException past the end"); // Error if no exception is thrown.
+    }
+
+    // ------------------ linhas Tests (CC = 1) ------------------
+    @Test
+    public void linhas() {
+        TabelaCadastro tabela = TabelaCadastro.de(createPropriedades());
+        List<PropriedadeRustica> linhas = tabela.linhas();
+        assertEquals(3, linhas.size(), "Error: List view should have one element per row"); // Error if size differs.
+        assertEquals("3", linhas.get(2).getObjectId(), "Error: List view should follow the table order"); // Error if id differs.
+        assertThrows(UnsupportedOperationException.class, () -> linhas.add(linhas.get(0)),
+                "Error: List view should be read-only"); // Error if the list can be modified.
+    }
+
+    // ------------------ Construtor Tests (CC = 3) ------------------
+    @Test
+    public void construtor() {
+        TabelaCadastro.Construtor construtor = new TabelaCadastro.Construtor(false);
+        for (int i = 0; i < 5000; i++) {
+            construtor.adicionar(new PropriedadeRustica(Integer.toString(i), null, null, null, Integer.toString(i), "POINT (0 0)", "o" + (i % 7), null, null, null));
+        }
+        assertEquals(5000, construtor.tamanho(), "Error: Builder should grow past its initial capacity"); // Error if size differs.
+        TabelaCadastro tabela = construtor.construir();
+        assertFalse(tabela.temGeometrias(), "Error: Geometries should be dropped when not requested"); // Error if the WKT column exists.
+        assertEquals(4999.0, tabela.area(4999), 1e-9, "Error: Last row should be kept"); // Error if area differs.
+        assertEquals(7, tabela.proprietarios().tamanho(), "Error: Expected seven distinct owners"); // Error if dictionary size differs.
+        assertThrows(IllegalStateException.class, () -> construtor.adicionar(tabela.linha(0)),
+                "Error: Expected IllegalStateException after building"); // Error if no exception is thrown.
+    }
+}
@@ -0,0 +1,123 @@
+package com.gestaodeterritorio;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class UniaoPropriedadesTest {
+
+    // Helper method to build a unit-height rectangle [x0, x1] x [0, 1] owned by the given owner.
+    private PropriedadeRustica createPropriedade(String id, String owner, double x0, double x1, String freguesia) {
+        String wkt = "POLYGON((" + x0 + " 0, " + x1 + " 0, " + x1 + " 1, " + x0 + " 1, " + x0 + " 0))";
+        return new PropriedadeRustica(id, null, null, null, Double.toString(x1 - x0), wkt, owner, freguesia, "M", "I");
+    }
+
+    // Helper method to build the graph and the holdings of a list of parcels.
+    private UniaoPropriedades calcular(List<PropriedadeRustica> props) {
+        GeometriaStore geometrias = GeometriaStore.carregar(props);
+        List<String[]> arestas = new DetetorAdjacencias(1).calcular(props, geometrias);
+        return UniaoPropriedades.calcular(props, GrafoAdjacencia.construir(props, arestas));
+    }
+
+    // A row A1 A2 R1 A3 where A3 is Ana's but not connected to A1-A2 through Ana's parcels.
+    private List<PropriedadeRustica> createLinha() {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(createPropriedade("1", "Ana", 0, 1, "F1"));
+        props.add(createPropriedade("2", "Ana", 1, 3, "F2"));
+        props.add(createPropriedade("3", "Rui", 3, 4, "F1"));
+        props.add(createPropriedade("4", "Ana", 4, 5, "F1"));
+        return props;
+    }
+
+    // ------------------ calcular Tests (CC = 6) ------------------
+
+    // Test 1: Only adjacent parcels of the same owner are merged.
+    @Test
+    public void calcular1() {
+        UniaoPropriedades uniao = calcular(createLinha());
+        assertEquals(3, uniao.numeroComponentes(), "Error: Expected {1,2}, {3} and {4}"); // Error if count differs.
+        assertEquals(uniao.componente("1"), uniao.componente("2"), "Error: 1 and 2 should form one holding"); // Error if apart.
+        assertNotEquals(uniao.componente("1"), uniao.componente("4"), "Error: 4 is not connected through Ana's parcels"); // Error if merged.
+        assertEquals(Arrays.asList("1", "2"), uniao.membros(uniao.componente("1")), "Error: Unexpected members"); // Error if members differ.
+        assertEquals("Ana", uniao.proprietario(uniao.componente("2")), "Error: Holding should keep its owner"); // Error if owner differs.
+        assertEquals(-1, uniao.componente("X"), "Error: Unknown objectId should have no holding"); // Error if not -1.
+    }
+
+    // Test 2: Parcels without owner are never merged.
+    @Test
+    public void calcular2() {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(createPropriedade("1", null, 0, 1, "F"));
+        props.add(createPropriedade("2", null, 1, 2, "F"));
+        UniaoPropriedades uniao = calcular(props);
+        assertEquals(2, uniao.numeroComponentes(), "Error: Parcels without owner should stay apart"); // Error if merged.
+        assertNull(uniao.proprietario(0), "Error: Holding without owner should report null"); // Error if not null.
+    }
+
+    // ------------------ calcularAreas Tests (CC = 6) ------------------
+
+    // Test 1: Summed Shape_Area and geometric union agree when parcels only touch.
+    @Test
+    public void calcularAreas1() {
+        List<PropriedadeRustica> props = createLinha();
+        UniaoPropriedades uniao = calcular(props);
+        double[] soma = uniao.calcularAreas(UniaoPropriedades.ModoArea.SOMA, null, 1);
+        double[] unida = uniao.calcularAreas(UniaoPropriedades.ModoArea.UNIAO, GeometriaStore.carregar(props), 1);
+        int c = uniao.componente("1");
+        assertEquals(3.0, soma[c], 1e-9, "Error: Expected 1 + 2 as summed area"); // Error if area differs.
+        assertEquals(3.0, unida[c], 1e-9, "Error: Expected the union area to match the sum"); // Error if area differs.
+    }
+
+    // Test 2: The geometric union does not count overlaps twice.
+    @Test
+    public void calcularAreas2() {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        props.add(createPropriedade("1", "Ana", 0, 2, "F"));
+        props.add(createPropriedade("2", "Ana", 1, 3, "F"));
+        UniaoPropriedades uniao = calcular(props);
+        assertEquals(4.0, uniao.calcularAreas(UniaoPropriedades.ModoArea.SOMA, null, 1)[0], 1e-9,
+                "Error: Summed area should count the overlap twice"); // Error if area differs.
+        assertEquals(3.0, uniao.calcularAreas(UniaoPropriedades.ModoArea.UNIAO, GeometriaStore.carregar(props), 1)[0], 1e-9,
+                "Error: Union area should count the overlap once"); // Error if area differs.
+    }
+
+    // Test 3: The parallel path returns the same areas as the sequential path.
+    @Test
+    public void calcularAreas3() {
+        List<PropriedadeRustica> props = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            props.add(createPropriedade(Integer.toString(i), "owner" + (i / 3), i, i + 1, "F"));
+        }
+        UniaoPropriedades uniao = calcular(props);
+        GeometriaStore geometrias = GeometriaStore.carregar(props);
+        assertEquals(334, uniao.numeroComponentes(), "Error: Expected one holding per run of three parcels"); // Error if count differs.
+        assertArrayEquals(uniao.calcularAreas(UniaoPropriedades.ModoArea.UNIAO, geometrias, 1),
+                uniao.calcularAreas(UniaoPropriedades.ModoArea.UNIAO, geometrias, 4), 1e-9,
+                "Error: Parallel union should match the sequential result"); // Error if areas differ.
+    }
+
+    // Test 4: A thread count below 1 is rejected.
+    @Test
+    public void calcularAreas4() {
+        UniaoPropriedades uniao = calcular(createLinha());
+        assertThrows(IllegalArgumentException.class, () -> uniao.calcularAreas(UniaoPropriedades.ModoArea.SOMA, null, 0),
+                "Error: Expected IllegalArgumentException for a thread count below 1"); // Error if no exception is thrown.
+    }
+
+    // ------------------ estatisticas Tests (CC = 3) ------------------
+    @Test
+    public void estatisticas() {
+        UniaoPropriedades uniao = calcular(createLinha());
+        AgregadorAreas agregador = uniao.estatisticas(uniao.calcularAreas(UniaoPropriedades.ModoArea.SOMA, null, 1));
+        // The holding {1,2} counts once, in F2 where its larger parcel lies.
+        assertEquals(1, agregador.obter(AgregadorAreas.Nivel.FREGUESIA, AgregadorAreas.chave("I", "M", "F2")).getNumeroPropriedades(),
+                "Error: Holding should be counted once in its largest parcel's region"); // Error if count differs.
+        assertEquals(3.0, agregador.obter(AgregadorAreas.Nivel.FREGUESIA, AgregadorAreas.chave("I", "M", "F2")).getAreaTotal(), 1e-9,
+                "Error: Holding should contribute its merged area"); // Error if area differs.
+        assertEquals(5.0 / 3, agregador.obter(AgregadorAreas.Nivel.MUNICIPIO, AgregadorAreas.chave("I", "M")).getAreaMedia(), 1e-9,
+                "Error: Expected the mean over three holdings"); // Error if mean differs.
+    }
+}